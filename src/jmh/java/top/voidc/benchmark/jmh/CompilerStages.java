@@ -0,0 +1,81 @@
+package top.voidc.benchmark.jmh;
+
+import top.voidc.backend.*;
+import top.voidc.backend.arm64.instr.pattern.ARM64InstructionPatternPack;
+import top.voidc.backend.instr.InstructionSelectionPass;
+import top.voidc.backend.regallocator.LinearScanAllocator;
+import top.voidc.benchmark.BenchmarkSupport;
+import top.voidc.misc.Log;
+import top.voidc.optimizer.CompilePipeline;
+import top.voidc.optimizer.PassManager;
+import top.voidc.optimizer.pass.CompilePass;
+import top.voidc.optimizer.pass.function.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 按 CompilePipeline 运行 Pass，为单个 Pass 的基准测试准备真实的输入状态
+ * 和 Compiler 共用同一份流水线定义，在目标 Pass 第一次运行之前停下，untilStable 中的 Pass 拿到的是第一轮的输入
+ */
+public class CompilerStages {
+    /**
+     * 到达目标 Pass 时中断流水线
+     */
+    private static final class StopException extends RuntimeException {
+        StopException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * 可以单独测量的 Pass，键为 @Param 中使用的名字
+     */
+    public static final Map<String, Class<? extends CompilePass<?>>> PASSES = Map.of(
+            "Mem2Reg", Mem2Reg.class,
+            "GlobalValueNumbering", GlobalValueNumbering.class,
+            "SparseConditionalConstantPropagation", SparseConditionalConstantPropagation.class,
+            "SmartChilletSimplifyCFG", SmartChilletSimplifyCFG.class,
+            "InstructionSelectionPass", InstructionSelectionPass.class,
+            "LivenessAnalysis", LivenessAnalysis.class,
+            "LinearScanAllocator", LinearScanAllocator.class,
+            "OutputARMASM", OutputARMASM.class
+    );
+
+    public static Class<? extends CompilePass<?>> passByName(String name) {
+        final var pass = PASSES.get(name);
+        Log.should(pass != null, () -> "未知的 Pass: " + name);
+        return pass;
+    }
+
+    /**
+     * 编译源文件，在 target 第一次运行之前停下
+     * @param source     源文件
+     * @param target     要测量的 Pass
+     * @param outputPath OutputARMASM 的输出文件
+     * @return 可以直接 runPass(target) 的 PassManager
+     */
+    public static PassManager prepare(File source, Class<? extends CompilePass<?>> target, Path outputPath)
+            throws IOException {
+        final var context = BenchmarkSupport.frontend(source);
+        context.addPassResult("sourceFile", source);
+        context.addPassResult("sourcePath", source.getPath());
+        context.addPassResult("outputPath", outputPath.toString());
+        context.addPassResult(new ARM64InstructionPatternPack());
+
+        final var passManager = new PassManager(context);
+        passManager.addDisableGroup("needfix");
+        passManager.setBeforePass(pass -> {
+            if (target.equals(pass)) throw new StopException();
+        });
+        try {
+            CompilePipeline.configure(passManager);
+        } catch (StopException e) {
+            passManager.setBeforePass(null);
+            return passManager;
+        }
+        throw new IllegalArgumentException(target.getSimpleName() + " 不在流水线中");
+    }
+}
@@ -0,0 +1,40 @@
+package top.voidc.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import top.voidc.benchmark.BenchmarkSupport;
+import top.voidc.misc.Flag;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 前端（词法、语法分析和生成 IR）在整个样例集上的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xss64M", "-Dlog.level=warn", "-Dchill.ci=true"})
+public class FrontendBenchmark {
+    @Param({"testcases/2025_arm_performance", "testcases/functional"})
+    public String suite;
+
+    private List<File> sources;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Flag.init(new String[]{"-S"});
+        sources = BenchmarkSupport.sources(suite);
+    }
+
+    @Benchmark
+    public void frontend(Blackhole blackhole) throws IOException {
+        for (var source : sources) {
+            blackhole.consume(BenchmarkSupport.frontend(source));
+        }
+    }
+}
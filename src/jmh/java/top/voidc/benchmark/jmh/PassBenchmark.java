@@ -0,0 +1,66 @@
+package top.voidc.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import top.voidc.benchmark.BenchmarkSupport;
+import top.voidc.misc.Flag;
+import top.voidc.optimizer.PassManager;
+import top.voidc.optimizer.pass.CompilePass;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单独测量一个 Pass 在整个样例集上的耗时
+ * Pass 会修改 IR，所以每轮迭代前重新编译到该 Pass 之前的状态，每轮只运行一次
+ * suite 可以是目录也可以是单个文件，例如 -p suite=testcases/functional/95_float.sy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xss64M", "-Dlog.level=warn", "-Dchill.ci=true"})
+public class PassBenchmark {
+    @Param({"testcases/2025_arm_performance", "testcases/functional"})
+    public String suite;
+
+    @Param({"Mem2Reg", "GlobalValueNumbering", "SparseConditionalConstantPropagation", "SmartChilletSimplifyCFG",
+            "InstructionSelectionPass", "LivenessAnalysis", "LinearScanAllocator", "OutputARMASM"})
+    public String pass;
+
+    private Class<? extends CompilePass<?>> passClass;
+    private Path output;
+    private List<PassManager> states;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        Flag.init(new String[]{"-S"});
+        passClass = CompilerStages.passByName(pass);
+        output = Files.createTempFile("chill-benchmark", ".s");
+    }
+
+    @Setup(Level.Iteration)
+    public void prepare() throws IOException {
+        states = new ArrayList<>();
+        for (var source : BenchmarkSupport.sources(suite)) {
+            states.add(CompilerStages.prepare(source, passClass, output));
+        }
+    }
+
+    @Benchmark
+    public void run(Blackhole blackhole) {
+        for (var state : states) {
+            blackhole.consume(state.runPass(passClass));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+    }
+}
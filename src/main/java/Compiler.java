@@ -1,27 +1,23 @@
 import org.antlr.v4.runtime.*;
-import org.antlr.v4.runtime.misc.ParseCancellationException;
-import top.voidc.backend.*;
-import top.voidc.backend.peephole.PeepholeOptimization;
-import top.voidc.backend.regallocator.*;
 import top.voidc.backend.arm64.instr.pattern.ARM64InstructionPatternPack;
-import top.voidc.backend.instr.InstructionSelectionPass;
-import top.voidc.backend.SSADestruction;
-import top.voidc.frontend.parser.SysyLexer;
-import top.voidc.frontend.parser.SysyParser;
+import top.voidc.frontend.helper.LibrarySnapshot;
+import top.voidc.frontend.helper.SysyParsing;
 import top.voidc.frontend.translator.IRGenerator;
 import top.voidc.ir.IceContext;
 import top.voidc.ir.IceUnit;
 import top.voidc.misc.Flag;
 import top.voidc.misc.Log;
+import top.voidc.misc.Statistics;
+import top.voidc.optimizer.CompileCache;
+import top.voidc.optimizer.CompilePipeline;
+import top.voidc.optimizer.PassInstrumentation;
 import top.voidc.optimizer.PassManager;
-import top.voidc.optimizer.pass.function.*;
-import top.voidc.optimizer.pass.unit.CallGraphAnalyzer;
-import top.voidc.optimizer.pass.unit.FunctionPureness;
-import top.voidc.optimizer.pass.unit.ShowIR;
+import top.voidc.server.CompileServer;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
 import java.util.Objects;
 
 public class Compiler {
@@ -49,15 +45,33 @@ public class Compiler {
         this.compile(passManager);
     }
 
+    /**
+     * 编译期间当前线程绑定 context 中的计数器，-fstats 只输出本次编译的计数
+     */
     public void compile(PassManager passManager) throws IOException {
+        final var previous = Statistics.bind(context.getStatistics());
+        try {
+            doCompile(passManager);
+        } finally {
+            Statistics.bind(previous);
+        }
+    }
+
+    private void doCompile(PassManager passManager) throws IOException {
         context.setCurrentIR(new IceUnit(Flag.get("source")));
         context.addPassResult("sourcePath", sourcePath);
         context.addPassResult("outputPath", outputPath);
 
         IRGenerator generator = new IRGenerator(context);
-        parseLibSource(context);
-        generator.generateIR();
+        if (!LibrarySnapshot.load(context)) {
+            Log.d("找不到库函数快照，解析 lib.sy");
+            parseLibSource(context);
+            generator.generateIR();
+        }
 
+        if (Boolean.TRUE.equals(Flag.get("-fwarm-parser"))) {
+            SysyParsing.warmUp();
+        }
         parseSource(context);
         generator.generateIR();
 
@@ -77,45 +91,35 @@ public class Compiler {
             }
         }
 
+        final var timePasses = Boolean.TRUE.equals(Flag.get("-ftime-passes"));
+        final var showStats = Boolean.TRUE.equals(Flag.get("-fstats"));
+        final String statsJson = Flag.get("-fstats-json");
+        final var writeStatsJson = statsJson != null && !statsJson.isBlank();
+        if (timePasses || writeStatsJson) {
+            passManager.setInstrumentation(new PassInstrumentation(context.getStatistics()));
+        }
+        passManager.setFunctionPipeline(Boolean.TRUE.equals(Flag.get("-ffunction-pipeline")));
+        final Integer maxStableRounds = Flag.get("-fmax-stable-rounds");
+        if (maxStableRounds != null) passManager.setMaxStableRounds(maxStableRounds);
+        final String cacheDir = Flag.get("-fcache-dir");
+        if (cacheDir != null && !cacheDir.isBlank()) {
+            passManager.setCompileCache(new CompileCache(Path.of(cacheDir)));
+        }
+
         passManager.runAll();
+
+        if (timePasses) passManager.getInstrumentation().printTimeTable(System.err);
+        if (showStats) PassInstrumentation.printStatistics(System.err, context.getStatistics());
+        if (writeStatsJson) passManager.getInstrumentation().writeJson(Path.of(statsJson));
     }
 
     /**
-     * 设置 Pass 的执行顺序
+     * 设置 Pass 的执行顺序，见 CompilePipeline
      * @return PassManager
      */
     private PassManager getPassManager() {
         final var passManager = new PassManager(context);
-        passManager.setPipeline(pm -> {
-            pm.runPass(RenameVariable.class);
-            pm.runPass(ScalarReplacementOfAggregates.class);
-            pm.runPass(Mem2Reg.class);
-            pm.runPass(SmartChilletSimplifyCFG.class);
-            pm.runPass(FunctionPureness.class);
-            pm.untilStable(
-                    GlobalValueNumbering.class,
-                    SparseConditionalConstantPropagation.class,
-                    ShowIR.class,
-                    SmartChilletDeleteUnusedValue.class,
-                    SmartChilletSimplifyCFG.class
-            );
-            pm.runPass(RenameVariable.class);
-            pm.runPass(CallGraphAnalyzer.class);
-            pm.runPass(DumpIR.class);
-
-            // 后端相关
-            pm.runPass(SSADestruction.class);
-            pm.runPass(InstructionSelectionPass.class);
-            pm.runPass(LivenessAnalysis.class);
-//            pm.runPass(SillyChilletAllocateRegister.class);
-            pm.runPass(LinearScanAllocator.class);
-            pm.runPass(ShowIR.class);
-            pm.runPass(RegSaver.class);
-            pm.runPass(AlignFramePass.class);
-            pm.runPass(FixStackOffset.class);
-            pm.runPass(PeepholeOptimization.class);
-            pm.runPass(OutputARMASM.class);
-        });
+        passManager.setPipeline(CompilePipeline::configure);
         return passManager;
     }
 
@@ -132,18 +136,7 @@ public class Compiler {
     }
 
     public void initParser(CharStream inputSource){
-        final var lexer = new SysyLexer(inputSource);
-        final var tokenStream = new CommonTokenStream(lexer);
-        final var parser = new SysyParser(tokenStream);
-        parser.addErrorListener(new BaseErrorListener() {
-            @Override
-            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
-                Log.e("在 " + line + " 行 " + charPositionInLine + " 列出现语法错误: " + msg);
-                throw new ParseCancellationException();
-            }
-        });
-        context.setAst(parser.compUnit());
-        context.setParser(parser);
+        SysyParsing.parse(context, inputSource);
     }
 
     public static void showJVMArgs() {
@@ -156,11 +149,40 @@ public class Compiler {
         Log.i("JVM 启动参数：" + sb);
     }
 
+    /**
+     * 提前加载指令模式，并预热 SysyParser 的 ATN 和 DFA 缓存
+     */
+    public static void warmUp() throws IOException {
+        new ARM64InstructionPatternPack();
+        SysyParsing.warmUp();
+    }
+
+    /**
+     * 以常驻服务器模式运行，端口为 -fserver-port 或 config/application.properties 中的 server.port
+     */
+    public static void serve() throws IOException {
+        warmUp();
+        final String port = Flag.get("-fserver-port");
+        try (var server = new CompileServer(port == null || port.isBlank()
+                ? CompileServer.getConfiguredPort() : Integer.parseInt(port),
+                () -> new Compiler(Flag.get("source"), Flag.get("-o")).compile())) {
+            server.serve();
+        }
+    }
+
     public static void main(String[] args) throws IOException {
 
         showJVMArgs();
 
         Flag.init(args);
+        final String logLevel = Flag.get("-flog-level");
+        if (logLevel != null && !logLevel.isBlank()) {
+            Log.setLevel(Log.Level.parse(logLevel));
+        }
+        if (Boolean.TRUE.equals(Flag.get("-fserver"))) {
+            serve();
+            return;
+        }
         final String sourcePath = Flag.get("source");
         final String outputPath = Flag.get("-o");
 
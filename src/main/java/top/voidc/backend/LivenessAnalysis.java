@@ -4,22 +4,24 @@ import top.voidc.ir.IceBlock;
 import top.voidc.ir.IceContext;
 import top.voidc.ir.IceValue;
 import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.type.IceType;
 import top.voidc.ir.machine.IceMachineFunction;
 import top.voidc.ir.machine.IceMachineInstruction;
 import top.voidc.ir.machine.IceMachineRegister;
 import top.voidc.misc.annotation.Pass;
-import top.voidc.misc.ds.BiMap;
 import top.voidc.optimizer.pass.CompilePass;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 /**
  * 变量活跃性分析 反向数据流分析
  * 使用数据流方程进行迭代
  * out[B] = ∪ in[S]    // S 为 B 的所有后继块
  * in[B]  = use[B] ∪ (out[B] - def[B])
+ * 按后序初始化工作表，某个块的 in 发生变化时只把它的前驱重新加入工作表
+ * 寄存器按寄存器类（整数、浮点/向量）分别连续编号，每一类使用各自的位集
  */
 @Pass(group = {"O0", "backend"}, parallel = true)
 public class LivenessAnalysis implements CompilePass<IceMachineFunction> {
@@ -33,153 +35,302 @@ public class LivenessAnalysis implements CompilePass<IceMachineFunction> {
     public record BlockLivenessData(Set<IceValue> liveIn, Set<IceValue> liveOut) {}
 
     public static class LivenessResult {
-        private final Map<IceFunction, Map<IceBlock, BlockLivenessData>> livenessData = new ConcurrentHashMap<>();
+        private final Map<IceFunction, FunctionLiveness> livenessData = new ConcurrentHashMap<>();
 
-        public void addLivenessData(IceFunction function, Map<IceBlock, BlockLivenessData> blockLivenessData) {
-            livenessData.put(function, blockLivenessData);
+        public void addLiveness(IceFunction function, FunctionLiveness liveness) {
+            livenessData.put(function, liveness);
         }
 
-        public Map<IceBlock, BlockLivenessData> getLivenessData(IceFunction function) {
+        public FunctionLiveness getLiveness(IceFunction function) {
             return livenessData.get(function);
         }
+
+        public Map<IceBlock, BlockLivenessData> getLivenessData(IceFunction function) {
+            final var liveness = livenessData.get(function);
+            return liveness == null ? null : liveness.getBlockLivenessData();
+        }
     }
 
-    private static class LivenessAnalyzer {
-        final BiMap<Integer, IceMachineRegister> registerMapping = new BiMap<>();
-        private static class LivenessRecord {
-            public BitSet use, def, in, out;
-
-            public LivenessRecord(BitSet use, BitSet def, BitSet in, BitSet out){
-                this.use = use;
-                this.def = def;
-                this.in = in;
-                this.out = out;
+    /**
+     * 一个函数的活跃性结果，寄存器类就是寄存器本身的类型（ARM64 上整数为 i64，浮点/向量为 vec128）
+     * 结果只对应分析时的代码，插入或修改指令之后需要重新运行分析
+     */
+    public static class FunctionLiveness {
+        private final List<IceType> registerClasses = new ArrayList<>();
+        private final List<List<IceMachineRegister>> registersByClass = new ArrayList<>();
+        // 寄存器都由 IceMachineFunction 统一创建，按对象查找，避免计算寄存器的 hashCode
+        private final Map<IceMachineRegister, Integer> registerIds = new IdentityHashMap<>();
+        private final Map<IceBlock, Integer> blockIds = new HashMap<>();
+        private final List<IceBlock> blocks;
+        // 按块编号、寄存器类编号索引
+        private final BitSet[][] liveIn, liveOut;
+        private final Map<IceBlock, Map<IceMachineInstruction, BitSet[]>> instructionLiveOut = new ConcurrentHashMap<>();
+        private Map<IceBlock, BlockLivenessData> blockLivenessData;
+
+        private FunctionLiveness(List<IceBlock> blocks, Collection<IceMachineRegister> registers) {
+            this.blocks = blocks;
+            for (int i = 0; i < blocks.size(); i++) blockIds.put(blocks.get(i), i);
+            for (var register : registers) {
+                final var registerClass = getClassId(register.getType(), true);
+                final var classRegisters = registersByClass.get(registerClass);
+                registerIds.put(register, classRegisters.size());
+                classRegisters.add(register);
+            }
+            this.liveIn = new BitSet[blocks.size()][registerClasses.size()];
+            this.liveOut = new BitSet[blocks.size()][registerClasses.size()];
+        }
+
+        private int getClassId(IceType type, boolean create) {
+            for (int i = 0; i < registerClasses.size(); i++) {
+                if (registerClasses.get(i).equals(type)) return i;
+            }
+            if (!create) return -1;
+            registerClasses.add(type);
+            registersByClass.add(new ArrayList<>());
+            return registerClasses.size() - 1;
+        }
+
+        private int getClassId(IceMachineRegister register) {
+            return getClassId(register.getType(), false);
+        }
+
+        private int getRegisterId(IceMachineRegister register) {
+            final var id = registerIds.get(register);
+            assert id != null : "Unknown register " + register;
+            return id;
+        }
+
+        private BitSet[] newSets() {
+            final var sets = new BitSet[registerClasses.size()];
+            for (int i = 0; i < sets.length; i++) sets[i] = new BitSet(registersByClass.get(i).size());
+            return sets;
+        }
+
+        private List<IceMachineRegister> toRegisters(BitSet[] sets, IceType registerClass) {
+            final var classId = getClassId(registerClass, false);
+            if (classId < 0) return List.of();
+            final var classRegisters = registersByClass.get(classId);
+            final var result = new ArrayList<IceMachineRegister>(sets[classId].cardinality());
+            for (int i = sets[classId].nextSetBit(0); i >= 0; i = sets[classId].nextSetBit(i + 1)) {
+                result.add(classRegisters.get(i));
+            }
+            return result;
+        }
+
+        private BitSet[] getBlockSets(BitSet[][] sets, IceBlock block) {
+            final var blockId = blockIds.get(block);
+            Objects.requireNonNull(blockId, () -> "Unknown block " + block.getName());
+            return sets[blockId];
+        }
+
+        /**
+         * @return 块入口处活跃的某一类寄存器，按编号排列
+         */
+        public List<IceMachineRegister> getLiveIn(IceBlock block, IceType registerClass) {
+            return toRegisters(getBlockSets(liveIn, block), registerClass);
+        }
+
+        /**
+         * @return 块出口处活跃的某一类寄存器，按编号排列
+         */
+        public List<IceMachineRegister> getLiveOut(IceBlock block, IceType registerClass) {
+            return toRegisters(getBlockSets(liveOut, block), registerClass);
+        }
+
+        /**
+         * 指令执行之后仍然活跃的某一类寄存器，不包括指令定义但之后没有使用的寄存器
+         * 第一次查询某个块时从块出口倒序扫描一遍并缓存每条指令的结果
+         */
+        public List<IceMachineRegister> getLiveOut(IceMachineInstruction instruction, IceType registerClass) {
+            return toRegisters(getInstructionLiveOut(instruction), registerClass);
+        }
+
+        public boolean isLiveOut(IceMachineInstruction instruction, IceMachineRegister register) {
+            final var id = registerIds.get(register);
+            return id != null && getInstructionLiveOut(instruction)[getClassId(register)].get(id);
+        }
+
+        private BitSet[] getInstructionLiveOut(IceMachineInstruction instruction) {
+            final var block = instruction.getParent();
+            final var sets = instructionLiveOut.computeIfAbsent(block, this::scanBlock).get(instruction);
+            Objects.requireNonNull(sets, () -> "Instruction is not in block " + block.getName() + ": " + instruction);
+            return sets;
+        }
+
+        private Map<IceMachineInstruction, BitSet[]> scanBlock(IceBlock block) {
+            final var result = new IdentityHashMap<IceMachineInstruction, BitSet[]>();
+            final var live = newSets();
+            final var out = getBlockSets(liveOut, block);
+            for (int i = 0; i < live.length; i++) live[i].or(out[i]);
+
+            for (int index = block.size() - 1; index >= 0; index--) {
+                final var instruction = (IceMachineInstruction) block.get(index);
+                final var snapshot = newSets();
+                for (int i = 0; i < live.length; i++) snapshot[i].or(live[i]);
+                result.put(instruction, snapshot);
+
+                final var defined = instruction.getResultReg(true);
+                if (defined != null) setLive(live, defined.getRegister(), false);
+                for (var operand : instruction.getSourceOperands(true)) {
+                    if (operand instanceof IceMachineRegister.RegisterView registerView) {
+                        setLive(live, registerView.getRegister(), true);
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 分析之后才创建的寄存器不在结果中，直接忽略
+         */
+        private void setLive(BitSet[] live, IceMachineRegister register, boolean isLive) {
+            final var id = registerIds.get(register);
+            if (id == null) return;
+            live[getClassId(register)].set(id, isLive);
+        }
+
+        /**
+         * 转换成以集合表示的结果，只在第一次调用时构建
+         */
+        public synchronized Map<IceBlock, BlockLivenessData> getBlockLivenessData() {
+            if (blockLivenessData == null) {
+                final var result = new HashMap<IceBlock, BlockLivenessData>();
+                for (int blockId = 0; blockId < blocks.size(); blockId++) {
+                    final Set<IceValue> in = new HashSet<>();
+                    final Set<IceValue> out = new HashSet<>();
+                    for (var registerClass : registerClasses) {
+                        in.addAll(toRegisters(liveIn[blockId], registerClass));
+                        out.addAll(toRegisters(liveOut[blockId], registerClass));
+                    }
+                    result.put(blocks.get(blockId), new BlockLivenessData(in, out));
+                }
+                blockLivenessData = result;
             }
+            return blockLivenessData;
         }
-        final Map<IceBlock, LivenessRecord> blockInfo = new ConcurrentHashMap<>();
+    }
 
-        final IceMachineFunction function;
-        final List<IceBlock> blocks;
+    private static class LivenessAnalyzer {
+        private final FunctionLiveness liveness;
+        private final List<IceBlock> blocks;
+        private BitSet[][] use, def;
 
         public LivenessAnalyzer(IceMachineFunction function) {
-            this.function = function;
+            // blocks() 是逆后序，反过来得到后序，后继块一般先于前驱块计算
             this.blocks = function.blocks();
             Collections.reverse(this.blocks);
+            this.liveness = new FunctionLiveness(blocks, function.getAllRegisters());
         }
 
-        /**
-         * 创建一个id到寄存器的双向映射
-         */
-        private void createRegisterMapping() {
-            var id = new AtomicInteger(0);
-            function.getAllRegisters()
-                    .forEach(register -> registerMapping.put(id.getAndIncrement(), register));
-        }
-
-        private void getUseDef(IceBlock block) {
-            var livenessData = blockInfo.computeIfAbsent(block, _ -> {
-                var use = new BitSet(registerMapping.size()); // Use 集：在b中使用前未定义新的变量的寄存器
-                var def = new BitSet(registerMapping.size()); // Def 集：在b中定义之前没有任何使用的寄存器
-                return new LivenessRecord(use, def, new BitSet(registerMapping.size()), new BitSet(registerMapping.size()));
-            });
-            for (var instruction : block) {
+        private void getUseDef(int blockId) {
+            final var blockUse = use[blockId] = liveness.newSets(); // Use 集：在b中使用前未定义新的变量的寄存器
+            final var blockDef = def[blockId] = liveness.newSets(); // Def 集：在b中定义之前没有任何使用的寄存器
+            for (var instruction : blocks.get(blockId)) {
                 var machineInstruction = (IceMachineInstruction) instruction;
                 for (var operand : machineInstruction.getSourceOperands(true)) {
                     if (operand instanceof IceMachineRegister.RegisterView registerView) {
-                        var regId = registerMapping.getKey(registerView.getRegister());
-                        assert regId != null;
+                        final var register = registerView.getRegister();
+                        final var classId = liveness.getClassId(register);
+                        final var regId = liveness.getRegisterId(register);
                         // 如果之前没有重新定义过，那么这个基本块就使用了此寄存器
-                        if (!livenessData.def.get(regId)) {
-                            livenessData.use.set(regId);
+                        if (!blockDef[classId].get(regId)) {
+                            blockUse[classId].set(regId);
                         }
                     }
                 }
 
                 if (machineInstruction.getResultReg(true) != null) {
                     // 有返回值那就是被定义
-                    var regId = registerMapping.getKey(machineInstruction.getResultReg(true).getRegister());
-                    assert regId != null;
+                    final var register = machineInstruction.getResultReg(true).getRegister();
+                    final var classId = liveness.getClassId(register);
+                    final var regId = liveness.getRegisterId(register);
                     // 检查是否之前有使用过 （互斥定义）
-                    if (!livenessData.use.get(regId)) {
-                        livenessData.def.set(regId);
+                    if (!blockUse[classId].get(regId)) {
+                        blockDef[classId].set(regId);
                     }
                 }
             }
         }
 
-        private boolean iterateLiveness() {
-            var changed = false;
-            for (var block : blocks) {
-                var livenessData = blockInfo.get(block);
-                assert livenessData != null;
-
-                // 计算 out[B] = ∪ in[S]，S 为 B 的所有后继块
-                var out = new BitSet(registerMapping.size());
-                for (var successor : block.successors()) {
-                    var successorData = blockInfo.get(successor);
-                    assert successorData != null;
-                    out.or(successorData.in);
-                }
-
-                // 计算 in[B] = use[B] ∪ (out[B] - def[B])
-                var in = new BitSet(registerMapping.size());
-                in.or(livenessData.use);
-                var outMinusDef = new BitSet(registerMapping.size());
-                outMinusDef.or(out);
-                outMinusDef.andNot(livenessData.def);
-
-                in.or(outMinusDef);
-
-                // 检查是否有变化
-                if (!livenessData.in.equals(in) || !livenessData.out.equals(out)) {
-                    livenessData.in = in;
-                    livenessData.out = out;
-                    changed = true;
+        private void iterateLiveness() {
+            final var blockCount = blocks.size();
+            final var successors = new int[blockCount][];
+            final var predecessors = new ArrayList<List<Integer>>(blockCount);
+            for (int i = 0; i < blockCount; i++) predecessors.add(new ArrayList<>());
+            for (int blockId = 0; blockId < blockCount; blockId++) {
+                final var blockSuccessors = blocks.get(blockId).successors();
+                successors[blockId] = new int[blockSuccessors.size()];
+                for (int i = 0; i < blockSuccessors.size(); i++) {
+                    final var successorId = liveness.blockIds.get(blockSuccessors.get(i));
+                    assert successorId != null;
+                    successors[blockId][i] = successorId;
+                    predecessors.get(successorId).add(blockId);
                 }
+                liveness.liveIn[blockId] = liveness.newSets();
+                liveness.liveOut[blockId] = liveness.newSets();
             }
-            return changed;
-        }
 
-        public void run() {
-            createRegisterMapping();
-            blocks.parallelStream().forEach(this::getUseDef);
-
-            while (true) {
-                // 迭代直到收敛
-                if (!iterateLiveness()) break;
+            final var worklist = new ArrayDeque<Integer>(blockCount);
+            final var queued = new BitSet(blockCount);
+            for (int blockId = 0; blockId < blockCount; blockId++) {
+                worklist.add(blockId);
+                queued.set(blockId);
             }
-        }
 
-        public Map<IceBlock, BlockLivenessData> getLivenessData() {
-            Map<IceBlock, BlockLivenessData> result = new HashMap<>();
-            for (var entry : blockInfo.entrySet()) {
-                var block = entry.getKey();
-                var livenessRecord = entry.getValue();
+            // in 集合原地更新，scratch 用来计算新的 in 并在变化时与旧集合交换
+            final var scratch = liveness.newSets();
+            while (!worklist.isEmpty()) {
+                final int blockId = worklist.poll();
+                queued.clear(blockId);
 
-                Set<IceValue> liveIn = new HashSet<>();
-                Set<IceValue> liveOut = new HashSet<>();
+                var changed = false;
+                for (int classId = 0; classId < scratch.length; classId++) {
+                    // 计算 out[B] = ∪ in[S]，S 为 B 的所有后继块
+                    final var out = liveness.liveOut[blockId][classId];
+                    out.clear();
+                    for (var successorId : successors[blockId]) {
+                        out.or(liveness.liveIn[successorId][classId]);
+                    }
 
-                for (int i = livenessRecord.in.nextSetBit(0); i >= 0; i = livenessRecord.in.nextSetBit(i + 1)) {
-                    liveIn.add(registerMapping.getValue(i));
-                }
+                    // 计算 in[B] = use[B] ∪ (out[B] - def[B])
+                    final var in = scratch[classId];
+                    in.clear();
+                    in.or(out);
+                    in.andNot(def[blockId][classId]);
+                    in.or(use[blockId][classId]);
 
-                for (int i = livenessRecord.out.nextSetBit(0); i >= 0; i = livenessRecord.out.nextSetBit(i + 1)) {
-                    liveOut.add(registerMapping.getValue(i));
+                    if (!in.equals(liveness.liveIn[blockId][classId])) {
+                        scratch[classId] = liveness.liveIn[blockId][classId];
+                        liveness.liveIn[blockId][classId] = in;
+                        changed = true;
+                    }
                 }
 
-                result.put(block, new BlockLivenessData(liveIn, liveOut));
+                if (changed) {
+                    for (var predecessorId : predecessors.get(blockId)) {
+                        if (!queued.get(predecessorId)) {
+                            queued.set(predecessorId);
+                            worklist.add(predecessorId);
+                        }
+                    }
+                }
             }
-            return result;
+        }
+
+        public FunctionLiveness run() {
+            use = new BitSet[blocks.size()][];
+            def = new BitSet[blocks.size()][];
+            IntStream.range(0, blocks.size()).parallel().forEach(this::getUseDef);
+            iterateLiveness();
+            return liveness;
         }
     }
 
     @Override
     public boolean run(IceMachineFunction target) {
         var analyzer = new LivenessAnalyzer(target);
-        analyzer.run();
-        var livenessData = analyzer.getLivenessData();
-        this.livenessResult.addLivenessData(target, livenessData);
-//        for (var entry : livenessData.entrySet()) {
+        this.livenessResult.addLiveness(target, analyzer.run());
+//        for (var entry : livenessResult.getLivenessData(target).entrySet()) {
 //            var block = entry.getKey();
 //            var data = entry.getValue();
 //            Log.i("Block " + block.getName() + " Live In: " + data.liveIn + ", Live Out: " + data.liveOut);
@@ -1,6 +1,7 @@
 package top.voidc.backend;
 
 import top.voidc.ir.IceBlock;
+import top.voidc.ir.IceContext;
 import top.voidc.ir.IceUnit;
 import top.voidc.ir.ice.constant.*;
 import top.voidc.ir.ice.interfaces.IceArchitectureSpecification;
@@ -12,10 +13,13 @@ import top.voidc.misc.Log;
 import top.voidc.misc.Tool;
 import top.voidc.misc.annotation.Pass;
 import top.voidc.misc.annotation.Qualifier;
+import top.voidc.optimizer.CompileCache;
 import top.voidc.optimizer.pass.CompilePass;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -27,18 +31,55 @@ public class OutputARMASM implements CompilePass<IceUnit>, IceArchitectureSpecif
     private final String outputPath;
     private final File sourceFile;
     private final Map<IceMachineFunction, List<IceBlock>> blockLists;
+    private final CompileCache compileCache;
 
     public OutputARMASM(
             @Qualifier("outputPath") String outputPath,
             @Qualifier("sourceFile") File sourceFile,
-            @Qualifier("functionBlocks") Map<IceMachineFunction, List<IceBlock>> blockLists
+            @Qualifier("functionBlocks") Map<IceMachineFunction, List<IceBlock>> blockLists,
+            IceContext context
             ) {
         this.outputPath = outputPath;
         this.sourceFile = sourceFile;
         this.blockLists = blockLists;
+        this.compileCache = CompileCache.of(context);
     }
 
 
+    private record DataRun(int bits, int count) {}
+
+    /**
+     * 直接在压缩形式上输出数组初始化器，不展开 getFullElements
+     * 连续的 0 合并为 .zero，连续相同的值合并为 .fill，浮点数按位模式输出
+     */
+    private void emitArrayData(AssemblyBuilder assemblyBuilder, IceConstantArray array) throws IOException {
+        final var elementSize = array.getInsideType().getByteSize();
+        final var runs = new ArrayList<DataRun>();
+        array.forEachElementRun((element, count) -> {
+            if (count == 0) return;
+            final var bits = switch (element) {
+                case IceConstantInt constInt -> constInt.getValue();
+                case IceConstantFloat constFloat -> Float.floatToIntBits(constFloat.getValue());
+                default -> throw new IllegalStateException("Unexpected value: " + element);
+            };
+            if (!runs.isEmpty() && runs.getLast().bits() == bits) {
+                runs.set(runs.size() - 1, new DataRun(bits, runs.getLast().count() + count));
+            } else {
+                runs.add(new DataRun(bits, count));
+            }
+        });
+
+        for (var run : runs) {
+            if (run.bits() == 0) {
+                assemblyBuilder.writeLine("\t.zero\t" + (long) run.count() * elementSize);
+            } else if (run.count() == 1) {
+                assemblyBuilder.writeLine("\t.word\t" + run.bits());
+            } else {
+                assemblyBuilder.writeLine("\t.fill\t" + run.count() + ", " + elementSize + ", " + run.bits());
+            }
+        }
+    }
+
     private void emitGlobalSymbols(AssemblyBuilder assemblyBuilder, IceUnit target) throws IOException {
         assemblyBuilder.writeLine("\t.section\t.rodata");
         for (var global : target.getGlobalVariables()) {
@@ -49,12 +90,7 @@ public class OutputARMASM implements CompilePass<IceUnit>, IceArchitectureSpecif
 
                 assert globalVariable.getInitializer() != null;
 
-                var arrayInitializer = (IceConstantArray) globalVariable.getInitializer();
-                for (var row : arrayInitializer.getFullElements()) {
-                    if (row instanceof IceConstantInt constData) {
-                        assemblyBuilder.writeLine("\t.word\t" + constData.getValue());
-                    }
-                }
+                emitArrayData(assemblyBuilder, (IceConstantArray) globalVariable.getInitializer());
             }
         }
 
@@ -90,11 +126,7 @@ public class OutputARMASM implements CompilePass<IceUnit>, IceArchitectureSpecif
                 if (globalVariable.getInitializer() != null
                         && globalVariable.getInitializer() instanceof IceConstantArray arrayInitializer
                         && !arrayInitializer.isFullZero()) {
-                    for (var row : arrayInitializer.getFullElements()) {
-                        if (row instanceof IceConstantInt constData) {
-                            assemblyBuilder.writeLine("\t.word\t" + constData.getValue());
-                        }
-                    }
+                    emitArrayData(assemblyBuilder, arrayInitializer);
                 } else {
                     // 如果没有初始化器 则分配一个零字节的空间
                     var arrayType = ((IcePtrType<?>) globalVariable.getType()).getPointTo();
@@ -118,26 +150,38 @@ public class OutputARMASM implements CompilePass<IceUnit>, IceArchitectureSpecif
         }
     }
 
+    private ByteBuffer renderFunction(IceFunction function, IceUnit target) {
+        if (compileCache != null && compileCache.isCached(function)) {
+            return AssemblyBuilder.encode(compileCache.getAssembly(function));
+        }
+
+        assert function instanceof IceMachineFunction;
+        final var func = (IceMachineFunction) function;
+        var builder = new StringBuilder();
+        var blocks = blockLists.get(func);
+        builder.append("\t.global ").append(func.getName()).append("\n")
+                .append("\t.type ").append(func.getName()).append(", %function\n")
+                .append("\t.align ").append(Tool.log2(func.getAlignment())).append("\n")
+                .append(func.getName()).append(":\n");
+        blocks.forEach(block -> {
+            block.getTextIR(builder);
+            builder.append("\n");
+        });
+        builder.append("\n");
+        if (compileCache != null) compileCache.store(func, builder.toString(), target);
+        return AssemblyBuilder.encode(builder);
+    }
+
+    /**
+     * 各个函数并行渲染到独立的缓冲区，再按原顺序聚集写入
+     * 渲染只读取机器指令，不会修改 IR；命中编译缓存的函数直接使用缓存的汇编
+     */
     private void emitFunctionASM(AssemblyBuilder assemblyBuilder, IceUnit target) throws IOException {
         assemblyBuilder.writeLine().writeLine("\t.text");
-        for (var func : target.getFunctions()) {
-            if (func instanceof IceExternFunction) continue; // 外部函数在汇编中不用声明 由连接器处理
-            assert func instanceof IceMachineFunction;
-
-
-            var builder = new StringBuilder();
-            var blocks = blockLists.get(func);
-            builder.append("\t.global ").append(func.getName()).append("\n")
-                    .append("\t.type ").append(func.getName()).append(", %function\n")
-                    .append("\t.align ").append(Tool.log2(func.getAlignment())).append("\n")
-                    .append(func.getName()).append(":\n");
-            blocks.forEach(block -> {
-                block.getTextIR(builder);
-                builder.append("\n");
-            });
-            assemblyBuilder.writeRaw(builder.toString())
-                    .writeLine();
-        }
+        final var functions = target.getFunctions().stream()
+                .filter(func -> !(func instanceof IceExternFunction)) // 外部函数在汇编中不用声明 由连接器处理
+                .toList();
+        assemblyBuilder.writeAll(functions.parallelStream().map(function -> renderFunction(function, target)).toList());
     }
 
     private void emitASM(IceUnit target) throws IOException {
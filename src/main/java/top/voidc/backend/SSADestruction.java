@@ -22,7 +22,7 @@ public class SSADestruction implements CompilePass<IceFunction> {
      */
     private boolean isCriticalEdge(IceBlock fromBlock, IceBlock toBlock) {
         return fromBlock.successors().size() > 1
-                && toBlock.predecessors().size() > 1
+                && toBlock.predecessorCount() > 1
                 && fromBlock.successors().contains(toBlock);
     }
 
@@ -36,7 +36,7 @@ public class ARM64Function extends IceMachineFunction {
 
         for (int i = 0; i < parameters.size(); i++) {
             var parameter = parameters.get(i);
-            var parameterUsed = !parameter.getUsers().isEmpty();
+            var parameterUsed = parameter.hasUsers();
             switch (parameter.getType().getTypeEnum()) {
                 case ARRAY, PTR, I32 -> {
                     if (intParamReg < 8) {
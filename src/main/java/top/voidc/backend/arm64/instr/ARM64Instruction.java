@@ -3,6 +3,7 @@ package top.voidc.backend.arm64.instr;
 import top.voidc.ir.ice.interfaces.IceArchitectureSpecification;
 import top.voidc.ir.ice.interfaces.IceMachineValue;
 import top.voidc.ir.machine.IceMachineInstruction;
+import top.voidc.ir.machine.InstructionTemplate;
 
 import java.util.Set;
 
@@ -15,6 +16,10 @@ public class ARM64Instruction extends IceMachineInstruction implements IceArchit
         super(renderTemplate, values);
     }
 
+    public ARM64Instruction(InstructionTemplate template, IceMachineValue... values) {
+        super(template, values);
+    }
+
     @Override
     public String getArchitecture() {
         return "armv8-a";
@@ -30,15 +35,17 @@ public class ARM64Instruction extends IceMachineInstruction implements IceArchit
         return 64;
     }
 
+    private static final Set<String> terminalOpcodes = Set.of("RET", "B", "CBZ", "CBNZ");
+
     @Override
     public boolean isTerminal() {
         if (getOpcode().startsWith("B.")) return true;
-        return Set.of("RET", "B", "CBZ", "CBNZ").contains(getOpcode());
+        return terminalOpcodes.contains(getOpcode());
     }
 
     @Override
     public IceMachineInstruction clone() {
-        var clone = new ARM64Instruction(this.renderTemplate, getOperands().toArray(new IceMachineValue[0]));
+        var clone = new ARM64Instruction(getTemplate(), getOperands().toArray(new IceMachineValue[0]));
         clone.setName(getName());
         return clone;
     }
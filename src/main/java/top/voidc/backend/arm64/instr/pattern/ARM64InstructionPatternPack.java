@@ -3,6 +3,7 @@ package top.voidc.backend.arm64.instr.pattern;
 import top.voidc.backend.arm64.instr.ARM64Function;
 import top.voidc.backend.instr.InstructionPack;
 import top.voidc.backend.instr.InstructionPattern;
+import top.voidc.backend.instr.InstructionPatternIndex;
 import top.voidc.ir.ice.constant.IceFunction;
 import top.voidc.ir.machine.IceMachineFunction;
 
@@ -12,6 +13,8 @@ import java.util.List;
 public class ARM64InstructionPatternPack implements InstructionPack {
     private static final List<InstructionPattern<?>> patternSet = new ArrayList<>();
 
+    private static final InstructionPatternIndex patternIndex;
+
     static {
         patternSet.add(new ArithmaticInstructionPattern.ADDTwoReg());
         patternSet.add(new ArithmaticInstructionPattern.ADDImm());
@@ -91,6 +94,8 @@ public class ARM64InstructionPatternPack implements InstructionPack {
         patternSet.add(new MemoryAccessPatterns.GEPLoadGlobalPointer());
         patternSet.add(new MemoryAccessPatterns.GEPLoadLocalPointer());
         patternSet.add(new MemoryAccessPatterns.GEPLoadArgumentPointer());
+
+        patternIndex = new InstructionPatternIndex(patternSet);
     }
 
     @Override
@@ -98,6 +103,11 @@ public class ARM64InstructionPatternPack implements InstructionPack {
         return patternSet;
     }
 
+    @Override
+    public InstructionPatternIndex getPatternIndex() {
+        return patternIndex;
+    }
+
     @Override
     public IceMachineFunction createMachineFunction(IceFunction iceFunction) {
         return new ARM64Function(iceFunction);
@@ -178,7 +178,7 @@ public class ControlInstructionPattern {
         public IceMachineValue emit(InstructionSelector selector, IceCallInstruction value) {
             selector.getMachineFunction().setHasCall(true);
              var argumentsInfo = emitArguments(selector, value);
-            if (value.getUsers().isEmpty() || value.getType().isVoid()) {
+            if (!value.hasUsers() || value.getType().isVoid()) {
                 // 如果没有用户使用这个调用的返回值，或者返回值是void类型
                 // 在 BL 指令中附加隐式的返回寄存器
                 var targetFunction = value.getTarget();
@@ -339,7 +339,7 @@ public class ControlInstructionPattern {
 
         @Override
         protected RegisterView handleFunctionReturn(InstructionSelector selector, IceCallInstruction value) {
-            if (!value.getUsers().isEmpty()) {
+            if (value.hasUsers()) {
                 var resultReg = selector.getMachineFunction().getReturnRegister(value.getType());
                 var virtualResultReg = selector.getMachineFunction().allocateBoundVirtualRegister(value.getType(), resultReg.getRegister());
                 var virtualReg = selector.getMachineFunction().allocateVirtualRegister(value.getTarget().getReturnType());
@@ -367,7 +367,7 @@ public class ControlInstructionPattern {
 
         @Override
         protected RegisterView handleFunctionReturn(InstructionSelector selector, IceCallInstruction value) {
-            if (!value.getUsers().isEmpty()) {
+            if (value.hasUsers()) {
                 // 如果有用户使用这个返回值，那么需要将其转换为虚拟寄存器
                 var resultReg = selector.getMachineFunction().getReturnRegister(value.getType());
                 var virtualResultReg = selector.getMachineFunction().allocateBoundVirtualRegister(value.getType(), resultReg.getRegister());
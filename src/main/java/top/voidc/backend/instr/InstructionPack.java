@@ -8,5 +8,12 @@ import java.util.Collection;
 public interface InstructionPack {
     Collection<InstructionPattern<?>> getPatternPack();
 
+    /**
+     * @return 按 IR 类型分桶的指令模式，指令包可以缓存同一个实例
+     */
+    default InstructionPatternIndex getPatternIndex() {
+        return new InstructionPatternIndex(getPatternPack());
+    }
+
     IceMachineFunction createMachineFunction(IceFunction iceFunction);
 }
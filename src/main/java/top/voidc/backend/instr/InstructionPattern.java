@@ -6,6 +6,8 @@ import top.voidc.ir.ice.interfaces.IceMachineValue;
 import top.voidc.ir.machine.IceMachineInstructionComment;
 import top.voidc.misc.Flag;
 
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.Arrays;
 
 public abstract class InstructionPattern <T extends IceValue> {
@@ -32,6 +34,27 @@ public abstract class InstructionPattern <T extends IceValue> {
         return emitMethod.getReturnType();
     }
 
+    /**
+     * 获取当前指令模式匹配的 IR 类型，即泛型参数 T，用于按类型分桶
+     * 通过反射沿父类查找，无法确定时返回 IceValue
+     * @return 指令模式匹配的 IR 类型
+     */
+    public Class<?> getTargetType() {
+        Type type = this.getClass();
+        while (type instanceof Class<?> clazz && clazz != InstructionPattern.class) {
+            type = clazz.getGenericSuperclass();
+            if (type instanceof ParameterizedType parameterizedType
+                    && parameterizedType.getRawType() == InstructionPattern.class) {
+                final var argument = parameterizedType.getActualTypeArguments()[0];
+                if (argument instanceof Class<?> target) return target;
+                if (argument instanceof ParameterizedType target) return (Class<?>) target.getRawType();
+                return IceValue.class;
+            }
+            if (type instanceof ParameterizedType parameterizedType) type = parameterizedType.getRawType();
+        }
+        return IceValue.class;
+    }
+
     public int getCost(InstructionSelector selector, T value) {
         if (value instanceof IceInstruction instruction) {
             return getIntrinsicCost() + instruction.getOperands()
@@ -0,0 +1,42 @@
+package top.voidc.backend.instr;
+
+import top.voidc.ir.IceValue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按照匹配的 IR 类型对指令模式分桶，选择时只需要测试和节点类型相符的模式
+ * 候选列表按节点的具体类型缓存，保持模式在指令包中的顺序，所以代价相同时的选择结果不变
+ */
+public class InstructionPatternIndex {
+    private final List<InstructionPattern<?>> patterns;
+    private final List<Class<?>> targetTypes;
+    private final Map<Class<?>, List<InstructionPattern<?>>> candidates = new ConcurrentHashMap<>();
+
+    public InstructionPatternIndex(Collection<InstructionPattern<?>> patterns) {
+        this.patterns = List.copyOf(patterns);
+        this.targetTypes = this.patterns.stream().<Class<?>>map(InstructionPattern::getTargetType).toList();
+    }
+
+    /**
+     * @param value IR 节点
+     * @return 可能匹配该节点的模式
+     */
+    public List<InstructionPattern<?>> getCandidates(IceValue value) {
+        return candidates.computeIfAbsent(value.getClass(), valueClass -> {
+            final var result = new ArrayList<InstructionPattern<?>>();
+            for (int i = 0; i < patterns.size(); i++) {
+                if (targetTypes.get(i).isAssignableFrom(valueClass)) result.add(patterns.get(i));
+            }
+            return List.copyOf(result);
+        });
+    }
+
+    public List<InstructionPattern<?>> getPatterns() {
+        return patterns;
+    }
+}
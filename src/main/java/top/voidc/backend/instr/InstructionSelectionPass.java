@@ -1,6 +1,7 @@
 package top.voidc.backend.instr;
 
 import top.voidc.ir.IceBlock;
+import top.voidc.ir.IceContext;
 import top.voidc.ir.IceUnit;
 import top.voidc.ir.IceValue;
 import top.voidc.ir.ice.constant.IceExternFunction;
@@ -10,10 +11,13 @@ import top.voidc.ir.ice.instruction.IcePHINode;
 import top.voidc.ir.ice.interfaces.IceMachineValue;
 import top.voidc.ir.machine.IceMachineFunction;
 import top.voidc.misc.annotation.Pass;
+import top.voidc.optimizer.AnalysisManager;
+import top.voidc.optimizer.CompileCache;
+import top.voidc.optimizer.analysis.DominatorTreeAnalysis;
 import top.voidc.optimizer.pass.CompilePass;
 import top.voidc.misc.ds.DominatorTree;
 
-import java.util.Collection;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.List;
 
@@ -25,11 +29,16 @@ import java.util.List;
 @Pass(group = {"O0", "backend"})
 public class InstructionSelectionPass implements CompilePass<IceUnit> {
     private final InstructionPack instructionPack;
-    private final Collection<InstructionPattern<?>> patternPack;
+    private final InstructionPatternIndex patternIndex;
+    private final AnalysisManager analysisManager;
 
-    public InstructionSelectionPass(InstructionPack instructionPack) {
+    private final CompileCache compileCache;
+
+    public InstructionSelectionPass(InstructionPack instructionPack, AnalysisManager analysisManager, IceContext context) {
         this.instructionPack = instructionPack;
-        this.patternPack = instructionPack.getPatternPack();
+        this.patternIndex = instructionPack.getPatternIndex();
+        this.analysisManager = analysisManager;
+        this.compileCache = CompileCache.of(context);
     }
 
     /**
@@ -40,19 +49,29 @@ public class InstructionSelectionPass implements CompilePass<IceUnit> {
         private final IceMachineFunction machineFunction;
         private final HashMap<IceValue, IceMachineValue> valueToMachineValue; // 存放IceValue和寄存器(视图)的关系
         private final DominatorTree<IceBlock> dominatorTree;
-        private final Collection<InstructionPattern<?>> patternPack;
+        private final InstructionPatternIndex patternIndex;
 
-        public FunctionSelector(IceFunction function, IceMachineFunction machineFunction, DominatorTree<IceBlock> dominatorTree, Collection<InstructionPattern<?>> patternPack) {
+        public FunctionSelector(IceFunction function, IceMachineFunction machineFunction, DominatorTree<IceBlock> dominatorTree, InstructionPatternIndex patternIndex) {
             this.function = function;
             this.machineFunction = machineFunction;
             this.valueToMachineValue = new HashMap<>();
             this.dominatorTree = dominatorTree;
-            this.patternPack = patternPack;
+            this.patternIndex = patternIndex;
             machineFunction.initParameters(valueToMachineValue, function);
         }
 
-        public void dfsSelectBlock(IceBlock currentBlock) {
-            var selector = new InstructionSelector(function, machineFunction, valueToMachineValue, currentBlock, this.patternPack);
+        /**
+         * 沿支配树显式栈遍历，离开一个块时清除它选择的值
+         */
+        public void selectFunction() {
+            final var selectors = new ArrayDeque<InstructionSelector>();
+            dominatorTree.traverse(function.getEntryBlock(),
+                    block -> selectors.push(selectBlock(block)),
+                    _ -> clearComputedValues(selectors.pop()));
+        }
+
+        private InstructionSelector selectBlock(IceBlock currentBlock) {
+            var selector = new InstructionSelector(function, machineFunction, valueToMachineValue, currentBlock, this.patternIndex);
 
             // 选择指令
             if (!selector.doSelection()) {
@@ -63,12 +82,10 @@ public class InstructionSelectionPass implements CompilePass<IceUnit> {
             var selectedInstructions = selector.getResult();
             var machineBlock = machineFunction.getMachineBlock(currentBlock.getName());
             machineBlock.addAll(selectedInstructions);
+            return selector;
+        }
 
-            // 遍历当前指令支配的基本块
-            for (var dominatee : dominatorTree.getDominatees(currentBlock)) {
-                dfsSelectBlock(dominatee);
-            }
-
+        private void clearComputedValues(InstructionSelector selector) {
             // 已经选择完所有支配的块了，清除本次选择中新选择的值
             for (var computedValue : selector.getComputedValues()) {
                 if (computedValue instanceof IcePHINode || computedValue instanceof IceAllocaInstruction) continue; // 跳过PHI和alloca节点，因为它们在SSA中是特殊的前向引用仅用选择一次分配一个虚拟寄存器即可或者只用分配一次
@@ -81,11 +98,15 @@ public class InstructionSelectionPass implements CompilePass<IceUnit> {
     public boolean run(IceUnit unit) {
         for (var target : List.copyOf(unit.getFunctions())) {
             if (target instanceof IceExternFunction) continue; // 跳过外部函数
+            if (compileCache != null && compileCache.isCached(target)) {
+                // 命中缓存的函数直接输出缓存的汇编，同样移到末尾以保持输出顺序
+                unit.removeFunction(target);
+                unit.addFunction(target);
+                continue;
+            }
             // Phase 1: 对 IceFunction 计算支配树
 
-            var graph = target.getControlFlowGraph();
-            var entryNodeId = graph.getNodeId(target.getEntryBlock());
-            var dominatorTree = new DominatorTree<>(graph, entryNodeId);
+            var dominatorTree = analysisManager.getResult(DominatorTreeAnalysis.class, target);
 
 //            for (var block : target) {
 //                Log.d(block + " - " + dominatorTree.getDominatees(block));
@@ -93,12 +114,12 @@ public class InstructionSelectionPass implements CompilePass<IceUnit> {
 
             var machineFunction = instructionPack.createMachineFunction(target);
 
-            var funcSelector = new FunctionSelector(target, machineFunction, dominatorTree, patternPack);
+            var funcSelector = new FunctionSelector(target, machineFunction, dominatorTree, patternIndex);
 
-            funcSelector.dfsSelectBlock(target.getEntryBlock());
+            funcSelector.selectFunction();
 
             target.replaceAllUsesWith(machineFunction);
-            assert target.getUsers().isEmpty();
+            assert !target.hasUsers();
 
             unit.removeFunction(target);
             unit.addFunction(machineFunction);
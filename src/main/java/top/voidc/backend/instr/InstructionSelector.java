@@ -25,7 +25,7 @@ public class InstructionSelector {
 
     private final IceFunction iceFunction;
     private final IceMachineFunction machineFunction;
-    private final Collection<InstructionPattern<?>> patternPack;
+    private final InstructionPatternIndex patternIndex;
     private final Map<IceValue, MatchResult> costCache = new HashMap<>();
     private final IceBlock block;
     private final List<IceMachineInstruction> emittedInstructions = new ArrayList<>();
@@ -38,8 +38,8 @@ public class InstructionSelector {
                                IceMachineFunction machineFunction,
                                Map<IceValue, IceMachineValue> valueToMachineValue,
                                IceBlock block,
-                               Collection<InstructionPattern<?>> patternPack) {
-        this.patternPack = patternPack;
+                               InstructionPatternIndex patternIndex) {
+        this.patternIndex = patternIndex;
         this.iceFunction = function;
         this.machineFunction = machineFunction;
         this.block = block;
@@ -119,7 +119,7 @@ public class InstructionSelector {
         var currentCost = Integer.MAX_VALUE;
         InstructionPattern<?> currentPattern = null;
 
-        for (var pattern : patternPack) {
+        for (var pattern : patternIndex.getCandidates(value)) {
             if (pattern.test(this, value)) {
                 // 计算代价
                 var cost = pattern.getCostForValue(this, value);
@@ -161,7 +161,8 @@ public class InstructionSelector {
             final var result = match.matchedPattern().emitForValue(this, value);
 
             // 将IR值和它的虚拟寄存器关联起来
-            if (result != null) {
+            // 驻留的常量在整个函数中是同一个对象，不记录，每次使用时重新生成，避免常量寄存器的活跃区间被拉长
+            if (result != null && !(value instanceof IceConstantData constant && constant.isInterned())) {
                 bindMachineValueToValue(value, result);
                 computedValues.add(value); // 记录这个值已经被计算过
             }
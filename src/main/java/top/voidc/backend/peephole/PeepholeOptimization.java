@@ -6,6 +6,7 @@ import top.voidc.ir.machine.IceMachineFunction;
 import top.voidc.ir.machine.IceMachineInstruction;
 import top.voidc.ir.machine.IceMachineInstructionComment;
 import top.voidc.misc.Log;
+import top.voidc.misc.Statistics;
 import top.voidc.misc.annotation.Pass;
 import top.voidc.optimizer.pass.CompilePass;
 
@@ -85,12 +86,14 @@ public class PeepholeOptimization implements CompilePass<IceMachineFunction> {
         }
 
         public void showStats() {
+            patternsCounter.forEach((pattern, count) ->
+                    Statistics.add("peephole." + pattern.getClass().getSimpleName(), count));
             if (patternsCounter.isEmpty()) {
                 return;
             }
-            Log.d(machineFunction.getName() + " 窥孔优化统计信息：");
+            Log.d(() -> machineFunction.getName() + " 窥孔优化统计信息：");
             for (var entry : patternsCounter.entrySet()) {
-                Log.d(String.format("\t模式 %s, 使用次数: %d", entry.getKey().getClass().getSimpleName(), entry.getValue()));
+                Log.d(() -> String.format("\t模式 %s, 使用次数: %d", entry.getKey().getClass().getSimpleName(), entry.getValue()));
             }
         }
 
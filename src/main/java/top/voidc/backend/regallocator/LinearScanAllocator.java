@@ -9,6 +9,7 @@ import top.voidc.ir.machine.*;
 
 import top.voidc.misc.Flag;
 import top.voidc.misc.Log;
+import top.voidc.misc.Statistics;
 import top.voidc.misc.Tool;
 import top.voidc.misc.annotation.Pass;
 import top.voidc.misc.ds.BiMap;
@@ -22,11 +23,12 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
 
     private static final int INSTRUCTION_ID_STEP = 2; // 每条指令的ID步长
 
-    private static class RegisterPool {
+    static class RegisterPool {
         private final PriorityQueue<IceMachineRegister> pool;
         private final BiMap<IceMachineRegister, LiveInterval> allocated = new BiMap<>();
         private final IceType poolType;
-        private final List<LiveInterval> fixed = new ArrayList<>(); // 固定寄存器的区间
+        // 每个物理寄存器上的固定区间 按开始位置索引到结束位置 相交的区间已合并
+        private final Map<IceMachineRegister, TreeMap<Integer, Integer>> fixedRanges = new HashMap<>();
 
         public RegisterPool(List<IceMachineRegister> registers) {
             assert !registers.isEmpty() : "Register pool cannot be empty";
@@ -65,11 +67,10 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
             // 启发式算法如果该用户和未来预着色区间有重合那就不分配对应的预着色寄存器
             assert !user.isPrecolored() : "Cannot allocate precolored register: " + user.vreg;
 
-            var userRange = new LiveInterval.Range(user.start, user.end);
-            var dangerRegisters = fixed.stream()
-                    .filter(interval -> interval.livedRanges.stream().anyMatch(range -> range.isIntersecting(userRange)))
-                    .map(interval -> interval.preg)
-                    .toList();
+            var dangerRegisters = new HashSet<IceMachineRegister>();
+            fixedRanges.forEach((register, ranges) -> {
+                if (isFixedIntersecting(ranges, user.start, user.end)) dangerRegisters.add(register);
+            });
 
             // 从池中获取一个寄存器同时避开预着色寄存器
             IceMachineRegister alloc;
@@ -119,8 +120,97 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
         }
 
         public void addFixedIntervals(Collection<LiveInterval> intervals) {
-            fixed.addAll(intervals);
-            fixed.sort(Comparator.comparingInt(i -> i.start));
+            for (var interval : intervals) {
+                var ranges = fixedRanges.computeIfAbsent(interval.preg, _ -> new TreeMap<>());
+                for (var range : interval.livedRanges) {
+                    var start = range.start();
+                    var end = range.end();
+                    // 合并所有与之相交的已有区间，保证索引中的区间互不相交
+                    var floor = ranges.floorEntry(end);
+                    while (floor != null && floor.getValue() >= start) {
+                        start = Math.min(start, floor.getKey());
+                        end = Math.max(end, floor.getValue());
+                        ranges.remove(floor.getKey());
+                        floor = ranges.floorEntry(end);
+                    }
+                    ranges.put(start, end);
+                }
+            }
+        }
+
+        /**
+         * @return 物理寄存器上合并后的固定区间，按开始位置索引到结束位置
+         */
+        NavigableMap<Integer, Integer> getFixedRanges(IceMachineRegister register) {
+            return Collections.unmodifiableNavigableMap(fixedRanges.getOrDefault(register, new TreeMap<>()));
+        }
+
+        /**
+         * @return 区间 [start, end] 是否与物理寄存器上的固定区间相交
+         */
+        boolean isFixedIntersecting(IceMachineRegister register, int start, int end) {
+            var ranges = fixedRanges.get(register);
+            return ranges != null && isFixedIntersecting(ranges, start, end);
+        }
+
+        /**
+         * 区间互不相交时结束位置随开始位置单调，只需要检查开始位置不超过 end 的最后一个区间
+         */
+        private static boolean isFixedIntersecting(TreeMap<Integer, Integer> ranges, int start, int end) {
+            var floor = ranges.floorEntry(end);
+            return floor != null && floor.getValue() >= start;
+        }
+    }
+
+    /**
+     * 按结束位置排序的活跃区间集合
+     * 过期和选择溢出区间都只需要看集合的两端，释放寄存器时仍然按区间进入集合的先后顺序进行
+     */
+    static class ActiveIntervals {
+        private static final Comparator<LiveInterval> BY_END = Comparator.<LiveInterval>comparingInt(interval -> interval.end)
+                .thenComparingInt(interval -> interval.activeOrder);
+
+        private final TreeSet<LiveInterval> byEnd = new TreeSet<>(BY_END);
+        // 非预着色的区间，结束位置相同时先进入的排在后面，这样 last 就是最早进入的结束位置最大的区间
+        private final TreeSet<LiveInterval> spillable = new TreeSet<>(Comparator.<LiveInterval>comparingInt(interval -> interval.end)
+                .thenComparing(Comparator.<LiveInterval>comparingInt(interval -> interval.activeOrder).reversed()));
+        private int nextOrder = 0;
+
+        public void add(LiveInterval interval) {
+            interval.activeOrder = nextOrder++;
+            byEnd.add(interval);
+            if (!interval.isPrecolored()) spillable.add(interval);
+        }
+
+        public void remove(LiveInterval interval) {
+            byEnd.remove(interval);
+            spillable.remove(interval);
+        }
+
+        public boolean isEmpty() {
+            return byEnd.isEmpty();
+        }
+
+        /**
+         * 取出所有结束位置不超过 position 的区间
+         * @return 按进入集合的先后排序的过期区间
+         */
+        public List<LiveInterval> expire(int position) {
+            var expired = new ArrayList<LiveInterval>();
+            while (!byEnd.isEmpty() && byEnd.first().end <= position) {
+                var interval = byEnd.pollFirst();
+                if (!interval.isPrecolored()) spillable.remove(interval);
+                expired.add(interval);
+            }
+            expired.sort(Comparator.comparingInt(interval -> interval.activeOrder));
+            return expired;
+        }
+
+        /**
+         * @return 结束位置最大的非预着色区间
+         */
+        public Optional<LiveInterval> getSpillCandidate() {
+            return spillable.isEmpty() ? Optional.empty() : Optional.of(spillable.last());
         }
     }
 
@@ -131,7 +221,7 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
      */
     private class TypedLinearScanAllocator {
         private final IceMachineFunction machineFunction;
-        private final Map<IceBlock, LivenessAnalysis.BlockLivenessData> functionLivenessData;
+        private final LivenessAnalysis.FunctionLiveness functionLiveness;
         private final List<IceBlock> BBs;
         private final BiMap<IceMachineInstruction, Integer> instructionIds = new BiMap<>();
         private final Map<IceMachineRegister, IceStackSlot> vregSlotMap = new HashMap<>();
@@ -141,7 +231,7 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
 
         private final List<LiveInterval> fixed = new ArrayList<>(); // 预着色寄存器的区间
         private final List<LiveInterval> unhandled = new ArrayList<>(); // 未处理的区间
-        private final List<LiveInterval> active = new ArrayList<>(); // 活跃的区间
+        private final ActiveIntervals active = new ActiveIntervals(); // 活跃的区间
 
         private final List<Integer> callPositions = new ArrayList<>(); // 记录调用指令的位置
         private final Map<Integer, List<LiveInterval>> callIntervals = new HashMap<>(); // 记录调用指令对应的活跃区间
@@ -153,16 +243,15 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
 
         public TypedLinearScanAllocator(IceMachineFunction machineFunction, RegisterPool registerPool, RegisterPool scratchRegisterPool) {
             this.BBs = machineFunction.getBlocks();
-            this.functionLivenessData = livenessResult.getLivenessData(machineFunction);
+            this.functionLiveness = livenessResult.getLiveness(machineFunction);
             this.registerPool = registerPool;
             this.machineFunction = machineFunction;
             this.scratchRegisterPool = scratchRegisterPool;
         }
 
         private void linearScan() {
-            while (!unhandled.isEmpty()) {
+            for (var current : unhandled) { // unhandled 已按开始位置排序且扫描中不会再加入新区间
                 // TODO: 添加寄存器合并逻辑
-                LiveInterval current = unhandled.removeFirst();
                 expireOldIntervals(current);
 
                 if (current.isPrecolored()) {
@@ -173,7 +262,7 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
                         // 如果被使用了就需要强制溢出使用了的区间
                         var victim = registerPool.getUser(current.preg);
                         if (victim != null) {
-                            Log.d("因为预着色强制溢出 " + current.preg + " used by " + victim.vreg);
+                            Log.d(() -> "因为预着色强制溢出 " + current.preg + " used by " + victim.vreg);
                             registerPool.release(victim.preg);
                             victim.preg = null;
                             registerPool.forceUseRegister(current, current.preg); // 重新强制使用预着色寄存器
@@ -191,7 +280,7 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
                     }
                 }
             }
-
+            unhandled.clear();
         }
 
         public void buildLiveIntervals() {
@@ -228,46 +317,54 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
             }
 
             for (var block : BBs) {
-                var liveOut = functionLivenessData.get(block).liveOut();
-
-                var validInstructions = new ArrayList<>(
-                        block.stream().filter(inst -> !(inst instanceof IceMachineInstructionComment)).map(inst -> ((IceMachineInstruction) inst)).toList());
-
-
-                var blockStartId = instructionIds.getValue(validInstructions.getFirst());
-                var blockEndId = instructionIds.getValue(validInstructions.getLast());
-
-                Collections.reverse(validInstructions); // 倒序遍历指令
-
-                for (var value : liveOut) {
-                    if (value instanceof IceMachineRegister register && intervalMap.containsKey(register)) {
-                        var interval = intervalMap.get(register);
-                        interval.addRange(blockStartId, blockEndId);
-                    }
-                }
-
-                for (var instruction : validInstructions) {
-                    assert !(instruction instanceof IceMachineInstructionComment);
-
-                    var instructionId = instructionIds.getValue(instruction);
-
-                    // 先处理Def
-                    if (instruction.getResultReg(true) != null && intervalMap.containsKey(instruction.getResultReg(true).getRegister())) {
-                        var interval = intervalMap.get(instruction.getResultReg(true).getRegister());
-                        interval.addUse(instructionId); // 记录使用位置
-                        if (!instructionId.equals(blockStartId)) // 此指令重新定义了这个寄存器 需要删除从块开始到前一条指令的活跃区间，如果此指令同时使用了由 def 保证
-                            interval.removeRange(blockStartId, instructionId - INSTRUCTION_ID_STEP);
+                // 按顺序遍历指令，寄存器在两条相邻指令之间活跃时区间延续，否则在前一条指令处结束
+                var openRanges = new LinkedHashMap<LiveInterval, Integer>(); // 尚未结束的区间 -> 开始位置
+                IceMachineInstruction lastInstruction = null;
+                for (var instruction : block) {
+                    if (instruction instanceof IceMachineInstructionComment) continue;
+                    var machineInstruction = (IceMachineInstruction) instruction;
+                    var instructionId = instructionIds.getValue(machineInstruction);
+
+                    if (lastInstruction == null) {
+                        // 块入口活跃的寄存器一定在第一条指令之后活跃或者被它使用
+                        for (var register : functionLiveness.getLiveOut(machineInstruction, registerPool.getPoolType())) {
+                            var interval = intervalMap.get(register);
+                            if (interval != null) openRanges.putIfAbsent(interval, instructionId);
+                        }
                     }
 
-                    // 后处理 Use 如果一个一条指令同时使用和定义 按此顺序就能正确处理
-                    for (var operand : instruction.getSourceOperands(true)) {
+                    for (var operand : machineInstruction.getSourceOperands(true)) {
                         if (operand instanceof IceMachineRegister.RegisterView registerView
-                            && intervalMap.containsKey(registerView.getRegister())) {
+                                && intervalMap.containsKey(registerView.getRegister())) {
                             var interval = intervalMap.get(registerView.getRegister());
                             interval.addUse(instructionId);
-                            interval.addRange(blockStartId, instructionId);
+                            openRanges.putIfAbsent(interval, instructionId);
                         }
                     }
+
+                    // 定义之后没有使用的寄存器也会被写入，至少占用定义它的指令这一个点
+                    var resultReg = machineInstruction.getResultReg(true);
+                    if (resultReg != null && intervalMap.containsKey(resultReg.getRegister())) {
+                        var interval = intervalMap.get(resultReg.getRegister());
+                        interval.addUse(instructionId);
+                        openRanges.putIfAbsent(interval, instructionId);
+                    }
+
+                    var iterator = openRanges.entrySet().iterator();
+                    while (iterator.hasNext()) {
+                        var entry = iterator.next();
+                        if (!functionLiveness.isLiveOut(machineInstruction, entry.getKey().vreg)) {
+                            entry.getKey().addRange(entry.getValue(), instructionId);
+                            iterator.remove();
+                        }
+                    }
+                    lastInstruction = machineInstruction;
+                }
+
+                // 剩下的是块出口活跃的寄存器
+                if (lastInstruction != null) {
+                    var blockEndId = instructionIds.getValue(lastInstruction);
+                    openRanges.forEach((interval, start) -> interval.addRange(start, blockEndId));
                 }
             }
 
@@ -288,13 +385,19 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
             intervals.addAll(unhandled);
             registerPool.addFixedIntervals(fixed);
 
-            for (var callPos : callPositions) {
-                for (var interval : intervals) {
-                    if (interval.start <= callPos && interval.end > callPos) { // 如果调用位置在区间的最后那无所谓了
-                        // 如果区间包含调用位置，则标记为跨调用
-                        interval.setCrossCall(true);
-                        callIntervals.computeIfAbsent(callPos, _ -> new ArrayList<>()).add(interval);
-                    }
+            // callPositions 是递增的，二分找到区间内的第一个调用
+            for (var interval : intervals) {
+                var low = 0;
+                var high = callPositions.size();
+                while (low < high) {
+                    var mid = (low + high) >>> 1;
+                    if (callPositions.get(mid) < interval.start) low = mid + 1;
+                    else high = mid;
+                }
+                for (var i = low; i < callPositions.size() && callPositions.get(i) < interval.end; i++) { // 如果调用位置在区间的最后那无所谓了
+                    // 如果区间包含调用位置，则标记为跨调用
+                    interval.setCrossCall(true);
+                    callIntervals.computeIfAbsent(callPositions.get(i), _ -> new ArrayList<>()).add(interval);
                 }
             }
 
@@ -306,13 +409,10 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
 
         private void expireOldIntervals(LiveInterval current) {
             // 过期的区间是那些结束位置小于当前区间开始位置的区间
-            active.removeIf(interval -> {
-                if (interval.end > current.start) { // 这里不用等于号，如果上一个区间最后一个是def，那以后用不到了可以重新分配了，如果上一个是use，那这个区间分配过来相当于直接重用了
-                    return false; // 这个区间还活跃
-                }
+            // 这里包含等于，如果上一个区间最后一个是def，那以后用不到了可以重新分配了，如果上一个是use，那这个区间分配过来相当于直接重用了
+            for (var interval : active.expire(current.start)) {
                 registerPool.release(interval.preg); // 将物理寄存器释放回寄存器池
-                return true; // 这个区间过期了
-            });
+            }
         }
 
         private void processInactiveIntervals(LiveInterval current) {
@@ -325,8 +425,7 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
                 throw new IllegalStateException("No active intervals to spill.");
             }
 
-            LiveInterval spillCandidate = active.stream().filter(interval -> !interval.isPrecolored())
-                    .max(Comparator.comparingInt(interval -> interval.end)).orElseThrow();
+            LiveInterval spillCandidate = active.getSpillCandidate().orElseThrow();
 
             // 选择结束位置更大的区间进行溢出 相等时优先溢出 current
             if (spillCandidate.end > current.end) {
@@ -375,7 +474,9 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
                     slot.setAlignment(alignment);
                 }
             }
-            if (all != 0) {
+            Statistics.add("regalloc.intervals", all);
+            Statistics.add("regalloc.spilled", spilled);
+            if (all != 0 && Log.isEnabled(Log.Level.DEBUG)) {
                 Log.d(String.format("分配寄存器结果: 总计: %d, 溢出: %d 溢出率: %.2f%%", all, spilled, (double) spilled / all * 100));
             }
         }
@@ -532,7 +633,7 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
             RegisterPool vScratchPool
     ) {}
 
-    private static class LiveInterval {
+    static class LiveInterval {
         public record Range(int start, int end) { // 范围是闭区间 [start, end]
 
             // 区间可能为一个点
@@ -601,6 +702,7 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
         }
 
         private boolean crossCall;
+        private int activeOrder; // 进入 active 的顺序
         private final List<Range> livedRanges = new ArrayList<>();
 
         IceMachineRegister vreg, preg;
@@ -714,22 +816,24 @@ public class LinearScanAllocator implements CompilePass<IceMachineFunction>, Ice
 
     @Override
     public boolean run(IceMachineFunction target) {
+        var startTime = System.nanoTime();
         var registerPools = initPhysicalRegisterPool(target);
 
-        Log.d(target.getName() + " 开始分配整数寄存器");
+        // 活跃性分析的结果只对应分配前的代码，两类寄存器的区间都要在插入溢出代码之前构建
         var integerAllocator = new TypedLinearScanAllocator(target, registerPools.xRegPool(), registerPools.xScratchPool());
         integerAllocator.buildLiveIntervals();
+        var floatAllocator = new TypedLinearScanAllocator(target, registerPools.vRegPool(), registerPools.vScratchPool());
+        floatAllocator.buildLiveIntervals();
+
+        Log.d(() -> target.getName() + " 开始分配整数寄存器");
         integerAllocator.linearScan();
         integerAllocator.applyRegisterAllocation(); // 应用寄存器分配结果
 
-        Log.d(target.getName() + " 开始分配浮点寄存器");
-        var floatAllocator = new TypedLinearScanAllocator(target, registerPools.vRegPool(), registerPools.vScratchPool());
-        floatAllocator.buildLiveIntervals();
+        Log.d(() -> target.getName() + " 开始分配浮点寄存器");
         floatAllocator.linearScan();
         floatAllocator.applyRegisterAllocation(); // 应用寄存器分配结果
 
-
-
+        Statistics.add("regalloc.timeMicros", (System.nanoTime() - startTime) / 1000);
         return true;
     }
 
@@ -0,0 +1,142 @@
+package top.voidc.frontend.helper;
+
+import org.antlr.v4.runtime.CharStreams;
+import top.voidc.frontend.translator.IRGenerator;
+import top.voidc.ir.IceContext;
+import top.voidc.ir.IceUnit;
+import top.voidc.ir.ice.constant.IceExternFunction;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.type.IceArrayType;
+import top.voidc.ir.ice.type.IcePtrType;
+import top.voidc.ir.ice.type.IceType;
+import top.voidc.misc.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * lib.sy 中运行时函数声明的快照，构建时由 main 生成到 classes/lib.snapshot，
+ * 编译时直接读入 IceUnit 和 SymbolTable，不再经过词法/语法分析
+ * 格式：每行一个函数 "名字 返回类型 参数名:类型 ... [...]"，类型中 * 表示指针，[N] 表示数组，
+ * 例如 "putarray void 0:i32 1:*i32"
+ */
+public class LibrarySnapshot {
+    public static final String LIBRARY_SOURCE = "/lib.sy";
+    public static final String RESOURCE = "/lib.snapshot";
+    private static final String VARARGS = "...";
+
+    /**
+     * 把快照中的函数声明加入当前的编译单元和符号表，效果和编译 lib.sy 相同
+     * @return 找不到快照资源时返回 false，此时需要回退到解析 lib.sy
+     */
+    public static boolean load(IceContext context) throws IOException {
+        final var stream = LibrarySnapshot.class.getResourceAsStream(RESOURCE);
+        if (stream == null) return false;
+
+        final String text;
+        try (stream) {
+            text = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        final var unit = context.getCurrentIR();
+        context.getSymbolTable().createScope("global");
+        for (var function : read(text)) {
+            context.getSymbolTable().putFunction(function.getName(), function);
+            unit.addFunction(function);
+        }
+        return true;
+    }
+
+    public static String write(List<IceExternFunction> functions) {
+        final var builder = new StringBuilder();
+        for (var function : functions) {
+            builder.append(function.getName()).append(' ').append(writeType(function.getReturnType()));
+            for (var parameter : function.getParameters()) {
+                builder.append(' ').append(parameter.getName()).append(':').append(writeType(parameter.getType()));
+            }
+            if (function.isVArgs()) builder.append(' ').append(VARARGS);
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    public static List<IceExternFunction> read(String text) {
+        final var functions = new ArrayList<IceExternFunction>();
+        for (var line : text.split("\n")) {
+            if (line.isBlank()) continue;
+            final var fields = line.trim().split(" ");
+            Log.should(fields.length >= 2, () -> "无效的库函数快照: " + line);
+
+            final var function = new IceExternFunction(fields[0]);
+            function.setReturnType(readType(fields[1]));
+            for (int i = 2; i < fields.length; i++) {
+                if (fields[i].equals(VARARGS)) {
+                    function.setVArgs(true);
+                    continue;
+                }
+                final var colon = fields[i].lastIndexOf(':');
+                Log.should(colon > 0, () -> "无效的库函数快照: " + line);
+                function.addParameter(new IceFunction.IceFunctionParameter(function,
+                        fields[i].substring(0, colon), readType(fields[i].substring(colon + 1))));
+            }
+            functions.add(function);
+        }
+        return functions;
+    }
+
+    private static String writeType(IceType type) {
+        if (type instanceof IcePtrType<?> pointer) return "*" + writeType(pointer.getPointTo());
+        if (type instanceof IceArrayType array) return "[" + array.getNumElements() + "]" + writeType(array.getElementType());
+        return type.toString();
+    }
+
+    private static IceType readType(String text) {
+        if (text.startsWith("*")) return new IcePtrType<>(readType(text.substring(1)));
+        if (text.startsWith("[")) {
+            final var end = text.indexOf(']');
+            return new IceArrayType(readType(text.substring(end + 1)), Integer.parseInt(text.substring(1, end)));
+        }
+        return switch (text) {
+            case "i1" -> IceType.I1;
+            case "i8" -> IceType.I8;
+            case "i32" -> IceType.I32;
+            case "i64" -> IceType.I64;
+            case "float" -> IceType.F32;
+            case "double" -> IceType.F64;
+            case "void" -> IceType.VOID;
+            case "str" -> IceType.STRING;
+            default -> throw new IllegalArgumentException("Unknown type in library snapshot: " + text);
+        };
+    }
+
+    /**
+     * 编译 lib.sy 得到其中的函数声明
+     */
+    public static List<IceExternFunction> compileLibrary(InputStream source) throws IOException {
+        final var context = new IceContext();
+        context.setCurrentIR(new IceUnit("lib"));
+        SysyParsing.parse(context, CharStreams.fromStream(source));
+        new IRGenerator(context).generateIR();
+        return context.getCurrentIR().getFunctions().stream()
+                .filter(function -> function instanceof IceExternFunction)
+                .map(function -> (IceExternFunction) function)
+                .toList();
+    }
+
+    /**
+     * 构建时生成快照，由 exec-maven-plugin 在 process-classes 阶段调用
+     * @param args 输出文件路径
+     */
+    public static void main(String[] args) throws IOException {
+        Log.should(args.length == 1, "用法: LibrarySnapshot <输出文件>");
+        final var source = LibrarySnapshot.class.getResourceAsStream(LIBRARY_SOURCE);
+        Log.should(source != null, "lib.sy not found");
+        try (source) {
+            Files.writeString(Path.of(args[0]), write(compileLibrary(source)));
+        }
+    }
+}
@@ -28,7 +28,7 @@ public class SymbolTable {
 
         public void put(String name, IceValue value) {
             Log.should(!table.containsKey(name),
-                    "Variable " + name + " already defined in scope " + scopeName);
+                    () -> "Variable " + name + " already defined in scope " + scopeName);
             table.put(name, value);
         }
 
@@ -64,7 +64,7 @@ public class SymbolTable {
 
     public void putFunction(String name, IceFunction function) {
         Log.should(!functionMap.containsKey(name),
-                "Function" + name + " already defined");
+                () -> "Function" + name + " already defined");
         functionMap.put(name, function);
     }
 
@@ -0,0 +1,83 @@
+package top.voidc.frontend.helper;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import top.voidc.frontend.parser.SysyLexer;
+import top.voidc.frontend.parser.SysyParser;
+import top.voidc.ir.IceContext;
+import top.voidc.misc.Log;
+import top.voidc.misc.Statistics;
+
+import java.io.IOException;
+
+/**
+ * SysY 的语法分析入口
+ * 先用 SLL 预测加 BailErrorStrategy 解析，绝大多数程序在这一步就能完成；
+ * 只有 SLL 失败（语法错误或者需要完整上下文的预测）时才回退到 LL 重新解析，LL 负责报告语法错误
+ * SysyParser 的 DFA 缓存是静态的，同一个 JVM 中的多次编译共用，warmUp 可以提前填充
+ */
+public class SysyParsing {
+    public static final String WARMUP_SOURCE = "/warmup.sy";
+
+    private static volatile boolean warmedUp = false;
+
+    private static final BaseErrorListener THROWING_LISTENER = new BaseErrorListener() {
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine,
+                                String msg, RecognitionException e) {
+            Log.e("在 " + line + " 行 " + charPositionInLine + " 列出现语法错误: " + msg);
+            throw new ParseCancellationException();
+        }
+    };
+
+    /**
+     * 解析源代码，把语法树和解析器保存到 context
+     */
+    public static SysyParser.CompUnitContext parse(IceContext context, CharStream source) {
+        final var parser = new SysyParser(new CommonTokenStream(new SysyLexer(source)));
+        final var ast = parse(parser);
+        context.setAst(ast);
+        context.setParser(parser);
+        return ast;
+    }
+
+    /**
+     * 两阶段解析
+     * @param parser 新建的解析器
+     * @return 语法树
+     */
+    public static SysyParser.CompUnitContext parse(SysyParser parser) {
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        try {
+            return parser.compUnit();
+        } catch (ParseCancellationException e) {
+            Statistics.increment("parser.LLFallback");
+            Log.d("SLL 解析失败，使用 LL 重新解析");
+        }
+
+        // 词法单元已经缓存在 token 流中，回到开头重新解析即可
+        parser.reset();
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+        parser.addErrorListener(THROWING_LISTENER);
+        return parser.compUnit();
+    }
+
+    /**
+     * 解析一段覆盖常见语法结构的程序来填充 DFA 缓存，只在第一次调用时执行
+     * 常驻进程或者一次编译大量文件时有用，单次编译不需要
+     */
+    public static void warmUp() throws IOException {
+        if (warmedUp) return;
+        final var stream = SysyParsing.class.getResourceAsStream(WARMUP_SOURCE);
+        Log.should(stream != null, "warmup.sy not found");
+        try (stream) {
+            parse(new SysyParser(new CommonTokenStream(new SysyLexer(CharStreams.fromStream(stream)))));
+        }
+        warmedUp = true;
+    }
+}
@@ -51,7 +51,7 @@ public class InstructionVisitor extends IceBaseVisitor<IceInstruction> {
             lookupName = name.substring(1);
         }
         Optional<IceValue> value = Optional.ofNullable(environment.get(lookupName));
-        Log.should(value.isPresent(), "Value " + name + " not found in symbol table");
+        Log.should(value.isPresent(), () -> "Value " + name + " not found in symbol table");
         return value.get();
     }
 
@@ -198,7 +198,7 @@ public class InstructionVisitor extends IceBaseVisitor<IceInstruction> {
     public IceInstruction visitCallInstr(IceParser.CallInstrContext ctx) {
         String funcName = ctx.GLOBAL_IDENTIFIER().getText(); // Last IDENTIFIER is function name
         final var func = lookupValue(funcName);
-        Log.should(func instanceof IceFunction, "Function " + funcName + " not found");
+        Log.should(func instanceof IceFunction, () -> "Function " + funcName + " not found");
 
         List<IceValue> args = new ArrayList<>();
         if (ctx.argList() != null) {
@@ -264,7 +264,7 @@ public class InstructionVisitor extends IceBaseVisitor<IceInstruction> {
 
                 // Need to resolve label to predecessor block
                 var predBlock = lookupValue(label);
-                Log.should(predBlock instanceof IceBlock, "Predicate " + label + " not found");
+                Log.should(predBlock instanceof IceBlock, () -> "Predicate " + label + " not found");
                 phiNode.addBranch((IceBlock) predBlock, value);
             }
         };
@@ -196,8 +196,8 @@ public class ConstDeclEmitter extends SysyBaseVisitor<Void> {
         if (!constType.equals(constValue.getType())) {
             constValue = ((IceConstantData) constValue).castTo(constType);
         }
-        constValue.setName(name);
-        context.getSymbolTable().put(constValue.getName(), constValue);
+        // 标量常量是驻留共享的，不能改名，直接以常量名登记
+        context.getSymbolTable().put(name, constValue);
 //        constants.add(constValue); // 不用加入全局常量中
     }
 
@@ -478,7 +478,7 @@ public class ExpEmitter extends SysyBaseVisitor<IceValue> {
         }
 
         // 确保目标变量是指针类型
-        Log.should(targetVariable.getType().isPointer(), "目标变量 " + targetVariable.getName() + " 不是指针类型");
+        Log.should(targetVariable.getType().isPointer(), () -> "目标变量 " + targetVariable.getName() + " 不是指针类型");
 
         // 处理数组和变量访问
 
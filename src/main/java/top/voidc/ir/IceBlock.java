@@ -14,6 +14,7 @@ import java.util.stream.Stream;
 public class IceBlock extends IceUser implements List<IceInstruction> {
     private final List<IceInstruction> instructions;
     private final IceFunction function; // 所属函数
+    private final List<IceBlock> predecessors = new ArrayList<>(); // 由终结指令维护的前驱块
 
     public IceBlock(IceFunction parentFunction, String name) {
         super(name, IceType.VOID);
@@ -31,6 +32,17 @@ public class IceBlock extends IceUser implements List<IceInstruction> {
         return function;
     }
 
+    /**
+     * 通知所属函数 CFG 已变化，块顺序等缓存需要重新计算
+     */
+    private void invalidateCFG() {
+        if (function != null) function.invalidateCFG();
+    }
+
+    private boolean isTerminated() {
+        return !instructions.isEmpty() && instructions.getLast().isTerminal();
+    }
+
     /**
      * 移除当前基本块index指令*后*中所有的指令，前驱和后继关系由destroy中的相关代码维护
      * @param index 指令索引 index不会删除
@@ -53,9 +65,11 @@ public class IceBlock extends IceUser implements List<IceInstruction> {
      * @param instruction 指令
      */
     public void addInstruction(IceInstruction instruction) {
+        final var wasTerminated = isTerminated();
         instructions.add(instruction);
         instruction.setParent(this);
         if (instruction.isTerminal()) removeAfterInstruction(instructions.size() - 1);
+        if (wasTerminated || instruction.isTerminal()) invalidateCFG();
     }
 
     /**
@@ -68,6 +82,7 @@ public class IceBlock extends IceUser implements List<IceInstruction> {
         if (instruction.isTerminal()) {
             Log.w("在基本块最前面插入了终止指令，确定这是想要的吗？");
             removeAfterInstruction(0);
+            invalidateCFG();
         }
     }
 
@@ -116,10 +131,32 @@ public class IceBlock extends IceUser implements List<IceInstruction> {
         return getPredecessors();
     }
 
+    /**
+     * 获取当前基本块的前驱基本块
+     * @implNote 前驱边由终结指令在挂到基本块上、修改跳转目标或者被删除时维护，
+     * 同一个终结指令对同一个目标只记录一次
+     * @return 前驱基本块列表的只读视图，会随 CFG 变化，遍历时需要修改 CFG 的话先复制
+     */
     public List<IceBlock> getPredecessors() {
-        return getUsers().stream()
-                .filter(iceUser -> iceUser instanceof IceInstruction)
-                .map(inst -> ((IceInstruction) inst).getParent()).toList();
+        return Collections.unmodifiableList(predecessors);
+    }
+
+    public int predecessorCount() {
+        return predecessors.size();
+    }
+
+    /**
+     * 由终结指令维护前驱边，<b>不要手动调用</b>
+     */
+    public void addPredecessor(IceBlock block) {
+        predecessors.add(block);
+    }
+
+    /**
+     * @see #addPredecessor(IceBlock)
+     */
+    public void removePredecessor(IceBlock block) {
+        predecessors.remove(block);
     }
 
     /**
@@ -192,7 +229,8 @@ public class IceBlock extends IceUser implements List<IceInstruction> {
             }
         });
         this.clear();
-        assert getUsers().isEmpty();
+        assert !hasUsers();
+        assert predecessors.isEmpty();
         super.destroy();
     }
 
@@ -256,23 +294,30 @@ public class IceBlock extends IceUser implements List<IceInstruction> {
             if (lastReturned == null) {
                 throw new IllegalStateException();
             }
+            final var affectsCFG = lastReturned.isTerminal() || lastReturned == instructions.getLast();
             lastReturned.setParent(null);
             lastReturned.destroy();
             lastReturned = null;
             delegate.remove();
+            if (affectsCFG) invalidateCFG();
         }
         
         @Override
         public void set(IceInstruction e) {
+            final var affectsCFG = e.isTerminal()
+                    || (lastReturned != null && (lastReturned.isTerminal() || lastReturned == instructions.getLast()));
             delegate.set(e);
+            if (affectsCFG) invalidateCFG();
         }
         
         @Override
         public void add(IceInstruction e) {
+            final var affectsCFG = e.isTerminal() || (!delegate.hasNext() && isTerminated());
             delegate.add(e);
             if (e.isTerminal()) {
                 removeAfterInstruction(delegate.previousIndex());
             }
+            if (affectsCFG) invalidateCFG();
         }
     }
 
@@ -310,8 +355,10 @@ public class IceBlock extends IceUser implements List<IceInstruction> {
         if (!instructions.contains(instruction)) {
             return false;
         }
+        final var affectsCFG = instruction.isTerminal() || instruction == instructions.getLast();
         instruction.setParent(null);
         instructions.remove(instruction);
+        if (affectsCFG) invalidateCFG();
         return true;
     }
 
@@ -376,10 +423,12 @@ public class IceBlock extends IceUser implements List<IceInstruction> {
     @Override
     public IceInstruction set(int index, IceInstruction element) {
         IceInstruction oldElement = instructions.get(index);
+        final var affectsCFG = element.isTerminal() || oldElement.isTerminal() || index == instructions.size() - 1;
         instructions.set(index, element);
         if (element.isTerminal()) {
             removeAfterInstruction(index);
         }
+        if (affectsCFG) invalidateCFG();
         return oldElement;
     }
 
@@ -3,6 +3,7 @@ package top.voidc.ir;
 import top.voidc.frontend.helper.SymbolTable;
 import top.voidc.frontend.parser.SysyParser;
 import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.misc.Statistics;
 
 import java.io.File;
 import java.util.*;
@@ -22,6 +23,8 @@ public class IceContext {
 
     private IceFunction currentFunction;
 
+    private final Statistics statistics = new Statistics();
+
     private final Set<Object> passResults = new HashSet<>();
     private final Map<String, Object> nameToPassResult = new ConcurrentHashMap<>();
 
@@ -84,6 +87,13 @@ public class IceContext {
         this.currentFunction = currentFunction;
     }
 
+    /**
+     * @return 本次编译的 -fstats 计数器
+     */
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
     public Stack<IceIfLabel> getIfLabelStack() {
         return ifLabelStack;
     }
@@ -0,0 +1,61 @@
+package top.voidc.ir;
+
+/**
+ * 操作数槽位：user 的第 index 个操作数使用了 value
+ * 同时是 value 使用链（侵入式双向链表）上的节点，替换操作数时只需把节点从旧值的链上摘下再挂到新值的链上
+ */
+public final class IceUse {
+    private final IceUser user;
+    private int index;
+    private IceValue value;
+
+    // 使用链指针，由 IceValue 维护
+    IceUse prev, next;
+    boolean linked = false;
+
+    IceUse(IceUser user, int index, IceValue value) {
+        this.user = user;
+        this.index = index;
+        this.value = value;
+    }
+
+    public IceUser getUser() {
+        return user;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public IceValue getValue() {
+        return value;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * 更换该槽位使用的值，同时维护新旧值的使用链
+     * 未挂链的槽位（例如克隆出来的）换值后会挂到新值的链上
+     */
+    void set(IceValue newValue) {
+        if (value == newValue) return;
+        unlink();
+        value = newValue;
+        newValue.addUse(this);
+    }
+
+    void link() {
+        value.addUse(this);
+    }
+
+    void unlink() {
+        if (linked) value.removeUse(this);
+    }
+
+    @Override
+    public String toString() {
+        return user.getReferenceName(false) + "#" + index + " -> " + value.getReferenceName(false);
+    }
+}
@@ -2,38 +2,66 @@ package top.voidc.ir;
 
 import top.voidc.ir.ice.type.IceType;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
 
 public class IceUser extends IceValue implements Cloneable {
-    private List<IceValue> operands;
+    private List<IceUse> operands;
+    private List<IceValue> operandValues; // operands 的只读视图
 
     public IceUser() {
         super();
         this.operands = new ArrayList<>();
+        this.operandValues = new OperandValues();
     }
 
     public IceUser(String name, IceType type) {
         super(name, type);
         this.operands = new ArrayList<>();
+        this.operandValues = new OperandValues();
+    }
+
+    private class OperandValues extends AbstractList<IceValue> implements RandomAccess {
+        @Override
+        public IceValue get(int index) {
+            return operands.get(index).getValue();
+        }
+
+        @Override
+        public int size() {
+            return operands.size();
+        }
+    }
+
+    /**
+     * 插入之后的槽位下标全部后移
+     */
+    private void insertOperand(int index, IceValue operand) {
+        Objects.requireNonNull(operand);
+        final var use = new IceUse(this, index, operand);
+        operands.add(index, use);
+        renumberOperands(index + 1);
+        use.link();
+    }
+
+    private void renumberOperands(int from) {
+        for (var i = from; i < operands.size(); i++) {
+            operands.get(i).setIndex(i);
+        }
     }
 
     public void addOperand(IceValue operand) {
-        operand.addUse(this);
-        operands.add(operand);
+        insertOperand(operands.size(), operand);
     }
 
     public void addOperand(int index, IceValue operand) {
         if (index < 0 || index > operands.size()) {
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + operands.size());
         }
-        operand.addUse(this);
-        operands.add(index, operand);
+        insertOperand(index, operand);
     }
 
     protected void removeAllOperands() {
-        operands.forEach(operand -> operand.removeUse(this));
+        operands.forEach(IceUse::unlink);
         operands.clear();
     }
 
@@ -45,6 +73,15 @@ public class IceUser extends IceValue implements Cloneable {
         replaceOperand(operand, null);
     }
 
+    /**
+     * 删除下标为 index 的操作数，之后的操作数前移
+     * @param index 操作数下标
+     */
+    protected void removeOperand(int index) {
+        operands.remove(index).unlink();
+        renumberOperands(index);
+    }
+
     /**
      * 用newOperand替换User操作数中**所有**的oldOperand
      * @param oldOperand 原有操作数
@@ -56,16 +93,18 @@ public class IceUser extends IceValue implements Cloneable {
         // 或许应该改成 equals 方法？
         if (oldOperand == newOperand) return;
 
-        oldOperand.removeUse(this);
-
         if (newOperand != null) {
-            newOperand.addUse(this);
-
             // 替换所有等于 oldValue 的元素为 newValue
-            operands.replaceAll(e -> e == oldOperand ? newOperand : e);
-        } else  {
+            for (final var use : operands) {
+                if (use.getValue() == oldOperand) use.set(newOperand);
+            }
+        } else if (operands.removeIf(use -> {
             // 删除所有等于 oldValue 的元素
-            operands.removeIf(e -> e == oldOperand);
+            if (use.getValue() != oldOperand) return false;
+            use.unlink();
+            return true;
+        })) {
+            renumberOperands(0);
         }
     }
 
@@ -73,33 +112,42 @@ public class IceUser extends IceValue implements Cloneable {
         if (index < 0 || index >= operands.size()) {
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + operands.size());
         }
-        IceValue oldOperand = operands.get(index);
-        if (oldOperand != null) {
-            oldOperand.removeUse(this);
-        }
-        operand.addUse(this);
-        operands.set(index, operand);
+        operands.get(index).set(Objects.requireNonNull(operand));
     }
 
     public IceValue getOperand(int i) {
-        return operands.get(i);
+        return operands.get(i).getValue();
     }
 
+    /**
+     * @return 操作数的只读视图，随操作数的修改而变化
+     */
     public List<IceValue> getOperands() {
-        return operands;
+        return operandValues;
+    }
+
+    /**
+     * @return 各操作数槽位的只读视图
+     */
+    public List<IceUse> getOperandUses() {
+        return Collections.unmodifiableList(operands);
     }
 
     @Override
     public IceUser clone() {
         IceUser clone = (IceUser) super.clone();
-        // 创建新的operands列表，但保持对操作数的引用
-        clone.operands = new ArrayList<>(this.operands);
+        // 创建新的槽位，保持对操作数的引用，但不挂到操作数的使用链上
+        clone.operands = new ArrayList<>(this.operands.size());
+        for (final var use : this.operands) {
+            clone.operands.add(new IceUse(clone, use.getIndex(), use.getValue()));
+        }
+        clone.operandValues = clone.new OperandValues();
         return clone;
     }
 
     @Override
     public void destroy() {
-        operands.forEach(operand -> operand.removeUse(this));
+        operands.forEach(IceUse::unlink);
         operands.clear();
         super.destroy();
     }
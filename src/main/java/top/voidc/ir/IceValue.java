@@ -1,7 +1,6 @@
 package top.voidc.ir;
 
 import org.antlr.v4.runtime.CharStreams;
-import java.util.HashSet;
 import org.antlr.v4.runtime.CommonTokenStream;
 import top.voidc.frontend.parser.IceLexer;
 import top.voidc.frontend.parser.IceParser;
@@ -14,18 +13,18 @@ public class IceValue implements Cloneable {
 
     protected IceType type;
 
-    // 使用者使用集合确保虽然某个操作数被同个指令使用多次的情况下其使用者唯一，使用者的操作数可能会重复多次且有序所以使用List
-    private Set<IceUser> users;
+    // 使用链：每个使用了本值的操作数槽位都是链上的一个节点，按加入顺序排列
+    // 同一个使用者多次使用本值时会有多个节点
+    private IceUse firstUse, lastUse;
+    private int useCount;
 
     public IceValue() {
         this.name = null;
-        this.users = new HashSet<>();
         this.type = IceType.VOID;
     }
 
     public IceValue(String name, IceType type) {
         this.name = name;
-        this.users = new HashSet<>();
         this.type = type;
     }
 
@@ -45,12 +44,100 @@ public class IceValue implements Cloneable {
         return type;
     }
 
-    public void addUse(IceUser user) {
-        users.add(user);
+    /**
+     * 是否维护使用链，驻留的标量常量在所有函数间共享，不记录使用者
+     */
+    protected boolean isUseTracked() {
+        return true;
     }
 
-    public void removeUse(IceUser user) {
-        users.remove(user);
+    /**
+     * 是否只被一个函数中的指令使用，全局变量和函数等常量会被多个函数使用
+     */
+    protected boolean isFunctionLocal() {
+        return true;
+    }
+
+    // 全局变量和函数会被不同函数中的指令使用，并行的函数级 Pass 会同时修改它们的使用链
+    void addUse(IceUse use) {
+        if (!isUseTracked()) return;
+        synchronized (this) {
+            assert !use.linked;
+            use.prev = lastUse;
+            use.next = null;
+            if (lastUse == null) {
+                firstUse = use;
+            } else {
+                lastUse.next = use;
+            }
+            lastUse = use;
+            use.linked = true;
+            useCount++;
+        }
+    }
+
+    synchronized void removeUse(IceUse use) {
+        assert use.linked;
+        if (use.prev == null) {
+            firstUse = use.next;
+        } else {
+            use.prev.next = use.next;
+        }
+        if (use.next == null) {
+            lastUse = use.prev;
+        } else {
+            use.next.prev = use.prev;
+        }
+        use.prev = use.next = null;
+        use.linked = false;
+        useCount--;
+    }
+
+    /**
+     * 获取使用链，不会复制，遍历期间不能修改使用关系
+     * 遍历不加锁，只能用于函数内的值；全局变量和函数的使用链会被并行的函数级 Pass 同时修改，使用 getUsers
+     * @return 按加入顺序排列的使用
+     */
+    public Iterable<IceUse> getUses() {
+        assert isFunctionLocal() : "%s 会被多个函数使用，不能无锁遍历使用链".formatted(getReferenceName(false));
+        return () -> new Iterator<>() {
+            private IceUse current = firstUse;
+
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            @Override
+            public IceUse next() {
+                if (current == null) throw new NoSuchElementException();
+                final var use = current;
+                current = current.next;
+                return use;
+            }
+        };
+    }
+
+    /**
+     * @return 使用次数，同一个使用者使用多次会计算多次
+     */
+    public int getUseCount() {
+        return useCount;
+    }
+
+    public boolean hasUsers() {
+        return firstUse != null;
+    }
+
+    /**
+     * @return 是否有使用者并且只被 user 使用，user 可以使用多次
+     */
+    public boolean isOnlyUsedBy(IceUser user) {
+        if (!hasUsers()) return false;
+        for (var use : getUses()) {
+            if (use.getUser() != user) return false;
+        }
+        return true;
     }
 
     /**
@@ -59,15 +146,21 @@ public class IceValue implements Cloneable {
      * @return 使用者列表
      */
     public List<IceUser> users() {
-        return users.stream().toList();
+        return getUsers();
     }
 
     /**
-     * 获取使用者列表
+     * 获取使用者列表，按第一次使用的顺序排列且不重复
+     * 每次调用都会复制，只需要判断有无使用者或遍历函数内的值时使用 hasUsers 和 getUses
      * @return 使用者列表
      */
-    public List<IceUser> getUsers() {
-        return users.stream().toList();
+    public synchronized List<IceUser> getUsers() {
+        if (firstUse == null) return List.of();
+        final var users = new LinkedHashSet<IceUser>();
+        for (var use = firstUse; use != null; use = use.next) {
+            users.add(use.getUser());
+        }
+        return List.copyOf(users);
     }
 
     @Deprecated
@@ -81,8 +174,18 @@ public class IceValue implements Cloneable {
      * @param newValue 新的值，可为 null
      */
     public void replaceAllUsesWith(IceValue newValue) {
-        // 使用 Set.copyOf(users) 是为了避免在遍历时删除元素导致 ConcurrentModificationException
-        Set.copyOf(users).forEach(user -> user.replaceOperand(this, newValue));
+        if (newValue == this) return;
+        if (newValue == null) {
+            // 删除时由使用者决定如何删除（例如 PHI 需要成对删除），所以按使用者处理
+            getUsers().forEach(user -> user.replaceOperand(this, null));
+            return;
+        }
+        // 逐个槽位替换，被替换的节点会离开本链，所以先记下后继
+        for (var use = firstUse; use != null; ) {
+            final var next = use.next;
+            use.getUser().setOperand(use.getIndex(), newValue);
+            use = next;
+        }
     }
 
     /**
@@ -129,8 +232,9 @@ public class IceValue implements Cloneable {
     public IceValue clone() {
         try {
             IceValue clone = (IceValue) super.clone();
-            // users集合需要新建，因为新对象还没有使用者
-            clone.users = new HashSet<>();
+            // 使用链需要清空，因为新对象还没有使用者
+            clone.firstUse = clone.lastUse = null;
+            clone.useCount = 0;
             return clone;
         } catch (CloneNotSupportedException e) {
             throw new AssertionError(); // 不应该发生
@@ -0,0 +1,82 @@
+package top.voidc.ir.bitcode;
+
+/**
+ * Ice IR 二进制格式的公共定义，小端序，整数都是定长的 4 字节
+ * <pre>
+ * 文件头     magic version
+ * 字符串表   count { length utf8[length] }
+ * 类型表     count { kind a b }
+ * 常量池     count { kind type payload }
+ * 全局变量   count { name type flags initializer }
+ * 函数声明   count { name flags returnType paramCount { name type } bodyOffset }
+ * 函数体     每个函数一段，见 {@link IceBitcodeWriter}
+ * </pre>
+ * 表项之间只会引用更早的表项，所以读入时按顺序构造即可
+ */
+final class IceBitcode {
+    static final int MAGIC = 0x42454349; // "ICEB"
+    static final int VERSION = 1;
+
+    static final int NONE = -1;
+
+    // 类型表中的种类，基本类型直接使用 TypeEnum 的序号
+    static final byte TYPE_PRIMITIVE = 0;
+    static final byte TYPE_POINTER = 1; // a: 指向的类型 b: 是否常量
+    static final byte TYPE_ARRAY = 2; // a: 元素类型 b: 元素个数
+    static final byte TYPE_VECTOR = 3; // a: 标量类型 b: 宽度，标量类型为 any 时是位宽
+
+    // 常量池中的种类
+    static final byte CONST_INT = 0;
+    static final byte CONST_LONG = 1;
+    static final byte CONST_BYTE = 2;
+    static final byte CONST_BOOLEAN = 3;
+    static final byte CONST_FLOAT = 4;
+    static final byte CONST_DOUBLE = 5;
+    static final byte CONST_UNDEF = 6;
+    static final byte CONST_ARRAY = 7;
+    static final byte CONST_ZERO_ARRAY = 8;
+    static final byte CONST_STRING = 9;
+
+    // 函数和全局变量的标志位
+    static final byte FLAG_EXTERN = 1;
+    static final byte FLAG_VARARGS = 2;
+    static final byte FLAG_PRIVATE = 1;
+    static final byte FLAG_UNNAMED_ADDR = 2;
+
+    // 指令的标志位
+    static final byte FLAG_NSW = 1;
+    static final byte FLAG_INBOUNDS = 2;
+    static final byte FLAG_ELIMINATED = 4;
+
+    /**
+     * 操作数引用的低 3 位是种类，其余位是对应表中的下标
+     */
+    static final int REF_CONSTANT = 0;
+    static final int REF_GLOBAL = 1;
+    static final int REF_FUNCTION = 2;
+    static final int REF_PARAMETER = 3;
+    static final int REF_BLOCK = 4;
+    static final int REF_INSTRUCTION = 5;
+    static final int REF_KIND_BITS = 3;
+    static final int REF_KIND_MASK = (1 << REF_KIND_BITS) - 1;
+
+    static int ref(int kind, int index) {
+        return index << REF_KIND_BITS | kind;
+    }
+
+    enum Opcode {
+        ADD, FADD, SUB, FSUB, MUL, FMUL, SDIV, FDIV, MOD, SHL, SHR, AND, OR, XOR,
+        ALLOCA, BRANCH, CALL, ICMP, FCMP, CONVERT, COPY, GEP, INTRINSIC, LOAD, NEG, PHI, RET, STORE, UNREACHABLE;
+
+        private static final Opcode[] VALUES = values();
+
+        static Opcode of(int ordinal) {
+            if (ordinal < 0 || ordinal >= VALUES.length) {
+                throw new IllegalArgumentException("Unknown opcode in bitcode: " + ordinal);
+            }
+            return VALUES[ordinal];
+        }
+    }
+
+    private IceBitcode() {}
+}
@@ -0,0 +1,334 @@
+package top.voidc.ir.bitcode;
+
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.IceUnit;
+import top.voidc.ir.IceValue;
+import top.voidc.ir.ice.constant.*;
+import top.voidc.ir.ice.instruction.*;
+import top.voidc.ir.ice.type.IceArrayType;
+import top.voidc.ir.ice.type.IcePtrType;
+import top.voidc.ir.ice.type.IceType;
+import top.voidc.ir.ice.type.IceVecType;
+import top.voidc.misc.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static top.voidc.ir.bitcode.IceBitcode.*;
+
+/**
+ * 从 {@link IceBitcodeWriter} 写出的二进制格式重建 IceUnit
+ * 文件通过内存映射读入，不经过词法和语法分析
+ */
+public class IceBitcodeReader {
+    private static final IceType.TypeEnum[] TYPE_ENUMS = IceType.TypeEnum.values();
+
+    private final ByteBuffer buffer;
+    private String[] strings;
+    private IceType[] types;
+    private IceConstantData[] constants;
+    private final List<IceValue> globals = new ArrayList<>();
+    private final List<IceFunction> functions = new ArrayList<>();
+
+    private IceBitcodeReader(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static IceUnit read(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static IceUnit read(byte[] bytes) {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    public static IceUnit read(ByteBuffer buffer) {
+        return new IceBitcodeReader(buffer.duplicate()).readUnit();
+    }
+
+    private IceUnit readUnit() {
+        Log.should(buffer.remaining() >= 8 && buffer.getInt() == MAGIC, "Not an Ice bitcode file");
+        final var version = buffer.getInt();
+        Log.should(version == VERSION, () -> "Unsupported Ice bitcode version: " + version);
+        final var unitNameId = buffer.getInt();
+
+        readStrings();
+        readTypes();
+        readConstants();
+
+        final var unit = new IceUnit(strings[unitNameId]);
+        final var globalCount = buffer.getInt();
+        for (var i = 0; i < globalCount; i++) {
+            final var name = strings[buffer.getInt()];
+            final var type = (IcePtrType<?>) types[buffer.getInt()];
+            final var flags = buffer.get();
+            final var initializer = buffer.getInt();
+            final var variable = new IceGlobalVariable(name, type.getPointTo(),
+                    initializer == NONE ? null : constants[initializer]);
+            variable.getType().asPointer().setConst(type.isConst());
+            variable.setPrivate((flags & FLAG_PRIVATE) != 0);
+            variable.setUnnamedAddr((flags & FLAG_UNNAMED_ADDR) != 0);
+            unit.addGlobalDecl(variable);
+            globals.add(variable);
+        }
+
+        final var functionCount = buffer.getInt();
+        final var bodyOffsets = new int[functionCount];
+        for (var i = 0; i < functionCount; i++) {
+            final var name = strings[buffer.getInt()];
+            final var flags = buffer.get();
+            final IceFunction function;
+            if ((flags & FLAG_EXTERN) != 0) {
+                final var extern = new IceExternFunction(name);
+                extern.setVArgs((flags & FLAG_VARARGS) != 0);
+                function = extern;
+            } else {
+                function = new IceFunction(name);
+            }
+            function.setReturnType(types[buffer.getInt()]);
+            final var parameterCount = buffer.getInt();
+            for (var j = 0; j < parameterCount; j++) {
+                final var parameterName = strings[buffer.getInt()];
+                function.addParameter(new IceFunction.IceFunctionParameter(function, parameterName, types[buffer.getInt()]));
+            }
+            bodyOffsets[i] = buffer.getInt();
+            unit.addFunction(function);
+            functions.add(function);
+        }
+
+        // 所有函数都声明之后再读函数体，调用可以引用后面的函数
+        final var bodiesStart = buffer.position();
+        for (var i = 0; i < functionCount; i++) {
+            if (bodyOffsets[i] == NONE) continue;
+            buffer.position(bodiesStart + bodyOffsets[i]);
+            new FunctionReader(functions.get(i)).read();
+        }
+        return unit;
+    }
+
+    private void readStrings() {
+        strings = new String[buffer.getInt()];
+        for (var i = 0; i < strings.length; i++) {
+            final var bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private void readTypes() {
+        types = new IceType[buffer.getInt()];
+        for (var i = 0; i < types.length; i++) {
+            final var kind = buffer.get();
+            final var a = buffer.getInt();
+            final var b = buffer.getInt();
+            types[i] = switch (kind) {
+                case TYPE_PRIMITIVE -> primitiveType(TYPE_ENUMS[a]);
+                case TYPE_POINTER -> {
+                    final var pointer = new IcePtrType<>(types[a]);
+                    pointer.setConst(b != 0);
+                    yield pointer;
+                }
+                case TYPE_ARRAY -> new IceArrayType(types[a], b);
+                case TYPE_VECTOR -> types[a].isAny()
+                        ? (b == IceVecType.VEC128.getByteSize() * 8 ? IceVecType.VEC128 : new IceVecType(b))
+                        : new IceVecType(types[a], b);
+                default -> throw new IllegalArgumentException("Unknown type kind in bitcode: " + kind);
+            };
+        }
+    }
+
+    private static IceType primitiveType(IceType.TypeEnum typeEnum) {
+        return switch (typeEnum) {
+            case I1 -> IceType.I1;
+            case I8 -> IceType.I8;
+            case I32 -> IceType.I32;
+            case I64 -> IceType.I64;
+            case F32 -> IceType.F32;
+            case F64 -> IceType.F64;
+            case VOID -> IceType.VOID;
+            case STRING -> IceType.STRING;
+            case ANY -> IceType.ANY;
+            case FUNCTION -> IceType.FUNCTION;
+            default -> throw new IllegalArgumentException("Not a primitive type: " + typeEnum);
+        };
+    }
+
+    private void readConstants() {
+        constants = new IceConstantData[buffer.getInt()];
+        for (var i = 0; i < constants.length; i++) {
+            final var kind = buffer.get();
+            final var type = types[buffer.getInt()];
+            constants[i] = switch (kind) {
+                case CONST_INT -> IceConstantData.create(buffer.getInt());
+                case CONST_LONG -> IceConstantData.create(buffer.getLong());
+                case CONST_BYTE -> IceConstantData.create(buffer.get());
+                case CONST_BOOLEAN -> IceConstantData.create(buffer.get() != 0);
+                case CONST_FLOAT -> IceConstantData.create(Float.intBitsToFloat(buffer.getInt()));
+                case CONST_DOUBLE -> IceConstantData.create(Double.longBitsToDouble(buffer.getLong()));
+                case CONST_UNDEF -> IceUndef.get(type);
+                case CONST_ZERO_ARRAY -> new IceConstantArray((IceArrayType) type);
+                case CONST_STRING -> {
+                    final var bytes = new byte[buffer.getInt()];
+                    buffer.get(bytes);
+                    yield IceConstantString.fromRawBytes(bytes);
+                }
+                case CONST_ARRAY -> {
+                    final var array = new IceConstantArray((IceArrayType) type, List.of());
+                    final var elementCount = buffer.getInt();
+                    for (var j = 0; j < elementCount; j++) {
+                        final var element = constants[buffer.getInt()];
+                        array.addElement(element, buffer.getInt());
+                    }
+                    yield array;
+                }
+                default -> throw new IllegalArgumentException("Unknown constant kind in bitcode: " + kind);
+            };
+        }
+    }
+
+    private static List<IceValue> tail(IceValue[] operands) {
+        return List.of(operands).subList(1, operands.length);
+    }
+
+    /**
+     * 读入一个函数体，PHI 和 SSA 消除后的复制指令可能引用后面才定义的指令，
+     * 这时先用同类型的占位值代替，定义出现后再替换掉
+     */
+    private class FunctionReader {
+        private final IceFunction function;
+        private IceType[] instructionTypes;
+        private IceBlock[] blocks;
+        private IceValue[] instructions;
+        private IceValue[] placeholders;
+
+        private FunctionReader(IceFunction function) {
+            this.function = function;
+        }
+
+        private void read() {
+            final var instructionCount = buffer.getInt();
+            instructionTypes = new IceType[instructionCount];
+            for (var i = 0; i < instructionCount; i++) instructionTypes[i] = types[buffer.getInt()];
+            instructions = new IceValue[instructionCount];
+            placeholders = new IceValue[instructionCount];
+
+            blocks = new IceBlock[buffer.getInt()];
+            for (var i = 0; i < blocks.length; i++) {
+                blocks[i] = new IceBlock(function, strings[buffer.getInt()]);
+            }
+            function.setEntryBlock(blocks[0]);
+
+            var nextId = 0;
+            for (var block : blocks) {
+                final var size = buffer.getInt();
+                for (var i = 0; i < size; i++) {
+                    final var instruction = readInstruction(block, instructionTypes[nextId]);
+                    block.addInstruction(instruction);
+                    instructions[nextId] = instruction;
+                    if (placeholders[nextId] != null) {
+                        placeholders[nextId].replaceAllUsesWith(instruction);
+                        placeholders[nextId] = null;
+                    }
+                    nextId++;
+                }
+            }
+            Log.should(nextId == instructions.length, () -> "Instruction count mismatch in bitcode of " + function.getName());
+        }
+
+        private IceInstruction readInstruction(IceBlock block, IceType type) {
+            final var opcode = Opcode.of(buffer.get());
+            final var flags = buffer.get();
+            final var extra = buffer.getInt();
+            final var nameId = buffer.getInt();
+            final var name = nameId == NONE ? null : strings[nameId];
+            final var operands = new IceValue[buffer.getInt()];
+            for (var i = 0; i < operands.length; i++) operands[i] = resolve(buffer.getInt());
+
+            return switch (opcode) {
+                case ADD, FADD, SUB, FSUB, MUL, FMUL, SDIV, FDIV, MOD, SHL, SHR, AND, OR, XOR -> {
+                    final var binary = createBinary(opcode, block, name, type, operands[0], operands[1]);
+                    if ((flags & FLAG_NSW) != 0) binary.addNSW();
+                    yield binary;
+                }
+                case ALLOCA -> new IceAllocaInstruction(block, name, ((IcePtrType<?>) type).getPointTo());
+                case BRANCH -> operands.length == 1
+                        ? new IceBranchInstruction(block, (IceBlock) operands[0])
+                        : new IceBranchInstruction(block, operands[0], (IceBlock) operands[1], (IceBlock) operands[2]);
+                case CALL -> new IceCallInstruction(block, name, (IceFunction) operands[0], tail(operands));
+                case ICMP -> new IceCmpInstruction.Icmp(block, name, IceCmpInstruction.Icmp.Type.values()[extra], operands[0], operands[1]);
+                case FCMP -> new IceCmpInstruction.Fcmp(block, name, IceCmpInstruction.Fcmp.Type.values()[extra], operands[0], operands[1]);
+                case CONVERT -> new IceConvertInstruction(block, name, type, operands[0]);
+                case COPY -> new IceCopyInstruction(block, operands[0], operands[1]);
+                case GEP -> {
+                    final var gep = new IceGEPInstruction(block, name, operands[0], tail(operands));
+                    gep.setInBounds((flags & FLAG_INBOUNDS) != 0);
+                    yield gep;
+                }
+                case INTRINSIC -> new IceIntrinsicInstruction(block, name, type, strings[extra], List.of(operands));
+                case LOAD -> new IceLoadInstruction(block, name, operands[0]);
+                case NEG -> new IceNegInstruction(block, name, type, operands[0]);
+                case PHI -> {
+                    final var phi = new IcePHINode(block, name, type);
+                    for (var i = 0; i < operands.length; i += 2) {
+                        phi.addBranch((IceBlock) operands[i], operands[i + 1]);
+                    }
+                    phi.setEliminated((flags & FLAG_ELIMINATED) != 0);
+                    yield phi;
+                }
+                case RET -> operands.length == 0 ? new IceRetInstruction(block) : new IceRetInstruction(block, operands[0]);
+                case STORE -> new IceStoreInstruction(block, operands[0], operands[1]);
+                case UNREACHABLE -> new IceUnreachableInstruction(block);
+            };
+        }
+
+        private IceBinaryInstruction createBinary(Opcode opcode, IceBlock block, String name, IceType type,
+                                                  IceValue lhs, IceValue rhs) {
+            return switch (opcode) {
+                case ADD -> new IceBinaryInstruction.Add(block, name, type, lhs, rhs);
+                case FADD -> new IceBinaryInstruction.FAdd(block, name, type, lhs, rhs);
+                case SUB -> new IceBinaryInstruction.Sub(block, name, type, lhs, rhs);
+                case FSUB -> new IceBinaryInstruction.FSub(block, name, type, lhs, rhs);
+                case MUL -> new IceBinaryInstruction.Mul(block, name, type, lhs, rhs);
+                case FMUL -> new IceBinaryInstruction.FMul(block, name, type, lhs, rhs);
+                case SDIV -> new IceBinaryInstruction.SDiv(block, name, type, lhs, rhs);
+                case FDIV -> new IceBinaryInstruction.FDiv(block, name, type, lhs, rhs);
+                case MOD -> new IceBinaryInstruction.Mod(block, name, type, lhs, rhs);
+                case SHL -> new IceBinaryInstruction.Shl(block, name, type, lhs, rhs);
+                case SHR -> new IceBinaryInstruction.Shr(block, name, type, lhs, rhs);
+                case AND -> new IceBinaryInstruction.And(block, name, type, lhs, rhs);
+                case OR -> new IceBinaryInstruction.Or(block, name, type, lhs, rhs);
+                case XOR -> new IceBinaryInstruction.Xor(block, name, type, lhs, rhs);
+                default -> throw new IllegalStateException("Not a binary opcode: " + opcode);
+            };
+        }
+
+        private IceValue resolve(int ref) {
+            final var index = ref >>> REF_KIND_BITS;
+            return switch (ref & REF_KIND_MASK) {
+                case REF_CONSTANT -> constants[index];
+                case REF_GLOBAL -> globals.get(index);
+                case REF_FUNCTION -> functions.get(index);
+                case REF_PARAMETER -> function.getParameters().get(index);
+                case REF_BLOCK -> blocks[index];
+                case REF_INSTRUCTION -> {
+                    if (instructions[index] != null) yield instructions[index];
+                    if (placeholders[index] == null) {
+                        placeholders[index] = new IceValue("forward." + index, instructionTypes[index]);
+                    }
+                    yield placeholders[index];
+                }
+                default -> throw new IllegalArgumentException("Unknown operand kind in bitcode: " + (ref & REF_KIND_MASK));
+            };
+        }
+    }
+}
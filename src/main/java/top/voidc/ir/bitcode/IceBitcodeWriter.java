@@ -0,0 +1,369 @@
+package top.voidc.ir.bitcode;
+
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.IceUnit;
+import top.voidc.ir.IceValue;
+import top.voidc.ir.ice.constant.*;
+import top.voidc.ir.ice.instruction.*;
+import top.voidc.ir.ice.type.IceArrayType;
+import top.voidc.ir.ice.type.IcePtrType;
+import top.voidc.ir.ice.type.IceType;
+import top.voidc.ir.ice.type.IceVecType;
+import top.voidc.misc.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static top.voidc.ir.bitcode.IceBitcode.*;
+
+/**
+ * 把 IceUnit 写成二进制格式，格式见 {@link IceBitcode}
+ * <p>
+ * 函数体的格式：
+ * <pre>
+ * instructionCount { type }     每条指令的类型，读入时为向前引用创建占位值
+ * blockCount { name }           基本块按逆后序排列，第一个是入口块
+ * 每个基本块 instructionCount { opcode flags extra name operandCount { operand } }
+ * </pre>
+ * 指令按写入的顺序编号，操作数的编码见 {@link IceBitcode#ref(int, int)}
+ */
+public class IceBitcodeWriter {
+    private record TypeKey(byte kind, int a, int b) {}
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<TypeKey> types = new ArrayList<>();
+    private final Map<TypeKey, Integer> typeIds = new HashMap<>();
+    private final Buffer constants = new Buffer();
+    private int constantCount = 0;
+    private final Map<IceConstantData, Integer> constantIds = new IdentityHashMap<>();
+
+    // 全局变量和函数在模块中的下标
+    private final Map<IceValue, Integer> globalIds = new IdentityHashMap<>();
+    private final Map<IceValue, Integer> functionIds = new IdentityHashMap<>();
+
+    public static byte[] write(IceUnit unit) {
+        return new IceBitcodeWriter().writeUnit(unit);
+    }
+
+    public static void write(IceUnit unit, Path path) throws IOException {
+        Files.write(path, write(unit));
+    }
+
+    private byte[] writeUnit(IceUnit unit) {
+        final var globals = unit.getGlobalVariables();
+        final var functions = unit.getFunctions();
+        for (var i = 0; i < globals.size(); i++) globalIds.put(globals.get(i), i);
+        for (var i = 0; i < functions.size(); i++) functionIds.put(functions.get(i), i);
+
+        // 先写函数体，这样函数体中用到的字符串、类型和常量都已经进入表中
+        final var bodies = new Buffer();
+        final var bodyOffsets = new int[functions.size()];
+        for (var i = 0; i < functions.size(); i++) {
+            final var function = functions.get(i);
+            if (function instanceof IceExternFunction) {
+                bodyOffsets[i] = NONE;
+            } else {
+                bodyOffsets[i] = bodies.position();
+                writeBody(bodies, function);
+            }
+        }
+
+        final var declarations = new Buffer();
+        declarations.putInt(globals.size());
+        for (var global : globals) {
+            Log.should(global instanceof IceGlobalVariable, () -> "Unexpected global declaration: " + global);
+            final var variable = (IceGlobalVariable) global;
+            declarations.putInt(string(variable.getName()));
+            declarations.putInt(type(variable.getType()));
+            declarations.put((byte) ((variable.isPrivate() ? FLAG_PRIVATE : 0)
+                    | (variable.isUnnamedAddr() ? FLAG_UNNAMED_ADDR : 0)));
+            declarations.putInt(variable.getInitializer() == null ? NONE : constant(variable.getInitializer()));
+        }
+        declarations.putInt(functions.size());
+        for (var i = 0; i < functions.size(); i++) {
+            final var function = functions.get(i);
+            final var isVArgs = function instanceof IceExternFunction extern && extern.isVArgs();
+            declarations.putInt(string(function.getName()));
+            declarations.put((byte) ((function instanceof IceExternFunction ? FLAG_EXTERN : 0)
+                    | (isVArgs ? FLAG_VARARGS : 0)));
+            declarations.putInt(type(function.getReturnType()));
+            declarations.putInt(function.getParameters().size());
+            for (var parameter : function.getParameters()) {
+                declarations.putInt(string(parameter.getName()));
+                declarations.putInt(type(parameter.getType()));
+            }
+            declarations.putInt(bodyOffsets[i]);
+        }
+        final var unitName = string(unit.getName());
+
+        final var output = new Buffer();
+        output.putInt(MAGIC);
+        output.putInt(VERSION);
+        output.putInt(unitName);
+        output.putInt(strings.size());
+        for (var string : strings) {
+            final var bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.putInt(bytes.length);
+            output.put(bytes, bytes.length);
+        }
+        output.putInt(types.size());
+        for (var type : types) {
+            output.put(type.kind());
+            output.putInt(type.a());
+            output.putInt(type.b());
+        }
+        output.putInt(constantCount);
+        output.put(constants);
+        output.put(declarations);
+        output.put(bodies);
+        return output.toByteArray();
+    }
+
+    private void writeBody(Buffer out, IceFunction function) {
+        final var blocks = function.getBlocks();
+        final var locals = new IdentityHashMap<IceValue, Integer>();
+        for (var i = 0; i < function.getParameters().size(); i++) {
+            locals.put(function.getParameters().get(i), ref(REF_PARAMETER, i));
+        }
+        for (var i = 0; i < blocks.size(); i++) {
+            locals.put(blocks.get(i), ref(REF_BLOCK, i));
+        }
+        final var instructionTypes = new ArrayList<Integer>();
+        for (var block : blocks) {
+            for (var instruction : block) {
+                locals.put(instruction, ref(REF_INSTRUCTION, instructionTypes.size()));
+                instructionTypes.add(type(instruction.getType()));
+            }
+        }
+
+        out.putInt(instructionTypes.size());
+        instructionTypes.forEach(out::putInt);
+        out.putInt(blocks.size());
+        for (var block : blocks) out.putInt(string(block.getName()));
+
+        for (var block : blocks) {
+            out.putInt(block.size());
+            for (var instruction : block) {
+                writeInstruction(out, instruction, locals);
+            }
+        }
+    }
+
+    private void writeInstruction(Buffer out, IceInstruction instruction, Map<IceValue, Integer> locals) {
+        var flags = 0;
+        var extra = NONE;
+        final Opcode opcode;
+        switch (instruction) {
+            case IceBinaryInstruction binary -> {
+                opcode = switch (binary) {
+                    case IceBinaryInstruction.Add _ -> Opcode.ADD;
+                    case IceBinaryInstruction.FAdd _ -> Opcode.FADD;
+                    case IceBinaryInstruction.Sub _ -> Opcode.SUB;
+                    case IceBinaryInstruction.FSub _ -> Opcode.FSUB;
+                    case IceBinaryInstruction.Mul _ -> Opcode.MUL;
+                    case IceBinaryInstruction.FMul _ -> Opcode.FMUL;
+                    case IceBinaryInstruction.SDiv _ -> Opcode.SDIV;
+                    case IceBinaryInstruction.FDiv _ -> Opcode.FDIV;
+                    case IceBinaryInstruction.Mod _ -> Opcode.MOD;
+                    case IceBinaryInstruction.Shl _ -> Opcode.SHL;
+                    case IceBinaryInstruction.Shr _ -> Opcode.SHR;
+                    case IceBinaryInstruction.And _ -> Opcode.AND;
+                    case IceBinaryInstruction.Or _ -> Opcode.OR;
+                    case IceBinaryInstruction.Xor _ -> Opcode.XOR;
+                    default -> throw new IllegalStateException("Unexpected binary instruction: " + binary);
+                };
+                if (binary.isNSW()) flags |= FLAG_NSW;
+            }
+            case IceAllocaInstruction _ -> opcode = Opcode.ALLOCA;
+            case IceBranchInstruction _ -> opcode = Opcode.BRANCH;
+            case IceCallInstruction _ -> opcode = Opcode.CALL;
+            case IceCmpInstruction.Icmp icmp -> {
+                opcode = Opcode.ICMP;
+                extra = icmp.getCmpType().ordinal();
+            }
+            case IceCmpInstruction.Fcmp fcmp -> {
+                opcode = Opcode.FCMP;
+                extra = fcmp.getCmpType().ordinal();
+            }
+            case IceConvertInstruction _ -> opcode = Opcode.CONVERT;
+            case IceCopyInstruction _ -> opcode = Opcode.COPY;
+            case IceGEPInstruction gep -> {
+                opcode = Opcode.GEP;
+                if (gep.isInBounds()) flags |= FLAG_INBOUNDS;
+            }
+            case IceIntrinsicInstruction intrinsic -> {
+                opcode = Opcode.INTRINSIC;
+                extra = string(intrinsic.getIntrinsicName());
+            }
+            case IceLoadInstruction _ -> opcode = Opcode.LOAD;
+            case IceNegInstruction _ -> opcode = Opcode.NEG;
+            case IcePHINode phi -> {
+                opcode = Opcode.PHI;
+                if (phi.isEliminated()) flags |= FLAG_ELIMINATED;
+            }
+            case IceRetInstruction _ -> opcode = Opcode.RET;
+            case IceStoreInstruction _ -> opcode = Opcode.STORE;
+            case IceUnreachableInstruction _ -> opcode = Opcode.UNREACHABLE;
+            default -> throw new IllegalStateException("Unexpected instruction: " + instruction);
+        }
+
+        out.put((byte) opcode.ordinal());
+        out.put((byte) flags);
+        out.putInt(extra);
+        out.putInt(instruction.getName() == null ? NONE : string(instruction.getName()));
+        final var operands = instruction.getOperands();
+        out.putInt(operands.size());
+        for (var operand : operands) {
+            out.putInt(operand(operand, locals));
+        }
+    }
+
+    private int operand(IceValue value, Map<IceValue, Integer> locals) {
+        final var local = locals.get(value);
+        if (local != null) return local;
+        if (value instanceof IceConstantData constant) return ref(REF_CONSTANT, constant(constant));
+        final var global = globalIds.get(value);
+        if (global != null) return ref(REF_GLOBAL, global);
+        final var function = functionIds.get(value);
+        if (function != null) return ref(REF_FUNCTION, function);
+        throw new IllegalStateException("Operand is not defined in this unit: " + value);
+    }
+
+    private int string(String value) {
+        return stringIds.computeIfAbsent(value, _ -> {
+            strings.add(value);
+            return strings.size() - 1;
+        });
+    }
+
+    private int type(IceType type) {
+        final TypeKey key = switch (type) {
+            case IcePtrType<?> pointer -> new TypeKey(TYPE_POINTER, type(pointer.getPointTo()), pointer.isConst() ? 1 : 0);
+            case IceArrayType array -> new TypeKey(TYPE_ARRAY, type(array.getElementType()), array.getNumElements());
+            case IceVecType vector -> new TypeKey(TYPE_VECTOR, type(vector.getScalarType()),
+                    vector.getScalarType().isAny() ? vector.getByteSize() * 8 : vector.getWidth());
+            default -> new TypeKey(TYPE_PRIMITIVE, type.getTypeEnum().ordinal(), 0);
+        };
+        return typeIds.computeIfAbsent(key, _ -> {
+            types.add(key);
+            return types.size() - 1;
+        });
+    }
+
+    /**
+     * 数组的元素先于数组本身写入常量池
+     */
+    private int constant(IceConstantData constant) {
+        final var id = constantIds.get(constant);
+        if (id != null) return id;
+
+        final var payload = new Buffer();
+        final byte kind;
+        switch (constant) {
+            case IceConstantInt value -> {
+                kind = CONST_INT;
+                payload.putInt(value.getValue());
+            }
+            case IceConstantLong value -> {
+                kind = CONST_LONG;
+                payload.putLong(value.getValue());
+            }
+            case IceConstantByte value -> {
+                kind = CONST_BYTE;
+                payload.put(value.getValue());
+            }
+            case IceConstantBoolean value -> {
+                kind = CONST_BOOLEAN;
+                payload.put((byte) value.getValue());
+            }
+            case IceConstantFloat value -> {
+                kind = CONST_FLOAT;
+                payload.putInt(Float.floatToRawIntBits(value.getValue()));
+            }
+            case IceConstantDouble value -> {
+                kind = CONST_DOUBLE;
+                payload.putLong(Double.doubleToRawLongBits(value.getValue()));
+            }
+            case IceUndef _ -> kind = CONST_UNDEF;
+            case IceConstantString string -> {
+                kind = CONST_STRING;
+                final var bytes = string.getRawByte();
+                payload.putInt(bytes.size());
+                bytes.forEach(payload::put);
+            }
+            case IceConstantArray array when array.getElements() == null -> kind = CONST_ZERO_ARRAY;
+            case IceConstantArray array -> {
+                kind = CONST_ARRAY;
+                final var elements = array.getElements();
+                payload.putInt(elements.size());
+                for (var element : elements) {
+                    Log.should(element.getElement() instanceof IceConstantData,
+                            () -> "Array constant contains non-constant element: " + element);
+                    payload.putInt(constant((IceConstantData) element.getElement()));
+                    payload.putInt(element.getRepeat());
+                }
+            }
+            default -> throw new IllegalStateException("Unexpected constant: " + constant);
+        }
+
+        constants.put(kind);
+        constants.putInt(type(constant.getType()));
+        constants.put(payload);
+        constantIds.put(constant, constantCount);
+        return constantCount++;
+    }
+
+    /**
+     * 自动扩容的小端序缓冲区
+     */
+    private static class Buffer {
+        private ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+
+        private void ensure(int size) {
+            if (buffer.remaining() >= size) return;
+            final var grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+
+        int position() {
+            return buffer.position();
+        }
+
+        void put(byte value) {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void put(byte[] bytes, int length) {
+            ensure(length);
+            buffer.put(bytes, 0, length);
+        }
+
+        void put(Buffer other) {
+            put(other.buffer.array(), other.position());
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+}
@@ -10,6 +10,14 @@ public class IceConstant extends IceUser {
     }
 
 
+    /**
+     * 全局变量和函数会被多个函数中的指令使用
+     */
+    @Override
+    protected boolean isFunctionLocal() {
+        return false;
+    }
+
     @Override
     public String getReferenceName(boolean withType) {
         return (withType ? getType() + " @" : "@") + getName();
@@ -6,8 +6,10 @@ import top.voidc.ir.ice.type.IceType;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -70,6 +72,14 @@ public class IceConstantArray extends IceConstantData {
         return (IceArrayType) super.getType();
     }
 
+    /**
+     * 数组常量可以修改，不驻留
+     */
+    @Override
+    public boolean isInterned() {
+        return false;
+    }
+
     @Override
     public IceConstantData castTo(IceType type) {
         if (type instanceof IceArrayType) {
@@ -98,6 +108,13 @@ public class IceConstantArray extends IceConstantData {
         return null;
     }
 
+    /**
+     * @return 压缩存储的元素，zeroinitializer 时返回 null
+     */
+    public List<DataArrayElement> getElements() {
+        return zeroInit ? null : Collections.unmodifiableList(elements);
+    }
+
     /**
      * 以完全展开的形式返回数组的元素
      * @apiNote 如果数组比较大，会返回一个很大的数组
@@ -108,7 +125,7 @@ public class IceConstantArray extends IceConstantData {
         if (isZeroInit()) {
             final var type = getType();
             for (int i = 0; i < type.getTotalSize(); i++) {
-                result.add(new IceConstantInt(0));
+                result.add(IceConstantData.create(0));
             }
         } else {
             assert elements != null;
@@ -127,17 +144,51 @@ public class IceConstantArray extends IceConstantData {
         return result;
     }
 
+    /**
+     * 按压缩形式遍历数组中的标量元素，重复的元素不会展开
+     * zeroinitializer 和末尾未初始化的部分以 0 给出，所以重复次数之和总是等于数组的总大小
+     * @param consumer 接收元素和它的重复次数
+     */
+    public void forEachElementRun(ObjIntConsumer<IceValue> consumer) {
+        final var totalSize = getType().getTotalSize();
+        if (isZeroInit()) {
+            consumer.accept(createZero(getInsideType()), totalSize);
+            return;
+        }
+        assert elements != null;
+        int visited = 0;
+        for (var e : elements) {
+            if (e.element instanceof IceConstantArray innerArray) {
+                for (int i = 0; i < e.repeat; i++) innerArray.forEachElementRun(consumer);
+                visited += e.repeat * innerArray.getType().getTotalSize();
+            } else {
+                consumer.accept(e.element, e.repeat);
+                visited += e.repeat;
+            }
+        }
+        if (visited < totalSize) consumer.accept(createZero(getInsideType()), totalSize - visited);
+    }
+
+    private static IceConstantData createZero(IceType type) {
+        return switch (type.getTypeEnum()) {
+            case I1 -> IceConstantData.create(false);
+            case I8, I32 -> IceConstantData.create(0);
+            case F32 -> IceConstantData.create(0F);
+            default -> throw new IllegalStateException("Unexpected value: " + type.getTypeEnum());
+        };
+    }
+
     public IceValue get(List<Integer> arrayRef) {
         if (zeroInit) {
             switch (getInsideType().getTypeEnum()) {
                 case I1 -> {
-                    return new IceConstantBoolean(false);
+                    return IceConstantData.create(false);
                 }
                 case I8, I32 -> {
-                    return new IceConstantInt(0);
+                    return IceConstantData.create(0);
                 }
                 case F32 -> {
-                    return new IceConstantFloat(0F);
+                    return IceConstantData.create(0F);
                 }
 
                 default -> throw new IllegalStateException("Unexpected value: " + getInsideType().getTypeEnum());
@@ -312,9 +363,9 @@ public class IceConstantArray extends IceConstantData {
         if (currentElementSize < getType().getNumElements()) {
             final var elementType = getInsideType();
             final var zeroElement = switch (elementType.getTypeEnum()) {
-                case I1 -> new IceConstantBoolean(false);
-                case I8, I32 -> new IceConstantInt(0);
-                case F32 -> new IceConstantFloat(0F);
+                case I1 -> IceConstantData.create(false);
+                case I8, I32 -> IceConstantData.create(0);
+                case F32 -> IceConstantData.create(0F);
                 default -> throw new IllegalStateException("Unexpected value: " + elementType.getTypeEnum());
             };
             final var repeat = getType().getNumElements() - currentElementSize;
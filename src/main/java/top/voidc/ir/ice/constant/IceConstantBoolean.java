@@ -7,7 +7,10 @@ import java.util.Objects;
 public class IceConstantBoolean extends IceConstantData {
     private final boolean value;
 
-    public IceConstantBoolean(boolean value) {
+    /**
+     * 只由 IceConstantPool 创建，使用 IceConstantData.create 取得常量
+     */
+    IceConstantBoolean(boolean value) {
         super(IceType.I1);
         this.value = value;
     }
@@ -28,7 +31,7 @@ public class IceConstantBoolean extends IceConstantData {
 
     @Override
     public IceConstantData clone() {
-        return IceConstantData.create(value);
+        return this;
     }
 
     @Override
@@ -48,6 +51,11 @@ public class IceConstantBoolean extends IceConstantData {
         return value == that.value;
     }
 
+    @Override
+    public int hashCode() {
+        return Boolean.hashCode(value);
+    }
+
     @Override
     public IceConstantBoolean eq(IceConstantData other) {
         Objects.requireNonNull(other);
@@ -6,7 +6,10 @@ public class IceConstantByte extends IceConstantData {
 
     private final byte value;
 
-    public IceConstantByte(byte value) {
+    /**
+     * 只由 IceConstantPool 创建，使用 IceConstantData.create 取得常量
+     */
+    IceConstantByte(byte value) {
         super(IceType.I8);
         this.value = value;
     }
@@ -24,16 +27,16 @@ public class IceConstantByte extends IceConstantData {
     public IceConstantData castTo(IceType targetType) {
         return switch (targetType.getTypeEnum()) {
             case I8 -> this.clone();
-            case I1 -> new IceConstantBoolean(value != 0);
-            case I32 -> new IceConstantInt(value);
-            case F32 -> new IceConstantFloat((float) value);
+            case I1 -> IceConstantData.create(value != 0);
+            case I32 -> IceConstantData.create((int) value);
+            case F32 -> IceConstantData.create((float) value);
             default -> throw new IllegalStateException("Unexpected value: " + type);
         };
     }
 
     @Override
     public IceConstantData clone() {
-        return new IceConstantByte(value);
+        return this;
     }
 
     @Override
@@ -42,4 +45,9 @@ public class IceConstantByte extends IceConstantData {
         if (!(o instanceof IceConstantByte other)) return false;
         return value == other.value;
     }
+
+    @Override
+    public int hashCode() {
+        return Byte.hashCode(value);
+    }
 }
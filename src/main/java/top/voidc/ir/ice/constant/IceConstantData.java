@@ -7,6 +7,7 @@ import top.voidc.ir.ice.type.IceType;
 /**
  * 所有字面常量的基类，提供常量数据的基本操作和运算接口
  * 包括类型转换、算术运算、比较运算和逻辑运算
+ * 标量常量通过 create 从 IceConstantPool 中取得，相同的值是同一个实例，不可修改
  */
 public abstract class IceConstantData extends IceConstant implements IceMachineValue {
     public IceConstantData(IceType type) {
@@ -21,7 +22,26 @@ public abstract class IceConstantData extends IceConstant implements IceMachineV
      */
     public abstract IceConstantData castTo(IceType type);
 
+    /**
+     * 标量常量是驻留的，直接返回自身
+     */
     public abstract IceConstantData clone();
+
+    /**
+     * 是否是驻留池中的标量常量，同一个值在所有函数中是同一个对象
+     */
+    public boolean isInterned() {
+        return true;
+    }
+
+    /**
+     * 驻留的常量被所有函数共享，不记录使用者
+     */
+    @Override
+    protected boolean isUseTracked() {
+        return !isInterned();
+    }
+
     /**
      * Sysy目前只支持匿名字符串
      */
@@ -30,29 +50,29 @@ public abstract class IceConstantData extends IceConstant implements IceMachineV
     }
 
     public static IceConstantFloat create(float value) {
-        return new IceConstantFloat(value);
+        return IceConstantPool.of(value);
     }
 
-    public static IceConstantDouble create(double value) {return new IceConstantDouble(value);}
+    public static IceConstantDouble create(double value) {return IceConstantPool.of(value);}
 
     public static IceConstantInt create(int value) {
-        return new IceConstantInt(value);
+        return IceConstantPool.of(value);
     }
 
     public static IceConstantLong create(long value) {
-        return new IceConstantLong(value);
+        return IceConstantPool.of(value);
     }
 
     public static IceConstantBoolean create(boolean value) {
-        return new IceConstantBoolean(value);
+        return IceConstantPool.of(value);
     }
 
     public static IceConstantByte create(char value) {
-        return new IceConstantByte((byte) value);
+        return IceConstantPool.of((byte) value);
     }
 
     public static IceConstantByte create(byte value) {
-        return new IceConstantByte(value);
+        return IceConstantPool.of(value);
     }
 
     public static IceConstant fromTextIR(String textIR) {
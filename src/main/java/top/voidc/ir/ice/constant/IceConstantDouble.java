@@ -7,7 +7,10 @@ import java.util.Objects;
 public class IceConstantDouble extends IceConstantData {
     private final double value;
 
-    public IceConstantDouble(double value) {
+    /**
+     * 只由 IceConstantPool 创建，使用 IceConstantData.create 取得常量
+     */
+    IceConstantDouble(double value) {
         super(IceType.F64);
         this.value = value;
     }
@@ -35,7 +38,7 @@ public class IceConstantDouble extends IceConstantData {
 
     @Override
     public IceConstantData clone() {
-        return IceConstantData.create(value);
+        return this;
     }
 
     @Override
@@ -45,6 +48,11 @@ public class IceConstantDouble extends IceConstantData {
         return Double.compare(that.value, value) == 0;
     }
 
+    @Override
+    public int hashCode() {
+        return Double.hashCode(value);
+    }
+
     @Override
     public IceConstantData plus(IceConstantData other) {
         Objects.requireNonNull(other);
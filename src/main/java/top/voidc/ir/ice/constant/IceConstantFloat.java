@@ -7,7 +7,10 @@ import java.util.Objects;
 public class IceConstantFloat extends IceConstantData {
     private final float value;
 
-    public IceConstantFloat(float value) {
+    /**
+     * 只由 IceConstantPool 创建，使用 IceConstantData.create 取得常量
+     */
+    IceConstantFloat(float value) {
         super(IceType.F32);
         this.value = value;
     }
@@ -36,7 +39,7 @@ public class IceConstantFloat extends IceConstantData {
 
     @Override
     public IceConstantData clone() {
-        return IceConstantData.create(value);
+        return this;
     }
 
     @Override
@@ -46,6 +49,11 @@ public class IceConstantFloat extends IceConstantData {
         return Double.compare(that.value, value) == 0;
     }
 
+    @Override
+    public int hashCode() {
+        return Float.hashCode(value);
+    }
+
     @Override
     public IceConstantData plus(IceConstantData other) {
         Objects.requireNonNull(other);
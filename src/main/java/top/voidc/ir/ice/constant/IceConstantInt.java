@@ -7,7 +7,10 @@ import java.util.Objects;
 public class IceConstantInt extends IceConstantData {
     private final int value;
 
-    public IceConstantInt(int value) {
+    /**
+     * 只由 IceConstantPool 创建，使用 IceConstantData.create 取得常量
+     */
+    IceConstantInt(int value) {
         super(IceType.I32);
         this.value = value;
     }
@@ -36,7 +39,7 @@ public class IceConstantInt extends IceConstantData {
 
     @Override
     public IceConstantData clone() {
-        return new IceConstantInt(value);
+        return this;
     }
 
     @Override
@@ -46,6 +49,11 @@ public class IceConstantInt extends IceConstantData {
         return value == that.value;
     }
 
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(value);
+    }
+
     @Override
     public IceConstantData plus(IceConstantData other) {
         Objects.requireNonNull(other);
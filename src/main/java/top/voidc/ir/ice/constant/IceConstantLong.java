@@ -7,7 +7,10 @@ import java.util.Objects;
 public class IceConstantLong extends IceConstantData {
     private final long value;
 
-    public IceConstantLong(long value) {
+    /**
+     * 只由 IceConstantPool 创建，使用 IceConstantData.create 取得常量
+     */
+    IceConstantLong(long value) {
         super(IceType.I64);
         this.value = value;
     }
@@ -36,7 +39,7 @@ public class IceConstantLong extends IceConstantData {
 
     @Override
     public IceConstantData clone() {
-        return new IceConstantLong(value);
+        return this;
     }
 
     @Override
@@ -46,6 +49,11 @@ public class IceConstantLong extends IceConstantData {
         return value == that.value;
     }
 
+    @Override
+    public int hashCode() {
+        return Long.hashCode(value);
+    }
+
     @Override
     public IceConstantData plus(IceConstantData other) {
         Objects.requireNonNull(other);
@@ -0,0 +1,102 @@
+package top.voidc.ir.ice.constant;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+
+/**
+ * 标量常量的驻留池，同一类型同一个值只有一个实例，由 IceConstantData.create 使用
+ * 标量常量不可变也不记录使用链，所以实例可以在函数之间、编译服务器的请求之间共享
+ * 小整数、字节和布尔值常驻，其他值用弱引用保存，不再被 IR 引用后可以回收
+ * 数组常量可以修改（addElement、fillLastWithZero），不驻留，只共享其中的标量元素
+ */
+final class IceConstantPool {
+    private static final int SMALL_INT_MIN = -128;
+    private static final int SMALL_INT_MAX = 1024;
+
+    private static final IceConstantInt[] SMALL_INTS = new IceConstantInt[SMALL_INT_MAX - SMALL_INT_MIN + 1];
+    private static final IceConstantByte[] BYTES = new IceConstantByte[256];
+    private static final IceConstantBoolean TRUE = new IceConstantBoolean(true);
+    private static final IceConstantBoolean FALSE = new IceConstantBoolean(false);
+
+    private static final Interner<IceConstantInt> INTS = new Interner<>();
+    private static final Interner<IceConstantLong> LONGS = new Interner<>();
+    // 浮点数按位模式区分，0.0 和 -0.0 是不同的常量
+    private static final Interner<IceConstantFloat> FLOATS = new Interner<>();
+    private static final Interner<IceConstantDouble> DOUBLES = new Interner<>();
+
+    static {
+        for (int i = 0; i < SMALL_INTS.length; i++) SMALL_INTS[i] = new IceConstantInt(i + SMALL_INT_MIN);
+        for (int i = 0; i < BYTES.length; i++) BYTES[i] = new IceConstantByte((byte) (i + Byte.MIN_VALUE));
+    }
+
+    private IceConstantPool() {}
+
+    static IceConstantInt of(int value) {
+        if (value >= SMALL_INT_MIN && value <= SMALL_INT_MAX) return SMALL_INTS[value - SMALL_INT_MIN];
+        return INTS.intern(value, key -> new IceConstantInt((int) key));
+    }
+
+    static IceConstantLong of(long value) {
+        return LONGS.intern(value, IceConstantLong::new);
+    }
+
+    static IceConstantFloat of(float value) {
+        return FLOATS.intern(Float.floatToRawIntBits(value), key -> new IceConstantFloat(Float.intBitsToFloat((int) key)));
+    }
+
+    static IceConstantDouble of(double value) {
+        return DOUBLES.intern(Double.doubleToRawLongBits(value), key -> new IceConstantDouble(Double.longBitsToDouble(key)));
+    }
+
+    static IceConstantByte of(byte value) {
+        return BYTES[value - Byte.MIN_VALUE];
+    }
+
+    static IceConstantBoolean of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * 以 long 为键、弱引用为值的规范化表，值被回收后对应的项在下一次 intern 时清除
+     */
+    private static final class Interner<T> {
+        private final ConcurrentHashMap<Long, Entry<T>> table = new ConcurrentHashMap<>();
+        private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+
+        private static final class Entry<T> extends WeakReference<T> {
+            private final long key;
+
+            Entry(long key, T value, ReferenceQueue<T> queue) {
+                super(value, queue);
+                this.key = key;
+            }
+        }
+
+        T intern(long key, LongFunction<T> factory) {
+            expunge();
+            while (true) {
+                final var entry = table.get(key);
+                final var existing = entry == null ? null : entry.get();
+                if (existing != null) return existing;
+
+                final var value = factory.apply(key);
+                final var created = new Entry<>(key, value, queue);
+                final var installed = entry == null
+                        ? table.putIfAbsent(key, created) == null
+                        : table.replace(key, entry, created);
+                if (installed) return value;
+                // 其他线程抢先放入了同一个值，重新读取
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void expunge() {
+            Entry<T> entry;
+            while ((entry = (Entry<T>) queue.poll()) != null) {
+                table.remove(entry.key, entry);
+            }
+        }
+    }
+}
@@ -17,7 +17,7 @@ public class IceConstantString extends IceConstantArray {
         // convert value to byte ArrayList in UTF-8 encoding
         List<DataArrayElement> elements = new ArrayList<>();
         for (byte b : bytes) {
-            elements.add(new DataArrayElement(new IceConstantByte(b), 1));
+            elements.add(new DataArrayElement(IceConstantData.create(b), 1));
         }
         return elements;
     }
@@ -35,8 +35,15 @@ public class IceConstantString extends IceConstantArray {
      * @param value 对应的 String 字面值
      */
     public static IceConstantString buildString(String value) {
-        final var escapedCharSeq = setIRFormattedString(value);
-        return new IceConstantString(escapedCharSeq.codepoints(), escapedCharSeq.escapedString());
+        return setIRFormattedString(value);
+    }
+
+    /**
+     * 从已经解析过转义的字节创建常量字符串，不会再附加 \\0 结尾
+     * @param bytes 包含结尾 \\0 的原始字节，即 {@link #getRawByte()} 的结果
+     */
+    public static IceConstantString fromRawBytes(byte[] bytes) {
+        return escapeBytes(bytes);
     }
 
     @Override
@@ -57,8 +64,6 @@ public class IceConstantString extends IceConstantArray {
         return value;
     }
 
-    private record EscapedCharSeq(List<Byte> codepoints, String escapedString) {}
-
     /**
      * 同时附加一个 \\0 结尾
      * 将 value 中的：
@@ -66,7 +71,7 @@ public class IceConstantString extends IceConstantArray {
      *   2) 控制字符转换为 "\\XX"；
      *   3) 非 ASCII 字符按 UTF-8 分解为 "\\XX\\YY..."。
      */
-    private static EscapedCharSeq setIRFormattedString(String value) {
+    private static IceConstantString setIRFormattedString(String value) {
         // 1) 添加一个真实的 '\0' 结束符
         String withTerminator = value + '\0';
 
@@ -93,8 +98,10 @@ public class IceConstantString extends IceConstantArray {
         }
 
         // 3) 转成 UTF-8 字节流
-        byte[] bytes = parsed.toString().getBytes(StandardCharsets.UTF_8);
+        return escapeBytes(parsed.toString().getBytes(StandardCharsets.UTF_8));
+    }
 
+    private static IceConstantString escapeBytes(byte[] bytes) {
         // 4) 构造输出和字节列表
         StringBuilder out = new StringBuilder();
         List<Byte> byteList = new ArrayList<>(bytes.length);
@@ -115,7 +122,7 @@ public class IceConstantString extends IceConstantArray {
             }
         }
 
-        return new EscapedCharSeq(byteList, out.toString());
+        return new IceConstantString(byteList, out.toString());
     }
 
     @Override
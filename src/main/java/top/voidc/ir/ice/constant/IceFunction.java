@@ -40,6 +40,16 @@ public class IceFunction extends IceConstant implements Iterable<IceBlock>, IceA
 
     private final IceBlock exitBlock;
 
+    /**
+     * CFG 版本号，基本块的终结指令或跳转目标变化时自增
+     * 缓存的块顺序在版本号变化后失效
+     */
+    private int cfgVersion = 0;
+    private int rpoVersion = -1;
+    private int bfsVersion = -1;
+    private List<IceBlock> rpoBlocks;
+    private List<IceBlock> bfsBlocks;
+
     public IceFunction(String name) {
         super(name, IceType.FUNCTION);
         this.entryBlock = new IceBlock(this, "entry");
@@ -93,30 +103,58 @@ public class IceFunction extends IceConstant implements Iterable<IceBlock>, IceA
     }
 
 
-    private void listBlocks(Set<IceBlock> visited, List<IceBlock> result, IceBlock currentBlock) {
-        if (visited.contains(currentBlock)) return;
-        visited.add(currentBlock);
-        currentBlock.successors().forEach(block -> {
-            if (!visited.contains(block)) listBlocks(visited, result, block);
-        });
-        result.add(currentBlock);
+    /**
+     * 后序遍历从入口可达的基本块
+     * 用显式栈代替递归，很长的基本块链也不会栈溢出
+     */
+    private List<IceBlock> listBlocks() {
+        final var visited = new HashSet<IceBlock>();
+        final var result = new ArrayList<IceBlock>();
+        final var blockStack = new ArrayDeque<IceBlock>();
+        final var successorStack = new ArrayDeque<Iterator<IceBlock>>();
+
+        visited.add(getEntryBlock());
+        blockStack.push(getEntryBlock());
+        successorStack.push(getEntryBlock().successors().iterator());
+        while (!blockStack.isEmpty()) {
+            final var successors = successorStack.peek();
+            if (successors.hasNext()) {
+                final var block = successors.next();
+                if (visited.add(block)) {
+                    blockStack.push(block);
+                    successorStack.push(block.successors().iterator());
+                }
+            } else {
+                successorStack.pop();
+                result.add(blockStack.pop());
+            }
+        }
+        return result;
     }
 
     /**
      * Get all blocks in the function.
      * 以逆后序遍历顺序打印
-     * @return 当前函数的所有基本块
+     * @return 当前函数的所有基本块，返回的列表是副本可以随意修改
      */
     public List<IceBlock> blocks() {
-        final var blockSet = new HashSet<IceBlock>();
-        final var result = new ArrayList<IceBlock>();
-        listBlocks(blockSet, result, getEntryBlock());
-        Collections.reverse(result);
-        return result;
+        return new ArrayList<>(getBlocks());
+    }
+
+    /**
+     * 标记 CFG 已经发生变化，使缓存的块顺序失效
+     * @apiNote 由 IceBlock 和终结指令在修改跳转关系时调用，一般不需要手动调用
+     */
+    public void invalidateCFG() {
+        cfgVersion++;
+    }
+
+    public int getCFGVersion() {
+        return cfgVersion;
     }
 
     public int getBlocksSize() {
-        return blocks().size();
+        return getBlocks().size();
     }
 
     public IceBlock getEntryBlock() {
@@ -125,6 +163,7 @@ public class IceFunction extends IceConstant implements Iterable<IceBlock>, IceA
 
     public void setEntryBlock(IceBlock block) {
         this.entryBlock = block;
+        invalidateCFG();
     }
 
     /**
@@ -135,11 +174,24 @@ public class IceFunction extends IceConstant implements Iterable<IceBlock>, IceA
         return exitBlock;
     }
 
+    /**
+     * 以逆后序获取所有基本块
+     * @implNote 结果会缓存到 CFG 发生变化为止，返回的列表不可修改；
+     * CFG 变化后会重新生成新的列表，旧列表不受影响，因此可以在遍历时修改 CFG
+     * @return 当前函数的所有基本块
+     */
     public List<IceBlock> getBlocks() {
-        return blocks();
+        if (rpoVersion != cfgVersion || rpoBlocks == null) {
+            final var result = listBlocks();
+            Collections.reverse(result);
+            rpoBlocks = Collections.unmodifiableList(result);
+            rpoVersion = cfgVersion;
+        }
+        return rpoBlocks;
     }
 
     public List<IceBlock> getBFSBlocks() {
+        if (bfsVersion == cfgVersion && bfsBlocks != null) return bfsBlocks;
         ArrayList<IceBlock> result = new ArrayList<>();
         Set<IceBlock> visited = new HashSet<>();
 
@@ -157,7 +209,9 @@ public class IceFunction extends IceConstant implements Iterable<IceBlock>, IceA
             }
         }
 
-        return result;
+        bfsBlocks = Collections.unmodifiableList(result);
+        bfsVersion = cfgVersion;
+        return bfsBlocks;
     }
 
     @Override
@@ -183,7 +237,7 @@ public class IceFunction extends IceConstant implements Iterable<IceBlock>, IceA
                                 .map(IceValue::getReferenceName)
                                 .toList()))
                 .append(") {\n");
-        blocks().forEach(block -> {
+        getBlocks().forEach(block -> {
             block.getTextIR(builder);
             builder.append("\n");
         });
@@ -242,7 +296,7 @@ public class IceFunction extends IceConstant implements Iterable<IceBlock>, IceA
      */
     @Override
     public Iterator<IceBlock> iterator() {
-        return blocks().iterator();
+        return getBlocks().iterator();
     }
 
     @Override
@@ -251,7 +305,7 @@ public class IceFunction extends IceConstant implements Iterable<IceBlock>, IceA
     }
 
     public ChilletGraph<IceBlock> getControlFlowGraph() {
-        var blocks = blocks();
+        var blocks = getBlocks();
         var graph = new ChilletGraph<IceBlock>(blocks.size());
         graph.createNewNodes(blocks);
         
@@ -21,6 +21,11 @@ public class IceUndef extends IceConstantData {
         super(type);
     }
 
+    @Override
+    public boolean isInterned() {
+        return false;
+    }
+
     @Override
     public IceConstantData castTo(IceType type) {
         return switch (type.getTypeEnum()) {
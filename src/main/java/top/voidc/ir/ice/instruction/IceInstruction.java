@@ -2,8 +2,12 @@ package top.voidc.ir.ice.instruction;
 
 import top.voidc.ir.IceBlock;
 import top.voidc.ir.IceUser;
+import top.voidc.ir.IceValue;
 import top.voidc.ir.ice.type.IceType;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public abstract class IceInstruction extends IceUser implements Cloneable {
     public IceBlock getParent() {
         return parent;
@@ -18,7 +22,7 @@ public abstract class IceInstruction extends IceUser implements Cloneable {
         if (this.parent != null) {
             this.parent.remove(this);
         }
-        this.parent = parent;
+        setParent(parent);
         if (parent != null) {
             parent.addInstruction(this);
         }
@@ -32,7 +36,7 @@ public abstract class IceInstruction extends IceUser implements Cloneable {
     public void destroy() {
         if (parent != null) {
             parent.remove(this);
-            parent = null;
+            setParent(null);
         }
         super.destroy();
     }
@@ -43,7 +47,11 @@ public abstract class IceInstruction extends IceUser implements Cloneable {
      * @param parent 新的父节点
      */
     public void setParent(IceBlock parent) {
+        if (this.parent == parent) return;
+        final var targets = isTerminal() ? blockOperands() : List.<IceBlock>of();
+        if (this.parent != null) targets.forEach(target -> target.removePredecessor(this.parent));
         this.parent = parent;
+        if (parent != null) targets.forEach(target -> target.addPredecessor(parent));
     }
 
     private IceBlock parent;
@@ -62,6 +70,102 @@ public abstract class IceInstruction extends IceUser implements Cloneable {
         return false;
     }
 
+    /**
+     * @return 操作数中的基本块，每个基本块只出现一次
+     */
+    private List<IceBlock> blockOperands() {
+        final var blocks = new ArrayList<IceBlock>(2);
+        for (var operand : getOperands()) {
+            if (operand instanceof IceBlock block && !blocks.contains(block)) blocks.add(block);
+        }
+        return blocks;
+    }
+
+    /**
+     * 已挂到基本块上的终结指令的跳转目标
+     * @return 非终结指令或者没有父节点时返回空列表
+     */
+    private List<IceBlock> successorTargets() {
+        if (parent == null || !isTerminal()) return List.of();
+        return blockOperands();
+    }
+
+    /**
+     * 终结指令的跳转目标发生变化后维护前驱边，并通知所属函数 CFG 已变化
+     * @param oldTargets 变化前的跳转目标
+     */
+    private void updateSuccessorEdges(List<IceBlock> oldTargets) {
+        final var newTargets = successorTargets();
+        if (newTargets.equals(oldTargets)) return;
+        oldTargets.stream().filter(target -> !newTargets.contains(target))
+                .forEach(target -> target.removePredecessor(parent));
+        newTargets.stream().filter(target -> !oldTargets.contains(target))
+                .forEach(target -> target.addPredecessor(parent));
+        if (parent.getFunction() != null) parent.getFunction().invalidateCFG();
+    }
+
+    @Override
+    public void addOperand(IceValue operand) {
+        if (!(operand instanceof IceBlock)) {
+            super.addOperand(operand);
+            return;
+        }
+        final var oldTargets = successorTargets();
+        super.addOperand(operand);
+        updateSuccessorEdges(oldTargets);
+    }
+
+    @Override
+    public void addOperand(int index, IceValue operand) {
+        if (!(operand instanceof IceBlock)) {
+            super.addOperand(index, operand);
+            return;
+        }
+        final var oldTargets = successorTargets();
+        super.addOperand(index, operand);
+        updateSuccessorEdges(oldTargets);
+    }
+
+    @Override
+    public void replaceOperand(IceValue oldOperand, IceValue newOperand) {
+        if (!(oldOperand instanceof IceBlock || newOperand instanceof IceBlock)) {
+            super.replaceOperand(oldOperand, newOperand);
+            return;
+        }
+        final var oldTargets = successorTargets();
+        super.replaceOperand(oldOperand, newOperand);
+        updateSuccessorEdges(oldTargets);
+    }
+
+    @Override
+    public void setOperand(int index, IceValue operand) {
+        if (!(getOperand(index) instanceof IceBlock || operand instanceof IceBlock)) {
+            super.setOperand(index, operand);
+            return;
+        }
+        final var oldTargets = successorTargets();
+        super.setOperand(index, operand);
+        updateSuccessorEdges(oldTargets);
+    }
+
+    @Override
+    protected void removeOperand(int index) {
+        if (!(getOperand(index) instanceof IceBlock)) {
+            super.removeOperand(index);
+            return;
+        }
+        final var oldTargets = successorTargets();
+        super.removeOperand(index);
+        updateSuccessorEdges(oldTargets);
+    }
+
+    @Override
+    protected void removeAllOperands() {
+        final var oldTargets = successorTargets();
+        super.removeAllOperands();
+        updateSuccessorEdges(oldTargets);
+    }
+
     @Override
     public String toString() {
         return getTextIR();
@@ -5,6 +5,7 @@ import top.voidc.ir.IceValue;
 import top.voidc.ir.ice.type.IceType;
 import top.voidc.misc.Log;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -52,20 +53,34 @@ public class IcePHINode extends IceInstruction implements Cloneable {
             throw new RuntimeException("Fuck you");
         }
 
-        final var iterator = getOperands().iterator();
-        while (iterator.hasNext()) {
-            var operand = iterator.next();
-            if (operand.equals(block)) {
-                operand.removeUse(this);
-                iterator.remove();
-                iterator.next().removeUse(this); // remove the value
-                iterator.remove();
+        for (var i = 0; i < getOperands().size(); ) {
+            if (getOperand(i).equals(block)) {
+                removeOperand(i + 1); // remove the value
+                removeOperand(i);
+            } else {
+                i++;
             }
         }
 
         removeCheck();
     }
 
+    /**
+     * 删除所有来自 blocks 的分支，和 removeValueByBranch 不同，不会在只剩一个分支时替换并销毁自身
+     * 用于把这些前驱拆分到新基本块之后重新添加分支
+     * @param blocks 要删除的分支
+     */
+    public void removeBranches(Collection<IceBlock> blocks) {
+        for (var i = 0; i < getOperands().size(); ) {
+            if (blocks.contains(getOperand(i))) {
+                removeOperand(i + 1);
+                removeOperand(i);
+            } else {
+                i += 2;
+            }
+        }
+    }
+
     /**
      * 移除某个值（注意不是分支，移除分支请用remove）
      * @param value 要移除的值
@@ -73,14 +88,13 @@ public class IcePHINode extends IceInstruction implements Cloneable {
     private void removeValue(IceValue value) {
         assert getOperands().size() % 2 == 0;
 
-        final var iterator = getOperands().listIterator();
-        while (iterator.hasNext()) {
-            var operand = iterator.next();
-            if (operand.equals(value)) {
-                operand.removeUse(this);
-                iterator.remove();
-                iterator.previous().removeUse(this); // remove the value
-                iterator.remove();
+        for (var i = 0; i < getOperands().size(); ) {
+            if (getOperand(i).equals(value)) {
+                removeOperand(i);
+                removeOperand(i - 1); // remove the block
+                i--;
+            } else {
+                i++;
             }
         }
 
@@ -94,11 +108,7 @@ public class IcePHINode extends IceInstruction implements Cloneable {
             replaceAllUsesWith(getBranchValueOnIndex(0));
 
             // 清空对最后的分支和值的使用
-            final var lastIter = getOperands().iterator();
-            while (lastIter.hasNext()) {
-                lastIter.next().removeUse(this);
-                lastIter.remove();
-            }
+            removeAllOperands();
         }
         this.destroy();
     }
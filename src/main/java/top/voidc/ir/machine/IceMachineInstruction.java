@@ -17,64 +17,31 @@ import java.util.*;
  * 特殊寄存器名dst为结果寄存器
  * 立即数之后设计
  * 操作数布局和指令顺序一致
+ * 模版由 InstructionTemplate 预先解析并缓存，相同模版的指令共享同一个对象
  */
 public abstract class IceMachineInstruction extends IceInstruction {
     protected final String renderTemplate;
-    protected record NamedOperand(String name, String placeholder, String prefix) {}
-
-    private int resultRegIndex = -1; // 结果寄存器的位置，-1表示未设置
-    private final NamedOperand[] namedOperandsArrays; // 用于存储命名操作数的数组
+    private final InstructionTemplate template;
     private final String opcode; // 指令的操作码
 
     public IceMachineInstruction(String renderTemplate) {
-        super(null, null, IceType.VOID);
-        this.renderTemplate = renderTemplate;
-        this.namedOperandsArrays = null;
-        this.opcode = extractOpcode();
-        parserNamedOperandPosMap();
+        this(InstructionTemplate.of(renderTemplate));
     }
 
     public IceMachineInstruction(String renderTemplate, IceMachineValue... values) {
-        super(null, null, IceType.VOID);
-        this.renderTemplate = renderTemplate;
-        this.namedOperandsArrays = new NamedOperand[values.length];
-        this.opcode = extractOpcode();
-        Arrays.stream(values).map(machineValue -> (IceValue) machineValue).forEachOrdered(this::addOperand);
-        parserNamedOperandPosMap();
+        this(InstructionTemplate.of(renderTemplate), values);
     }
 
-    private void parserNamedOperandPosMap() {
-        // Parse named operands from template
-        // Example: ADD {dst}, {x}, {y}, {imm8:z}
-        String text = renderTemplate;
-        int position = 0;
-        
-        // Find all occurrences of {name} or {prefix:name}
-        int startIndex = 0;
-        while ((startIndex = text.indexOf('{', startIndex)) != -1) {
-            int endIndex = text.indexOf('}', startIndex);
-            if (endIndex == -1) break;
-            
-            String content = text.substring(startIndex + 1, endIndex);
-            String prefix = "";
-            String name = content;
-            
-            // Check if operand has a prefix (like imm8:z)
-            if (content.contains(":")) {
-                String[] prefixAndName = content.split(":", 2);
-                prefix = prefixAndName[0];
-                name = prefixAndName[1];
-            }
-
-            String placeholder = "{" + (prefix.isEmpty() ? name : prefix + ":" + name) + "}";
-            if (name.equals("dst")) {
-                resultRegIndex = position; // 记录结果寄存器的位置
-            }
-            namedOperandsArrays[position] = new NamedOperand(name, placeholder, prefix);
+    protected IceMachineInstruction(InstructionTemplate template, IceMachineValue... values) {
+        super(null, null, IceType.VOID);
+        this.template = template;
+        this.renderTemplate = template.getText();
+        this.opcode = template.getOpcode();
+        for (var value : values) addOperand((IceValue) value);
+    }
 
-            position++;
-            startIndex = endIndex + 1;
-        }
+    public InstructionTemplate getTemplate() {
+        return template;
     }
 
     @Override
@@ -85,88 +52,68 @@ public abstract class IceMachineInstruction extends IceInstruction {
 
     @Override
     public void getTextIR(StringBuilder builder) {
-        String result = renderTemplate;
-        if (namedOperandsArrays == null || namedOperandsArrays.length == 0) {
+        final var slotCount = template.getSlotCount();
+        if (slotCount == 0) {
             // 如果没有命名操作数，直接输出指令模板
-            builder.append(result);
+            builder.append(renderTemplate);
             return;
         }
 
-        for (var i = 0;i < namedOperandsArrays.length; i++) {
-            var namedOperand = namedOperandsArrays[i];
-            
-            IceValue operand = getOperand(i);
-            String operandText = switch (namedOperand.prefix()) {
+        for (var i = 0; i < slotCount; i++) {
+            builder.append(template.getLiteral(i));
+            final var slot = template.getSlot(i);
+
+            IceValue operand = getOperand(slot.operandIndex());
+            switch (slot.prefix()) {
                 case "imm" -> {
                     assert operand instanceof IceConstantInt;
                     var intValue = ((IceConstantInt) operand).getValue();
-                    yield String.valueOf(intValue); // 直接输出整数值
+                    builder.append(intValue); // 直接输出整数值
                 }
                 case "fimm" -> {
                     assert operand instanceof IceConstantFloat;
                     var floatValue = ((IceConstantFloat) operand).getValue();
-                    yield "#" + floatValue; // 输出浮点数值
+                    builder.append('#').append(floatValue); // 输出浮点数值
                 }
                 case "imm16" -> {
                     assert operand instanceof IceConstantInt;
                     var intValue = ((IceConstantInt) operand).getValue();
-                    yield "#" + (intValue & 0xFFFF);
+                    builder.append('#').append(intValue & 0xFFFF);
                 }
                 case "imm12" -> {
                     assert operand instanceof IceConstantInt;
                     var intValue = ((IceConstantInt) operand).getValue();
-                    yield "#" + (intValue & 0xFFF);
+                    builder.append('#').append(intValue & 0xFFF);
                 }
                 case "imm8" -> {
                     assert operand instanceof IceConstantByte;
                     var intValue = ((IceConstantByte) operand).getValue();
-                    yield "#" + (intValue & 0xFF);
+                    builder.append('#').append(intValue & 0xFF);
                 }
                 case "local" -> {
                     assert operand instanceof IceStackSlot;
                     try {
-                        yield "[sp, #" + ((IceStackSlot) operand).getOffset() + "]"; // TODO 平台加载
+                        // 先取偏移再输出，未初始化时只输出占位符
+                        final var offset = ((IceStackSlot) operand).getOffset();
+                        builder.append("[sp, #").append(offset).append(']'); // TODO 平台加载
                     } catch (IllegalStateException e) {
-                        yield "local_uninitialized"; // 如果未初始化，返回占位符
+                        builder.append("local_uninitialized"); // 如果未初始化，返回占位符
                     }
                 }
                 case "local-offset" -> {
                     assert operand instanceof IceStackSlot;
                     try {
-                        yield "#" + ((IceStackSlot) operand).getOffset();
+                        final var offset = ((IceStackSlot) operand).getOffset();
+                        builder.append('#').append(offset);
                     } catch (IllegalStateException ignored) {
-                        yield "slot_uninitialized"; // 如果未初始化，返回占位符
+                        builder.append("slot_uninitialized"); // 如果未初始化，返回占位符
                     }
                 }
-                case "label" -> operand.getName();
-                case "implicit" -> operand.getReferenceName();
-                default -> operand.getReferenceName();
-            };
-            
-            result = result.replace(namedOperand.placeholder(), operandText);
-        }
-
-        builder.append(result);
-    }
-
-    /**
-     * 用循环实现以提高性能
-     */
-    private String extractOpcode() {
-        if (this instanceof IceMachineInstructionComment) return "NOP";
-        var charArray = renderTemplate.toCharArray();
-        int len = renderTemplate.length();
-        int i = 0;
-        // 跳过前导空白
-        while (i < len && Character.isWhitespace(charArray[i])) {
-            i++;
-        }
-        int start = i;
-        // 找到第一个空白字符
-        while (i < len && !Character.isWhitespace(charArray[i])) {
-            i++;
+                case "label" -> builder.append(operand.getName());
+                default -> builder.append(operand.getReferenceName());
+            }
         }
-        return renderTemplate.substring(start, i).toUpperCase();
+        builder.append(template.getLiteral(slotCount));
     }
 
     public String getOpcode() {
@@ -186,13 +133,10 @@ public abstract class IceMachineInstruction extends IceInstruction {
      * @return 结果寄存器，如果没有设置结果寄存器则返回null
      */
     public IceMachineRegister.RegisterView getResultReg(boolean withImplicit) {
-        if (resultRegIndex == -1) return null;
-        var dstTemplate = namedOperandsArrays[resultRegIndex];
-        if ("implicit".equals(dstTemplate.prefix())) {
-            return withImplicit ? (IceMachineRegister.RegisterView) getOperand(resultRegIndex) : null;
-        } else {
-            return (IceMachineRegister.RegisterView) getOperand(resultRegIndex);
-        }
+        final var resultIndex = template.getResultIndex();
+        if (resultIndex == -1) return null;
+        if (template.isResultImplicit() && !withImplicit) return null;
+        return (IceMachineRegister.RegisterView) getOperand(resultIndex);
     }
 
     /**
@@ -208,20 +152,7 @@ public abstract class IceMachineInstruction extends IceInstruction {
      * @return 获取
      */
     public List<IceValue> getSourceOperands(boolean withImplicit) {
-        if (namedOperandsArrays == null || namedOperandsArrays.length == 0) {
-            return Collections.emptyList();
-        }
-
-        var results = new ArrayList<IceValue>();
-        for (var i = 0; i < namedOperandsArrays.length; i++) {
-            if (i == resultRegIndex) continue; // 跳过结果寄存器
-            var namedOperand = namedOperandsArrays[i];
-            if ("implicit".equals(namedOperand.prefix()) && !withImplicit) {
-                continue; // 如果是隐式操作数且不需要，则跳过
-            }
-            results.add(getOperand(i));
-        }
-        return results;
+        return collectOperands(template.getSourceIndices(withImplicit));
     }
 
     /**
@@ -230,18 +161,15 @@ public abstract class IceMachineInstruction extends IceInstruction {
      * @return 所有操作数
      */
     public List<IceValue> getOperands(boolean withImplicit) {
-        if (namedOperandsArrays == null || namedOperandsArrays.length == 0) {
-            return Collections.emptyList();
-        }
+        return collectOperands(template.getOperandIndices(withImplicit));
+    }
 
-        var results = new ArrayList<IceValue>();
-        for (var i = 0; i < namedOperandsArrays.length; i++) {
-            var namedOperand = namedOperandsArrays[i];
-            if ("implicit".equals(namedOperand.prefix()) && !withImplicit) {
-                continue; // 如果是隐式操作数且不需要，则跳过
-            }
-            results.add(getOperand(i));
+    private List<IceValue> collectOperands(int[] indices) {
+        if (indices.length == 0) {
+            return Collections.emptyList();
         }
+        var results = new ArrayList<IceValue>(indices.length);
+        for (var index : indices) results.add(getOperand(index));
         return results;
     }
 
@@ -3,7 +3,7 @@ package top.voidc.ir.machine;
 // 用于保存汇编中的注释
 public class IceMachineInstructionComment extends IceMachineInstruction {
     public IceMachineInstructionComment(String renderTemplate) {
-        super(renderTemplate);
+        super(InstructionTemplate.literal(renderTemplate, "NOP"));
     }
 
     @Override
@@ -1,7 +1,6 @@
 package top.voidc.ir.machine;
 
 
-import top.voidc.ir.IceUser;
 import top.voidc.ir.ice.instruction.IceCallInstruction;
 import top.voidc.ir.ice.interfaces.IceAlignable;
 import top.voidc.ir.IceValue;
@@ -78,11 +77,6 @@ public abstract class IceStackSlot extends IceValue implements IceAlignable, Ice
         }
     }
 
-    @Override
-    public void removeUse(IceUser user) {
-        super.removeUse(user);
-    }
-
     public IceStackSlot(IceMachineFunction parent, IceType type) {
         super(null, type);
         this.parent = parent;
@@ -0,0 +1,183 @@
+package top.voidc.ir.machine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预先解析好的机器指令模版，同一个模版字符串只解析一次
+ * 模版形如 ADD {dst}, {x}, {y}, {imm8:z}，解析后得到操作码、按顺序排列的操作数槽位
+ * 以及结果/源操作数在操作数列表中的下标，供活跃分析和寄存器分配直接使用
+ */
+public final class InstructionTemplate {
+    /**
+     * @param name         操作数名
+     * @param prefix       操作数前缀，如 imm8、local、implicit，没有时为空串
+     * @param operandIndex 渲染时使用的操作数下标，同名槽位使用第一次出现的位置
+     */
+    public record Slot(String name, String prefix, int operandIndex) {
+        public boolean isImplicit() {
+            return "implicit".equals(prefix);
+        }
+    }
+
+    // 有些模版拼接了全局变量名等内容，限制缓存大小防止无限增长
+    private static final int MAX_CACHED_TEMPLATES = 4096;
+    private static final Map<String, InstructionTemplate> cache = new ConcurrentHashMap<>();
+
+    private final String text;
+    private final String opcode;
+    private final String[] literals; // 槽位之间的文本，长度为 slots.length + 1
+    private final Slot[] slots;
+    private final int resultIndex; // 结果寄存器的位置，-1表示没有
+    private final int[] sourceIndices;
+    private final int[] sourceIndicesWithImplicit;
+    private final int[] operandIndices;
+    private final int[] operandIndicesWithImplicit;
+
+    private InstructionTemplate(String text, String opcode, List<String> literals, List<Slot> slots) {
+        this.text = text;
+        this.opcode = opcode;
+        this.literals = literals.toArray(String[]::new);
+        this.slots = slots.toArray(Slot[]::new);
+
+        var result = -1;
+        for (int i = 0; i < this.slots.length; i++) {
+            if (this.slots[i].name().equals("dst")) result = i;
+        }
+        this.resultIndex = result;
+
+        final var sources = new ArrayList<Integer>();
+        final var sourcesWithImplicit = new ArrayList<Integer>();
+        final var operands = new ArrayList<Integer>();
+        final var operandsWithImplicit = new ArrayList<Integer>();
+        for (int i = 0; i < this.slots.length; i++) {
+            final var implicit = this.slots[i].isImplicit();
+            operandsWithImplicit.add(i);
+            if (!implicit) operands.add(i);
+            if (i == resultIndex) continue;
+            sourcesWithImplicit.add(i);
+            if (!implicit) sources.add(i);
+        }
+        this.sourceIndices = sources.stream().mapToInt(Integer::intValue).toArray();
+        this.sourceIndicesWithImplicit = sourcesWithImplicit.stream().mapToInt(Integer::intValue).toArray();
+        this.operandIndices = operands.stream().mapToInt(Integer::intValue).toArray();
+        this.operandIndicesWithImplicit = operandsWithImplicit.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 获取模版字符串对应的模版对象
+     * @param text 模版字符串
+     * @return 解析后的模版
+     */
+    public static InstructionTemplate of(String text) {
+        final var cached = cache.get(text);
+        if (cached != null) return cached;
+        final var template = parse(text);
+        if (cache.size() < MAX_CACHED_TEMPLATES) cache.putIfAbsent(text, template);
+        return template;
+    }
+
+    /**
+     * 不解析操作数的模版，用于注释等原样输出的内容
+     */
+    public static InstructionTemplate literal(String text, String opcode) {
+        return new InstructionTemplate(text, opcode, List.of(text), List.of());
+    }
+
+    private static InstructionTemplate parse(String text) {
+        final var literals = new ArrayList<String>();
+        final var slots = new ArrayList<Slot>();
+        final var placeholderPositions = new HashMap<String, Integer>();
+
+        int literalStart = 0;
+        int startIndex = 0;
+        while ((startIndex = text.indexOf('{', startIndex)) != -1) {
+            int endIndex = text.indexOf('}', startIndex);
+            if (endIndex == -1) break;
+
+            final var content = text.substring(startIndex + 1, endIndex);
+            final var colon = content.indexOf(':');
+            final var prefix = colon == -1 ? "" : content.substring(0, colon);
+            final var name = colon == -1 ? content : content.substring(colon + 1);
+
+            // 同一个占位符出现多次时都渲染为第一次出现位置的操作数
+            final var operandIndex = placeholderPositions.computeIfAbsent(content, _ -> slots.size());
+            literals.add(text.substring(literalStart, startIndex));
+            slots.add(new Slot(name, prefix, operandIndex));
+
+            literalStart = endIndex + 1;
+            startIndex = endIndex + 1;
+        }
+        literals.add(text.substring(literalStart));
+        return new InstructionTemplate(text, extractOpcode(text), literals, slots);
+    }
+
+    private static String extractOpcode(String text) {
+        int len = text.length();
+        int i = 0;
+        // 跳过前导空白
+        while (i < len && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        int start = i;
+        // 找到第一个空白字符
+        while (i < len && !Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return text.substring(start, i).toUpperCase().intern();
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return 大写的操作码，已经 intern 可以直接比较
+     */
+    public String getOpcode() {
+        return opcode;
+    }
+
+    public int getSlotCount() {
+        return slots.length;
+    }
+
+    public Slot getSlot(int index) {
+        return slots[index];
+    }
+
+    public String getLiteral(int index) {
+        return literals[index];
+    }
+
+    public int getResultIndex() {
+        return resultIndex;
+    }
+
+    public boolean isResultImplicit() {
+        return resultIndex != -1 && slots[resultIndex].isImplicit();
+    }
+
+    /**
+     * @return 源操作数的下标，不要修改返回的数组
+     */
+    public int[] getSourceIndices(boolean withImplicit) {
+        return withImplicit ? sourceIndicesWithImplicit : sourceIndices;
+    }
+
+    /**
+     * @return 所有操作数（包括结果寄存器）的下标，不要修改返回的数组
+     */
+    public int[] getOperandIndices(boolean withImplicit) {
+        return withImplicit ? operandIndicesWithImplicit : operandIndices;
+    }
+
+    @Override
+    public String toString() {
+        return text + " " + Arrays.toString(slots);
+    }
+}
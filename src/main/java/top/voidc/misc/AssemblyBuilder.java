@@ -1,39 +1,92 @@
 package top.voidc.misc;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
 
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 按行写出汇编，内容先缓存在内存中，超过 FLUSH_THRESHOLD 后写入通道
+ * 预先渲染好的大块内容（例如各个函数）可以用 writeAll 一次性聚集写入
+ */
 public class AssemblyBuilder {
-    private final BufferedWriter output;
+    private static final int FLUSH_THRESHOLD = 1 << 16;
+
+    private final WritableByteChannel output;
+    private final StringBuilder pending = new StringBuilder(FLUSH_THRESHOLD);
 
     public AssemblyBuilder(String filename) throws IOException {
         if ("-".equals(filename)) {
-            output = new BufferedWriter(new OutputStreamWriter(System.out));
+            output = Channels.newChannel(System.out);
         } else {
-            output = new BufferedWriter(new FileWriter(filename));
+            output = FileChannel.open(Path.of(filename), CREATE, WRITE, TRUNCATE_EXISTING);
         }
     }
 
-    public AssemblyBuilder(BufferedWriter output) {
+    public AssemblyBuilder(WritableByteChannel output) {
         this.output = output;
     }
 
+    public static ByteBuffer encode(CharSequence str) {
+        return StandardCharsets.UTF_8.encode(CharBuffer.wrap(str));
+    }
+
     public AssemblyBuilder writeRaw(String str) throws IOException {
-        output.write(str);
+        pending.append(str);
+        if (pending.length() >= FLUSH_THRESHOLD) flush();
         return this;
     }
 
     public AssemblyBuilder writeLine(String str) throws IOException {
-        output.write(str);
-        output.write("\n");
+        pending.append(str).append('\n');
+        if (pending.length() >= FLUSH_THRESHOLD) flush();
         return this;
     }
 
     public AssemblyBuilder writeLine() throws IOException {
-        output.write("\n");
+        pending.append('\n');
         return this;
     }
 
+    /**
+     * 按顺序写入已经编码好的内容
+     * @param buffers 要写入的内容，写入后会被消耗
+     */
+    public AssemblyBuilder writeAll(List<ByteBuffer> buffers) throws IOException {
+        flush();
+        final var array = buffers.toArray(ByteBuffer[]::new);
+        if (output instanceof GatheringByteChannel channel) {
+            int first = 0;
+            while (first < array.length) {
+                channel.write(array, first, array.length - first);
+                while (first < array.length && !array[first].hasRemaining()) first++;
+            }
+        } else {
+            for (var buffer : array) writeFully(buffer);
+        }
+        return this;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) output.write(buffer);
+    }
+
+    public void flush() throws IOException {
+        if (pending.isEmpty()) return;
+        writeFully(encode(pending));
+        pending.setLength(0);
+    }
+
     public void close() throws IOException {
+        flush();
         output.close();
     }
-}
\ No newline at end of file
+}
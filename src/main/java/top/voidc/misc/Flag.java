@@ -1,5 +1,7 @@
 package top.voidc.misc;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -40,17 +42,40 @@ public class Flag {
         }
     }
 
-    private static Flag instance = null;
+    private static final Flag global = new Flag();
+    private static final ThreadLocal<Flag> bound = new ThreadLocal<>();
     private final Map<String, Option<?>> options = new HashMap<>();
 
     private Flag() {
     }
 
+    /**
+     * @return 当前线程绑定的选项，没有绑定时返回全局选项
+     */
     public static Flag getInstance() {
-        if (instance == null) {
-            instance = new Flag();
+        final var flag = bound.get();
+        return flag == null ? global : flag;
+    }
+
+    /**
+     * 把选项绑定到当前线程，之后本线程的 Flag.get 都从这份选项读取，传入 null 解除绑定
+     * 编译服务器用它隔离各个请求的选项，并行 Pass 的工作线程也需要绑定同一份选项
+     */
+    public static void bind(Flag flag) {
+        if (flag == null) {
+            bound.remove();
+        } else {
+            bound.set(flag);
         }
-        return instance;
+    }
+
+    /**
+     * 解析出一份独立的选项，不影响全局选项
+     */
+    public static Flag parse(String[] args) {
+        final var flag = new Flag();
+        flag.load(args);
+        return flag;
     }
 
     public void reset() {
@@ -61,26 +86,46 @@ public class Flag {
         options.put(option.getName(), option);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * @return 所有已注册的选项，顺序不确定
+     */
+    public Collection<Option<?>> getOptions() {
+        return Collections.unmodifiableCollection(options.values());
+    }
+
     public static void init(String[] args) {
-        Flag flagInstance = getInstance();
-        flagInstance.reset();
-        flagInstance.registerOption(new Option<>("source", String.class, null));
-        flagInstance.registerOption(new Option<>("-o", String.class, "a.out"));
-        flagInstance.registerOption(new Option<>("-S", Boolean.class, false));
-        flagInstance.registerOption(new Option<>("-O1", Boolean.class, false));
-        flagInstance.registerOption(new Option<>("-emit-ir", Boolean.class, false));
-        flagInstance.registerOption(new Option<>("-fenable-ptr-type", Boolean.class, false));
-        flagInstance.registerOption(new Option<>("-fshow-trace-info", Boolean.class, false));
-        flagInstance.registerOption(new Option<>("-fdisable-group", String.class, ""));
+        getInstance().load(args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load(String[] args) {
+        reset();
+        registerOption(new Option<>("source", String.class, null));
+        registerOption(new Option<>("-o", String.class, "a.out"));
+        registerOption(new Option<>("-S", Boolean.class, false));
+        registerOption(new Option<>("-O1", Boolean.class, false));
+        registerOption(new Option<>("-emit-ir", Boolean.class, false));
+        registerOption(new Option<>("-fenable-ptr-type", Boolean.class, false));
+        registerOption(new Option<>("-fshow-trace-info", Boolean.class, false));
+        registerOption(new Option<>("-flog-level", String.class, ""));
+        registerOption(new Option<>("-fdisable-group", String.class, ""));
+        registerOption(new Option<>("-ffunction-pipeline", Boolean.class, false));
+        registerOption(new Option<>("-fmax-stable-rounds", Integer.class, null));
+        registerOption(new Option<>("-ftime-passes", Boolean.class, false));
+        registerOption(new Option<>("-fstats", Boolean.class, false));
+        registerOption(new Option<>("-fstats-json", String.class, ""));
+        registerOption(new Option<>("-fwarm-parser", Boolean.class, false));
+        registerOption(new Option<>("-fserver", Boolean.class, false));
+        registerOption(new Option<>("-fserver-port", String.class, ""));
+        registerOption(new Option<>("-fcache-dir", String.class, ""));
 
         for (int i = 0; i < args.length; i++) {
             if (args[i].startsWith("-")) {
-                Option<?> option = flagInstance.options.get(args[i]);
+                Option<?> option = options.get(args[i]);
                 if (option != null) {
                     if (option.getType().equals(Boolean.class)) {
                         option.setValue("true");
-                    } else if (option.getType().equals(String.class)
+                    } else if ((option.getType().equals(String.class) || option.getType().equals(Integer.class))
                                 && i + 1 < args.length
                                 && (!args[i + 1].startsWith("-") || "-".equals(args[i + 1]))) {
                         option.setValue(args[i + 1]);
@@ -88,7 +133,7 @@ public class Flag {
                     }
                 }
             } else {
-                Option<String> sourceOption = (Option<String>) flagInstance.options.get("source");
+                Option<String> sourceOption = (Option<String>) options.get("source");
                 if (sourceOption != null) {
                     sourceOption.setValue(args[i]);
                 }
@@ -96,9 +141,13 @@ public class Flag {
         }
     }
 
-    @SuppressWarnings("unchecked")
     static public <T> T get(String key) {
-        Option<?> option = getInstance().options.get(key);
+        return getInstance().getValue(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getValue(String key) {
+        Option<?> option = options.get(key);
         if (option == null) {
             return null;
         }
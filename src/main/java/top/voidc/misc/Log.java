@@ -2,45 +2,128 @@ package top.voidc.misc;
 
 import java.io.PrintStream;
 import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * 日志输出
+ * 低于 level 的日志直接返回，不会构造消息也不会获取调用位置，消息开销较大时使用 Supplier 重载
+ * 级别可以通过 -Dlog.level=warn 或 -flog-level warn 设置，-Dlog.location=false 关闭调用位置
+ */
 public class Log {
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF;
+
+        public static Level parse(String name) {
+            return Level.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
     private static final String ANSI_RESET = "\033[0m";
     private static final String ANSI_BLUE = "\033[34m";
     private static final String ANSI_RED = "\033[31m";
     private static final String ANSI_GREEN = "\033[32m";
     private static final boolean DEBUG = Boolean.parseBoolean(System.getProperty("debug"));
-    private static PrintStream OUT = System.out;
+    private static final StackWalker stackWalker = StackWalker.getInstance();
+    private static final Map<String, String> prettyClassNames = new ConcurrentHashMap<>();
+
+    private static volatile PrintStream OUT = System.out;
+    private static volatile Level level = System.getProperty("log.level") == null ? Level.DEBUG
+            : Level.parse(System.getProperty("log.level"));
+    private static volatile boolean captureLocation = !"false".equalsIgnoreCase(System.getProperty("log.location"));
+
+    public static void setLevel(Level level) {
+        Log.level = level;
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    /**
+     * 是否在日志中输出调用位置，获取调用位置需要遍历调用栈
+     */
+    public static void setCaptureLocation(boolean captureLocation) {
+        Log.captureLocation = captureLocation;
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.compareTo(Log.level) >= 0;
+    }
 
     public static void d(String format) {
+        if (isEnabled(Level.DEBUG)) debug(format);
+    }
+
+    public static void d(Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) debug(message.get());
+    }
+
+    public static void i(String format) {
+        if (isEnabled(Level.INFO)) info(format);
+    }
+
+    public static void i(Supplier<String> message) {
+        if (isEnabled(Level.INFO)) info(message.get());
+    }
+
+    public static void w(String format) {
+        if (isEnabled(Level.WARN)) warn(format);
+    }
+
+    public static void w(Supplier<String> message) {
+        if (isEnabled(Level.WARN)) warn(message.get());
+    }
+
+    public static void e(String format) {
+        if (isEnabled(Level.ERROR)) error(format);
+    }
+
+    public static void e(Supplier<String> message) {
+        if (isEnabled(Level.ERROR)) error(message.get());
+    }
+
+    private static void debug(String format) {
         if (DEBUG) log(ANSI_GREEN + "DEBUG" + ANSI_RESET, format);
         else log("DEBUG", format);
     }
 
-    public static void i(String format) {
+    private static void info(String format) {
         if (DEBUG) log(ANSI_BLUE + "INFO" + ANSI_RESET, format);
         else log("INFO", format);
     }
 
-    public static void w(String format) {
+    private static void warn(String format) {
         if (DEBUG) log(ANSI_RED + "WARN" + ANSI_RESET, ANSI_RED + format + ANSI_RESET);
         else log("WARN", format);
     }
 
-    public static void e(String format) {
+    private static void error(String format) {
         if (DEBUG) log(ANSI_RED + "ERROR" + ANSI_RESET, ANSI_RED + format + ANSI_RESET);
         else log("ERROR", format);
     }
 
     private static void log(String level, String format) {
-        StackTraceElement caller = Thread.currentThread().getStackTrace()[3];
-        String className = caller.getClassName();
-        String methodName = caller.getMethodName();
-        String fileName = caller.getFileName();
-        int lineNumber = caller.getLineNumber();
-        final var prettyClass = Arrays.stream(className.split("\\."))
-                .map(packageName -> packageName.substring(0, 1)).collect(Collectors.joining("."));
-        OUT.println("[" + level + "][" + prettyClass + "." + methodName + "() @ (" + fileName + ":" + lineNumber + ")] " + format);
+        if (!captureLocation) {
+            OUT.println("[" + level + "] " + format);
+            return;
+        }
+
+        final var caller = stackWalker.walk(frames -> frames
+                .filter(frame -> !frame.getClassName().equals(Log.class.getName()))
+                .findFirst()).orElse(null);
+        if (caller == null) {
+            OUT.println("[" + level + "] " + format);
+            return;
+        }
+        final var prettyClass = prettyClassNames.computeIfAbsent(caller.getClassName(), className ->
+                Arrays.stream(className.split("\\."))
+                        .map(packageName -> packageName.substring(0, 1)).collect(Collectors.joining(".")));
+        OUT.println("[" + level + "][" + prettyClass + "." + caller.getMethodName() + "() @ ("
+                + caller.getFileName() + ":" + caller.getLineNumber() + ")] " + format);
     }
 
     public static void should(boolean condition, String format) {
@@ -49,7 +132,16 @@ public class Log {
         }
     }
 
+    /**
+     * 只在断言失败时构造消息
+     */
+    public static void should(boolean condition, Supplier<String> message) {
+        if (!condition) {
+            throw new AssertionError(message.get());
+        }
+    }
+
     public static void setOutputStream(PrintStream out) {
         Log.OUT = out;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package top.voidc.misc;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 具名计数器，类似 LLVM 的 STATISTIC
+ * 名字按 "分组.名字" 的形式书写，例如 "peephole.RedundantMovePattern"
+ * 可以在并行的 Pass 中使用，使用 -fstats 输出
+ * 每次编译使用 IceContext 中独立的一份计数器，编译期间绑定到执行编译和 Pass 的线程上，
+ * 没有绑定的线程记到全局计数器中
+ */
+public class Statistics {
+    private static final Statistics global = new Statistics();
+    private static final ThreadLocal<Statistics> bound = new ThreadLocal<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @return 当前线程绑定的计数器，没有绑定时返回全局计数器
+     */
+    public static Statistics getInstance() {
+        final var statistics = bound.get();
+        return statistics == null ? global : statistics;
+    }
+
+    /**
+     * 把计数器绑定到当前线程，传入 null 解除绑定
+     * @return 之前绑定的计数器，用于恢复
+     */
+    public static Statistics bind(Statistics statistics) {
+        final var previous = bound.get();
+        if (statistics == null) {
+            bound.remove();
+        } else {
+            bound.set(statistics);
+        }
+        return previous;
+    }
+
+    public static void increment(String name) {
+        add(name, 1);
+    }
+
+    public static void add(String name, long delta) {
+        getInstance().addValue(name, delta);
+    }
+
+    /**
+     * @return 当前线程的计数器的当前值，按名字排序
+     */
+    public static Map<String, Long> snapshot() {
+        return getInstance().getValues();
+    }
+
+    public static void reset() {
+        getInstance().clear();
+    }
+
+    public void addValue(String name, long delta) {
+        counters.computeIfAbsent(name, _ -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * @return 按名字排序的所有计数器的当前值
+     */
+    public Map<String, Long> getValues() {
+        final var result = new TreeMap<String, Long>();
+        counters.forEach((name, counter) -> result.put(name, counter.sum()));
+        return result;
+    }
+
+    public void clear() {
+        counters.clear();
+    }
+}
@@ -1,5 +1,7 @@
 package top.voidc.misc.annotation;
 
+import top.voidc.optimizer.analysis.FunctionAnalysis;
+
 import java.lang.annotation.*;
 
 @Retention(RetentionPolicy.RUNTIME)
@@ -9,4 +11,9 @@ public @interface Pass {
     boolean disable() default false;
     boolean parallel() default false;
     String[] group() default {};
+
+    /**
+     * Pass 修改函数后仍然有效的分析，其余分析结果会被失效
+     */
+    Class<? extends FunctionAnalysis<?>>[] preserves() default {};
 }
@@ -1,6 +1,7 @@
 package top.voidc.misc.ds;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * A class to compute the dominator tree for a directed graph using the Lengauer-Tarjan algorithm.
@@ -30,6 +31,8 @@ public class DominatorTree<T> {
     private final List<List<Integer>> pred;   // Predecessor lists for each node
     private final List<List<Integer>> bucket; // Buckets for semi-dominators
     private int dfsCounter; // Counter for assigning DFS numbers
+    private final int[] stack;     // Explicit stack shared by dfs and compress, both are recursion-free
+    private final int[] nextEdge;  // Index of the next neighbor to visit for each node on the DFS stack
 
     /**
      * Constructs a DominatorTree from a ChilletGraph and an entry node ID.
@@ -59,6 +62,8 @@ public class DominatorTree<T> {
         this.pred = new ArrayList<>(n);
         this.bucket = new ArrayList<>(n);
         this.dfsCounter = 0;
+        this.stack = new int[n];
+        this.nextEdge = new int[n];
 
         for (int i = 0; i < n; i++) {
             finalDomChildren[i] = new ArrayList<>();
@@ -134,34 +139,54 @@ public class DominatorTree<T> {
         }
     }
 
-    /**
-     * Recursive DFS function for Step 1 of the algorithm.
-     * @param u The current node ID to visit.
-     */
-    private void dfs(int u) {
+    private void visit(int u) {
         dfsCounter++;
         dfsNumber[u] = dfsCounter;
         vertex[dfsCounter] = u;
+    }
 
-        for (int v : graph.getNeighbors(u)) {
+    /**
+     * Iterative DFS for Step 1 of the algorithm, numbering nodes in the same
+     * preorder as the recursive formulation.
+     * @param root The node ID to start from.
+     */
+    private void dfs(int root) {
+        int top = 0;
+        stack[top++] = root;
+        visit(root);
+        while (top > 0) {
+            int u = stack[top - 1];
+            var neighbors = graph.getNeighbors(u);
+            if (nextEdge[u] == neighbors.size()) {
+                top--;
+                continue;
+            }
+            int v = neighbors.get(nextEdge[u]++);
             if (dfsNumber[v] == 0) { // If v has not been visited
                 parent[v] = u;
-                dfs(v);
+                visit(v);
+                stack[top++] = v;
             }
         }
     }
 
     /**
      * Performs path compression for the EVAL function.
+     * The path is collected first and then compressed from the top down,
+     * which is what the recursive version does on its way back.
      * @param v The node ID to start compression from.
      */
     private void compress(int v) {
-        if (ancestor[ancestor[v]] != -1) {
-            compress(ancestor[v]);
-            if (dfsNumber[semi[label[ancestor[v]]]] < dfsNumber[semi[label[v]]]) {
-                label[v] = label[ancestor[v]];
+        int top = 0;
+        for (int u = v; ancestor[ancestor[u]] != -1; u = ancestor[u]) {
+            stack[top++] = u;
+        }
+        while (top > 0) {
+            int u = stack[--top];
+            if (dfsNumber[semi[label[ancestor[u]]]] < dfsNumber[semi[label[u]]]) {
+                label[u] = label[ancestor[u]];
             }
-            ancestor[v] = ancestor[ancestor[v]];
+            ancestor[u] = ancestor[ancestor[u]];
         }
     }
 
@@ -224,6 +249,33 @@ public class DominatorTree<T> {
         return graph.getNodeValue(dominatorId);
     }
 
+    /**
+     * 从 root 开始先序遍历支配树，进入结点时调用 enter，它支配的子树全部处理完后调用 exit
+     * 子结点的顺序和 getDominatees 相同，使用按结点编号索引的数组作为显式栈，支配树很深时也不会栈溢出
+     * @param root 遍历的起点
+     * @param enter 进入结点时调用
+     * @param exit 离开结点时调用，可以为 null
+     */
+    public void traverse(T root, Consumer<T> enter, Consumer<T> exit) {
+        final int[] path = new int[n];
+        final int[] nextChild = new int[n];
+        int top = 0;
+        int rootId = graph.getNodeId(root);
+        path[top++] = rootId;
+        enter.accept(root);
+        while (top > 0) {
+            int u = path[top - 1];
+            if (nextChild[u] < finalDomChildren[u].size()) {
+                int v = finalDomChildren[u].get(nextChild[u]++);
+                path[top++] = v;
+                enter.accept(graph.getNodeValue(v));
+            } else {
+                top--;
+                if (exit != null) exit.accept(graph.getNodeValue(u));
+            }
+        }
+    }
+
     /**
      * 获取 node 直接支配的所有基本块
      * @param node 基本块
@@ -0,0 +1,68 @@
+package top.voidc.misc.ds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 带作用域的哈希表，所有作用域共用一张表
+ * 进入作用域只记录修改日志的位置，离开时按日志撤销本作用域内的 put，不复制任何表项，
+ * 查找始终是一次哈希查找，和作用域的深度无关
+ * 不支持 null 值
+ */
+public class ScopedHashMap<K, V> {
+    private record Change<K, V>(K key, V previous) {}
+
+    private final Map<K, V> map = new HashMap<>();
+    private final ArrayList<Change<K, V>> log = new ArrayList<>();
+    private int[] scopeStarts = new int[16];
+    private int depth = 0;
+
+    public void pushScope() {
+        if (depth == scopeStarts.length) scopeStarts = Arrays.copyOf(scopeStarts, depth * 2);
+        scopeStarts[depth++] = log.size();
+    }
+
+    /**
+     * 离开当前作用域，恢复进入作用域之前的所有映射
+     */
+    public void popScope() {
+        if (depth == 0) throw new IllegalStateException("没有可以离开的作用域");
+        final var start = scopeStarts[--depth];
+        for (int i = log.size() - 1; i >= start; i--) {
+            final var change = log.remove(i);
+            if (change.previous() == null) {
+                map.remove(change.key());
+            } else {
+                map.put(change.key(), change.previous());
+            }
+        }
+    }
+
+    /**
+     * 在当前作用域中添加映射，会遮蔽外层作用域中相同的键
+     */
+    public void put(K key, V value) {
+        Objects.requireNonNull(value);
+        if (depth == 0) throw new IllegalStateException("需要先进入作用域");
+        log.add(new Change<>(key, map.put(key, value)));
+    }
+
+    public V get(K key) {
+        return map.get(key);
+    }
+
+    public boolean containsKey(K key) {
+        return map.containsKey(key);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+}
@@ -0,0 +1,74 @@
+package top.voidc.optimizer;
+
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.optimizer.analysis.FunctionAnalysis;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按函数缓存分析结果
+ * Pass 修改了某个函数之后由 PassManager 根据 @Pass 的 preserves 声明失效其余的分析结果
+ * 分析结果只依赖 CFG，所以 CFG 版本号变化时缓存也会失效
+ */
+public class AnalysisManager {
+    private record CachedResult(Object result, int cfgVersion) {}
+
+    private final Map<IceFunction, Map<Class<?>, CachedResult>> cache = new ConcurrentHashMap<>();
+    private final Map<Class<?>, FunctionAnalysis<?>> analyses = new ConcurrentHashMap<>();
+
+    private FunctionAnalysis<?> getAnalysis(Class<?> analysisClass) {
+        return analyses.computeIfAbsent(analysisClass, clazz -> {
+            try {
+                return (FunctionAnalysis<?>) clazz.getConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("创建分析 " + clazz.getSimpleName() + " 时失败", e);
+            }
+        });
+    }
+
+    /**
+     * 获取函数的分析结果，没有缓存或缓存已失效时重新计算
+     * 不同函数之间可以并行获取
+     *
+     * @param analysisClass 分析的 Class 对象
+     * @param function      目标函数
+     * @return 分析结果
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R getResult(Class<? extends FunctionAnalysis<R>> analysisClass, IceFunction function) {
+        final var functionCache = cache.computeIfAbsent(function, _ -> new ConcurrentHashMap<>());
+        final var cfgVersion = function.getCFGVersion();
+        // 计算时可能会递归获取其他分析，所以不能用 computeIfAbsent
+        final var cached = functionCache.get(analysisClass);
+        if (cached != null && cached.cfgVersion() == cfgVersion) {
+            return (R) cached.result();
+        }
+
+        final var result = ((FunctionAnalysis<R>) getAnalysis(analysisClass)).compute(function, this);
+        functionCache.put(analysisClass, new CachedResult(result, cfgVersion));
+        return result;
+    }
+
+    /**
+     * 失效函数上除 preserved 以外的所有分析结果
+     *
+     * @param function  目标函数
+     * @param preserved 保留的分析
+     */
+    public void invalidate(IceFunction function, Collection<Class<?>> preserved) {
+        final var functionCache = cache.get(function);
+        if (functionCache == null) return;
+        functionCache.keySet().retainAll(preserved);
+        if (functionCache.isEmpty()) cache.remove(function);
+    }
+
+    /**
+     * 失效所有函数上除 preserved 以外的分析结果
+     *
+     * @param preserved 保留的分析
+     */
+    public void invalidateAll(Collection<Class<?>> preserved) {
+        List.copyOf(cache.keySet()).forEach(function -> invalidate(function, preserved));
+    }
+}
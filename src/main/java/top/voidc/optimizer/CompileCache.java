@@ -0,0 +1,284 @@
+package top.voidc.optimizer;
+
+import top.voidc.ir.IceContext;
+import top.voidc.ir.IceUnit;
+import top.voidc.ir.IceUser;
+import top.voidc.ir.ice.constant.IceConstant;
+import top.voidc.ir.ice.constant.IceExternFunction;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.constant.IceGlobalVariable;
+import top.voidc.ir.ice.instruction.IceCallInstruction;
+import top.voidc.ir.ice.instruction.IceInstruction;
+import top.voidc.misc.Flag;
+import top.voidc.misc.Log;
+import top.voidc.misc.Statistics;
+import top.voidc.optimizer.pass.unit.FunctionPureness;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 按函数的增量编译缓存，缓存目录由 -fcache-dir 指定
+ * 键是函数优化前的 IR、它直接或间接调用的函数优化前的 IR、用到的全局变量以及影响编译结果的选项的 SHA-256，
+ * 值是函数最终的汇编和 FunctionPureness 给出的纯性，调用者的优化依赖后者
+ * 命中的函数不再运行任何函数级和机器函数级 Pass，保留优化前的 IR 直到输出汇编
+ */
+public class CompileCache {
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * 不会改变生成代码的选项，其余所有注册的选项都参与计算键，新增的代码生成选项不会被漏掉
+     */
+    private static final Set<String> IGNORED_FLAGS = Set.of("source", "-o", "-flog-level", "-ftime-passes",
+            "-fwarm-parser", "-fcache-dir");
+
+    /**
+     * 同样不会改变生成代码的选项前缀，例如 -fstats、-fstats-json、-fserver 和 -fserver-port
+     */
+    private static final List<String> IGNORED_FLAG_PREFIXES = List.of("-fstats", "-fserver");
+
+    private record Entry(FunctionPureness.Pureness pureness, List<String> readGlobals, List<String> writeGlobals,
+                         List<Integer> writeParams, List<String> removedGlobals, String assembly) {}
+
+    private final Path directory;
+
+    private final Map<String, String> keys = new HashMap<>();
+    private final Map<String, Entry> hits = new HashMap<>();
+    private final Map<String, Set<String>> referencedGlobals = new HashMap<>();
+    private final Map<String, String> pureness = new ConcurrentHashMap<>();
+
+    public CompileCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return 没有开启缓存时返回 null
+     */
+    public static CompileCache of(IceContext context) {
+        return (CompileCache) context.getPassResult("compileCache");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * 编译器本身变化后缓存也应该失效，以 jar 的大小和修改时间区分，直接从类目录运行时无法区分需要手动清空缓存
+     */
+    private static String compilerIdentity() {
+        try {
+            final var codeSource = CompileCache.class.getProtectionDomain().getCodeSource();
+            if (codeSource == null) return "";
+            final var file = new File(codeSource.getLocation().toURI());
+            return file.isFile() ? file.length() + ":" + file.lastModified() : "";
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private static boolean affectsOutput(String flag) {
+        return !IGNORED_FLAGS.contains(flag) && IGNORED_FLAG_PREFIXES.stream().noneMatch(flag::startsWith);
+    }
+
+    private static Set<IceFunction> getCallees(IceFunction function) {
+        final var callees = new LinkedHashSet<IceFunction>();
+        for (var block : function) {
+            for (var instruction : block) {
+                if (instruction instanceof IceCallInstruction call) callees.add(call.getTarget());
+            }
+        }
+        return callees;
+    }
+
+    private static Set<IceGlobalVariable> getReferencedGlobals(IceFunction function) {
+        final var globals = new HashSet<IceGlobalVariable>();
+        for (var block : function) {
+            for (var instruction : block) {
+                for (var operand : instruction.getOperands()) {
+                    if (operand instanceof IceGlobalVariable global) globals.add(global);
+                }
+            }
+        }
+        return globals;
+    }
+
+    /**
+     * 在运行任何 Pass 之前计算所有函数的键并查找缓存
+     * @param disabledGroups 被禁用的 Pass 组，同样会改变生成的代码
+     */
+    public void lookup(IceUnit unit, Collection<String> disabledGroups) {
+        final var functions = unit.getFunctions().stream()
+                .filter(function -> !(function instanceof IceExternFunction))
+                .toList();
+
+        final var salt = sha256();
+        update(salt, String.valueOf(FORMAT_VERSION));
+        update(salt, compilerIdentity());
+        Flag.getInstance().getOptions().stream()
+                .filter(option -> affectsOutput(option.getName()))
+                .sorted(Comparator.comparing(Flag.Option::getName))
+                .forEach(option -> update(salt, option.getName() + "=" + option.getValue()));
+        update(salt, new TreeSet<>(disabledGroups).toString());
+        final var saltBytes = salt.digest();
+
+        final var texts = new HashMap<IceFunction, String>();
+        final var callees = new HashMap<IceFunction, Set<IceFunction>>();
+        final var globalsOf = new HashMap<IceFunction, Set<IceGlobalVariable>>();
+        for (var function : unit.getFunctions()) {
+            texts.put(function, function.getTextIR());
+            final var isExtern = function instanceof IceExternFunction;
+            callees.put(function, isExtern ? Set.of() : getCallees(function));
+            globalsOf.put(function, isExtern ? Set.of() : getReferencedGlobals(function));
+        }
+
+        for (var function : functions) {
+            // 调用闭包按名字排序，不受遍历顺序影响，也能处理递归
+            final var closure = new TreeMap<String, IceFunction>();
+            final var worklist = new ArrayDeque<IceFunction>(List.of(function));
+            while (!worklist.isEmpty()) {
+                final var current = worklist.poll();
+                if (closure.putIfAbsent(current.getName(), current) != null) continue;
+                worklist.addAll(callees.get(current));
+            }
+
+            final var globals = new TreeMap<String, IceGlobalVariable>();
+            closure.values().forEach(member -> globalsOf.get(member).forEach(global -> globals.put(global.getName(), global)));
+
+            final var digest = sha256();
+            digest.update(saltBytes);
+            update(digest, function.getName());
+            closure.values().forEach(member -> update(digest, texts.get(member)));
+            globals.values().forEach(global -> update(digest, global.getTextIR()));
+            final var key = HexFormat.of().formatHex(digest.digest());
+            keys.put(function.getName(), key);
+
+            final var entry = readEntry(key);
+            if (entry != null) {
+                hits.put(function.getName(), entry);
+            } else {
+                referencedGlobals.put(function.getName(), globalsOf.get(function).stream()
+                        .map(IceConstant::getName).collect(Collectors.toSet()));
+            }
+        }
+
+        // 命中的函数不会再运行优化，由它的优化删除的全局变量在这里删除
+        // 只有所有使用者都在命中的函数中时才能删除，未命中的函数仍然可能引用它
+        final var removed = hits.values().stream()
+                .flatMap(entry -> entry.removedGlobals().stream())
+                .collect(Collectors.toSet());
+        List.copyOf(unit.getGlobalVariables()).stream()
+                .filter(global -> removed.contains(global.getName()))
+                .filter(global -> global.getUsers().stream().allMatch(this::isCachedUser))
+                .forEach(unit::removeGlobalDecl);
+
+        Statistics.add("cache.hits", hits.size());
+        Statistics.add("cache.misses", functions.size() - hits.size());
+        Log.i(() -> "编译缓存命中 " + hits.size() + "/" + functions.size() + " 个函数: " + hits.keySet());
+    }
+
+    public boolean isCached(IceFunction function) {
+        return hits.containsKey(function.getName());
+    }
+
+    private boolean isCachedUser(IceUser user) {
+        return user instanceof IceInstruction instruction && instruction.getParent() != null
+                && isCached(instruction.getParent().getFunction());
+    }
+
+    public String getAssembly(IceFunction function) {
+        return hits.get(function.getName()).assembly();
+    }
+
+    /**
+     * @return 命中的函数缓存的纯性，全局变量和参数按名字和下标对应到当前编译单元
+     */
+    public FunctionPureness.PurenessInfo getPureness(IceFunction function, IceUnit unit) {
+        final var entry = hits.get(function.getName());
+        if (entry == null) return null;
+        final var globals = unit.getGlobalVariables().stream()
+                .filter(global -> global instanceof IceGlobalVariable)
+                .collect(Collectors.toMap(IceConstant::getName, global -> (IceGlobalVariable) global));
+
+        final var info = new FunctionPureness.PurenessInfo(entry.pureness());
+        entry.readGlobals().forEach(name -> info.readGlobals.add(globals.get(name)));
+        entry.writeGlobals().forEach(name -> info.writeGlobals.add(globals.get(name)));
+        entry.writeParams().forEach(index -> info.writeParams.add(function.getParameters().get(index)));
+        return info;
+    }
+
+    /**
+     * 记录未命中的函数最后一次计算出的纯性，写入缓存时使用
+     */
+    public void recordPureness(IceFunction function, FunctionPureness.PurenessInfo info) {
+        if (isCached(function)) return;
+        // 指令选择之后参数会换成机器函数的参数，所以现在就把参数换成下标
+        final var builder = new StringBuilder();
+        builder.append(info.getPureness()).append('\n');
+        builder.append(info.readGlobals.stream().map(IceConstant::getName).sorted().collect(Collectors.joining(" "))).append('\n');
+        builder.append(info.writeGlobals.stream().map(IceConstant::getName).sorted().collect(Collectors.joining(" "))).append('\n');
+        builder.append(info.writeParams.stream().map(param -> function.getParameters().indexOf(param)).sorted()
+                .map(String::valueOf).collect(Collectors.joining(" "))).append('\n');
+        pureness.put(function.getName(), builder.toString());
+    }
+
+    /**
+     * 写入未命中的函数的汇编，先写临时文件再改名，多个编译进程共用目录时不会读到写了一半的文件
+     */
+    public void store(IceFunction function, String assembly, IceUnit unit) {
+        final var key = keys.get(function.getName());
+        final var facts = pureness.get(function.getName());
+        if (key == null || facts == null || isCached(function)) return;
+
+        final var remaining = unit.getGlobalVariables().stream().map(IceConstant::getName).collect(Collectors.toSet());
+        final var removed = referencedGlobals.get(function.getName()).stream()
+                .filter(name -> !remaining.contains(name))
+                .sorted()
+                .collect(Collectors.joining(" "));
+
+        try {
+            Files.createDirectories(directory);
+            final var temp = Files.createTempFile(directory, key, ".tmp");
+            Files.writeString(temp, facts + removed + '\n' + assembly);
+            Files.move(temp, directory.resolve(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Log.w("写入编译缓存失败: " + e.getMessage());
+        }
+    }
+
+    private static List<String> splitNames(String line) {
+        return line.isEmpty() ? List.of() : List.of(line.split(" "));
+    }
+
+    private Entry readEntry(String key) {
+        final var file = directory.resolve(key);
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            final var content = Files.readString(file);
+            final var lines = content.split("\n", 6);
+            if (lines.length < 6) return null;
+            return new Entry(FunctionPureness.Pureness.valueOf(lines[0]), splitNames(lines[1]), splitNames(lines[2]),
+                    splitNames(lines[3]).stream().map(Integer::parseInt).toList(), splitNames(lines[4]), lines[5]);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w("读取编译缓存 " + key + " 失败，重新编译: " + e.getMessage());
+            return null;
+        }
+    }
+}
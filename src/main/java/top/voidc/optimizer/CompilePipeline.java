@@ -0,0 +1,57 @@
+package top.voidc.optimizer;
+
+import top.voidc.backend.*;
+import top.voidc.backend.instr.InstructionSelectionPass;
+import top.voidc.backend.peephole.PeepholeOptimization;
+import top.voidc.backend.regallocator.LinearScanAllocator;
+import top.voidc.optimizer.pass.function.*;
+import top.voidc.optimizer.pass.unit.CallGraphAnalyzer;
+import top.voidc.optimizer.pass.unit.FunctionPureness;
+import top.voidc.optimizer.pass.unit.ShowIR;
+
+/**
+ * 编译器的 Pass 执行顺序，Compiler 和基准测试共用同一份定义
+ */
+public final class CompilePipeline {
+    private CompilePipeline() {
+    }
+
+    public static void configure(PassManager pm) {
+        // runFunctionPipeline 之外的 Unit 级 Pass 是屏障
+        pm.runFunctionPipeline(fp -> fp
+                .runPass(RenameVariable.class)
+                .runPass(ScalarReplacementOfAggregates.class)
+                .runPass(Mem2Reg.class)
+                .runPass(SmartChilletSimplifyCFG.class));
+        pm.runPass(FunctionPureness.class);
+        // FunctionPureness 是 Unit 级 Pass，不能放进函数级流水线，所以这里的 untilStable 只重新处理自身被修改的函数，
+        // 不会因为被调用函数的纯性变化重新处理调用者
+        pm.runFunctionPipeline(fp -> fp
+                .untilStable(
+                        GlobalValueNumbering.class,
+                        LoopInvariantCodeMotion.class,
+                        SparseConditionalConstantPropagation.class,
+                        SmartChilletDeleteUnusedValue.class,
+                        SmartChilletSimplifyCFG.class
+                )
+                .runPass(RenameVariable.class));
+        pm.runPass(ShowIR.class);
+        pm.runPass(CallGraphAnalyzer.class);
+        pm.runPass(DumpIR.class);
+
+        // 后端相关
+        pm.runFunctionPipeline(fp -> fp.runPass(SSADestruction.class));
+        pm.runPass(InstructionSelectionPass.class);
+        pm.runFunctionPipeline(fp -> fp
+                .runPass(LivenessAnalysis.class)
+//                .runPass(SillyChilletAllocateRegister.class)
+                .runPass(LinearScanAllocator.class));
+        pm.runPass(ShowIR.class);
+        pm.runFunctionPipeline(fp -> fp
+                .runPass(RegSaver.class)
+                .runPass(AlignFramePass.class)
+                .runPass(FixStackOffset.class)
+                .runPass(PeepholeOptimization.class));
+        pm.runPass(OutputARMASM.class);
+    }
+}
@@ -0,0 +1,39 @@
+package top.voidc.optimizer;
+
+import top.voidc.optimizer.pass.CompilePass;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 函数级流水线的描述，只记录 Pass 的执行顺序，由 PassManager#runFunctionPipeline 负责执行
+ * 流水线中只能出现函数级 Pass，Unit 级 Pass 应放在流水线之间作为屏障
+ */
+public class FunctionPipeline {
+    /**
+     * @param passes      依次执行的 Pass
+     * @param untilStable 是否重复执行直到函数不再变化
+     */
+    public record Step(List<Class<? extends CompilePass<?>>> passes, boolean untilStable) {}
+
+    private final List<Step> steps = new ArrayList<>();
+
+    public FunctionPipeline runPass(Class<? extends CompilePass<?>> clazz) {
+        steps.add(new Step(List.of(clazz), false));
+        return this;
+    }
+
+    @SafeVarargs
+    public final FunctionPipeline untilStable(Class<? extends CompilePass<?>>... classes) {
+        // 逐个复制到列表中，不把 varargs 数组传给其他方法
+        final var passes = new ArrayList<Class<? extends CompilePass<?>>>(classes.length);
+        for (var clazz : classes) passes.add(clazz);
+        steps.add(new Step(Collections.unmodifiableList(passes), true));
+        return this;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+}
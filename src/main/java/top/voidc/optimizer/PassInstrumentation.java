@@ -0,0 +1,234 @@
+package top.voidc.optimizer;
+
+import top.voidc.ir.IceUnit;
+import top.voidc.ir.ice.constant.IceExternFunction;
+import top.voidc.misc.Statistics;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 记录每次 Pass 执行的耗时、内存分配和 IR 规模，由 -ftime-passes / -fstats / -fstats-json 开启
+ * CPU 时间和分配字节数只统计执行 Pass 的线程，并行执行时每个任务在自己的线程上累加，不会计入无关的线程
+ */
+public class PassInstrumentation {
+    public record IRSize(int functions, int blocks, int instructions, int values) {
+        public static IRSize of(IceUnit unit) {
+            if (unit == null) return new IRSize(0, 0, 0, 0);
+            int functions = 0, blocks = 0, instructions = 0, values = unit.getGlobalVariables().size();
+            for (var function : unit.getFunctions()) {
+                if (function instanceof IceExternFunction) continue;
+                functions++;
+                values += function.getParameters().size();
+                for (var block : function) {
+                    blocks++;
+                    instructions += block.size();
+                }
+            }
+            return new IRSize(functions, blocks, instructions, values + instructions);
+        }
+    }
+
+    public record PassRecord(String name, long wallNanos, long cpuNanos, long allocatedBytes,
+                             IRSize before, IRSize after, boolean changed) {}
+
+    /**
+     * @param iterations     总轮数
+     * @param functionRounds 每个函数被处理的轮数
+     */
+    public record StableLoopRecord(List<String> passes, int iterations, Map<String, Integer> functionRounds) {}
+
+    private static final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // 函数级流水线中会在多个线程上记录
+    private final List<PassRecord> passRecords = Collections.synchronizedList(new ArrayList<>());
+    private final List<StableLoopRecord> stableLoopRecords = Collections.synchronizedList(new ArrayList<>());
+    private final Statistics statistics;
+
+    /**
+     * @param statistics 本次编译的计数器，随 JSON 一起输出
+     */
+    public PassInstrumentation(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * 开始一次 Pass 执行的计时，Pass 的工作需要通过 track 执行才会计入 CPU 时间和分配字节数
+     */
+    public class Measurement {
+        private final String name;
+        private final IRSize before;
+        private final long wallStart;
+        private final LongAdder cpu = new LongAdder();
+        private final LongAdder allocated = new LongAdder();
+
+        private Measurement(String name, IceUnit unit) {
+            this.name = name;
+            this.before = IRSize.of(unit);
+            this.wallStart = System.nanoTime();
+        }
+
+        /**
+         * 在当前线程上执行 task，并把当前线程在此期间的 CPU 时间和分配字节数计入本次记录
+         * 同一线程上不能嵌套调用，否则会重复计算
+         */
+        public boolean track(BooleanSupplier task) {
+            final var allocStart = allocatedBytes();
+            final var cpuStart = cpuTime();
+            try {
+                return task.getAsBoolean();
+            } finally {
+                cpu.add(cpuTime() - cpuStart);
+                allocated.add(allocatedBytes() - allocStart);
+            }
+        }
+
+        public void finish(IceUnit unit, boolean changed) {
+            final var wall = System.nanoTime() - wallStart;
+            passRecords.add(new PassRecord(name, wall, cpu.sum(), allocated.sum(), before, IRSize.of(unit), changed));
+        }
+    }
+
+    public Measurement start(String passName, IceUnit unit) {
+        return new Measurement(passName, unit);
+    }
+
+    public void recordStableLoop(List<String> passes, int iterations, Map<String, Integer> functionRounds) {
+        stableLoopRecords.add(new StableLoopRecord(List.copyOf(passes), iterations, new LinkedHashMap<>(functionRounds)));
+    }
+
+    public List<PassRecord> getPassRecords() {
+        return passRecords;
+    }
+
+    public List<StableLoopRecord> getStableLoopRecords() {
+        return stableLoopRecords;
+    }
+
+    /**
+     * 虚拟线程上不支持统计，返回 0
+     */
+    private static long cpuTime() {
+        if (!threadBean.isCurrentThreadCpuTimeSupported() || !threadBean.isThreadCpuTimeEnabled()) return 0;
+        return Math.max(threadBean.getCurrentThreadCpuTime(), 0);
+    }
+
+    private static long allocatedBytes() {
+        if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled()) return 0;
+        return Math.max(threadBean.getCurrentThreadAllocatedBytes(), 0);
+    }
+
+    /**
+     * 按 Pass 名字汇总后输出表格，按总耗时降序排列
+     */
+    public void printTimeTable(PrintStream out) {
+        record Summary(String name, int count, long wall, long cpu, long alloc, int instructionDelta) {}
+        final var summaries = new LinkedHashMap<String, Summary>();
+        for (var record : passRecords) {
+            summaries.merge(record.name(),
+                    new Summary(record.name(), 1, record.wallNanos(), record.cpuNanos(), record.allocatedBytes(),
+                            record.after().instructions() - record.before().instructions()),
+                    (a, b) -> new Summary(a.name(), a.count() + b.count(), a.wall() + b.wall(), a.cpu() + b.cpu(),
+                            a.alloc() + b.alloc(), a.instructionDelta() + b.instructionDelta()));
+        }
+        final var totalWall = passRecords.stream().mapToLong(PassRecord::wallNanos).sum();
+
+        out.println("===-------------------------------------------------------------------------===");
+        out.println("                          Pass execution timing report");
+        out.println("===-------------------------------------------------------------------------===");
+        out.printf("%10s %7s %10s %11s %6s %9s  %s%n", "Wall(ms)", "Wall%", "CPU(ms)", "Alloc(MiB)", "Runs", "dInsts", "Pass");
+        summaries.values().stream()
+                .sorted(Comparator.comparingLong(Summary::wall).reversed())
+                .forEach(summary -> out.printf("%10.2f %6.1f%% %10.2f %11.2f %6d %+9d  %s%n",
+                        summary.wall() / 1e6, totalWall == 0 ? 0 : 100.0 * summary.wall() / totalWall,
+                        summary.cpu() / 1e6, summary.alloc() / 1048576.0, summary.count(),
+                        summary.instructionDelta(), summary.name()));
+        out.printf("%10.2f %6.1f%% %10.2f %11.2f %6d %9s  %s%n",
+                totalWall / 1e6, 100.0, passRecords.stream().mapToLong(PassRecord::cpuNanos).sum() / 1e6,
+                passRecords.stream().mapToLong(PassRecord::allocatedBytes).sum() / 1048576.0,
+                passRecords.size(), "", "Total");
+
+        for (var loop : stableLoopRecords) {
+            out.println("untilStable(" + String.join(", ", loop.passes()) + "): " + loop.iterations() + " iteration(s)");
+            loop.functionRounds().forEach((function, rounds) -> out.printf("%10d  %s%n", rounds, function));
+        }
+    }
+
+    public static void printStatistics(PrintStream out, Statistics statistics) {
+        final var counters = statistics.getValues();
+        out.println("===-------------------------------------------------------------------------===");
+        out.println("                          ... Statistics Collected ...");
+        out.println("===-------------------------------------------------------------------------===");
+        counters.forEach((name, value) -> out.printf("%10d %s%n", value, name));
+    }
+
+    private static String quote(String s) {
+        final var builder = new StringBuilder("\"");
+        for (var c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                default -> {
+                    if (c < 0x20) builder.append(String.format("\\u%04x", (int) c));
+                    else builder.append(c);
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static String toJson(IRSize size) {
+        return String.format("{\"functions\": %d, \"blocks\": %d, \"instructions\": %d, \"values\": %d}",
+                size.functions(), size.blocks(), size.instructions(), size.values());
+    }
+
+    public String toJson() {
+        final var builder = new StringBuilder("{\n  \"passes\": [");
+        for (int i = 0; i < passRecords.size(); i++) {
+            final var record = passRecords.get(i);
+            builder.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"name\": ").append(quote(record.name()))
+                    .append(", \"wallNanos\": ").append(record.wallNanos())
+                    .append(", \"cpuNanos\": ").append(record.cpuNanos())
+                    .append(", \"allocatedBytes\": ").append(record.allocatedBytes())
+                    .append(", \"changed\": ").append(record.changed())
+                    .append(", \"before\": ").append(toJson(record.before()))
+                    .append(", \"after\": ").append(toJson(record.after()))
+                    .append('}');
+        }
+        builder.append("\n  ],\n  \"untilStable\": [");
+        for (int i = 0; i < stableLoopRecords.size(); i++) {
+            final var loop = stableLoopRecords.get(i);
+            builder.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"passes\": [")
+                    .append(String.join(", ", loop.passes().stream().map(PassInstrumentation::quote).toList()))
+                    .append("], \"iterations\": ").append(loop.iterations())
+                    .append(", \"functionRounds\": {")
+                    .append(String.join(", ", loop.functionRounds().entrySet().stream()
+                            .map(entry -> quote(entry.getKey()) + ": " + entry.getValue()).toList()))
+                    .append("}}");
+        }
+        builder.append("\n  ],\n  \"statistics\": {");
+        final var counters = statistics.getValues();
+        var first = true;
+        for (var entry : counters.entrySet()) {
+            builder.append(first ? "\n" : ",\n")
+                    .append("    ").append(quote(entry.getKey())).append(": ").append(entry.getValue());
+            first = false;
+        }
+        builder.append("\n  }\n}\n");
+        return builder.toString();
+    }
+
+    public void writeJson(Path path) throws IOException {
+        Files.writeString(path, toJson());
+    }
+}
@@ -8,6 +8,7 @@ import top.voidc.ir.ice.constant.IceFunction;
 
 import top.voidc.ir.machine.IceMachineFunction;
 import top.voidc.misc.Log;
+import top.voidc.misc.Statistics;
 import top.voidc.misc.annotation.Pass;
 import top.voidc.misc.annotation.Qualifier;
 import top.voidc.optimizer.pass.CompilePass;
@@ -15,7 +16,10 @@ import top.voidc.optimizer.pass.unit.Feeler;
 
 import java.lang.reflect.Constructor;
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * TODO: 合并了两种 Pass 的架构，这个类非常非常非常有可能需要改
@@ -23,10 +27,24 @@ import java.util.function.Consumer;
 public class PassManager {
     private final IceContext context;
 
+    private final AnalysisManager analysisManager = new AnalysisManager();
+
+    private PassInstrumentation instrumentation = null;
+
+    private boolean functionPipeline = false;
+
+    public static final int DEFAULT_MAX_STABLE_ROUNDS = 64;
+
+    private int maxStableRounds = DEFAULT_MAX_STABLE_ROUNDS;
+
     private Consumer<PassManager> executionConfig = null;
 
     private final Set<String> disabledGroup = new HashSet<>();
 
+    private CompileCache compileCache = null;
+
+    private Consumer<Class<? extends CompilePass<?>>> beforePass = null;
+
     private enum PassType {
         MACHINE_FUNCTION,
         FUNCTION,
@@ -35,6 +53,38 @@ public class PassManager {
 
     public PassManager(IceContext context) {
         this.context = context;
+        context.addPassResult(analysisManager);
+    }
+
+    public AnalysisManager getAnalysisManager() {
+        return analysisManager;
+    }
+
+    /**
+     * 是否按函数调度 runFunctionPipeline 中的 Pass
+     */
+    public void setFunctionPipeline(boolean functionPipeline) {
+        this.functionPipeline = functionPipeline;
+    }
+
+    /**
+     * untilStable 的最大轮数，防止 Pass 之间互相撤销修改导致无法收敛
+     */
+    public void setMaxStableRounds(int maxStableRounds) {
+        Log.should(maxStableRounds > 0, "untilStable 的最大轮数必须为正数");
+        this.maxStableRounds = maxStableRounds;
+    }
+
+    public PassInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * 设置后记录每次 Pass 执行的耗时和 IR 规模
+     * @param instrumentation 为 null 时不记录
+     */
+    public void setInstrumentation(PassInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
     }
 
     public Set<String> getDisabledGroup() {
@@ -49,13 +99,37 @@ public class PassManager {
         disabledGroup.add(group);
     }
 
+    /**
+     * 设置后在运行流水线前查找缓存，命中的函数跳过所有函数级和机器函数级 Pass
+     * @param compileCache 为 null 时不使用缓存
+     */
+    public void setCompileCache(CompileCache compileCache) {
+        this.compileCache = compileCache;
+        if (compileCache != null) context.addPassResult("compileCache", compileCache);
+    }
+
+    /**
+     * 设置后在每个 Pass 运行之前调用，基准测试用它在指定 Pass 第一次运行之前抛出异常停下
+     * 开启 functionPipeline 时流水线内的 Pass 不会触发
+     * @param beforePass 为 null 时不调用
+     */
+    public void setBeforePass(Consumer<Class<? extends CompilePass<?>>> beforePass) {
+        this.beforePass = beforePass;
+    }
+
     public void setPipeline(Consumer<PassManager> executionConfig) {
         this.executionConfig = executionConfig;
     }
 
     public void runAll() {
         Log.should(executionConfig != null, "Execution config is not set");
-        executionConfig.accept(this);
+        final var previous = Statistics.bind(context.getStatistics());
+        try {
+            if (compileCache != null) compileCache.lookup(context.getCurrentIR(), disabledGroup);
+            executionConfig.accept(this);
+        } finally {
+            Statistics.bind(previous);
+        }
     }
 
     private CompilePass<?> instantiatePass(Class<? extends CompilePass<?>> clazz) {
@@ -118,9 +192,9 @@ public class PassManager {
                 .findFirst().orElseThrow();
 
         final var parameterTypes = runMethod.getParameterTypes();
-        Log.should(parameterTypes.length == 1, "Pass " + clazz.getName() + " run method should have one parameter");
+        Log.should(parameterTypes.length == 1, () -> "Pass " + clazz.getName() + " run method should have one parameter");
         Log.should(IceValue.class.isAssignableFrom(parameterTypes[0]),
-                "Pass " + clazz.getName() + " run method parameter should be IceValue");
+                () -> "Pass " + clazz.getName() + " run method parameter should be IceValue");
         final var parameterType = parameterTypes[0];
         if (parameterType.equals(IceFunction.class)) {
             return PassType.FUNCTION;
@@ -167,45 +241,38 @@ public class PassManager {
     public boolean runPass(Class<? extends CompilePass<?>> clazz, boolean parallel) {
 
         if (isPassDisabled(clazz)) {
-            Log.i("Pass " + clazz.getSimpleName() + " 已禁用，跳过");
+            Log.i(() -> "Pass " + clazz.getSimpleName() + " 已禁用，跳过");
             return false;
         }
 
-        parallel = parallel || clazz.getAnnotation(Pass.class).parallel();
-        Log.i((parallel ? "并行" : "") + "执行Pass: " + clazz.getSimpleName());
+        if (beforePass != null) beforePass.accept(clazz);
+
+        final var runParallel = parallel || clazz.getAnnotation(Pass.class).parallel();
+        Log.i(() -> (runParallel ? "并行" : "") + "执行Pass: " + clazz.getSimpleName());
 
         final var pass = instantiatePass(clazz);
+        final List<Class<?>> preserved = List.of(clazz.getAnnotation(Pass.class).preserves());
+        final var measurement = instrumentation == null ? null
+                : instrumentation.start(clazz.getSimpleName(), context.getCurrentIR());
 
+        final boolean modified;
         try {
-            return switch (getPassRunTarget(clazz)) {
+            modified = switch (getPassRunTarget(clazz)) {
                 case UNIT -> {
-                    Log.should(!parallel, "Pass " + clazz.getName() + " 为 Unit 级别不支持并行");
+                    Log.should(!runParallel, () -> "Pass " + clazz.getName() + " 为 Unit 级别不支持并行");
                     @SuppressWarnings("unchecked") final var targetPass = (CompilePass<IceUnit>) pass;
-                    yield targetPass.run(context.getCurrentIR());
-                }
-                case FUNCTION -> {
-                    final var functionStream = parallel ? context.getCurrentIR().getFunctions().parallelStream()
-                            : context.getCurrentIR().getFunctions().stream();
-                    yield functionStream
-                            .filter(function -> !(function instanceof IceExternFunction))
-                            .map(function -> {
-                                @SuppressWarnings("unchecked") final var targetPass = (CompilePass<IceFunction>) pass;
-                                return targetPass.run(function);
-                            }).reduce(false, (a, b) -> {
-                                // Note：必须要使用 reduce 来合并结果，anyMatch 和 allMatch 都会短路
-                                return a || b;
-                            });
+                    final var changed = track(measurement, () -> targetPass.run(context.getCurrentIR()));
+                    if (changed) analysisManager.invalidateAll(preserved);
+                    yield changed;
                 }
-                case MACHINE_FUNCTION -> {
-                    final var functionStream = parallel ? context.getCurrentIR().getFunctions().parallelStream()
+                case FUNCTION, MACHINE_FUNCTION -> {
+                    final var functionStream = runParallel ? context.getCurrentIR().getFunctions().parallelStream()
                             : context.getCurrentIR().getFunctions().stream();
+                    final var passType = getPassRunTarget(clazz);
                     yield functionStream
-                            .filter(function -> !(function instanceof IceExternFunction))
-                            .map(function -> {
-                                @SuppressWarnings("unchecked") final var targetPass = (CompilePass<IceMachineFunction>) pass;
-                                assert function instanceof IceMachineFunction;
-                                return targetPass.run((IceMachineFunction) function);
-                            }).reduce(false, (a, b) -> {
+                            .filter(this::isTargetFunction)
+                            .map(function -> track(measurement, () -> runOnFunction(pass, passType, function, preserved)))
+                            .reduce(false, (a, b) -> {
                                 // Note：必须要使用 reduce 来合并结果，anyMatch 和 allMatch 都会短路
                                 return a || b;
                             });
@@ -214,21 +281,254 @@ public class PassManager {
         } catch (Exception e) {
             throw new RuntimeException("运行 Pass " + clazz.getSimpleName() + " 出现错误", e);
         }
+
+        if (measurement != null) measurement.finish(context.getCurrentIR(), modified);
+        return modified;
+    }
+
+    /**
+     * 在当前线程上执行 Pass 的一部分工作，计数器记到本次编译中，开启统计时计入当前线程的开销
+     * 并行执行时任务可能在池中的任意线程上运行，所以每个任务都要重新绑定计数器
+     */
+    private boolean track(PassInstrumentation.Measurement measurement, BooleanSupplier task) {
+        final var previous = Statistics.bind(context.getStatistics());
+        try {
+            return measurement == null ? task.getAsBoolean() : measurement.track(task);
+        } finally {
+            Statistics.bind(previous);
+        }
+    }
+
+    /**
+     * 在单个函数上运行函数级 Pass，并根据 preserves 声明失效分析结果
+     */
+    @SuppressWarnings("unchecked")
+    private boolean runOnFunction(CompilePass<?> pass, PassType passType, IceFunction function, List<Class<?>> preserved) {
+        final boolean changed;
+        if (passType == PassType.MACHINE_FUNCTION) {
+            Log.should(function instanceof IceMachineFunction, () -> "函数 " + function.getName() + " 还未完成指令选择");
+            changed = ((CompilePass<IceMachineFunction>) pass).run((IceMachineFunction) function);
+        } else {
+            changed = ((CompilePass<IceFunction>) pass).run(function);
+        }
+        if (changed) analysisManager.invalidate(function, preserved);
+        return changed;
+    }
+
+    private record PreparedPass(Class<? extends CompilePass<?>> clazz, CompilePass<?> pass, PassType type,
+                                boolean parallel, List<Class<?>> preserved) {}
+
+    private List<PreparedPass> preparePasses(List<Class<? extends CompilePass<?>>> classes, boolean allowUnit) {
+        final var result = new ArrayList<PreparedPass>();
+        for (var clazz : classes) {
+            if (isPassDisabled(clazz)) {
+                Log.i(() -> "Pass " + clazz.getSimpleName() + " 已禁用，跳过");
+                continue;
+            }
+            final var type = getPassRunTarget(clazz);
+            Log.should(allowUnit || type != PassType.UNIT, () -> "Pass " + clazz.getName() + " 为 Unit 级别，不能放在函数级流水线中");
+            final var annotation = clazz.getAnnotation(Pass.class);
+            result.add(new PreparedPass(clazz, instantiatePass(clazz), type, annotation.parallel(),
+                    List.of(annotation.preserves())));
+        }
+        return result;
+    }
+
+    private boolean runPreparedPass(PreparedPass pipelinePass, IceFunction function) {
+        try {
+            if (pipelinePass.parallel()) {
+                return runOnFunction(pipelinePass.pass(), pipelinePass.type(), function, pipelinePass.preserved());
+            }
+            // 没有声明可并行的 Pass 可能带有状态，同一时间只在一个函数上运行
+            synchronized (pipelinePass.pass()) {
+                return runOnFunction(pipelinePass.pass(), pipelinePass.type(), function, pipelinePass.preserved());
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("在函数 " + function.getName() + " 上运行 Pass "
+                    + pipelinePass.clazz().getSimpleName() + " 出现错误", e);
+        }
+    }
+
+    /**
+     * 运行函数级流水线
+     * 开启 functionPipeline 时每个函数作为独立的任务在当前 ForkJoinPool（不在池中时为公共池）上依次执行所有步骤，函数之间不需要等待，
+     * untilStable 步骤也只在本函数上迭代；否则退化为逐个 Pass 执行 runPass / untilStable
+     * 流水线之外的 Unit 级 Pass 充当屏障
+     *
+     * @param config 流水线描述
+     * @return 是否有函数被修改
+     */
+    public boolean runFunctionPipeline(Consumer<FunctionPipeline> config) {
+        final var pipeline = new FunctionPipeline();
+        config.accept(pipeline);
+
+        if (!functionPipeline) {
+            var changed = false;
+            for (var step : pipeline.getSteps()) {
+                if (step.untilStable()) {
+                    changed |= untilStable(step.passes());
+                } else {
+                    changed |= runPass(step.passes().getFirst());
+                }
+            }
+            return changed;
+        }
+
+        final var steps = pipeline.getSteps().stream()
+                .map(step -> preparePasses(step.passes(), false))
+                .toList();
+        Log.i(() -> "函数级流水线执行: " + pipeline.getSteps().stream()
+                .flatMap(step -> step.passes().stream()).map(Class::getSimpleName).toList());
+
+        final var measurement = instrumentation == null ? null
+                : instrumentation.start("FunctionPipeline", context.getCurrentIR());
+        final var tasks = context.getCurrentIR().getFunctions().stream()
+                .filter(this::isTargetFunction)
+                .map(function -> ForkJoinTask.adapt(() -> track(measurement, () -> {
+                    var changed = false;
+                    for (int i = 0; i < steps.size(); i++) {
+                        final var passes = steps.get(i);
+                        if (!pipeline.getSteps().get(i).untilStable()) {
+                            for (var pipelinePass : passes) changed |= runPreparedPass(pipelinePass, function);
+                            continue;
+                        }
+
+                        boolean flag;
+                        int iterations = 0;
+                        do {
+                            if (iterations >= maxStableRounds) {
+                                Log.w("函数 " + function.getName() + " 在 " + maxStableRounds + " 轮内未能稳定");
+                                break;
+                            }
+                            flag = false;
+                            for (var pipelinePass : passes) flag |= runPreparedPass(pipelinePass, function);
+                            changed |= flag;
+                            iterations++;
+                        } while (flag);
+                        if (instrumentation != null) {
+                            instrumentation.recordStableLoop(passes.stream().map(p -> p.clazz().getSimpleName()).toList(),
+                                    iterations, Map.of(function.getName(), iterations));
+                        }
+                    }
+                    return changed;
+                })).fork())
+                .toList();
+
+        var changed = false;
+        for (var task : tasks) changed |= task.join();
+        if (measurement != null) measurement.finish(context.getCurrentIR(), changed);
+        return changed;
+    }
+
+    /**
+     * 外部函数和命中缓存的函数不运行函数级 Pass
+     */
+    private boolean isTargetFunction(IceFunction function) {
+        return !(function instanceof IceExternFunction) && (compileCache == null || !compileCache.isCached(function));
+    }
+
+    private List<IceFunction> getTargetFunctions() {
+        return context.getCurrentIR().getFunctions().stream()
+                .filter(this::isTargetFunction)
+                .toList();
+    }
+
+    /**
+     * 在工作表中的函数上运行一个 Pass
+     * Unit 级 Pass 在整个编译单元上运行，通过 getTouchedFunctions 报告需要重新处理的函数
+     *
+     * @return 需要在下一轮重新处理的函数
+     */
+    @SuppressWarnings("unchecked")
+    private Set<IceFunction> runOnWorklist(PreparedPass preparedPass, Set<IceFunction> worklist, int round) {
+        if (beforePass != null) beforePass.accept(preparedPass.clazz());
+        Log.i(() -> (preparedPass.parallel() ? "并行" : "") + "执行Pass: " + preparedPass.clazz().getSimpleName()
+                + " (第 " + round + " 轮, " + worklist.size() + " 个函数)");
+        final var measurement = instrumentation == null ? null
+                : instrumentation.start(preparedPass.clazz().getSimpleName(), context.getCurrentIR());
+
+        final Set<IceFunction> touched;
+        try {
+            if (preparedPass.type() == PassType.UNIT) {
+                final var changed = track(measurement,
+                        () -> ((CompilePass<IceUnit>) preparedPass.pass()).run(context.getCurrentIR()));
+                if (changed) analysisManager.invalidateAll(preparedPass.preserved());
+                final var reported = preparedPass.pass().getTouchedFunctions();
+                if (reported != null) {
+                    touched = new HashSet<>(reported);
+                } else {
+                    touched = changed ? new HashSet<>(getTargetFunctions()) : Set.of();
+                }
+            } else {
+                final var functionStream = preparedPass.parallel() ? worklist.parallelStream() : worklist.stream();
+                touched = functionStream
+                        .filter(function -> track(measurement, () -> runOnFunction(preparedPass.pass(),
+                                preparedPass.type(), function, preparedPass.preserved())))
+                        .collect(Collectors.toSet());
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("运行 Pass " + preparedPass.clazz().getSimpleName() + " 出现错误", e);
+        }
+
+        if (measurement != null) measurement.finish(context.getCurrentIR(), !touched.isEmpty());
+        return touched;
     }
 
     /**
      * 工具函数，运行给定的 Pass，直到IR不发生变化
+     * 第一轮处理所有函数，之后每一轮只处理上一轮被修改过的函数以及 Unit 级 Pass 报告的函数，
+     * 超过 maxStableRounds 轮后放弃
      *
      * @param classes Pass 的 Class 对象可传入多个
+     * @return 是否修改了IR
      */
     @SafeVarargs
-    public final void untilStable(Class<? extends CompilePass<?>>... classes) {
-        boolean flag;
-        do {
-            flag = Arrays.stream(classes)
-                    .map(this::runPass)
-                    .reduce(false, (a, b) -> a || b);
-        } while (flag);
+    public final boolean untilStable(Class<? extends CompilePass<?>>... classes) {
+        // 逐个复制到列表中，不把 varargs 数组传给其他方法
+        final var passes = new ArrayList<Class<? extends CompilePass<?>>>(classes.length);
+        for (var clazz : classes) passes.add(clazz);
+        return untilStable(passes);
+    }
+
+    /**
+     * 同 {@link #untilStable(Class[])}
+     *
+     * @param classes 依次执行的 Pass
+     * @return 是否修改了IR
+     */
+    public boolean untilStable(List<Class<? extends CompilePass<?>>> classes) {
+        final var functionRounds = new LinkedHashMap<String, Integer>();
+
+        Set<IceFunction> worklist = new LinkedHashSet<>(getTargetFunctions());
+        var changed = false;
+        var iterations = 0;
+        while (!worklist.isEmpty()) {
+            if (iterations >= maxStableRounds) {
+                Log.w("untilStable 在 " + maxStableRounds + " 轮内未能稳定，剩余函数: "
+                        + worklist.stream().map(IceFunction::getName).toList());
+                break;
+            }
+            iterations++;
+            worklist.forEach(function -> functionRounds.merge(function.getName(), 1, Integer::sum));
+
+            // 和 runPass 一样每一轮重新实例化 Pass，避免状态残留
+            final var touched = new HashSet<IceFunction>();
+            for (var preparedPass : preparePasses(classes, true)) {
+                touched.addAll(runOnWorklist(preparedPass, worklist, iterations));
+            }
+            changed |= !touched.isEmpty();
+
+            // 保持函数在编译单元中的顺序
+            worklist = getTargetFunctions().stream()
+                    .filter(touched::contains)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+
+        if (instrumentation != null) {
+            instrumentation.recordStableLoop(classes.stream().map(Class::getSimpleName).toList(),
+                    iterations, functionRounds);
+        }
+        return changed;
     }
 
     public final void feeler(String name){
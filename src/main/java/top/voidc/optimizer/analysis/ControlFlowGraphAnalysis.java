@@ -0,0 +1,16 @@
+package top.voidc.optimizer.analysis;
+
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.misc.ds.ChilletGraph;
+import top.voidc.optimizer.AnalysisManager;
+
+/**
+ * 控制流图，仅包含从入口块可达的基本块
+ */
+public class ControlFlowGraphAnalysis implements FunctionAnalysis<ChilletGraph<IceBlock>> {
+    @Override
+    public ChilletGraph<IceBlock> compute(IceFunction function, AnalysisManager manager) {
+        return function.getControlFlowGraph();
+    }
+}
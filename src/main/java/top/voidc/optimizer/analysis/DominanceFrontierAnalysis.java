@@ -0,0 +1,46 @@
+package top.voidc.optimizer.analysis;
+
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.optimizer.AnalysisManager;
+
+import java.util.*;
+
+/**
+ * 支配边界表，键为可达的基本块
+ * <br>
+ * for each node X in the CFG:
+ *     if X has >= 2 predecessors:
+ *         for each predecessor P of X:
+ *             runner = P
+ *             while runner != idom(X):
+ *                 DF[runner].add(X)
+ *                 runner = idom(runner)
+ */
+public class DominanceFrontierAnalysis implements FunctionAnalysis<Map<IceBlock, List<IceBlock>>> {
+    @Override
+    public Map<IceBlock, List<IceBlock>> compute(IceFunction function, AnalysisManager manager) {
+        final var domTree = manager.getResult(DominatorTreeAnalysis.class, function);
+        final var result = new HashMap<IceBlock, List<IceBlock>>();
+        for (IceBlock x : function.getBlocks()) {
+            result.put(x, new ArrayList<>());
+        }
+
+        for (IceBlock x : function.getBlocks()) {
+            IceBlock dominator = domTree.getDominator(x);
+
+            if (x.predecessorCount() >= 2) {
+                for (IceBlock p : x.getPredecessors()) {
+                    IceBlock runner = p;
+                    while (runner != dominator) {
+                        result.get(runner).add(x);
+                        runner = domTree.getDominator(runner);
+                    }
+                }
+            }
+        }
+
+        result.replaceAll((_, frontier) -> Collections.unmodifiableList(frontier));
+        return Collections.unmodifiableMap(result);
+    }
+}
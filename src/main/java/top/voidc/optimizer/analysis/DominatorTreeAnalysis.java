@@ -0,0 +1,17 @@
+package top.voidc.optimizer.analysis;
+
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.misc.ds.DominatorTree;
+import top.voidc.optimizer.AnalysisManager;
+
+/**
+ * 以入口块为根的支配树
+ */
+public class DominatorTreeAnalysis implements FunctionAnalysis<DominatorTree<IceBlock>> {
+    @Override
+    public DominatorTree<IceBlock> compute(IceFunction function, AnalysisManager manager) {
+        final var graph = manager.getResult(ControlFlowGraphAnalysis.class, function);
+        return new DominatorTree<>(graph, graph.getNodeId(function.getEntryBlock()));
+    }
+}
@@ -0,0 +1,22 @@
+package top.voidc.optimizer.analysis;
+
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.optimizer.AnalysisManager;
+
+/**
+ * 函数级分析，结果由 AnalysisManager 按函数缓存
+ * Pass 通过 {@link AnalysisManager#getResult} 获取分析结果而不是自己构造
+ * 实现类需要有 public 无参构造函数
+ *
+ * @param <R> 分析结果的类型
+ */
+public interface FunctionAnalysis<R> {
+    /**
+     * 计算分析结果，依赖的其他分析结果也应通过 manager 获取
+     *
+     * @param function 目标函数
+     * @param manager  分析管理器
+     * @return 分析结果
+     */
+    R compute(IceFunction function, AnalysisManager manager);
+}
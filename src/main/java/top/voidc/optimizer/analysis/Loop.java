@@ -0,0 +1,154 @@
+package top.voidc.optimizer.analysis;
+
+import top.voidc.ir.IceBlock;
+
+import java.util.*;
+
+/**
+ * 自然循环，由 {@link LoopInfoAnalysis} 构造
+ * 循环包含所有不经过循环头就能到达回边源点、并且被循环头支配的基本块
+ * 除循环头以外的基本块的前驱一定都在循环内
+ */
+public class Loop {
+    private final IceBlock header;
+    private final Set<IceBlock> blocks = new LinkedHashSet<>();
+    private final List<Loop> subLoops = new ArrayList<>();
+    private Loop parent;
+
+    Loop(IceBlock header) {
+        this.header = header;
+        this.blocks.add(header);
+    }
+
+    public IceBlock getHeader() {
+        return header;
+    }
+
+    /**
+     * @return 循环包含的所有基本块，包括子循环中的基本块，循环头最先出现
+     */
+    public Set<IceBlock> getBlocks() {
+        return Collections.unmodifiableSet(blocks);
+    }
+
+    public boolean contains(IceBlock block) {
+        return blocks.contains(block);
+    }
+
+    public boolean contains(Loop loop) {
+        for (var current = loop; current != null; current = current.parent) {
+            if (current == this) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return 外层循环，最外层的循环返回 null
+     */
+    public Loop getParent() {
+        return parent;
+    }
+
+    public List<Loop> getSubLoops() {
+        return Collections.unmodifiableList(subLoops);
+    }
+
+    /**
+     * @return 循环的嵌套深度，最外层的循环为 1
+     */
+    public int getDepth() {
+        int depth = 0;
+        for (var current = this; current != null; current = current.parent) depth++;
+        return depth;
+    }
+
+    /**
+     * @return 回边的源点，即循环中跳转到循环头的基本块
+     */
+    public List<IceBlock> getLatches() {
+        return header.getPredecessors().stream().filter(blocks::contains).toList();
+    }
+
+    /**
+     * @return 唯一的回边源点，有多个时返回 null
+     */
+    public IceBlock getLatch() {
+        final var latches = getLatches();
+        return latches.size() == 1 ? latches.getFirst() : null;
+    }
+
+    /**
+     * @return 循环外跳转到循环头的基本块
+     */
+    public List<IceBlock> getEnteringBlocks() {
+        return header.getPredecessors().stream().filter(block -> !blocks.contains(block)).toList();
+    }
+
+    /**
+     * 前置块是循环外唯一跳转到循环头的基本块，并且它只有循环头一个后继
+     * @return 前置块，没有时返回 null
+     */
+    public IceBlock getPreheader() {
+        final var entering = getEnteringBlocks();
+        if (entering.size() != 1) return null;
+        final var candidate = entering.getFirst();
+        return candidate.getSuccessors().size() == 1 ? candidate : null;
+    }
+
+    /**
+     * @return 有后继在循环外的循环内基本块
+     */
+    public List<IceBlock> getExitingBlocks() {
+        return blocks.stream()
+                .filter(block -> block.getSuccessors().stream().anyMatch(successor -> !blocks.contains(successor)))
+                .toList();
+    }
+
+    /**
+     * @return 循环外被循环内基本块跳转到的基本块，没有重复
+     */
+    public List<IceBlock> getExitBlocks() {
+        final var exits = new LinkedHashSet<IceBlock>();
+        for (var block : blocks) {
+            for (var successor : block.getSuccessors()) {
+                if (!blocks.contains(successor)) exits.add(successor);
+            }
+        }
+        return List.copyOf(exits);
+    }
+
+    /**
+     * 所有前驱都在循环内的出口块是专用出口
+     */
+    public boolean hasDedicatedExits() {
+        return getExitBlocks().stream().allMatch(exit -> blocks.containsAll(exit.getPredecessors()));
+    }
+
+    /**
+     * 规范形式：有前置块、唯一的回边源点以及只有专用出口
+     */
+    public boolean isSimplifyForm() {
+        return getPreheader() != null && getLatch() != null && hasDedicatedExits();
+    }
+
+    void setParent(Loop parent) {
+        this.parent = parent;
+    }
+
+    void addSubLoop(Loop loop) {
+        subLoops.add(loop);
+    }
+
+    /**
+     * 只把基本块加入当前循环，外层循环由 {@link LoopInfo#addBlock} 维护
+     */
+    void addBlock(IceBlock block) {
+        blocks.add(block);
+    }
+
+    @Override
+    public String toString() {
+        return "Loop(" + header.getName() + ", depth " + getDepth() + ", "
+                + blocks.stream().map(IceBlock::getName).toList() + ")";
+    }
+}
@@ -0,0 +1,75 @@
+package top.voidc.optimizer.analysis;
+
+import top.voidc.ir.IceBlock;
+
+import java.util.*;
+
+/**
+ * 函数中所有自然循环以及它们的嵌套关系
+ */
+public class LoopInfo {
+    private final List<Loop> topLevelLoops = new ArrayList<>();
+    private final List<Loop> loops = new ArrayList<>();
+    private final Map<IceBlock, Loop> innermostLoops = new HashMap<>();
+
+    /**
+     * @return 最外层的循环
+     */
+    public List<Loop> getTopLevelLoops() {
+        return Collections.unmodifiableList(topLevelLoops);
+    }
+
+    /**
+     * @return 所有循环，内层循环总在外层循环之前
+     */
+    public List<Loop> getLoops() {
+        return Collections.unmodifiableList(loops);
+    }
+
+    /**
+     * @return 包含 block 的最内层循环，不在循环中时返回 null
+     */
+    public Loop getLoopFor(IceBlock block) {
+        return innermostLoops.get(block);
+    }
+
+    /**
+     * @return block 所在循环的嵌套深度，不在循环中时为 0
+     */
+    public int getLoopDepth(IceBlock block) {
+        final var loop = getLoopFor(block);
+        return loop == null ? 0 : loop.getDepth();
+    }
+
+    public boolean isLoopHeader(IceBlock block) {
+        final var loop = getLoopFor(block);
+        return loop != null && loop.getHeader() == block;
+    }
+
+    /**
+     * 把 Pass 新建的基本块加入 loop 以及它所有的外层循环
+     * @param loop 为 null 时表示 block 不在任何循环中
+     */
+    public void addBlock(IceBlock block, Loop loop) {
+        if (loop == null) return;
+        innermostLoops.put(block, loop);
+        for (var current = loop; current != null; current = current.getParent()) current.addBlock(block);
+    }
+
+    void addLoop(Loop loop) {
+        loops.add(loop);
+    }
+
+    void addTopLevelLoop(Loop loop) {
+        topLevelLoops.add(loop);
+    }
+
+    void setLoopFor(IceBlock block, Loop loop) {
+        innermostLoops.put(block, loop);
+    }
+
+    @Override
+    public String toString() {
+        return loops.toString();
+    }
+}
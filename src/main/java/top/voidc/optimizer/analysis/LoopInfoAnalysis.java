@@ -0,0 +1,77 @@
+package top.voidc.optimizer.analysis;
+
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.optimizer.AnalysisManager;
+
+import java.util.*;
+
+/**
+ * 识别函数中的自然循环
+ * 按支配树后序访问每个基本块 H，前驱中被 H 支配的块是回边的源点，从它们沿前驱反向搜索到 H 为止得到循环体
+ * 后序保证内层循环先被发现，反向搜索遇到已发现的循环时直接跳到它最外层循环的循环头，并把它挂为子循环
+ * 只考虑从入口块可达的基本块
+ */
+public class LoopInfoAnalysis implements FunctionAnalysis<LoopInfo> {
+    @Override
+    public LoopInfo compute(IceFunction function, AnalysisManager manager) {
+        final var domTree = manager.getResult(DominatorTreeAnalysis.class, function);
+
+        // 支配树的先序和后序编号，用来 O(1) 判断支配关系
+        final var preorder = new HashMap<IceBlock, Integer>();
+        final var postorder = new HashMap<IceBlock, Integer>();
+        final var postorderBlocks = new ArrayList<IceBlock>();
+        domTree.traverse(function.getEntryBlock(),
+                block -> preorder.put(block, preorder.size()),
+                block -> {
+                    postorder.put(block, postorder.size());
+                    postorderBlocks.add(block);
+                });
+
+        final var result = new LoopInfo();
+        for (var header : postorderBlocks) {
+            final var worklist = new ArrayDeque<IceBlock>();
+            for (var predecessor : header.getPredecessors()) {
+                if (preorder.containsKey(predecessor)
+                        && preorder.get(header) <= preorder.get(predecessor)
+                        && postorder.get(predecessor) <= postorder.get(header)) {
+                    worklist.add(predecessor);
+                }
+            }
+            if (worklist.isEmpty()) continue;
+
+            final var loop = new Loop(header);
+            result.setLoopFor(header, loop);
+            while (!worklist.isEmpty()) {
+                final var block = worklist.poll();
+                var subLoop = result.getLoopFor(block);
+                if (subLoop == null) {
+                    result.setLoopFor(block, loop);
+                    loop.addBlock(block);
+                    pushPredecessors(block, preorder, worklist);
+                    continue;
+                }
+
+                while (subLoop.getParent() != null) subLoop = subLoop.getParent();
+                if (subLoop == loop) continue;
+
+                subLoop.setParent(loop);
+                loop.addSubLoop(subLoop);
+                subLoop.getBlocks().forEach(loop::addBlock);
+                for (var predecessor : subLoop.getHeader().getPredecessors()) {
+                    if (!subLoop.contains(predecessor) && preorder.containsKey(predecessor)) worklist.add(predecessor);
+                }
+            }
+            result.addLoop(loop);
+        }
+
+        result.getLoops().stream().filter(loop -> loop.getParent() == null).forEach(result::addTopLevelLoop);
+        return result;
+    }
+
+    private static void pushPredecessors(IceBlock block, Map<IceBlock, Integer> reachable, Deque<IceBlock> worklist) {
+        for (var predecessor : block.getPredecessors()) {
+            if (reachable.containsKey(predecessor)) worklist.add(predecessor);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package top.voidc.optimizer.pass;
 
 import top.voidc.ir.IceValue;
+import top.voidc.ir.ice.constant.IceFunction;
+
+import java.util.Collection;
 
 /**
  * Chillet IR 的优化 pass 接口
@@ -20,4 +23,14 @@ public interface CompilePass <T extends IceValue> {
      * @return true 如果 pass 修改了目标，否则 false
      */
     boolean run(T target);
+
+    /**
+     * 上一次 run 之后需要重新处理的函数，供 PassManager#untilStable 维护工作表
+     * 函数级 Pass 不需要实现，修改了哪个函数由 run 的返回值决定
+     *
+     * @return null 表示未知，此时 run 返回 true 会重新处理所有函数
+     */
+    default Collection<IceFunction> getTouchedFunctions() {
+        return null;
+    }
 }
@@ -1,166 +1,148 @@
 package top.voidc.optimizer.pass.function;
 
 import top.voidc.ir.IceBlock;
-import top.voidc.ir.ice.constant.*;
+import top.voidc.ir.IceContext;
 import top.voidc.ir.IceValue;
-import top.voidc.ir.ice.instruction.IceBinaryInstruction;
-import top.voidc.ir.ice.instruction.IceInstruction;
-
-import top.voidc.ir.ice.type.IcePtrType;
-import top.voidc.optimizer.pass.CompilePass;
-import top.voidc.misc.ds.DominatorTree;
-
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.instruction.*;
+import top.voidc.ir.ice.type.IceType;
+import top.voidc.misc.Statistics;
 import top.voidc.misc.annotation.Pass;
+import top.voidc.misc.ds.ScopedHashMap;
+import top.voidc.optimizer.AnalysisManager;
+import top.voidc.optimizer.analysis.ControlFlowGraphAnalysis;
+import top.voidc.optimizer.analysis.DominanceFrontierAnalysis;
+import top.voidc.optimizer.analysis.DominatorTreeAnalysis;
+import top.voidc.optimizer.pass.CompilePass;
+import top.voidc.optimizer.pass.unit.FunctionPureness;
 
-import java.util.ArrayList;
-import java.util.Hashtable;
-import java.util.LinkedList;
+import java.util.*;
 
 /**
  * GVN - 全局值编号
- * 对每一个表达式进行哈希，合并其中重复的部分
+ * 沿支配树为二元运算、比较、类型转换、GEP 以及 CONST 函数的调用编号，合并其中重复的部分
+ * 表达式以操作码、类型和操作数的值编号作为键，nsw 和 inbounds 标记不影响计算结果，不参与比较
  * 该 pass 应位于 Mem2Reg 下游
  */
-@Pass(group = {"O1"})
+@Pass(group = {"O1"}, preserves = {ControlFlowGraphAnalysis.class, DominatorTreeAnalysis.class, DominanceFrontierAnalysis.class})
 public class GlobalValueNumbering implements CompilePass<IceFunction> {
-    /** 用于作用域管理的栈
-     * 由 LinkedList 实现，新入栈的元素位于第 0 个
-     */
-    private static class ExpressionTableStack {
-        LinkedList<Hashtable<Integer, IceInstruction>> stack = new LinkedList<>();
-
-        void pushScope() {
-            stack.addFirst(new Hashtable<>());
-        }
+    private final AnalysisManager analysisManager;
+    private final IceContext context;
 
-        void popScope() {
-            stack.removeFirst();
-        }
+    public GlobalValueNumbering(AnalysisManager analysisManager, IceContext context) {
+        this.analysisManager = analysisManager;
+        this.context = context;
+    }
 
-        void put(int hash, IceInstruction expr) {
-            stack.getFirst().put(hash, expr);
+    /**
+     * 表达式的结构化键，可交换的运算已经按值编号排好序
+     * @param opcode 二元运算的类、比较的条件、类型转换和 GEP 的类或者被调用的函数
+     */
+    private record Expression(Object opcode, IceType type, int[] operands) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Expression that && opcode.equals(that.opcode) && type.equals(that.type)
+                    && Arrays.equals(operands, that.operands);
         }
 
-        IceInstruction get(int key) {
-            for (var table : stack) {
-                if (table.containsKey(key)) {
-                    return table.get(key);
-                }
-            }
-
-            return null;
+        @Override
+        public int hashCode() {
+            return 31 * (31 * opcode.hashCode() + type.hashCode()) + Arrays.hashCode(operands);
         }
     }
 
-    private static int hashCombine(int seed, int val) {
-        seed ^= val + 0x9e3779b9 + (seed << 6) + (seed >> 2);
-        return seed;
+    private static boolean isCommutative(IceInstruction instruction) {
+        return switch (instruction) {
+            case IceBinaryInstruction.Add _, IceBinaryInstruction.FAdd _, IceBinaryInstruction.Mul _,
+                 IceBinaryInstruction.FMul _, IceBinaryInstruction.And _, IceBinaryInstruction.Or _,
+                 IceBinaryInstruction.Xor _ -> true;
+            case IceCmpInstruction.Icmp icmp -> icmp.getCmpType() == IceCmpInstruction.Icmp.Type.EQ
+                    || icmp.getCmpType() == IceCmpInstruction.Icmp.Type.NE;
+            case IceCmpInstruction.Fcmp fcmp -> fcmp.getCmpType() == IceCmpInstruction.Fcmp.Type.OEQ
+                    || fcmp.getCmpType() == IceCmpInstruction.Fcmp.Type.ONE;
+            default -> false;
+        };
     }
 
     /**
-     * 按照一定规则生成标准的 Hash Code，以保证相同的值拥有相同的 Hash Code
-     *
-     * @param val 被 hash 对象
-     * @return Hash Code
+     * 值编号，常量按值相等，其余的值按引用相等
+     * 被合并的指令已经用 replaceAllUsesWith 替换，所以不需要额外记录等价关系
      */
-    private static int getCanonicalHash(IceValue val) {
-        if (val instanceof IceConstantData data) {
-            int result;
-            switch (data) {
-                case IceConstantInt i -> result = ("const int" + i.getValue()).hashCode();
-                case IceConstantBoolean b -> result = ("const bool" + b.getValue()).hashCode();
-                case IceConstantFloat f -> result = ("const float" + f.getValue()).hashCode();
-                case IceConstantDouble d -> result = ("const double" + d.getValue()).hashCode();
-                case IceConstantByte by ->  result = ("const byte" + by.getValue()).hashCode();
-                default -> result = data.hashCode();
-            }
+    private final Map<IceValue, Integer> valueNumbers = new HashMap<>();
 
-            return result;
-        }
+    private int getValueNumber(IceValue value) {
+        return valueNumbers.computeIfAbsent(value, _ -> valueNumbers.size());
+    }
 
-        if (val.getType() instanceof IcePtrType<?> ptr) {
-            var pointTo = ptr.getPointTo();
-            return ("point to " + pointTo.hashCode()).hashCode();
+    private Expression createExpression(Object opcode, IceInstruction instruction, List<IceValue> operands) {
+        final var numbers = new int[operands.size()];
+        for (int i = 0; i < numbers.length; i++) numbers[i] = getValueNumber(operands.get(i));
+        if (isCommutative(instruction) && numbers[0] > numbers[1]) {
+            final var t = numbers[0];
+            numbers[0] = numbers[1];
+            numbers[1] = t;
         }
-
-        return val.hashCode();
+        return new Expression(opcode, instruction.getType(), numbers);
     }
 
     /**
-     * 返回表达式是否符合二元运算的交换律
-     *
-     * @param binary 待观测表达式
-     * @return true if yes, false otherwise
+     * @return 指令对应的表达式，不能参与编号的指令返回 null
      */
-    private static boolean isCommutativeBinaryExpression(IceBinaryInstruction binary) {
-        return binary instanceof IceBinaryInstruction.Add
-                || binary instanceof IceBinaryInstruction.FAdd
-                || binary instanceof IceBinaryInstruction.Mul
-                || binary instanceof IceBinaryInstruction.FMul
-                || binary instanceof IceBinaryInstruction.And
-                || binary instanceof IceBinaryInstruction.Or
-                || binary instanceof IceBinaryInstruction.Xor;
+    private Expression createExpression(IceInstruction instruction) {
+        return switch (instruction) {
+            case IceBinaryInstruction binary -> createExpression(binary.getClass(), binary, binary.getOperands());
+            case IceCmpInstruction.Icmp icmp -> createExpression(icmp.getCmpType(), icmp, icmp.getOperands());
+            case IceCmpInstruction.Fcmp fcmp -> createExpression(fcmp.getCmpType(), fcmp, fcmp.getOperands());
+            case IceConvertInstruction convert -> createExpression(IceConvertInstruction.class, convert, convert.getOperands());
+            case IceGEPInstruction gep -> createExpression(IceGEPInstruction.class, gep, gep.getOperands());
+            case IceCallInstruction call when !call.getType().isVoid() && purenessInfo != null
+                    && purenessInfo.get(call.getTarget()) instanceof FunctionPureness.PurenessInfo info
+                    && info.getPureness() == FunctionPureness.Pureness.CONST ->
+                    createExpression(call.getTarget(), call, call.getArguments());
+            default -> null;
+        };
     }
 
-    private static int hashBinaryExpression(IceBinaryInstruction binary) {
-        int lhsHash = getCanonicalHash(binary.getLhs());
-        int rhsHash = getCanonicalHash(binary.getRhs());
-        int opHash = binary.getTypeHash();
-
-        if (isCommutativeBinaryExpression(binary) && lhsHash > rhsHash) {
-            int t = lhsHash;
-            lhsHash = rhsHash;
-            rhsHash = t;
-        }
-
-        int h = hashCombine(opHash, lhsHash);
-        h = hashCombine(h, rhsHash);
-        return h;
-    }
-
-    private DominatorTree<IceBlock> dominatorTree = null;
+    private Map<IceFunction, FunctionPureness.PurenessInfo> purenessInfo = null;
     private ArrayList<IceInstruction> deletedExprs = null;
-    ExpressionTableStack exprTable = null;
+    private final ScopedHashMap<Expression, IceInstruction> exprTable = new ScopedHashMap<>();
 
+    /**
+     * 进入支配树上的结点时调用，离开时由 traverse 弹出作用域
+     */
     private void visitBasicBlock(IceBlock block) {
         exprTable.pushScope();
 
         for (IceInstruction instr : block) {
-            if (instr instanceof IceBinaryInstruction binary) {
-                int key = hashBinaryExpression(binary);
-
-                var instead = exprTable.get(key);
-                if (instead != null) {
-                    binary.replaceAllUsesWith(instead);
-                    deletedExprs.add(binary);
-                } else {
-                    exprTable.put(key, instr);
-                }
+            final var key = createExpression(instr);
+            if (key == null) continue;
+
+            final var instead = exprTable.get(key);
+            if (instead != null) {
+                instr.replaceAllUsesWith(instead);
+                deletedExprs.add(instr);
+            } else {
+                exprTable.put(key, instr);
             }
         }
-
-        for (IceBlock next : dominatorTree.getDominatees(block)) {
-            visitBasicBlock(next);
-        }
-
-        exprTable.popScope();
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public boolean run(IceFunction target) {
-        var graph = target.getControlFlowGraph();
-        var entryNodeId = graph.getNodeId(target.getEntryBlock());
-        dominatorTree = new DominatorTree<>(graph, entryNodeId);
-        // 哈希值到指令的映射
-        exprTable = new ExpressionTableStack();
+        final var dominatorTree = analysisManager.getResult(DominatorTreeAnalysis.class, target);
+        // 还没有运行 FunctionPureness 时不合并调用
+        purenessInfo = (Map<IceFunction, FunctionPureness.PurenessInfo>) context.getPassResult("functionPureness");
         // 经过这次 GVN 之后可以被替换的表达式
         deletedExprs = new ArrayList<>();
+        valueNumbers.clear();
 
-        visitBasicBlock(target.getEntryBlock());
+        dominatorTree.traverse(target.getEntryBlock(), this::visitBasicBlock, _ -> exprTable.popScope());
 
         for (IceInstruction instr : deletedExprs) {
             instr.destroy();
         }
+        Statistics.add("gvn.eliminated", deletedExprs.size());
         return !deletedExprs.isEmpty();
     }
 
@@ -0,0 +1,246 @@
+package top.voidc.optimizer.pass.function;
+
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.IceContext;
+import top.voidc.ir.ice.constant.IceConstantData;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.constant.IceGlobalVariable;
+import top.voidc.ir.ice.instruction.*;
+import top.voidc.ir.ice.type.IcePtrType;
+import top.voidc.misc.Statistics;
+import top.voidc.misc.annotation.Pass;
+import top.voidc.misc.ds.DominatorTree;
+import top.voidc.optimizer.AnalysisManager;
+import top.voidc.optimizer.analysis.DominatorTreeAnalysis;
+import top.voidc.optimizer.analysis.Loop;
+import top.voidc.optimizer.analysis.LoopInfo;
+import top.voidc.optimizer.analysis.LoopInfoAnalysis;
+import top.voidc.optimizer.pass.CompilePass;
+import top.voidc.optimizer.pass.unit.FunctionPureness;
+
+import java.util.*;
+
+/**
+ * LICM - 循环不变量外提
+ * 从内层循环到外层循环，把操作数都在循环外定义的二元运算、比较、类型转换、GEP 以及 CONST 函数的调用移到前置块
+ * 除法、取余和函数调用只在每次进入循环都一定会执行时才外提，避免零次迭代的循环多做计算或者除零
+ * 全局标量只能通过 load 和 store 直接访问，没有别名：
+ * - 循环中没有写入时，读取它的 load 也是不变量
+ * - 循环中有写入、并且没有调用非 CONST 函数时，在前置块读入临时变量，出口写回，循环内只访问临时变量，再由 Mem2Reg 提升为寄存器
+ * 只有需要移动指令的循环才会被 LoopSimplify 变为规范形式，所以和 SimplifyCFG 一起运行时可以稳定下来
+ */
+@Pass(group = {"O1"})
+public class LoopInvariantCodeMotion implements CompilePass<IceFunction> {
+    private final AnalysisManager analysisManager;
+    private final IceContext context;
+
+    private Map<IceFunction, FunctionPureness.PurenessInfo> purenessInfo = null;
+
+    public LoopInvariantCodeMotion(AnalysisManager analysisManager, IceContext context) {
+        this.analysisManager = analysisManager;
+        this.context = context;
+    }
+
+    private FunctionPureness.Pureness getPureness(IceCallInstruction call) {
+        // 还没有运行 FunctionPureness 时当作不纯的函数
+        final var info = purenessInfo == null ? null : purenessInfo.get(call.getTarget());
+        return info == null ? FunctionPureness.Pureness.IMPURE : info.getPureness();
+    }
+
+    /**
+     * 调用指令是否可能写入全局变量 global，writeGlobals 会向调用者传递，所以只看被调用的函数本身
+     */
+    private boolean mayWrite(IceCallInstruction call, IceGlobalVariable global) {
+        if (getPureness(call) != FunctionPureness.Pureness.IMPURE) return false;
+        final var info = purenessInfo.get(call.getTarget());
+        return info == null || info.writeGlobals.contains(global);
+    }
+
+    private static boolean dominates(DominatorTree<IceBlock> domTree, IceBlock dominator, IceBlock block) {
+        for (var current = block; current != null; current = domTree.getDominator(current)) {
+            if (current == dominator) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 支配所有离开循环的基本块的基本块在每次进入循环时一定会执行
+     */
+    private static boolean isGuaranteedToExecute(IceBlock block, Loop loop, DominatorTree<IceBlock> domTree) {
+        return loop.getExitingBlocks().stream().allMatch(exiting -> dominates(domTree, block, exiting));
+    }
+
+    private static boolean isScalarGlobal(Object value) {
+        return value instanceof IceGlobalVariable global && !((IcePtrType<?>) global.getType()).getPointTo().isArray();
+    }
+
+    /**
+     * 在循环中被访问的全局标量，以及它们是否被写入
+     * 以 load 和 store 以外的方式使用的全局变量不在结果中
+     */
+    private static Map<IceGlobalVariable, Boolean> collectGlobalAccesses(Loop loop) {
+        final var stored = new LinkedHashMap<IceGlobalVariable, Boolean>();
+        final var escaped = new HashSet<IceGlobalVariable>();
+        for (var block : loop.getBlocks()) {
+            for (var instruction : block) {
+                switch (instruction) {
+                    case IceLoadInstruction load when isScalarGlobal(load.getSource()) ->
+                            stored.putIfAbsent((IceGlobalVariable) load.getSource(), false);
+                    case IceStoreInstruction store when isScalarGlobal(store.getTargetPtr())
+                            && store.getValue() != store.getTargetPtr() ->
+                            stored.put((IceGlobalVariable) store.getTargetPtr(), true);
+                    default -> instruction.getOperands().stream()
+                            .filter(operand -> operand instanceof IceGlobalVariable)
+                            .forEach(operand -> escaped.add((IceGlobalVariable) operand));
+                }
+            }
+        }
+        stored.keySet().removeAll(escaped);
+        return stored;
+    }
+
+    private boolean isInvariant(IceInstruction instruction, Loop loop, Set<IceInstruction> hoisted) {
+        for (var operand : instruction.getOperands()) {
+            if (operand instanceof IceInstruction definition
+                    && loop.contains(definition.getParent()) && !hoisted.contains(definition)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 外提指令的条件
+     */
+    private enum Hoisting {
+        ALWAYS, // 没有副作用也不会出错，可以提前执行
+        IF_EXECUTED, // 只有每次进入循环都一定会执行时才可以外提
+        NEVER,
+    }
+
+    private Hoisting getHoisting(IceInstruction instruction, Set<IceGlobalVariable> readOnlyGlobals) {
+        return switch (instruction) {
+            case IceBinaryInstruction.SDiv _, IceBinaryInstruction.Mod _ ->
+                    instruction.getOperand(1) instanceof IceConstantData divisor
+                            && !divisor.equals(IceConstantData.create(0)) ? Hoisting.ALWAYS : Hoisting.IF_EXECUTED;
+            case IceBinaryInstruction _, IceCmpInstruction _, IceConvertInstruction _, IceGEPInstruction _ ->
+                    Hoisting.ALWAYS;
+            case IceLoadInstruction load when readOnlyGlobals.contains(load.getSource()) -> Hoisting.ALWAYS;
+            case IceCallInstruction call when !call.getType().isVoid()
+                    && getPureness(call) == FunctionPureness.Pureness.CONST -> Hoisting.IF_EXECUTED;
+            default -> Hoisting.NEVER;
+        };
+    }
+
+    /**
+     * 按逆后序找出可以外提的指令，定值总在使用之前，所以结果可以按顺序移动
+     */
+    private List<IceInstruction> collectInvariants(IceFunction function, Loop loop, Set<IceGlobalVariable> readOnlyGlobals) {
+        final var domTree = analysisManager.getResult(DominatorTreeAnalysis.class, function);
+        final var hoisted = new LinkedHashSet<IceInstruction>();
+        for (var block : function.getBlocks()) {
+            if (!loop.contains(block)) continue;
+            Boolean guaranteed = null;
+            for (var instruction : block) {
+                final var hoisting = getHoisting(instruction, readOnlyGlobals);
+                if (hoisting == Hoisting.NEVER || !isInvariant(instruction, loop, hoisted)) continue;
+                if (hoisting == Hoisting.IF_EXECUTED) {
+                    if (guaranteed == null) guaranteed = isGuaranteedToExecute(block, loop, domTree);
+                    if (!guaranteed) continue;
+                }
+                hoisted.add(instruction);
+            }
+        }
+        return List.copyOf(hoisted);
+    }
+
+    /**
+     * 用入口块中的临时变量代替循环中对全局标量的访问，前置块读入，每个出口写回
+     */
+    private static IceAllocaInstruction promoteGlobal(IceFunction function, Loop loop, IceGlobalVariable global) {
+        final var type = ((IcePtrType<?>) global.getType()).getPointTo();
+        final var alloca = new IceAllocaInstruction(function.getEntryBlock(), type);
+        function.getEntryBlock().addInstructionAtFront(alloca);
+
+        for (var block : loop.getBlocks()) {
+            for (var instruction : block) {
+                if (instruction instanceof IceLoadInstruction load && load.getSource() == global) {
+                    load.setSource(alloca);
+                } else if (instruction instanceof IceStoreInstruction store && store.getTargetPtr() == global) {
+                    store.setTargetPtr(alloca);
+                }
+            }
+        }
+
+        final var preheader = loop.getPreheader();
+        final var initial = new IceLoadInstruction(preheader, global);
+        insertBeforeTerminator(preheader, initial);
+        insertBeforeTerminator(preheader, new IceStoreInstruction(preheader, alloca, initial));
+
+        for (var exit : loop.getExitBlocks()) {
+            var index = 0;
+            while (exit.get(index) instanceof IcePHINode) index++;
+            final var value = new IceLoadInstruction(exit, alloca);
+            exit.add(index, value);
+            exit.add(index + 1, new IceStoreInstruction(exit, global, value));
+        }
+        return alloca;
+    }
+
+    private static void insertBeforeTerminator(IceBlock block, IceInstruction instruction) {
+        block.add(block.size() - 1, instruction);
+    }
+
+    /**
+     * @param promoted 用来代替全局标量的临时变量，需要由 Mem2Reg 提升
+     * @return 是否修改了 IR
+     */
+    private boolean processLoop(IceFunction function, Loop loop, LoopInfo loopInfo, List<IceAllocaInstruction> promoted) {
+        final var readOnlyGlobals = new HashSet<IceGlobalVariable>();
+        final var promotedGlobals = new ArrayList<IceGlobalVariable>();
+        final var calls = loop.getBlocks().stream()
+                .flatMap(IceBlock::stream)
+                .filter(instruction -> instruction instanceof IceCallInstruction)
+                .map(instruction -> (IceCallInstruction) instruction)
+                .toList();
+        final var onlyConstCalls = calls.stream().allMatch(call -> getPureness(call) == FunctionPureness.Pureness.CONST);
+        collectGlobalAccesses(loop).forEach((global, isStored) -> {
+            if (!isStored) {
+                if (calls.stream().noneMatch(call -> mayWrite(call, global))) readOnlyGlobals.add(global);
+            } else if (onlyConstCalls) {
+                promotedGlobals.add(global);
+            }
+        });
+
+        final var invariants = collectInvariants(function, loop, readOnlyGlobals);
+        if (invariants.isEmpty() && promotedGlobals.isEmpty()) return false;
+
+        LoopSimplify.simplifyLoop(loop, loopInfo);
+        final var preheader = loop.getPreheader();
+        for (var instruction : invariants) {
+            instruction.getParent().remove(instruction);
+            instruction.setParent(preheader);
+            insertBeforeTerminator(preheader, instruction);
+        }
+        Statistics.add("licm.hoisted", invariants.size());
+        Statistics.add("licm.promoted", promotedGlobals.size());
+
+        promotedGlobals.forEach(global -> promoted.add(promoteGlobal(function, loop, global)));
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean run(IceFunction target) {
+        purenessInfo = (Map<IceFunction, FunctionPureness.PurenessInfo>) context.getPassResult("functionPureness");
+        final var loopInfo = analysisManager.getResult(LoopInfoAnalysis.class, target);
+        final var promoted = new ArrayList<IceAllocaInstruction>();
+        var changed = false;
+        for (var loop : loopInfo.getLoops()) {
+            changed |= processLoop(target, loop, loopInfo, promoted);
+        }
+
+        if (!promoted.isEmpty()) new Mem2Reg(analysisManager).promote(target, promoted);
+        return changed;
+    }
+}
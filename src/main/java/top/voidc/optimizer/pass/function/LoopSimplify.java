@@ -0,0 +1,138 @@
+package top.voidc.optimizer.pass.function;
+
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.IceValue;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.constant.IceUndef;
+import top.voidc.ir.ice.instruction.IceAllocaInstruction;
+import top.voidc.ir.ice.instruction.IceBranchInstruction;
+import top.voidc.ir.ice.instruction.IcePHINode;
+import top.voidc.misc.Statistics;
+import top.voidc.misc.annotation.Pass;
+import top.voidc.optimizer.AnalysisManager;
+import top.voidc.optimizer.analysis.Loop;
+import top.voidc.optimizer.analysis.LoopInfo;
+import top.voidc.optimizer.analysis.LoopInfoAnalysis;
+import top.voidc.optimizer.pass.CompilePass;
+
+import java.util.List;
+
+/**
+ * 把所有循环变换为规范形式
+ * - 有前置块：循环外只有一个基本块跳转到循环头，并且它只跳转到循环头，外提的指令放在这里
+ * - 只有一个回边源点
+ * - 所有出口块的前驱都在循环内
+ * 新建的基本块只有一条跳转指令，原来的 phi 节点按前驱拆分到新基本块中
+ * 其他 Pass 可以通过 {@link #simplifyLoop} 只处理自己需要的循环
+ */
+@Pass(group = {"O1"})
+public class LoopSimplify implements CompilePass<IceFunction> {
+    private final AnalysisManager analysisManager;
+
+    public LoopSimplify(AnalysisManager analysisManager) {
+        this.analysisManager = analysisManager;
+    }
+
+    /**
+     * 新建一个基本块，把 predecessors 到 target 的边全部改为经过这个基本块
+     * target 中的 phi 节点来自这些前驱的分支合并为来自新基本块的一个分支，值不同时在新基本块中插入 phi 节点
+     * @return 新建的基本块
+     */
+    private static IceBlock splitPredecessors(IceBlock target, List<IceBlock> predecessors, String name) {
+        final var function = target.getFunction();
+        final var block = new IceBlock(function, function.generateLabelName(name));
+
+        for (var instruction : target) {
+            if (!(instruction instanceof IcePHINode phi)) break;
+            final var incoming = phi.getBranches().stream()
+                    .filter(branch -> predecessors.contains(branch.block()))
+                    .toList();
+            if (incoming.isEmpty()) continue;
+
+            final IceValue value;
+            if (incoming.stream().map(IcePHINode.IcePHIBranch::value).distinct().count() == 1) {
+                value = incoming.getFirst().value();
+            } else {
+                final var merged = new IcePHINode(block, function.generateLocalValueName(), phi.getType());
+                incoming.forEach(branch -> merged.addBranch(branch.block(), branch.value()));
+                block.addInstruction(merged);
+                value = merged;
+            }
+            phi.removeBranches(predecessors);
+            phi.addBranch(block, value);
+        }
+
+        block.addInstruction(new IceBranchInstruction(block, target));
+        for (var predecessor : predecessors) {
+            predecessor.getLast().replaceOperand(target, block);
+        }
+        return block;
+    }
+
+    private static void insertPreheader(Loop loop, LoopInfo loopInfo) {
+        final var header = loop.getHeader();
+        final var function = header.getFunction();
+        final IceBlock preheader;
+        if (header == function.getEntryBlock()) {
+            // 循环头是入口块时没有从循环外进入的边，新建的前置块成为入口块
+            // 第一次进入循环时 phi 节点还没有定义的值，来自前置块的分支取 undef
+            preheader = new IceBlock(function, function.generateLabelName("preheader"));
+            for (var instruction : header) {
+                if (!(instruction instanceof IcePHINode phi)) break;
+                phi.addBranch(preheader, IceUndef.get(phi.getType()));
+            }
+            // Mem2Reg 和栈帧的构建都只在入口块中查找 alloca，跟随入口块移动到前置块
+            header.stream().filter(instruction -> instruction instanceof IceAllocaInstruction).toList()
+                    .forEach(alloca -> alloca.moveTo(preheader));
+            preheader.addInstruction(new IceBranchInstruction(preheader, header));
+            function.setEntryBlock(preheader);
+        } else {
+            preheader = splitPredecessors(header, loop.getEnteringBlocks(), "preheader");
+        }
+        loopInfo.addBlock(preheader, loop.getParent());
+    }
+
+    /**
+     * 保证 loop 是规范形式，loop 和 loopInfo 中的基本块集合会同步更新
+     * CFG 会发生变化，支配树等依赖 CFG 的分析需要重新获取
+     * @return 是否修改了 CFG
+     */
+    public static boolean simplifyLoop(Loop loop, LoopInfo loopInfo) {
+        var changed = false;
+        if (loop.getPreheader() == null) {
+            insertPreheader(loop, loopInfo);
+            Statistics.add("loop-simplify.preheaders", 1);
+            changed = true;
+        }
+
+        final var latches = loop.getLatches();
+        if (latches.size() > 1) {
+            loopInfo.addBlock(splitPredecessors(loop.getHeader(), latches, "latch"), loop);
+            Statistics.add("loop-simplify.latches", 1);
+            changed = true;
+        }
+
+        for (var exit : loop.getExitBlocks()) {
+            final var predecessors = exit.getPredecessors();
+            if (predecessors.stream().allMatch(loop::contains)) continue;
+
+            final var inside = predecessors.stream().filter(loop::contains).toList();
+            var owner = loop.getParent();
+            while (owner != null && !owner.contains(exit)) owner = owner.getParent();
+            loopInfo.addBlock(splitPredecessors(exit, inside, "loop.exit"), owner);
+            Statistics.add("loop-simplify.exits", 1);
+            changed = true;
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean run(IceFunction target) {
+        final var loopInfo = analysisManager.getResult(LoopInfoAnalysis.class, target);
+        var changed = false;
+        for (var loop : loopInfo.getLoops()) {
+            changed |= simplifyLoop(loop, loopInfo);
+        }
+        return changed;
+    }
+}
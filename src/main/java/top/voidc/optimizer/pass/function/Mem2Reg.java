@@ -10,10 +10,15 @@ import top.voidc.ir.ice.type.IcePtrType;
 import top.voidc.ir.ice.type.IceType;
 
 import top.voidc.misc.Log;
+import top.voidc.misc.Statistics;
 import top.voidc.optimizer.pass.CompilePass;
 import top.voidc.misc.ds.DominatorTree;
 
 import top.voidc.misc.annotation.Pass;
+import top.voidc.optimizer.AnalysisManager;
+import top.voidc.optimizer.analysis.ControlFlowGraphAnalysis;
+import top.voidc.optimizer.analysis.DominanceFrontierAnalysis;
+import top.voidc.optimizer.analysis.DominatorTreeAnalysis;
 
 import java.util.*;
 
@@ -24,45 +29,14 @@ import java.util.*;
  * This pass will try to delete alloca instructions, and replace them with ice-ir registers.
  */
 @Pass(
-        group = {"O0"}, parallel = true
+        group = {"O0"}, parallel = true,
+        preserves = {ControlFlowGraphAnalysis.class, DominatorTreeAnalysis.class, DominanceFrontierAnalysis.class}
 )
 public class Mem2Reg implements CompilePass<IceFunction> {
-    /**
-     * Create a dominance frontier table for the given function.
-     * <br>
-     * for each node X in the CFG:
-     *     if X has >= 2 predecessors:
-     *         for each predecessor P of X:
-     *             runner = P
-     *             while runner != idom(X):
-     *                 DF[runner].add(X)
-     *                 runner = idom(runner)
-     *
-     * @param function the function to create the dominance fontier table for
-     * @param domTree the dominator tree of the function
-     * @return the dominance frontier table
-     */
-    private static Hashtable<IceBlock, ArrayList<IceBlock>> createDominanceFrontierTable(IceFunction function, DominatorTree<IceBlock> domTree) {
-        Hashtable<IceBlock, ArrayList<IceBlock>> result = new Hashtable<>();
-        for (IceBlock x : function.getBlocks()) {
-            result.put(x, new ArrayList<>());
-        }
+    private final AnalysisManager analysisManager;
 
-        for (IceBlock x : function.getBlocks()) {
-            IceBlock dominator = domTree.getDominator(x);
-
-            if (x.getPredecessors().size() >= 2) {
-                for (IceBlock p : x.getPredecessors()) {
-                    IceBlock runner = p;
-                    while (runner != dominator) {
-                        result.get(runner).add(x);
-                        runner = domTree.getDominator(runner);
-                    }
-                }
-            }
-        }
-
-        return result;
+    public Mem2Reg(AnalysisManager analysisManager) {
+        this.analysisManager = analysisManager;
     }
 
     /**
@@ -93,7 +67,7 @@ public class Mem2Reg implements CompilePass<IceFunction> {
         return null;
     }
 
-    private static void insertPhi(IceValue value, IceFunction function, Hashtable<IceBlock, ArrayList<IceBlock>> dfTable) {
+    private static void insertPhi(IceValue value, IceFunction function, Map<IceBlock, List<IceBlock>> dfTable) {
         // pair for workList queue
         // block: the block that stores the value, value: the value to be stored
         Queue<IceBlock> workList = new ArrayDeque<>();
@@ -144,11 +118,26 @@ public class Mem2Reg implements CompilePass<IceFunction> {
         return new IceValue(newName, type);
     }
 
-    private static void rename(IceBlock block, Hashtable<IceValue, Stack<IceValue>> valueStack, DominatorTree<IceBlock> domTree) {
-        // 本层递归中，每种变量历史版本的计数器用于恢复栈
-        final var defCounter = new HashMap<IceValue, Integer>();
-        valueStack.forEach((key, value) -> defCounter.put(key, value.size()));
+    /**
+     * 按支配树先序重命名，离开一个块时弹出它压入的所有新版本
+     * @param inSSA 函数已经是 SSA 形式，允许存在不是本次插入的 phi 节点
+     */
+    private static void rename(IceFunction function, Hashtable<IceValue, Stack<IceValue>> valueStack,
+                               DominatorTree<IceBlock> domTree, boolean inSSA) {
+        // 支配树路径上每个块进入时各变量历史版本的数量，用于恢复栈
+        final var defCounters = new ArrayDeque<Map<IceValue, Integer>>();
+        domTree.traverse(function.getEntryBlock(), block -> {
+            final var defCounter = new HashMap<IceValue, Integer>();
+            valueStack.forEach((key, value) -> defCounter.put(key, value.size()));
+            defCounters.push(defCounter);
+            renameBlock(block, valueStack, inSSA);
+        }, _ -> defCounters.pop().forEach((value, oldCount) -> {
+            final var stack = valueStack.get(value);
+            while (stack.size() > oldCount) stack.pop();
+        }));
+    }
 
+    private static void renameBlock(IceBlock block, Hashtable<IceValue, Stack<IceValue>> valueStack, boolean inSSA) {
         // 用迭代器正确处理边遍历器删除元素的问题
         final var blockInstruction = block.iterator();
         while (blockInstruction.hasNext()){
@@ -184,7 +173,7 @@ public class Mem2Reg implements CompilePass<IceFunction> {
                 case IcePHINode phiNode -> {
                     // 如果当前指令是 phi 指令，则获取其 valueToBeMerged
                     IceValue value = phiNode.getValueToBeMerged();
-                    if (valueStack.containsKey(value)) {
+                    if (value != null && valueStack.containsKey(value)) {
                         // 如果当前 phi 指令的 valueToBeMerged 在 valueStack 中，则获取栈顶元素并更新 phi 指令的源指针
                         IceValue nextValue = createNewName(block, value);
                         // 由于 phi 指令的 valueToBeMerged 追踪的是原本的指针，因此不修改
@@ -193,10 +182,11 @@ public class Mem2Reg implements CompilePass<IceFunction> {
 
                         // 修改 phi 指令的名字后，相当于新产生的变量就是这个 phi 指令
                         valueStack.get(value).push(phiNode);
-                    } else {
+                    } else if (!inSSA) {
                         // 如果当前 phi 指令的 valueToBeMerged 不在 valueStack 中，则说明该指令是一个新的变量，那这个Phi是哪里来的呢？
                         throw new IllegalStateException();
                     }
+                    // 否则是已有的 phi，只提升部分 alloca 时不需要处理
                 }
                 case null -> throw new IllegalStateException(); // This should never happen
                 default -> {
@@ -215,32 +205,34 @@ public class Mem2Reg implements CompilePass<IceFunction> {
                 }
 
                 // 如果当前 phi 指令的 valueToBeMerged 在 valueStack 中，则获取栈顶元素并添加到 phi 指令的参数中
-                if (valueStack.containsKey(phiNode.getValueToBeMerged())) {
+                // 已有的 phi 可能没有 valueToBeMerged，Hashtable 不接受 null 键
+                if (phiNode.getValueToBeMerged() != null && valueStack.containsKey(phiNode.getValueToBeMerged())) {
                     IceValue nextValue = valueStack.get(phiNode.getValueToBeMerged()).peek();
                     phiNode.addBranch(block, nextValue);
                 }
             }
         }
-
-        // 按照 Dominator Tree 顺序 dfs
-        for (IceBlock successor : domTree.getDominatees(block)) {
-            rename(successor, valueStack, domTree);
-        }
-
-        // 处理完所有的 successor block 后，pop 出当前 block 中所有的 store 的新版本
-        defCounter.forEach((value, oldCount) -> {
-            final var stack = valueStack.get(value);
-            while (stack.size() > oldCount) stack.pop();
-        });
     }
 
     @Override
     public boolean run(IceFunction target) {
-        final var promotableValues = createPromotableList(target);
-        var graph = target.getControlFlowGraph();
-        var entryNodeId = graph.getNodeId(target.getEntryBlock());
-        var domTree = new DominatorTree<>(graph, entryNodeId);
-        Hashtable<IceBlock, ArrayList<IceBlock>> dfTable = createDominanceFrontierTable(target, domTree);
+        return promote(target, createPromotableList(target), false);
+    }
+
+    /**
+     * 只提升给定的 alloca，函数的其余部分已经是 SSA 形式，已有的 phi 节点保持不变
+     * LICM 提升全局变量后用它为代替全局变量的临时变量构造 SSA
+     *
+     * @param allocas 需要提升的 alloca，必须在入口块中并且不是数组
+     * @return 是否修改了IR
+     */
+    public boolean promote(IceFunction target, List<IceAllocaInstruction> allocas) {
+        return promote(target, allocas, true);
+    }
+
+    private boolean promote(IceFunction target, List<IceAllocaInstruction> promotableValues, boolean inSSA) {
+        var domTree = analysisManager.getResult(DominatorTreeAnalysis.class, target);
+        var dfTable = analysisManager.getResult(DominanceFrontierAnalysis.class, target);
 
         Hashtable<IceValue, Stack<IceValue>> valueStack = new Hashtable<>();
         for (var value : promotableValues) {
@@ -250,13 +242,14 @@ public class Mem2Reg implements CompilePass<IceFunction> {
             valueStack.get(value).push(IceUndef.get(type));
         }
 
-        rename(target.getEntryBlock(), valueStack, domTree);
+        rename(target, valueStack, domTree, inSSA);
 
         // 删除所有的 alloca
         promotableValues.forEach(value -> {
-            Log.should(value.users().isEmpty(), "There are still users for %" + value.getName() + " after mem2reg");
+            Log.should(!value.hasUsers(), () -> "There are still users for %" + value.getName() + " after mem2reg");
             value.destroy();
         });
+        Statistics.add("mem2reg.promoted", promotableValues.size());
 
         return !promotableValues.isEmpty(); // 只要有一个变量被提升，就肯定修改IR了
     }
@@ -2,12 +2,15 @@ package top.voidc.optimizer.pass.function;
 
 import top.voidc.ir.ice.constant.IceFunction;
 import top.voidc.misc.annotation.Pass;
+import top.voidc.optimizer.analysis.ControlFlowGraphAnalysis;
+import top.voidc.optimizer.analysis.DominanceFrontierAnalysis;
+import top.voidc.optimizer.analysis.DominatorTreeAnalysis;
 import top.voidc.optimizer.pass.CompilePass;
 
 /**
  * 按顺序重命名函数内的匿名寄存器，确保递增
  */
-@Pass(group = {"O0"}, parallel = true)
+@Pass(group = {"O0"}, parallel = true, preserves = {ControlFlowGraphAnalysis.class, DominatorTreeAnalysis.class, DominanceFrontierAnalysis.class})
 public class RenameVariable implements CompilePass<IceFunction> {
     @Override
     public String getName() {
@@ -7,6 +7,9 @@ import top.voidc.ir.ice.constant.IceGlobalVariable;
 import top.voidc.ir.ice.instruction.*;
 import top.voidc.misc.annotation.Pass;
 import top.voidc.misc.annotation.Qualifier;
+import top.voidc.optimizer.analysis.ControlFlowGraphAnalysis;
+import top.voidc.optimizer.analysis.DominanceFrontierAnalysis;
+import top.voidc.optimizer.analysis.DominatorTreeAnalysis;
 import top.voidc.optimizer.pass.CompilePass;
 import top.voidc.optimizer.pass.unit.FunctionPureness;
 
@@ -19,7 +22,7 @@ import java.util.Set;
  * 主要是删除那些没有被使用的值
  * 这可能会导致一些指令被删除
  */
-@Pass(group = {"O0"})
+@Pass(group = {"O0"}, preserves = {ControlFlowGraphAnalysis.class, DominatorTreeAnalysis.class, DominanceFrontierAnalysis.class})
 public class SmartChilletDeleteUnusedValue implements CompilePass<IceFunction> {
 
     private final IceContext context;
@@ -57,7 +60,7 @@ public class SmartChilletDeleteUnusedValue implements CompilePass<IceFunction> {
         // 递归删除所有未使用的值
         for (var value : instruction.getOperands()) {
             if (value instanceof IceInstruction inst && !hasSideEffect(inst)
-                    && inst.getUsers().size() == 1 && inst.getUsers().getFirst().equals(instruction)) { // 没有副作用并且仅被当前指令使用
+                    && inst.isOnlyUsedBy(instruction)) { // 没有副作用并且仅被当前指令使用
                 removeUnusedValue(deleteInstructions, inst);
             }
         }
@@ -80,7 +83,7 @@ public class SmartChilletDeleteUnusedValue implements CompilePass<IceFunction> {
                             // memcpy 和 memset 是有副作用的，但是如果其中的数组仅被这个memcpy和memset使用，那就可以删除
                             var dest = (IceAllocaInstruction) intrinsic.getOperand(0);
                             assert dest != null;
-                            if (dest.getUsers().size() == 1 && dest.getUsers().getFirst().equals(intrinsic)) {
+                            if (dest.isOnlyUsedBy(intrinsic)) {
                                 // 如果这个数组仅被这个memcpy或memset使用，那么就可以删除
                                 removeUnusedValue(deleteInstructions, intrinsic);
                                 removeUnusedValue(deleteInstructions, dest);
@@ -98,7 +101,7 @@ public class SmartChilletDeleteUnusedValue implements CompilePass<IceFunction> {
                         var pureInfo = purenessInfoMap.get(call.getTarget());
                         if (pureInfo.getPureness() != FunctionPureness.Pureness.IMPURE) {
                             // 如果是纯函数调用，那么可以删除这个调用
-                            if (call.getUsers().isEmpty()) {
+                            if (!call.hasUsers()) {
                                 // 如果这个调用没有被使用且没有副作用，那么就可以删除
                                 removeUnusedValue(deleteInstructions, call);
                             }
@@ -108,7 +111,7 @@ public class SmartChilletDeleteUnusedValue implements CompilePass<IceFunction> {
                     }
                     default -> {
                         assert !instruction.getType().isVoid();
-                        if (instruction.getUsers().isEmpty() && !hasSideEffect(instruction)) {
+                        if (!instruction.hasUsers() && !hasSideEffect(instruction)) {
                             // 如果这个指令没有被使用且没有副作用，那么就可以删除，这里执行递归删除
                             removeUnusedValue(deleteInstructions, instruction);
                         }
@@ -74,20 +74,43 @@ public class SmartChilletSimplifyCFG implements CompilePass<IceFunction> {
      * - B 中没有 phi 节点
      * 则尝试将 B 中的指令移动到 A 中，然后删除块 B。
      * 这一过程也会将 B 的所有后继添加到 A 中。
-     * 这个 method 将会从程序的入口 block 开始递归处理所有的 block。
-     * 这里 A 为当前正在处理的 block，B 为当前 block 的下一个 block。
-     * @param block 当前正在处理的 block
+     * 这个 method 将会从程序的入口 block 开始深度优先处理所有的 block，用显式栈代替递归。
+     * 后继列表在当前 block 合并完成后取快照，合并只改变当前 block 的后继，不影响栈中其他 block 的快照。
+     * @param entry 入口 block
      */
-    private static boolean mergeTrivialBlocks(Set<IceBlock> visited, IceBlock block) {
+    private static boolean mergeTrivialBlocks(IceBlock entry) {
         // CFG 是不保证无环的
-        if (!visited.add(block)) {
-            return false;
+        final var visited = new HashSet<IceBlock>();
+        final var successorStack = new ArrayDeque<Iterator<IceBlock>>();
+        boolean flag = false;
+
+        visited.add(entry);
+        flag |= mergeIntoBlock(entry);
+        successorStack.push(entry.getSuccessors().iterator());
+        while (!successorStack.isEmpty()) {
+            final var successors = successorStack.peek();
+            if (!successors.hasNext()) {
+                successorStack.pop();
+                continue;
+            }
+            final var successor = successors.next();
+            if (visited.add(successor)) {
+                flag |= mergeIntoBlock(successor);
+                successorStack.push(successor.getSuccessors().iterator());
+            }
         }
+        return flag;
+    }
 
+    /**
+     * 这里 A 为当前正在处理的 block，B 为当前 block 的下一个 block。
+     * @param block 当前正在处理的 block
+     */
+    private static boolean mergeIntoBlock(IceBlock block) {
         boolean flag = false;
         while (block.getSuccessors().size() == 1) {
             IceBlock nextBlock = block.getSuccessors().getFirst();
-            if (nextBlock.getPredecessors().size() == 1) {
+            if (nextBlock.predecessorCount() == 1) {
                 // A -> B(nextBlock)
                 IceInstruction terminationInstr = block.getLast();
 
@@ -124,13 +147,6 @@ public class SmartChilletSimplifyCFG implements CompilePass<IceFunction> {
             }
         }
 
-        // 递归处理所有的后继 block
-        for (IceBlock successor : block.getSuccessors()) {
-            if (!successor.equals(block)) {
-                flag |= mergeTrivialBlocks(visited, successor);
-            }
-        }
-
         return flag;
     }
 
@@ -238,7 +254,7 @@ public class SmartChilletSimplifyCFG implements CompilePass<IceFunction> {
         for (IceBlock block : function.getBlocks()) {
             for (IceInstruction instruction : block) {
                 if (instruction instanceof IceBinaryInstruction binary) {
-                    if (binary.getUsers().isEmpty()) {
+                    if (!binary.hasUsers()) {
                         workList.add(binary);
                     }
                 }
@@ -248,14 +264,14 @@ public class SmartChilletSimplifyCFG implements CompilePass<IceFunction> {
         while (!workList.isEmpty()) {
             IceBinaryInstruction binary = workList.poll();
 
-            for (IceValue operand : binary.getOperands()) {
-                operand.removeUse(binary);
-                if (operand instanceof IceBinaryInstruction && operand.getUsers().isEmpty()) {
+            final var operands = List.copyOf(binary.getOperands());
+            binary.destroy();
+
+            for (IceValue operand : operands) {
+                if (operand instanceof IceBinaryInstruction && !operand.hasUsers()) {
                     workList.add((IceBinaryInstruction) operand);
                 }
             }
-
-            binary.destroy();
         }
     }
 
@@ -267,7 +283,7 @@ public class SmartChilletSimplifyCFG implements CompilePass<IceFunction> {
         flag |= simplifyBranch(target);
         flag |= removeDeadBlocks(allBlocks, target);
         flag |= simplifyPHINode(target);
-        flag |= mergeTrivialBlocks(new HashSet<>(), target.getEntryBlock());
+        flag |= mergeTrivialBlocks(target.getEntryBlock());
         removeUnusedBinaryInstructions(target);
 
         return flag;
@@ -1,7 +1,6 @@
 package top.voidc.optimizer.pass.function;
 
 import top.voidc.ir.IceBlock;
-import top.voidc.ir.IceUser;
 import top.voidc.ir.IceValue;
 import top.voidc.ir.ice.constant.*;
 import top.voidc.ir.ice.instruction.*;
@@ -299,9 +298,9 @@ public class SparseConditionalConstantPropagation implements CompilePass<IceFunc
         }
 
         private void enqueueUsers(IceValue v) {
-            List<IceUser> users = v instanceof IceInstruction ? v.users() : Collections.emptyList();
-            for (IceUser user : users) {
-                if (user instanceof IceInstruction inst) {
+            if (!(v instanceof IceInstruction)) return;
+            for (var use : v.getUses()) {
+                if (use.getUser() instanceof IceInstruction inst) {
                     workList.add(inst);
                 }
             }
@@ -96,7 +96,7 @@ public class FunctionInliner implements CompilePass<IceUnit> {
 
         var inlineScore = baseCost - bonus + penalty;
         Log.d(
-                String.format("Inline Candidate %s - base: %d  bonus: %d penalty: %d total: %d", function.getName(), baseCost, bonus, penalty, inlineScore));
+                () -> String.format("Inline Candidate %s - base: %d  bonus: %d penalty: %d total: %d", function.getName(), baseCost, bonus, penalty, inlineScore));
         return inlineScore < INLINE_THRESHOLD;
     }
 
@@ -173,15 +173,15 @@ public class FunctionInliner implements CompilePass<IceUnit> {
             var callSiteBlock = call.getParent();
             var callIndex = callSiteBlock.indexOf(call);
 
-            Log.d("处理调用点 " + callerFunction + " call: " + call + " @ " + callSiteBlock.getName() + ":" + callIndex);
+            Log.d(() -> "处理调用点 " + callerFunction + " call: " + call + " @ " + callSiteBlock.getName() + ":" + callIndex);
 
             // Step 1: 分割基本块
 
             var preCallInsts = List.copyOf(callSiteBlock.subList(0, callIndex));
             var postCallInsts = List.copyOf(callSiteBlock.subList(callIndex + 1, callSiteBlock.size()));
 
-            Log.d(preCallInsts.toString());
-            Log.d(postCallInsts.toString());
+            Log.d(preCallInsts::toString);
+            Log.d(postCallInsts::toString);
 
             // Step 2: 新建后继块
             var newSuccBlock = new IceBlock(callerFunction, callerFunction.generateLabelName(callSiteBlock.getName() + "_split"));
@@ -191,7 +191,7 @@ public class FunctionInliner implements CompilePass<IceUnit> {
             for (var callSiteBlockUser : callSiteBlock.getUsers()) {
                 if (callSiteBlockUser instanceof IcePHINode phi) {
                     phi.replaceOperand(callSiteBlock, newSuccBlock);
-                    Log.d("Replace PHI" + phi.getTextIR());
+                    Log.d(() -> "Replace PHI" + phi.getTextIR());
                 }
             }
 
@@ -241,10 +241,10 @@ public class FunctionInliner implements CompilePass<IceUnit> {
 
     private void inlineFunction() {
         for (var func : inlineWorkList) {
-            Log.d("Now Evaluating: " + func.getName());
+            Log.d(() -> "Now Evaluating: " + func.getName());
 
             if (shouldInline(func)) {
-                Log.d("内联: " + func.getName());
+                Log.d(() -> "内联: " + func.getName());
                 doInline(func);
             }
         }
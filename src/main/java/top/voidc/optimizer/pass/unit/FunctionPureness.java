@@ -12,8 +12,11 @@ import top.voidc.ir.ice.instruction.IceStoreInstruction;
 import top.voidc.misc.annotation.Pass;
 import top.voidc.misc.annotation.Qualifier;
 import top.voidc.misc.ds.ChilletGraph;
+import top.voidc.optimizer.CompileCache;
 import top.voidc.optimizer.pass.CompilePass;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -51,8 +54,15 @@ public class FunctionPureness implements CompilePass<IceUnit> {
 
     public final Map<IceFunction, PurenessInfo> functionPurenessInfo = new ConcurrentHashMap<>();
 
+    private final Set<IceFunction> touchedFunctions = new HashSet<>();
+
+    private final CompileCache compileCache;
+
+    private IceUnit unit;
+
     public FunctionPureness(IceContext context) {
         context.addPassResult("functionPureness", functionPurenessInfo);
+        this.compileCache = CompileCache.of(context);
     }
 
     /**
@@ -65,6 +75,13 @@ public class FunctionPureness implements CompilePass<IceUnit> {
             return;
         }
 
+        // 命中编译缓存的函数还是优化前的 IR，直接使用上次编译时算出的结果
+        final var cachedPureness = compileCache == null ? null : compileCache.getPureness(currentFunction, unit);
+        if (cachedPureness != null) {
+            functionPurenessInfo.put(currentFunction, cachedPureness);
+            return;
+        }
+
         var currentPureness = functionPurenessInfo
                 .computeIfAbsent(currentFunction, _ -> new PurenessInfo(Pureness.CONST));
 
@@ -176,6 +193,12 @@ public class FunctionPureness implements CompilePass<IceUnit> {
 
     @Override
     public boolean run(IceUnit target) {
+        // 每次都重新分析，原地清空以便已经拿到这个 Map 的 Pass 也能看到新结果
+        final var oldPureness = new HashMap<IceFunction, Pureness>();
+        functionPurenessInfo.forEach((function, info) -> oldPureness.put(function, info.getPureness()));
+        functionPurenessInfo.clear();
+        unit = target;
+
         for (var func : target.getFunctions()) {
             if (func instanceof IceExternFunction) {
                 // 外部函数默认视为不纯
@@ -194,7 +217,25 @@ public class FunctionPureness implements CompilePass<IceUnit> {
         for (var func : target.getFunctions()) {
             if (func instanceof IceExternFunction) continue; // 外部函数不分析
             analyzeFunction(func);
+            if (compileCache != null) compileCache.recordPureness(func, functionPurenessInfo.get(func));
         }
+
+        // 纯性发生变化的函数的调用者需要重新优化
+        touchedFunctions.clear();
+        oldPureness.forEach((function, pureness) -> {
+            final var info = functionPurenessInfo.get(function);
+            if (info == null || info.getPureness() == pureness) return;
+            for (var user : function.getUsers()) {
+                if (user instanceof IceCallInstruction call) {
+                    touchedFunctions.add(call.getParent().getFunction());
+                }
+            }
+        });
         return false;
     }
+
+    @Override
+    public Collection<IceFunction> getTouchedFunctions() {
+        return touchedFunctions;
+    }
 }
@@ -19,7 +19,7 @@ public class ShowIR implements CompilePass<IceUnit> {
             // CI 环境下不打印 IR
             return false;
         }
-        Log.d("\n" + target.getTextIR());
+        Log.d(() -> "\n" + target.getTextIR());
         return false;
     }
 }
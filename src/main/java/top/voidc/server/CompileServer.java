@@ -0,0 +1,170 @@
+package top.voidc.server;
+
+import top.voidc.misc.Flag;
+import top.voidc.misc.Log;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * 常驻的编译服务器，JVM 只启动一次，SysyParser 的 ATN/DFA 缓存、指令模式和模版缓存等静态数据在请求之间复用
+ * 协议：每行一个请求，内容是以空白分隔的命令行参数（和 Compiler 的参数相同，路径相对于服务器的工作目录），
+ * 每个请求回复一行 "OK 耗时毫秒" 或 "ERROR 原因"，一个连接上可以依次发送多个请求
+ * 每个连接由一个虚拟线程处理，编译在该请求独占的 ForkJoinPool 上执行，池中所有线程都绑定这个请求的 Flag，
+ * 所以并行 Pass 读到的也是本请求的选项；-fstats 计数器属于每次编译，日志级别仍然是整个进程共享的
+ */
+public class CompileServer implements Closeable {
+    @FunctionalInterface
+    public interface CompileTask {
+        /**
+         * 按当前线程绑定的 Flag 编译一个文件
+         */
+        void compile() throws Exception;
+    }
+
+    public static final int DEFAULT_PORT = 8080;
+    private static final Path CONFIG_PATH = Path.of("config", "application.properties");
+
+    private final ServerSocket serverSocket;
+    private final CompileTask task;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param port 监听的端口，只绑定回环地址，0 表示随机端口
+     * @param task 处理单个编译请求
+     */
+    public CompileServer(int port, CompileTask task) throws IOException {
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.task = task;
+    }
+
+    /**
+     * 端口依次取 -Dserver.port、config/application.properties 中的 server.port，都没有时使用 DEFAULT_PORT
+     */
+    public static int getConfiguredPort() {
+        final var property = System.getProperty("server.port");
+        if (property != null && !property.isBlank()) return Integer.parseInt(property.trim());
+
+        if (Files.isRegularFile(CONFIG_PATH)) {
+            final var properties = new Properties();
+            try (var reader = Files.newBufferedReader(CONFIG_PATH, UTF_8)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                Log.w("读取 " + CONFIG_PATH + " 失败: " + e.getMessage());
+            }
+            final var port = properties.getProperty("server.port");
+            if (port != null && !port.isBlank()) return Integer.parseInt(port.trim());
+        }
+        return DEFAULT_PORT;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * 接受连接直到服务器被关闭
+     */
+    public void serve() {
+        Log.i("编译服务器已启动: " + serverSocket.getLocalSocketAddress());
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) break;
+                Log.w("接受连接失败: " + e.getMessage());
+                continue;
+            }
+            connections.submit(() -> handleConnection(socket));
+        }
+    }
+
+    private void handleConnection(Socket socket) {
+        try (socket;
+             var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+             var writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), UTF_8), true)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                writer.println(handleRequest(line.trim().split("\\s+")));
+            }
+        } catch (IOException e) {
+            Log.w("连接异常断开: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 编译一个请求，阻塞到编译结束
+     * @param args 命令行参数
+     * @return 回复给客户端的一行结果
+     */
+    public String handleRequest(String[] args) {
+        final var start = System.nanoTime();
+        ForkJoinPool pool = null;
+        try {
+            // 参数格式错误时 Flag.parse 会抛出异常，同样作为这个请求的错误回复，不影响连接上之后的请求
+            final var flags = Flag.parse(args);
+            if (flags.getValue("source") == null) return "ERROR 缺少源文件";
+
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                    boundWorkerFactory(flags), null, false);
+            // 在任务内捕获异常，避免 ForkJoinTask 跨线程重新包装异常
+            final var failure = pool.submit(() -> {
+                try {
+                    task.compile();
+                    return null;
+                } catch (Throwable e) {
+                    return e;
+                }
+            }).get();
+            if (failure == null) return "OK " + (System.nanoTime() - start) / 1_000_000;
+            Log.w(() -> "编译 " + flags.getValue("source") + " 失败: " + failure);
+            return "ERROR " + describe(failure);
+        } catch (ExecutionException e) {
+            return "ERROR " + describe(e.getCause() == null ? e : e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "ERROR 请求被中断";
+        } catch (RuntimeException e) {
+            Log.w(() -> "处理请求 " + String.join(" ", args) + " 失败: " + e);
+            return "ERROR " + describe(e);
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    /**
+     * 池中的线程启动时绑定请求的 Flag，保留 ThreadLocal 以免执行完一个任务后绑定被清掉
+     */
+    private static ForkJoinPool.ForkJoinWorkerThreadFactory boundWorkerFactory(Flag flags) {
+        return pool -> new ForkJoinWorkerThread(null, pool, true) {
+            @Override
+            protected void onStart() {
+                super.onStart();
+                Flag.bind(flags);
+            }
+        };
+    }
+
+    private static String describe(Throwable throwable) {
+        final var message = throwable.getMessage();
+        final var text = message == null ? throwable.getClass().getSimpleName()
+                : throwable.getClass().getSimpleName() + ": " + message;
+        return text.replace('\n', ' ').replace('\r', ' ');
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+}
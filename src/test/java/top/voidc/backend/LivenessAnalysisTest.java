@@ -6,11 +6,18 @@ import top.voidc.backend.instr.InstructionSelectionPass;
 import top.voidc.ir.IceContext;
 import top.voidc.ir.IceUnit;
 import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.type.IceType;
+import top.voidc.ir.ice.type.IceVecType;
+import top.voidc.ir.machine.IceMachineInstruction;
+import top.voidc.ir.machine.IceMachineRegister;
 import top.voidc.misc.Log;
 import top.voidc.optimizer.PassManager;
 import top.voidc.optimizer.pass.unit.ShowIR;
 
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -69,4 +76,70 @@ public class LivenessAnalysisTest {
             Log.d("Block: " + block.getName() + ", Live In: " + data.liveIn() + ", Live Out: " + data.liveOut());
         }
     }
+
+    @Test
+    public void testRegisterClassesAndInstructionLiveOut() {
+        var context = runOnFunction("""
+                define float @bar(i32 %n, float %x) {
+                entry:
+                	br label %loop
+                loop:
+                	%i = phi i32 [ 0, %entry ], [ %i1, %loop ]
+                	%acc = phi float [ %x, %entry ], [ %acc1, %loop ]
+                	%i1 = add i32 %i, 1
+                	%acc1 = fadd float %acc, %x
+                	%c = icmp slt i32 %i1, %n
+                	br i1 %c, label %loop, label %exit
+                exit:
+                	ret float %acc1
+                }
+                """);
+
+        var livenessResult = context.getPassResults().stream()
+                .filter(result -> result instanceof LivenessAnalysis.LivenessResult)
+                .map(result -> (LivenessAnalysis.LivenessResult) result).findFirst().orElseThrow();
+        var function = context.getCurrentIR().getFunctions().getFirst();
+        var liveness = livenessResult.getLiveness(function);
+        var blockData = livenessResult.getLivenessData(function);
+        var classes = List.of(IceType.I64, IceVecType.VEC128);
+
+        var loopCarried = false;
+        for (var block : function.blocks()) {
+            // 各寄存器类的结果合起来等于集合形式的结果，且每一类只包含该类的寄存器
+            var liveOut = new HashSet<>();
+            for (var registerClass : classes) {
+                var registers = liveness.getLiveOut(block, registerClass);
+                assertTrue(registers.stream().allMatch(register -> register.getType().equals(registerClass)));
+                liveOut.addAll(registers);
+
+                // 块中最后一条指令之后活跃的寄存器就是块出口活跃的寄存器
+                var last = (IceMachineInstruction) block.getInstructions().getLast();
+                assertEquals(registers, liveness.getLiveOut(last, registerClass));
+            }
+            assertEquals(blockData.get(block).liveOut(), liveOut);
+
+            // 逐条指令检查：指令之后活跃的寄存器要么在之后被使用，要么在块出口活跃
+            var instructions = block.getInstructions();
+            for (int i = 0; i < instructions.size(); i++) {
+                var instruction = (IceMachineInstruction) instructions.get(i);
+                Set<IceMachineRegister> usedLater = new HashSet<>();
+                for (var later : instructions.subList(i + 1, instructions.size())) {
+                    for (var operand : ((IceMachineInstruction) later).getSourceOperands(true)) {
+                        if (operand instanceof IceMachineRegister.RegisterView view) usedLater.add(view.getRegister());
+                    }
+                }
+                for (var registerClass : classes) {
+                    for (var register : liveness.getLiveOut(instruction, registerClass)) {
+                        assertTrue(usedLater.contains(register) || liveOut.contains(register),
+                                "Unexpected live register " + register + " after " + instruction);
+                        assertTrue(liveness.isLiveOut(instruction, register));
+                    }
+                }
+            }
+            // 循环中的整数和浮点累加值都跨过回边活跃
+            loopCarried |= !liveness.getLiveIn(block, IceType.I64).isEmpty()
+                    && !liveness.getLiveIn(block, IceVecType.VEC128).isEmpty();
+        }
+        assertTrue(loopCarried);
+    }
 }
@@ -0,0 +1,51 @@
+package top.voidc.backend.instr;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.backend.arm64.instr.pattern.ARM64InstructionPatternPack;
+import top.voidc.backend.arm64.instr.pattern.ArithmaticInstructionPattern;
+import top.voidc.backend.arm64.instr.pattern.ControlInstructionPattern;
+import top.voidc.ir.ice.constant.IceConstantData;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.instruction.IceBinaryInstruction;
+import top.voidc.ir.ice.instruction.IceCallInstruction;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstructionPatternIndexTest {
+
+    @Test
+    public void testTargetType() {
+        assertEquals(IceBinaryInstruction.Add.class, new ArithmaticInstructionPattern.ADDTwoReg().getTargetType());
+        // 通过抽象父类继承的泛型参数
+        assertEquals(IceCallInstruction.class, new ControlInstructionPattern.IntCall().getTargetType());
+    }
+
+    @Test
+    public void testCandidates() {
+        final var function = IceFunction.fromTextIR("""
+                define i32 @foo(i32 %x) {
+                entry:
+                	%0 = add i32 %x, 1
+                	ret i32 %0
+                }
+                """);
+        final var pack = new ARM64InstructionPatternPack();
+        final var index = pack.getPatternIndex();
+        final var add = function.getEntryBlock().getFirst();
+        final var constant = IceConstantData.create(1);
+
+        for (var value : List.of(add, constant)) {
+            final var candidates = index.getCandidates(value);
+            assertFalse(candidates.isEmpty());
+            // 候选按指令包中的顺序排列，且包含所有类型相符的模式
+            final var expected = pack.getPatternPack().stream()
+                    .filter(pattern -> pattern.getTargetType().isInstance(value))
+                    .toList();
+            assertEquals(expected, candidates);
+            assertSame(candidates, index.getCandidates(value));
+        }
+        assertTrue(index.getCandidates(add).size() < pack.getPatternPack().size());
+    }
+}
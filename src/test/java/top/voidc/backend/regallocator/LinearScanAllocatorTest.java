@@ -0,0 +1,105 @@
+package top.voidc.backend.regallocator;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.backend.arm64.instr.ARM64Function;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.type.IceType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinearScanAllocatorTest {
+    private static ARM64Function createFunction() {
+        return new ARM64Function(IceFunction.fromTextIR("""
+                define void @f() {
+                entry:
+                	ret void
+                }
+                """));
+    }
+
+    private static LinearScanAllocator.LiveInterval createInterval(ARM64Function function, int start, int end) {
+        final var interval = new LinearScanAllocator.LiveInterval(function.allocateVirtualRegister(IceType.I64).getRegister());
+        interval.addRange(start, end);
+        return interval;
+    }
+
+    @Test
+    public void testFixedRanges() {
+        final var function = createFunction();
+        final var x0 = function.getPhysicalRegister("x0");
+        final var x1 = function.getPhysicalRegister("x1");
+        final var pool = new LinearScanAllocator.RegisterPool(List.of(x0, x1));
+
+        // 每个固定区间单独加入，和分配器拆分预着色区间的方式一致
+        final var fixed = Map.of(2, 6, 4, 10, 10, 12, 16, 18, 20, 20).entrySet().stream().map(range -> {
+            final var interval = new LinearScanAllocator.LiveInterval(x0, true);
+            interval.addRange(range.getKey(), range.getValue());
+            return interval;
+        }).toList();
+        pool.addFixedIntervals(fixed);
+
+        // 相交以及端点重合的区间合并，相邻但不相交的区间保持独立
+        assertEquals(new TreeMap<>(Map.of(2, 12, 16, 18, 20, 20)), pool.getFixedRanges(x0));
+        assertTrue(pool.getFixedRanges(x1).isEmpty());
+
+        assertTrue(pool.isFixedIntersecting(x0, 0, 2));
+        assertTrue(pool.isFixedIntersecting(x0, 8, 8));
+        assertTrue(pool.isFixedIntersecting(x0, 12, 16));
+        assertFalse(pool.isFixedIntersecting(x0, 14, 14));
+        assertFalse(pool.isFixedIntersecting(x0, 0, 0));
+        assertTrue(pool.isFixedIntersecting(x0, 0, 30));
+        assertFalse(pool.isFixedIntersecting(x0, 22, 30));
+        assertFalse(pool.isFixedIntersecting(x1, 0, 30));
+
+        // 和固定区间相交的区间不会分配到对应的寄存器
+        assertEquals(Optional.of(x1), pool.get(createInterval(function, 8, 14)));
+        assertEquals(Optional.empty(), pool.get(createInterval(function, 6, 6)));
+    }
+
+    @Test
+    public void testSpillCandidate() {
+        final var function = createFunction();
+        final var active = new LinearScanAllocator.ActiveIntervals();
+        assertTrue(active.getSpillCandidate().isEmpty());
+
+        final var first = createInterval(function, 0, 10);
+        final var second = createInterval(function, 2, 10);
+        final var shorter = createInterval(function, 4, 6);
+        final var precolored = new LinearScanAllocator.LiveInterval(function.getPhysicalRegister("x0"), true);
+        precolored.addRange(4, 20);
+        active.add(first);
+        active.add(second);
+        active.add(shorter);
+        active.add(precolored);
+
+        // 预着色区间不会被溢出，结束位置相同时选择最早进入的区间
+        assertSame(first, active.getSpillCandidate().orElseThrow());
+        active.remove(first);
+        assertSame(second, active.getSpillCandidate().orElseThrow());
+    }
+
+    @Test
+    public void testExpireOrder() {
+        final var function = createFunction();
+        final var active = new LinearScanAllocator.ActiveIntervals();
+
+        final var a = createInterval(function, 0, 8);
+        final var b = createInterval(function, 0, 4);
+        final var c = createInterval(function, 2, 6);
+        final var d = createInterval(function, 2, 12);
+        for (var interval : List.of(a, b, c, d)) active.add(interval);
+
+        // 过期的区间按进入的先后返回，而不是按结束位置
+        assertEquals(List.of(), active.expire(2));
+        assertEquals(List.of(a, b, c), active.expire(8));
+        assertFalse(active.isEmpty());
+        assertSame(d, active.getSpillCandidate().orElseThrow());
+        assertEquals(List.of(d), active.expire(12));
+        assertTrue(active.isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+package top.voidc.benchmark;
+
+import org.antlr.v4.runtime.CharStreams;
+import top.voidc.frontend.helper.LibrarySnapshot;
+import top.voidc.frontend.helper.SysyParsing;
+import top.voidc.frontend.translator.IRGenerator;
+import top.voidc.ir.IceContext;
+import top.voidc.ir.IceUnit;
+import top.voidc.misc.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基准测试公用工具
+ * 基准测试类以 Benchmark 结尾，不会被 surefire 默认执行，需要手动指定：
+ * mvn test -Dtest=BlockOrderBenchmark
+ * 单个 Pass 的 JMH 基准测试在 src/jmh/java 中，使用 jmh profile 运行
+ */
+public class BenchmarkSupport {
+    public static final String PERFORMANCE_CASES = "testcases/2025_arm_performance";
+
+    /**
+     * @return 性能测试样例的源文件，按文件名排序
+     */
+    public static List<File> performanceCases() {
+        return sources(PERFORMANCE_CASES);
+    }
+
+    /**
+     * @param paths 源文件或者目录，目录中的 .sy 文件按文件名排序
+     * @return 所有源文件
+     */
+    public static List<File> sources(String... paths) {
+        final var result = new ArrayList<File>();
+        for (var path : paths) {
+            final var file = new File(path);
+            if (file.isFile()) {
+                result.add(file);
+                continue;
+            }
+            final var files = file.listFiles((_, name) -> name.endsWith(".sy"));
+            Log.should(files != null, "找不到测试样例 " + path);
+            Arrays.stream(files).sorted().forEach(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * 只运行前端生成 IR，不运行任何 Pass，和 Compiler 一样优先从快照加载库函数声明
+     * @param source 源文件
+     * @return 包含 IR 的上下文
+     */
+    public static IceContext frontend(File source) throws IOException {
+        final var context = new IceContext();
+        context.setSource(source);
+        context.setCurrentIR(new IceUnit(source.getName()));
+
+        final var generator = new IRGenerator(context);
+        if (!LibrarySnapshot.load(context)) {
+            final var libStream = BenchmarkSupport.class.getResourceAsStream(LibrarySnapshot.LIBRARY_SOURCE);
+            Log.should(libStream != null, "lib.sy not found");
+            SysyParsing.parse(context, CharStreams.fromStream(libStream));
+            generator.generateIR();
+        }
+
+        SysyParsing.parse(context, CharStreams.fromFileName(source.getAbsolutePath()));
+        generator.generateIR();
+        return context;
+    }
+
+    /**
+     * 运行若干次预热后计时
+     * @return 平均每轮耗时（纳秒）
+     */
+    public static double measure(int warmup, int rounds, Runnable action) {
+        for (int i = 0; i < warmup; i++) action.run();
+        final var start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) action.run();
+        return (double) (System.nanoTime() - start) / rounds;
+    }
+}
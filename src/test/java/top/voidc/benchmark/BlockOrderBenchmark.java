@@ -0,0 +1,61 @@
+package top.voidc.benchmark;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.ice.constant.IceExternFunction;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.misc.Log;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 基本块顺序缓存的基准测试
+ * 模拟 Pass 中常见的访问模式：遍历所有块、查询块数量、构建 CFG
+ * uncached 在每次访问前手动使 CFG 失效，等价于缓存之前每次都重新遍历的实现
+ */
+public class BlockOrderBenchmark {
+    private static final int WARMUP = 20;
+    private static final int ROUNDS = 100;
+    private static final int ACCESSES_PER_ROUND = 16;
+
+    private static int traverse(List<IceFunction> functions, boolean cached) {
+        var sum = 0;
+        for (var function : functions) {
+            for (int i = 0; i < ACCESSES_PER_ROUND; i++) {
+                if (!cached) function.invalidateCFG();
+                for (IceBlock block : function) {
+                    sum += block.size();
+                }
+                if (!cached) function.invalidateCFG();
+                sum += function.getBlocksSize();
+            }
+            if (!cached) function.invalidateCFG();
+            sum += function.getControlFlowGraph().getNodeCount();
+        }
+        return sum;
+    }
+
+    @Test
+    public void benchmarkBlockOrder() throws IOException {
+        var totalUncached = 0.0;
+        var totalCached = 0.0;
+        for (var source : BenchmarkSupport.performanceCases()) {
+            final var functions = BenchmarkSupport.frontend(source).getCurrentIR().getFunctions().stream()
+                    .filter(function -> !(function instanceof IceExternFunction))
+                    .toList();
+            assertEquals(traverse(functions, false), traverse(functions, true));
+
+            final var uncached = BenchmarkSupport.measure(WARMUP, ROUNDS, () -> traverse(functions, false));
+            final var cached = BenchmarkSupport.measure(WARMUP, ROUNDS, () -> traverse(functions, true));
+            totalUncached += uncached;
+            totalCached += cached;
+            Log.i(String.format("%-24s uncached %10.1f us  cached %10.1f us  x%.1f",
+                    source.getName(), uncached / 1000, cached / 1000, uncached / cached));
+        }
+        Log.i(String.format("total uncached %.1f ms  cached %.1f ms  x%.1f",
+                totalUncached / 1e6, totalCached / 1e6, totalUncached / totalCached));
+    }
+}
@@ -0,0 +1,68 @@
+package top.voidc.benchmark;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.frontend.helper.LibrarySnapshot;
+import top.voidc.ir.IceContext;
+import top.voidc.ir.IceUnit;
+import top.voidc.misc.Log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 库函数声明的加载耗时：解析 lib.sy 与读取构建时生成的快照
+ * 首次调用包含类加载和 SysyParser 的 ATN 反序列化，接近单次编译的启动开销，
+ * 快照先运行，它加载的 IR 类解析路径也要用到，所以对解析路径的首次耗时是偏乐观的
+ * 快照由 mvn process-classes 生成，直接在 IDE 里运行时需要先构建一次
+ */
+public class LibrarySnapshotBenchmark {
+    private static final int WARMUP = 50;
+    private static final int ROUNDS = 500;
+
+    private static IceContext newContext() {
+        final var context = new IceContext();
+        context.setCurrentIR(new IceUnit("benchmark"));
+        return context;
+    }
+
+    private static int loadSnapshot() {
+        try {
+            final var context = newContext();
+            LibrarySnapshot.load(context);
+            return context.getCurrentIR().getFunctions().size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int parseLibrary() {
+        try (var source = LibrarySnapshot.class.getResourceAsStream(LibrarySnapshot.LIBRARY_SOURCE)) {
+            return LibrarySnapshot.compileLibrary(source).size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    public void benchmarkLibraryLoading() {
+        Log.should(LibrarySnapshot.class.getResource(LibrarySnapshot.RESOURCE) != null, "找不到 lib.snapshot，需要先构建");
+
+        var start = System.nanoTime();
+        final var snapshotFunctions = loadSnapshot();
+        final var snapshotCold = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        final var parsedFunctions = parseLibrary();
+        final var parseCold = System.nanoTime() - start;
+        assertEquals(parsedFunctions, snapshotFunctions);
+
+        final var snapshotWarm = BenchmarkSupport.measure(WARMUP, ROUNDS, LibrarySnapshotBenchmark::loadSnapshot);
+        final var parseWarm = BenchmarkSupport.measure(WARMUP, ROUNDS, LibrarySnapshotBenchmark::parseLibrary);
+        Log.i(String.format("first call: parse %.2f ms  snapshot %.2f ms  x%.1f",
+                parseCold / 1e6, snapshotCold / 1e6, (double) parseCold / snapshotCold));
+        Log.i(String.format("warm:       parse %.1f us  snapshot %.1f us  x%.1f",
+                parseWarm / 1000, snapshotWarm / 1000, parseWarm / snapshotWarm));
+    }
+}
@@ -0,0 +1,90 @@
+package top.voidc.benchmark;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.junit.jupiter.api.Test;
+import top.voidc.frontend.helper.SysyParsing;
+import top.voidc.frontend.parser.SysyLexer;
+import top.voidc.frontend.parser.SysyParser;
+import top.voidc.misc.Log;
+import top.voidc.misc.Statistics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 语法分析的基准测试：只用 LL 预测与先 SLL 后 LL 的两阶段解析
+ * 除了性能测试样例，还生成一个表达式嵌套很深的程序，模拟生成出来的大文件
+ */
+public class ParserBenchmark {
+    private static final int WARMUP = 5;
+    private static final int ROUNDS = 10;
+    private static final int REPEATS = 4;
+
+    private static SysyParser newParser(String source) {
+        return new SysyParser(new CommonTokenStream(new SysyLexer(CharStreams.fromString(source))));
+    }
+
+    private static SysyParser.CompUnitContext parseLL(SysyParser parser) {
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        return parser.compUnit();
+    }
+
+    private static String toStringTree(String source, boolean twoStage) {
+        final var parser = newParser(source);
+        return (twoStage ? SysyParsing.parse(parser) : parseLL(parser)).toStringTree(parser);
+    }
+
+    private static String deeplyNested(int depth, int statements) {
+        final var builder = new StringBuilder("int main() {\n    int a = 1, b = 2, c[4] = {};\n");
+        for (int i = 0; i < statements; i++) {
+            builder.append("    a = ");
+            for (int d = 0; d < depth; d++) builder.append("(a + b * (c[").append(d % 4).append("] - ");
+            builder.append(i);
+            for (int d = 0; d < depth; d++) builder.append("))");
+            builder.append(";\n");
+        }
+        return builder.append("    return a;\n}\n").toString();
+    }
+
+    @Test
+    public void benchmarkPredictionMode() throws IOException {
+        final var sources = new ArrayList<String>();
+        final var names = new ArrayList<String>();
+        for (var file : BenchmarkSupport.performanceCases()) {
+            sources.add(Files.readString(file.toPath()));
+            names.add(file.getName());
+        }
+        sources.add(deeplyNested(64, 200));
+        names.add("generated_nested");
+
+        Statistics.reset();
+        var totalLL = 0.0;
+        var totalTwoStage = 0.0;
+        for (int i = 0; i < sources.size(); i++) {
+            final var source = sources.get(i);
+            assertEquals(toStringTree(source, false), toStringTree(source, true));
+
+            // 交替测量并取最小值，减少 JIT 和 GC 对先后顺序的影响
+            var ll = Double.MAX_VALUE;
+            var twoStage = Double.MAX_VALUE;
+            for (int repeat = 0; repeat < REPEATS; repeat++) {
+                ll = Math.min(ll, BenchmarkSupport.measure(WARMUP, ROUNDS, () -> parseLL(newParser(source))));
+                twoStage = Math.min(twoStage,
+                        BenchmarkSupport.measure(WARMUP, ROUNDS, () -> SysyParsing.parse(newParser(source))));
+            }
+            totalLL += ll;
+            totalTwoStage += twoStage;
+            Log.i(String.format("%-24s LL %10.1f us  SLL+LL %10.1f us  x%.2f",
+                    names.get(i), ll / 1000, twoStage / 1000, ll / twoStage));
+        }
+        Log.i(String.format("total LL %.1f ms  SLL+LL %.1f ms  x%.2f  LL fallbacks: %d",
+                totalLL / 1e6, totalTwoStage / 1e6, totalLL / totalTwoStage,
+                Statistics.snapshot().getOrDefault("parser.LLFallback", 0L)));
+    }
+}
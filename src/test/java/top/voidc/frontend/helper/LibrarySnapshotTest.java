@@ -0,0 +1,56 @@
+package top.voidc.frontend.helper;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.IceValue;
+import top.voidc.ir.ice.constant.IceExternFunction;
+import top.voidc.ir.ice.type.IceArrayType;
+import top.voidc.ir.ice.type.IcePtrType;
+import top.voidc.ir.ice.type.IceType;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LibrarySnapshotTest {
+    private static List<IceExternFunction> compileLibrary() throws IOException {
+        try (var source = LibrarySnapshot.class.getResourceAsStream(LibrarySnapshot.LIBRARY_SOURCE)) {
+            assertNotNull(source);
+            return LibrarySnapshot.compileLibrary(source);
+        }
+    }
+
+    private static List<String> describe(List<IceExternFunction> functions) {
+        return functions.stream()
+                .map(function -> function.getTextIR() + " " + function.getParameters().stream()
+                        .map(IceValue::getName).toList())
+                .toList();
+    }
+
+    @Test
+    public void testRoundTripMatchesLibrary() throws IOException {
+        final var compiled = compileLibrary();
+        final var snapshot = LibrarySnapshot.write(compiled);
+        final var loaded = LibrarySnapshot.read(snapshot);
+
+        assertEquals(describe(compiled), describe(loaded));
+        assertEquals(snapshot, LibrarySnapshot.write(loaded));
+        assertTrue(loaded.stream().anyMatch(function -> function.getName().equals("putf") && function.isVArgs()));
+    }
+
+    @Test
+    public void testNestedTypes() {
+        final var function = LibrarySnapshot.read("matrix float m:*[4][8]float n:i32 ...\n").getFirst();
+        assertEquals(IceType.F32, function.getReturnType());
+        assertTrue(function.isVArgs());
+
+        final var pointer = assertInstanceOf(IcePtrType.class, function.getParameters().getFirst().getType());
+        final var outer = assertInstanceOf(IceArrayType.class, pointer.getPointTo());
+        assertEquals(4, outer.getNumElements());
+        final var inner = assertInstanceOf(IceArrayType.class, outer.getElementType());
+        assertEquals(8, inner.getNumElements());
+        assertEquals(IceType.F32, inner.getElementType());
+
+        assertEquals("matrix float m:*[4][8]float n:i32 ...\n", LibrarySnapshot.write(List.of(function)));
+    }
+}
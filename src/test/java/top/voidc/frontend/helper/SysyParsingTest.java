@@ -0,0 +1,51 @@
+package top.voidc.frontend.helper;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.jupiter.api.Test;
+import top.voidc.frontend.parser.SysyLexer;
+import top.voidc.frontend.parser.SysyParser;
+import top.voidc.misc.Statistics;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SysyParsingTest {
+    private static SysyParser newParser(String source) {
+        return new SysyParser(new CommonTokenStream(new SysyLexer(CharStreams.fromString(source))));
+    }
+
+    private static long fallbacks() {
+        return Statistics.snapshot().getOrDefault("parser.LLFallback", 0L);
+    }
+
+    @Test
+    public void testSLLParse() {
+        final var source = "int a[2] = {1, 2};\nint main() { if (a[0] < 2 && !a[1]) return -a[0] * (3 + 4); return 0; }\n";
+        final var before = fallbacks();
+        final var parser = newParser(source);
+        final var tree = SysyParsing.parse(parser).toStringTree(parser);
+        assertEquals(before, fallbacks());
+
+        final var reference = newParser(source);
+        assertEquals(reference.compUnit().toStringTree(reference), tree);
+    }
+
+    @Test
+    public void testSyntaxErrorFallsBackToLL() {
+        final var before = fallbacks();
+        assertThrows(ParseCancellationException.class,
+                () -> SysyParsing.parse(newParser("int main() { int a = ; return 0 }\n")));
+        assertEquals(before + 1, fallbacks());
+    }
+
+    @Test
+    public void testWarmUp() throws IOException {
+        final var before = fallbacks();
+        SysyParsing.warmUp();
+        SysyParsing.warmUp();
+        assertEquals(before, fallbacks());
+    }
+}
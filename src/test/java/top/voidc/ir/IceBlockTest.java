@@ -0,0 +1,88 @@
+package top.voidc.ir;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.instruction.IceUnreachableInstruction;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IceBlockTest {
+    private static IceBlock getBlock(IceFunction function, String name) {
+        return function.getBlocks().stream().filter(block -> block.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static IceFunction createFunction() {
+        return IceFunction.fromTextIR("""
+                define i32 @f(i1 %c) {
+                entry:
+                	br i1 %c, label %a, label %b
+                a:
+                	br label %exit
+                b:
+                	br label %exit
+                exit:
+                	ret i32 0
+                }
+                """);
+    }
+
+    @Test
+    public void testReplaceBranchTarget() {
+        final var function = createFunction();
+        final var entry = getBlock(function, "entry");
+        final var a = getBlock(function, "a");
+        final var b = getBlock(function, "b");
+        final var exit = getBlock(function, "exit");
+
+        final var predecessors = exit.getPredecessors();
+        assertEquals(List.of(a, b), predecessors);
+        assertThrows(UnsupportedOperationException.class, () -> predecessors.add(entry));
+
+        // 返回的是视图，修改跳转目标后立即可见
+        a.getLast().replaceOperand(exit, b);
+        assertEquals(List.of(b), predecessors);
+        assertEquals(List.of(entry, a), b.getPredecessors());
+
+        // 条件跳转的两个目标相同时只记录一次
+        entry.getLast().replaceOperand(a, b);
+        assertEquals(List.of(entry, a), b.getPredecessors());
+        assertEquals(0, a.predecessorCount());
+    }
+
+    @Test
+    public void testRemoveTerminator() {
+        final var function = createFunction();
+        final var a = getBlock(function, "a");
+        final var b = getBlock(function, "b");
+        final var exit = getBlock(function, "exit");
+
+        a.getLast().destroy();
+        assertEquals(List.of(b), exit.getPredecessors());
+
+        // 通过迭代器删除同样维护前驱边
+        final var iterator = b.iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals(0, exit.predecessorCount());
+
+        a.addInstruction(new IceUnreachableInstruction(a));
+        assertEquals(0, exit.predecessorCount());
+    }
+
+    @Test
+    public void testDestroyBlock() {
+        final var function = createFunction();
+        final var entry = getBlock(function, "entry");
+        final var a = getBlock(function, "a");
+        final var b = getBlock(function, "b");
+        final var exit = getBlock(function, "exit");
+
+        // 删除基本块后指向它的条件跳转变为无条件跳转，它自己的出边也被删除
+        a.destroy();
+        assertEquals(List.of(b), exit.getPredecessors());
+        assertEquals(List.of(entry), b.getPredecessors());
+        assertEquals(List.of(b), entry.getSuccessors());
+    }
+}
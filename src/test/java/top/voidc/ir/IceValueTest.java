@@ -0,0 +1,113 @@
+package top.voidc.ir;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.ice.constant.IceConstantData;
+import top.voidc.ir.ice.type.IceType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IceValueTest {
+    private static List<IceUse> uses(IceValue value) {
+        final var result = new ArrayList<IceUse>();
+        value.getUses().forEach(result::add);
+        return result;
+    }
+
+    @Test
+    public void testUseChain() {
+        final var a = new IceValue("a", IceType.I32);
+        final var b = new IceValue("b", IceType.I32);
+        final var user1 = new IceUser("u1", IceType.I32);
+        final var user2 = new IceUser("u2", IceType.I32);
+
+        user1.addOperand(a);
+        user1.addOperand(b);
+        user1.addOperand(a);
+        user2.addOperand(a);
+
+        // 同一个使用者的多次使用各占一个节点，使用者只出现一次且按顺序排列
+        assertEquals(3, a.getUseCount());
+        assertEquals(List.of(user1, user2), a.getUsers());
+        assertEquals(List.of(0, 2, 0), uses(a).stream().map(IceUse::getIndex).toList());
+
+        // 删除操作数后下标前移
+        user1.removeOperand(a);
+        assertEquals(List.of(b), user1.getOperands());
+        assertEquals(0, user1.getOperandUses().getFirst().getIndex());
+        assertEquals(List.of(user2), a.getUsers());
+
+        user1.addOperand(0, a);
+        assertEquals(List.of(a, b), user1.getOperands());
+        assertEquals(List.of(0, 1), user1.getOperandUses().stream().map(IceUse::getIndex).toList());
+    }
+
+    @Test
+    public void testReplaceAllUsesWith() {
+        final var a = new IceValue("a", IceType.I32);
+        final var b = new IceValue("b", IceType.I32);
+        final var user1 = new IceUser("u1", IceType.I32);
+        final var user2 = new IceUser("u2", IceType.I32);
+
+        user1.addOperand(a);
+        user1.addOperand(a);
+        user2.addOperand(b);
+        user2.addOperand(a);
+
+        a.replaceAllUsesWith(b);
+        assertFalse(a.hasUsers());
+        assertEquals(List.of(b, b), user1.getOperands());
+        assertEquals(List.of(b, b), user2.getOperands());
+        assertEquals(4, b.getUseCount());
+        assertEquals(List.of(user2, user1), b.getUsers());
+
+        // 销毁后不再出现在操作数的使用链上
+        user1.destroy();
+        assertEquals(List.of(user2), b.getUsers());
+        assertTrue(user1.getOperands().isEmpty());
+    }
+
+    @Test
+    public void testCloneDoesNotRegisterUses() {
+        final var a = new IceValue("a", IceType.I32);
+        final var b = new IceValue("b", IceType.I32);
+        final var user = new IceUser("u", IceType.I32);
+        user.addOperand(a);
+
+        final var clone = user.clone();
+        assertEquals(List.of(a), clone.getOperands());
+        assertEquals(List.of(user), a.getUsers());
+
+        clone.replaceOperand(a, b);
+        assertEquals(List.of(a), user.getOperands());
+        assertEquals(List.of(b), clone.getOperands());
+        assertEquals(List.of(clone), b.getUsers());
+        assertEquals(List.of(user), a.getUsers());
+    }
+
+    @Test
+    public void testIsOnlyUsedBy() {
+        final var a = new IceValue("a", IceType.I32);
+        final var user1 = new IceUser("u1", IceType.I32);
+        final var user2 = new IceUser("u2", IceType.I32);
+        assertFalse(a.isOnlyUsedBy(user1));
+
+        // 同一个使用者多次使用也算只被它使用
+        user1.addOperand(a);
+        user1.addOperand(a);
+        assertTrue(a.isOnlyUsedBy(user1));
+        assertFalse(a.isOnlyUsedBy(user2));
+
+        user2.addOperand(a);
+        assertFalse(a.isOnlyUsedBy(user1));
+    }
+
+    @Test
+    public void testConstantUsesNotWalkedUnlocked() {
+        final var constant = IceConstantData.create(1);
+        // 常量会被多个函数使用，只能通过 getUsers 取得使用者
+        assertThrows(AssertionError.class, constant::getUses);
+    }
+}
@@ -0,0 +1,101 @@
+package top.voidc.ir.bitcode;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.backend.SSADestruction;
+import top.voidc.benchmark.BenchmarkSupport;
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.IceUnit;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.instruction.IcePHINode;
+import top.voidc.optimizer.PassManager;
+import top.voidc.optimizer.pass.function.*;
+import top.voidc.optimizer.pass.unit.FunctionPureness;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IceBitcodeTest {
+    private static IceUnit roundTrip(IceUnit unit) {
+        final var bytes = IceBitcodeWriter.write(unit);
+        final var loaded = IceBitcodeReader.read(bytes);
+        assertEquals(unit.getTextIR(), loaded.getTextIR());
+        // 读入的 IR 再写出来应该完全一致
+        assertArrayEquals(bytes, IceBitcodeWriter.write(loaded));
+        return loaded;
+    }
+
+    @Test
+    public void testForwardReference() {
+        final var function = IceFunction.fromTextIR("""
+                define i32 @foo(i32 %n) {
+                entry:
+                	br label %while.cond
+                while.cond:
+                	%0 = phi i32 [ 0, %entry ], [ %1, %while.body ]
+                	%2 = icmp slt i32 %0, %n
+                	br i1 %2, label %while.body, label %while.end
+                while.body:
+                	%1 = add nsw i32 %0, 1
+                	br label %while.cond
+                while.end:
+                	ret i32 %0
+                }
+                """);
+        final var unit = new IceUnit("test");
+        unit.addFunction(function);
+
+        final var loaded = roundTrip(unit).getFunctions().getFirst();
+        final var blocks = loaded.getBlocks().stream().collect(Collectors.toMap(IceBlock::getName, block -> block));
+        final var phi = (IcePHINode) blocks.get("while.cond").getFirst();
+        final var increment = blocks.get("while.body").getFirst();
+        assertSame(increment, phi.getIncomingValue(blocks.get("while.body")));
+        assertEquals(List.of(phi), increment.getUsers());
+        assertEquals(List.of(blocks.get("while.cond")), blocks.get("while.body").getPredecessors());
+    }
+
+    @Test
+    public void testRoundTripOptimizedUnit() throws IOException {
+        for (var source : BenchmarkSupport.sources(
+                "testcases/functional/95_float.sy",
+                "testcases/functional/08_const_array_defn.sy",
+                "testcases/2025_arm_performance/fft0.sy")) {
+            final var context = BenchmarkSupport.frontend(source);
+            final var passManager = new PassManager(context);
+            passManager.setPipeline(pm -> {
+                pm.runFunctionPipeline(fp -> fp
+                        .runPass(ScalarReplacementOfAggregates.class)
+                        .runPass(Mem2Reg.class)
+                        .runPass(SmartChilletSimplifyCFG.class));
+                pm.runPass(FunctionPureness.class);
+                pm.runFunctionPipeline(fp -> fp
+                        .untilStable(GlobalValueNumbering.class, SparseConditionalConstantPropagation.class,
+                                SmartChilletDeleteUnusedValue.class, SmartChilletSimplifyCFG.class));
+            });
+            passManager.runAll();
+            roundTrip(context.getCurrentIR());
+
+            // SSA 消除后的复制指令会引用后面才定义的值
+            final var destructed = new PassManager(context);
+            destructed.setPipeline(pm -> pm.runFunctionPipeline(fp -> fp.runPass(SSADestruction.class)));
+            destructed.runAll();
+            roundTrip(context.getCurrentIR());
+        }
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        final var context = BenchmarkSupport.frontend(new File("testcases/functional/95_float.sy"));
+        final var file = Files.createTempFile("unit", ".iceb");
+        try {
+            IceBitcodeWriter.write(context.getCurrentIR(), file);
+            assertEquals(context.getCurrentIR().getTextIR(), IceBitcodeReader.read(file).getTextIR());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
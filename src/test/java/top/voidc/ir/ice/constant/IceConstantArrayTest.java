@@ -0,0 +1,44 @@
+package top.voidc.ir.ice.constant;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.ice.type.IceArrayType;
+import top.voidc.ir.ice.type.IceType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class IceConstantArrayTest {
+
+    private static List<String> collectRuns(IceConstantArray array) {
+        final var runs = new ArrayList<String>();
+        array.forEachElementRun((element, count) -> runs.add(element.getReferenceName(false) + " x " + count));
+        return runs;
+    }
+
+    /**
+     * int a[3][4] = {{1, 2}, {}, {0, 0, 0, 7}} 的后两行为 zeroinitializer 和压缩的 0
+     */
+    @Test
+    public void testElementRuns() {
+        final var rowType = new IceArrayType(IceType.I32, 4);
+        final var arrayType = new IceArrayType(rowType, 3);
+
+        final var first = new IceConstantArray(rowType, List.of());
+        first.addElement(IceConstantData.create(1));
+        first.addElement(IceConstantData.create(2));
+        final var third = new IceConstantArray(rowType, List.of());
+        third.addElement(IceConstantData.create(0), 3);
+        third.addElement(IceConstantData.create(7));
+
+        final var array = new IceConstantArray(arrayType, List.of());
+        array.addElement(first);
+        array.addElement(new IceConstantArray(rowType));
+        array.addElement(third);
+
+        // 第一行末尾未初始化的部分补 0
+        assertEquals(List.of("1 x 1", "2 x 1", "0 x 2", "0 x 4", "0 x 3", "7 x 1"), collectRuns(array));
+        assertEquals(List.of("0 x 12"), collectRuns(new IceConstantArray(arrayType)));
+    }
+}
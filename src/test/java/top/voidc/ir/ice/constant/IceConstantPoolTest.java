@@ -0,0 +1,65 @@
+package top.voidc.ir.ice.constant;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.IceUser;
+import top.voidc.ir.ice.type.IceArrayType;
+import top.voidc.ir.ice.type.IceType;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IceConstantPoolTest {
+    @Test
+    public void testInterned() {
+        assertSame(IceConstantData.create(1), IceConstantData.create(1));
+        assertSame(IceConstantData.create(1 << 20), IceConstantData.create(1 << 20));
+        assertSame(IceConstantData.create(1.5F), IceConstantData.create(1.5F));
+        assertSame(IceConstantData.create(2.5), IceConstantData.create(2.5));
+        assertSame(IceConstantData.create(1L << 40), IceConstantData.create(1L << 40));
+        assertSame(IceConstantData.create(true), IceConstantData.create(true));
+        assertSame(IceConstantData.create('a'), IceConstantData.create((byte) 'a'));
+
+        // 不同类型或不同位模式的值不共享
+        assertNotSame(IceConstantData.create(0.0F), IceConstantData.create(-0.0F));
+        assertNotSame(IceConstantData.create(1), IceConstantData.create(1L));
+
+        // 运算、转换和克隆的结果也来自池中
+        final var three = IceConstantData.create(3);
+        assertSame(three, IceConstantData.create(1).plus(IceConstantData.create(2)));
+        assertSame(three, IceConstantData.create(3.0F).castTo(IceType.I32));
+        assertSame(three, three.clone());
+        assertSame(IceConstantData.create(5000), IceConstantData.create(2500).multiply(IceConstantData.create(2)));
+    }
+
+    @Test
+    public void testZeroArrayElementsShared() {
+        final var array = new IceConstantArray(new IceArrayType(IceType.I32, 16));
+        final var elements = array.getFullElements();
+        assertEquals(16, elements.size());
+        assertTrue(elements.stream().allMatch(element -> element == IceConstantData.create(0)));
+        assertSame(IceConstantData.create(0), array.get(List.of(3)));
+
+        // 数组本身可变，不驻留
+        assertNotSame(array, array.clone());
+    }
+
+    @Test
+    public void testNoUseChain() {
+        final var one = IceConstantData.create(1);
+        final var user1 = new IceUser("u1", IceType.I32);
+        final var user2 = new IceUser("u2", IceType.I32);
+        user1.addOperand(one);
+        user2.addOperand(one);
+
+        assertEquals(List.of(one), user1.getOperands());
+        assertFalse(one.hasUsers());
+        assertEquals(0, one.getUseCount());
+
+        // 替换和删除操作数不受影响
+        user1.replaceOperand(one, IceConstantData.create(2));
+        assertEquals(List.of(IceConstantData.create(2)), user1.getOperands());
+        user2.removeOperand(one);
+        assertTrue(user2.getOperands().isEmpty());
+    }
+}
@@ -0,0 +1,57 @@
+package top.voidc.ir.ice.constant;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.ice.instruction.IceBranchInstruction;
+import top.voidc.ir.ice.instruction.IceRetInstruction;
+import top.voidc.ir.ice.type.IceType;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IceFunctionTest {
+    /**
+     * entry -> A -> exit, B 不可达
+     */
+    @Test
+    public void testBlockOrderCacheInvalidation() {
+        IceFunction function = new IceFunction("testFunction");
+        function.setReturnType(IceType.VOID);
+
+        IceBlock entry = function.getEntryBlock();
+        IceBlock blockA = new IceBlock(function, "blockA");
+        IceBlock blockB = new IceBlock(function, "blockB");
+        IceBlock exit = function.getExitBlock();
+
+        entry.addInstruction(new IceBranchInstruction(entry, blockA));
+        blockA.addInstruction(new IceBranchInstruction(blockA, exit));
+        blockB.addInstruction(new IceBranchInstruction(blockB, exit));
+        exit.addInstruction(new IceRetInstruction(exit));
+
+        final var before = function.getBlocks();
+        assertEquals(List.of(entry, blockA, exit), before);
+        // 未修改 CFG 时直接返回缓存
+        assertSame(before, function.getBlocks());
+
+        // 修改跳转目标
+        entry.getLast().replaceOperand(blockA, blockB);
+        assertEquals(List.of(entry, blockB, exit), function.getBlocks());
+        assertEquals(List.of(entry, blockA, exit), before);
+
+        // 删除终结指令
+        blockB.getLast().destroy();
+        assertEquals(List.of(entry, blockB), function.getBlocks());
+        assertEquals(List.of(entry, blockB), function.getBFSBlocks());
+
+        // 重新插入终结指令
+        blockB.addInstruction(new IceBranchInstruction(blockB, blockA));
+        assertEquals(List.of(entry, blockB, blockA, exit), function.getBlocks());
+        assertEquals(4, function.getBlocksSize());
+
+        // blocks() 返回副本
+        final var copy = function.blocks();
+        copy.clear();
+        assertEquals(4, function.getBlocksSize());
+    }
+}
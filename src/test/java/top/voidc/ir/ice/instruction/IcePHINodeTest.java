@@ -3,7 +3,7 @@ package top.voidc.ir.ice.instruction;
 import top.voidc.ir.IceBlock;
 import top.voidc.ir.IceValue;
 import top.voidc.ir.ice.type.IceType;
-import top.voidc.ir.ice.constant.IceConstantInt;
+import top.voidc.ir.ice.constant.IceConstantData;
 
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -17,7 +17,7 @@ public class IcePHINodeTest {
         IceBlock block2 = new IceBlock(null, "b2");
 
         phiNode.addBranch(block1, new IceValue("a", IceType.I32));
-        phiNode.addBranch(block2, new IceConstantInt(5));
+        phiNode.addBranch(block2, IceConstantData.create(5));
 
         StringBuilder sb = new StringBuilder();
         phiNode.getTextIR(sb);
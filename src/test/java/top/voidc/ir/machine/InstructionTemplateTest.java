@@ -0,0 +1,59 @@
+package top.voidc.ir.machine;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.backend.arm64.instr.ARM64Function;
+import top.voidc.backend.arm64.instr.ARM64Instruction;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.type.IceType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstructionTemplateTest {
+
+    @Test
+    public void testParse() {
+        final var template = InstructionTemplate.of("MADD {dst}, {x}, {y}, {z}");
+        assertSame(template, InstructionTemplate.of("MADD {dst}, {x}, {y}, {z}"));
+        assertEquals("MADD", template.getOpcode());
+        assertEquals(4, template.getSlotCount());
+        assertEquals(0, template.getResultIndex());
+        assertArrayEquals(new int[]{1, 2, 3}, template.getSourceIndices(false));
+        assertEquals("MADD ", template.getLiteral(0));
+        assertEquals(", ", template.getLiteral(1));
+        assertEquals("", template.getLiteral(4));
+    }
+
+    @Test
+    public void testImplicitOperands() {
+        final var template = InstructionTemplate.of("BL {label:func}, {implicit:x0}, {implicit:dst}");
+        assertEquals(2, template.getResultIndex());
+        assertTrue(template.isResultImplicit());
+        assertEquals("label", template.getSlot(0).prefix());
+        assertArrayEquals(new int[]{0}, template.getSourceIndices(false));
+        assertArrayEquals(new int[]{0, 1}, template.getSourceIndices(true));
+        assertArrayEquals(new int[]{0}, template.getOperandIndices(false));
+        assertArrayEquals(new int[]{0, 1, 2}, template.getOperandIndices(true));
+    }
+
+    @Test
+    public void testUninitializedStackSlot() {
+        final var function = new ARM64Function(IceFunction.fromTextIR("""
+                define void @f() {
+                entry:
+                	ret void
+                }
+                """));
+        final var register = function.allocateVirtualRegister(IceType.I32);
+        final var slot = function.allocateVariableStackSlot(IceType.I32);
+
+        // 偏移确定之前整个操作数都输出为占位符
+        final var load = new ARM64Instruction("LDR {dst}, {local:src}", register, slot);
+        final var add = new ARM64Instruction("ADD {dst}, sp, {local-offset:src}", register, slot);
+        assertEquals("LDR " + register.getReferenceName() + ", local_uninitialized", load.getTextIR());
+        assertEquals("ADD " + register.getReferenceName() + ", sp, slot_uninitialized", add.getTextIR());
+
+        slot.setOffset(16);
+        assertEquals("LDR " + register.getReferenceName() + ", [sp, #16]", load.getTextIR());
+        assertEquals("ADD " + register.getReferenceName() + ", sp, #16", add.getTextIR());
+    }
+}
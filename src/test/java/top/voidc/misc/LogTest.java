@@ -0,0 +1,44 @@
+package top.voidc.misc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogTest {
+    private final Log.Level originalLevel = Log.getLevel();
+
+    @AfterEach
+    public void restore() {
+        Log.setLevel(originalLevel);
+        Log.setCaptureLocation(true);
+        Log.setOutputStream(System.out);
+    }
+
+    @Test
+    public void testLevelGating() {
+        final var buffer = new ByteArrayOutputStream();
+        Log.setOutputStream(new PrintStream(buffer, true));
+        Log.setLevel(Log.Level.WARN);
+
+        Log.d(() -> {
+            throw new AssertionError("低于阈值时不应构造消息");
+        });
+        Log.i("info");
+        assertEquals("", buffer.toString());
+
+        Log.w(() -> "warn");
+        // -Ddebug 时级别带有颜色
+        assertTrue(buffer.toString().contains("WARN"));
+        assertTrue(buffer.toString().contains("][t.v.m.L.testLevelGating() @ (LogTest.java:"), buffer.toString());
+
+        buffer.reset();
+        Log.setCaptureLocation(false);
+        Log.e("error");
+        assertFalse(buffer.toString().contains("LogTest.java"));
+        assertTrue(buffer.toString().contains("error"));
+    }
+}
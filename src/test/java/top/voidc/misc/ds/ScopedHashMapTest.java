@@ -0,0 +1,33 @@
+package top.voidc.misc.ds;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScopedHashMapTest {
+    @Test
+    public void testShadowAndRestore() {
+        final var map = new ScopedHashMap<String, Integer>();
+        map.pushScope();
+        map.put("a", 1);
+        map.put("b", 2);
+
+        map.pushScope();
+        map.put("a", 10);
+        map.put("c", 3);
+        map.put("c", 30);
+        assertEquals(10, map.get("a"));
+        assertEquals(2, map.get("b"));
+        assertEquals(30, map.get("c"));
+        assertEquals(2, map.getDepth());
+
+        map.popScope();
+        assertEquals(1, map.get("a"));
+        assertNull(map.get("c"));
+        assertEquals(2, map.size());
+
+        map.popScope();
+        assertEquals(0, map.size());
+        assertThrows(IllegalStateException.class, map::popScope);
+    }
+}
@@ -0,0 +1,58 @@
+package top.voidc.optimizer;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.ice.constant.IceConstantData;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.instruction.IceBranchInstruction;
+import top.voidc.ir.ice.instruction.IceRetInstruction;
+import top.voidc.ir.ice.type.IceType;
+import top.voidc.optimizer.analysis.ControlFlowGraphAnalysis;
+import top.voidc.optimizer.analysis.DominanceFrontierAnalysis;
+import top.voidc.optimizer.analysis.DominatorTreeAnalysis;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalysisManagerTest {
+    /**
+     * entry -> A -> exit, entry -> B -> exit
+     */
+    @Test
+    public void testCacheAndInvalidation() {
+        IceFunction function = new IceFunction("testFunction");
+        function.setReturnType(IceType.VOID);
+
+        IceBlock entry = function.getEntryBlock();
+        IceBlock blockA = new IceBlock(function, "blockA");
+        IceBlock blockB = new IceBlock(function, "blockB");
+        IceBlock exit = function.getExitBlock();
+
+        entry.addInstruction(new IceBranchInstruction(entry, blockA));
+        blockA.addInstruction(new IceBranchInstruction(blockA, exit));
+        blockB.addInstruction(new IceBranchInstruction(blockB, exit));
+        exit.addInstruction(new IceRetInstruction(exit));
+
+        final var manager = new AnalysisManager();
+        final var domTree = manager.getResult(DominatorTreeAnalysis.class, function);
+        assertSame(blockA, domTree.getDominator(exit));
+        assertSame(domTree, manager.getResult(DominatorTreeAnalysis.class, function));
+
+        // 保留的分析不会失效
+        manager.invalidate(function, List.of(DominatorTreeAnalysis.class));
+        assertSame(domTree, manager.getResult(DominatorTreeAnalysis.class, function));
+
+        final var graph = manager.getResult(ControlFlowGraphAnalysis.class, function);
+        manager.invalidate(function, List.of());
+        assertNotSame(graph, manager.getResult(ControlFlowGraphAnalysis.class, function));
+
+        // 修改 CFG 后即使声明保留也会重新计算
+        entry.getLast().destroy();
+        entry.addInstruction(new IceBranchInstruction(entry, IceConstantData.create(true), blockA, blockB));
+        final var newDomTree = manager.getResult(DominatorTreeAnalysis.class, function);
+        assertNotSame(domTree, newDomTree);
+        assertSame(entry, newDomTree.getDominator(exit));
+        assertEquals(List.of(exit), manager.getResult(DominanceFrontierAnalysis.class, function).get(blockA));
+    }
+}
@@ -0,0 +1,188 @@
+package top.voidc.optimizer;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.IceUnit;
+import top.voidc.ir.IceValue;
+import top.voidc.ir.ice.constant.IceConstantData;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.constant.IceGlobalVariable;
+import top.voidc.ir.ice.type.IceType;
+import top.voidc.misc.Flag;
+import top.voidc.optimizer.pass.unit.FunctionPureness;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompileCacheTest {
+    private static final String CALLER = """
+            define i32 @caller(i32 %x) {
+            entry:
+            	%0 = call i32 @callee(i32 %x)
+            	ret i32 %0
+            }
+            """;
+
+    private static final String OTHER = """
+            define i32 @other(i32 %x) {
+            entry:
+            	%0 = mul i32 %x, %x
+            	ret i32 %0
+            }
+            """;
+
+    private static IceUnit createUnit(String callee) {
+        final var unit = new IceUnit("test");
+        final var environment = new HashMap<String, IceValue>();
+        for (var text : List.of(callee, CALLER, OTHER)) {
+            unit.addFunction(IceFunction.fromTextIR(text, environment));
+        }
+        return unit;
+    }
+
+    private static IceFunction getFunction(IceUnit unit, String name) {
+        return unit.getFunctions().stream().filter(function -> function.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    /**
+     * 模拟一次完整编译：记录纯性并写入每个函数的汇编
+     */
+    private static CompileCache compile(Path directory, IceUnit unit) {
+        final var cache = new CompileCache(directory);
+        cache.lookup(unit, List.of());
+        for (var function : unit.getFunctions()) {
+            if (cache.isCached(function)) continue;
+            cache.recordPureness(function, new FunctionPureness.PurenessInfo(FunctionPureness.Pureness.CONST));
+            cache.store(function, function.getName() + ":\n\tRET\n", unit);
+        }
+        return cache;
+    }
+
+    @Test
+    public void testHitAndInvalidation() throws IOException {
+        final var directory = Files.createTempDirectory("cache");
+        try {
+            checkHitAndInvalidation(directory);
+        } finally {
+            try (var files = Files.walk(directory)) {
+                for (var file : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(file);
+            }
+        }
+    }
+
+    private static void checkHitAndInvalidation(Path directory) {
+        final var callee = """
+                define i32 @callee(i32 %x) {
+                entry:
+                	%0 = add i32 %x, 1
+                	ret i32 %0
+                }
+                """;
+        final var first = compile(directory, createUnit(callee));
+        assertTrue(createUnit(callee).getFunctions().stream().noneMatch(first::isCached));
+
+        final var unit = createUnit(callee);
+        final var second = compile(directory, unit);
+        assertTrue(unit.getFunctions().stream().allMatch(second::isCached));
+        assertEquals("other:\n\tRET\n", second.getAssembly(getFunction(unit, "other")));
+        assertEquals(FunctionPureness.Pureness.CONST,
+                second.getPureness(getFunction(unit, "caller"), unit).getPureness());
+
+        // 被调用的函数修改后调用者也要重新编译，无关的函数仍然命中
+        final var changed = createUnit(callee.replace("add", "sub"));
+        final var third = compile(directory, changed);
+        assertFalse(third.isCached(getFunction(changed, "callee")));
+        assertFalse(third.isCached(getFunction(changed, "caller")));
+        assertTrue(third.isCached(getFunction(changed, "other")));
+    }
+
+    @Test
+    public void testFlagsInKey() throws IOException {
+        final var directory = Files.createTempDirectory("cache");
+        try {
+            Flag.bind(Flag.parse(new String[]{"test.sy", "-o", "a.s"}));
+            compile(directory, createUnit(OTHER.replace("other", "callee")));
+
+            // 只影响日志和统计的选项仍然命中，会改变汇编的选项不能命中
+            Flag.bind(Flag.parse(new String[]{"test.sy", "-o", "b.s", "-fstats", "-ftime-passes"}));
+            final var unit = createUnit(OTHER.replace("other", "callee"));
+            final var quiet = compile(directory, unit);
+            assertTrue(unit.getFunctions().stream().allMatch(quiet::isCached));
+
+            Flag.bind(Flag.parse(new String[]{"test.sy", "-o", "a.s", "-fshow-trace-info"}));
+            final var traced = compile(directory, unit);
+            assertTrue(unit.getFunctions().stream().noneMatch(traced::isCached));
+        } finally {
+            Flag.bind(null);
+            try (var files = Files.walk(directory)) {
+                for (var file : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(file);
+            }
+        }
+    }
+
+    private static final String READER = """
+            define i32 @reader() {
+            entry:
+            	%0 = load i32, i32* @g
+            	ret i32 %0
+            }
+            """;
+
+    private static IceUnit createGlobalUnit(String writer) {
+        final var unit = new IceUnit("test");
+        final var global = new IceGlobalVariable("g", IceType.I32, IceConstantData.create(7));
+        unit.addGlobalDecl(global);
+        final var environment = new HashMap<String, IceValue>();
+        environment.put("g", global);
+        for (var text : List.of(READER, writer)) {
+            unit.addFunction(IceFunction.fromTextIR(text, environment));
+        }
+        return unit;
+    }
+
+    @Test
+    public void testRemovedGlobals() throws IOException {
+        final var directory = Files.createTempDirectory("cache");
+        try {
+            final var writer = """
+                    define i32 @writer(i32 %x) {
+                    entry:
+                    	ret i32 %x
+                    }
+                    """;
+            // 第一次编译时 reader 的优化删除了 g，例如把读取替换成了初始值
+            final var unit = createGlobalUnit(writer);
+            final var first = new CompileCache(directory);
+            first.lookup(unit, List.of());
+            unit.removeGlobalDecl(unit.getGlobalVariables().getFirst());
+            for (var function : unit.getFunctions()) {
+                first.recordPureness(function, new FunctionPureness.PurenessInfo(FunctionPureness.Pureness.CONST));
+                first.store(function, function.getName() + ":\n\tRET\n", unit);
+            }
+
+            // 只有命中的 reader 使用 g，可以删除
+            final var hit = createGlobalUnit(writer);
+            final var second = new CompileCache(directory);
+            second.lookup(hit, List.of());
+            assertTrue(hit.getFunctions().stream().allMatch(second::isCached));
+            assertTrue(hit.getGlobalVariables().isEmpty());
+
+            // 修改后的 writer 没有命中并且也使用 g，需要保留
+            final var changed = createGlobalUnit(writer.replace("ret i32 %x", "%0 = load i32, i32* @g\n\tret i32 %0"));
+            final var third = new CompileCache(directory);
+            third.lookup(changed, List.of());
+            assertTrue(third.isCached(getFunction(changed, "reader")));
+            assertFalse(third.isCached(getFunction(changed, "writer")));
+            assertEquals(List.of("g"), changed.getGlobalVariables().stream().map(IceValue::getName).toList());
+        } finally {
+            try (var files = Files.walk(directory)) {
+                for (var file : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(file);
+            }
+        }
+    }
+}
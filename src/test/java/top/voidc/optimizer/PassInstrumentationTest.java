@@ -0,0 +1,125 @@
+package top.voidc.optimizer;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.IceUnit;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.misc.Statistics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PassInstrumentationTest {
+    private static IceFunction createFunction(String name) {
+        return IceFunction.fromTextIR("define void @" + name + "() {\nentry:\n\tret void\n}\n");
+    }
+
+    /**
+     * 模拟 PassManager 记录三次 Pass 执行：Grow 运行两次，每次新增一个函数，Keep 运行一次
+     */
+    private static PassInstrumentation createRecords(IceUnit unit) {
+        final var statistics = new Statistics();
+        statistics.addValue("test.b", 2);
+        statistics.addValue("test.a", 1);
+        final var instrumentation = new PassInstrumentation(statistics);
+        for (var name : List.of("f", "g")) {
+            final var measurement = instrumentation.start("Grow", unit);
+            measurement.track(() -> {
+                unit.addFunction(createFunction(name));
+                return true;
+            });
+            measurement.finish(unit, true);
+        }
+        final var measurement = instrumentation.start("Keep", unit);
+        measurement.track(() -> false);
+        measurement.finish(unit, false);
+        instrumentation.recordStableLoop(List.of("Grow", "Keep"), 2, Map.of("a\"b", 2));
+        return instrumentation;
+    }
+
+    @Test
+    public void testTimeTable() {
+        final var instrumentation = createRecords(new IceUnit("test"));
+        final var output = new ByteArrayOutputStream();
+        instrumentation.printTimeTable(new PrintStream(output, true, StandardCharsets.UTF_8));
+        final var lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+
+        // 每个 Pass 汇总为一行：运行次数和指令数的变化
+        final var rows = lines.stream()
+                .map(line -> line.trim().split("\\s+"))
+                .filter(columns -> columns.length == 7)
+                .collect(Collectors.toMap(columns -> columns[6], columns -> columns));
+        assertEquals("2", rows.get("Grow")[4]);
+        assertEquals("+2", rows.get("Grow")[5]);
+        assertEquals("1", rows.get("Keep")[4]);
+        assertEquals("+0", rows.get("Keep")[5]);
+        assertTrue(lines.stream().anyMatch(line -> line.trim().matches("\\S+ +100\\.0% +\\S+ +\\S+ +3 +Total")));
+
+        final var loopIndex = lines.indexOf("untilStable(Grow, Keep): 2 iteration(s)");
+        assertNotEquals(-1, loopIndex);
+        assertEquals(List.of("2", "a\"b"), Arrays.asList(lines.get(loopIndex + 1).trim().split("\\s+")));
+    }
+
+    @Test
+    public void testJson() {
+        final var json = createRecords(new IceUnit("test")).toJson();
+
+        assertTrue(json.startsWith("{\n  \"passes\": [\n    {\"name\": \"Grow\", \"wallNanos\": "));
+        assertTrue(json.contains(", \"changed\": true, \"before\": {\"functions\": 0, \"blocks\": 0, \"instructions\": 0, \"values\": 0}"
+                + ", \"after\": {\"functions\": 1, \"blocks\": 1, \"instructions\": 1, \"values\": 1}}"));
+        assertTrue(json.contains("{\"name\": \"Keep\""));
+        assertTrue(json.contains(", \"changed\": false, \"before\": {\"functions\": 2, \"blocks\": 2, \"instructions\": 2, \"values\": 2}"));
+        // 名字中的引号需要转义
+        assertTrue(json.contains("\n  ],\n  \"untilStable\": [\n    {\"passes\": [\"Grow\", \"Keep\"], \"iterations\": 2"
+                + ", \"functionRounds\": {\"a\\\"b\": 2}}\n  ],\n  \"statistics\": {"));
+        assertTrue(json.endsWith("\"statistics\": {\n    \"test.a\": 1,\n    \"test.b\": 2\n  }\n}\n"));
+    }
+
+    @Test
+    public void testTrackCurrentThread() throws Exception {
+        final var instrumentation = new PassInstrumentation(new Statistics());
+        final var unit = new IceUnit("test");
+        final var started = new CountDownLatch(1);
+        final var finished = new CountDownLatch(1);
+
+        // 另一个线程在计时期间大量分配内存，不应该计入这次执行
+        final var other = Thread.ofPlatform().start(() -> {
+            try {
+                started.await();
+                var sink = 0;
+                for (int i = 0; i < 64; i++) sink += new byte[1 << 20].length;
+                assertEquals(64 << 20, sink);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                finished.countDown();
+            }
+        });
+
+        final var measurement = instrumentation.start("Wait", unit);
+        measurement.track(() -> {
+            started.countDown();
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        });
+        measurement.finish(unit, false);
+        other.join();
+
+        final var record = instrumentation.getPassRecords().getFirst();
+        assertTrue(record.cpuNanos() >= 0);
+        assertTrue(record.allocatedBytes() >= 0 && record.allocatedBytes() < (16 << 20),
+                () -> "allocatedBytes = " + record.allocatedBytes());
+        assertTrue(record.wallNanos() >= record.cpuNanos());
+    }
+}
@@ -0,0 +1,214 @@
+package top.voidc.optimizer;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.IceContext;
+import top.voidc.ir.IceUnit;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.misc.Statistics;
+import top.voidc.misc.annotation.Pass;
+import top.voidc.optimizer.pass.CompilePass;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PassManagerTest {
+    /**
+     * untilStable 每一轮都会重新实例化 Pass，运行记录和剩余的修改次数放在 context 中
+     */
+    public static class RunLog {
+        final List<String> runs = Collections.synchronizedList(new ArrayList<>());
+        final Map<String, Integer> changes = new HashMap<>();
+        final Set<String> touched = new HashSet<>();
+        // 每个函数上依次运行的 Pass，函数级流水线中不同函数的顺序不确定，只比较同一个函数上的顺序
+        final Map<String, List<String>> steps = new ConcurrentHashMap<>();
+
+        void step(IceFunction function, String pass) {
+            steps.computeIfAbsent(function.getName(), _ -> Collections.synchronizedList(new ArrayList<>())).add(pass);
+        }
+    }
+
+    /**
+     * 在 changes 记录的次数内报告修改了函数，每次运行记一次 test.countdown 计数
+     */
+    @Pass
+    public static class CountDown implements CompilePass<IceFunction> {
+        private final RunLog log;
+
+        public CountDown(RunLog log) {
+            this.log = log;
+        }
+
+        @Override
+        public boolean run(IceFunction target) {
+            log.runs.add(target.getName());
+            log.step(target, "CountDown");
+            Statistics.increment("test.countdown");
+            final var remaining = log.changes.getOrDefault(target.getName(), 0);
+            if (remaining == 0) return false;
+            log.changes.put(target.getName(), remaining - 1);
+            return true;
+        }
+    }
+
+    /**
+     * 只记录运行顺序，不修改函数
+     */
+    @Pass
+    public static class Mark implements CompilePass<IceFunction> {
+        private final RunLog log;
+
+        public Mark(RunLog log) {
+            this.log = log;
+        }
+
+        @Override
+        public boolean run(IceFunction target) {
+            log.step(target, "Mark");
+            return false;
+        }
+    }
+
+    /**
+     * 第一次运行时报告 touched 中的函数
+     */
+    @Pass
+    public static class TouchOnce implements CompilePass<IceUnit> {
+        private final RunLog log;
+        private Collection<IceFunction> touchedFunctions = List.of();
+
+        public TouchOnce(RunLog log) {
+            this.log = log;
+        }
+
+        @Override
+        public boolean run(IceUnit target) {
+            if (log.touched.isEmpty()) return false;
+            touchedFunctions = target.getFunctions().stream()
+                    .filter(function -> log.touched.contains(function.getName()))
+                    .toList();
+            log.touched.clear();
+            return true;
+        }
+
+        @Override
+        public Collection<IceFunction> getTouchedFunctions() {
+            return touchedFunctions;
+        }
+    }
+
+    private static PassManager createPassManager(RunLog log) {
+        return createPassManager(log, new IceContext());
+    }
+
+    private static PassManager createPassManager(RunLog log, IceContext context) {
+        final var unit = new IceUnit("test");
+        for (var name : List.of("f", "g", "h")) {
+            unit.addFunction(IceFunction.fromTextIR("define void @" + name + "() {\nentry:\n\tret void\n}\n"));
+        }
+        context.setCurrentIR(unit);
+        context.addPassResult(log);
+        return new PassManager(context);
+    }
+
+    @Test
+    public void testWorklist() {
+        final var log = new RunLog();
+        log.changes.put("f", 2);
+        log.changes.put("g", 1);
+        final var passManager = createPassManager(log);
+
+        // 每一轮只重新处理上一轮被修改的函数
+        assertTrue(passManager.untilStable(CountDown.class));
+        assertEquals(List.of("f", "g", "h", "f", "g", "f"), log.runs);
+
+        log.runs.clear();
+        assertFalse(passManager.untilStable(CountDown.class));
+        assertEquals(List.of("f", "g", "h"), log.runs);
+    }
+
+    @Test
+    public void testTouchedFunctions() {
+        final var log = new RunLog();
+        log.touched.add("g");
+        final var passManager = createPassManager(log);
+
+        // Unit 级 Pass 只报告了 g，第二轮不会再处理 f 和 h
+        assertTrue(passManager.untilStable(TouchOnce.class, CountDown.class));
+        assertEquals(List.of("f", "g", "h", "g"), log.runs);
+    }
+
+    @Test
+    public void testMaxStableRounds() {
+        final var log = new RunLog();
+        log.changes.put("f", Integer.MAX_VALUE);
+        final var passManager = createPassManager(log);
+        passManager.setMaxStableRounds(3);
+
+        // 无法稳定时在达到最大轮数后停止
+        assertTrue(passManager.untilStable(CountDown.class));
+        assertEquals(List.of("f", "g", "h", "f", "f"), log.runs);
+    }
+
+    @Test
+    public void testStatisticsPerContext() {
+        final var first = new IceContext();
+        final var second = new IceContext();
+        final var global = Statistics.snapshot().getOrDefault("test.countdown", 0L);
+
+        // 并行运行时计数在工作线程上完成，也要记到各自编译的计数器中
+        assertFalse(createPassManager(new RunLog(), first).runPass(CountDown.class, true));
+        final var log = new RunLog();
+        log.changes.put("f", 1);
+        assertTrue(createPassManager(log, second).untilStable(CountDown.class));
+
+        assertEquals(Map.of("test.countdown", 3L), first.getStatistics().getValues());
+        assertEquals(Map.of("test.countdown", 4L), second.getStatistics().getValues());
+        assertEquals(global, Statistics.snapshot().getOrDefault("test.countdown", 0L));
+    }
+
+    @Test
+    public void testFunctionPipeline() {
+        for (var functionPipeline : List.of(false, true)) {
+            final var log = new RunLog();
+            log.changes.put("f", 2);
+            log.changes.put("h", 1);
+            final var passManager = createPassManager(log);
+            passManager.setFunctionPipeline(functionPipeline);
+
+            // 两种调度方式下每个函数上的执行顺序相同，untilStable 在函数不再变化后停止
+            assertTrue(passManager.runFunctionPipeline(fp -> fp
+                    .runPass(Mark.class)
+                    .untilStable(CountDown.class, Mark.class)
+                    .runPass(Mark.class)));
+            assertEquals(Map.of(
+                    "f", List.of("Mark", "CountDown", "Mark", "CountDown", "Mark", "CountDown", "Mark", "Mark"),
+                    "g", List.of("Mark", "CountDown", "Mark", "Mark"),
+                    "h", List.of("Mark", "CountDown", "Mark", "CountDown", "Mark", "Mark")
+            ), log.steps);
+
+            log.steps.clear();
+            assertFalse(passManager.runFunctionPipeline(fp -> fp.untilStable(CountDown.class)));
+            assertEquals(Map.of("f", List.of("CountDown"), "g", List.of("CountDown"), "h", List.of("CountDown")), log.steps);
+        }
+    }
+
+    @Test
+    public void testFunctionPipelineMaxStableRounds() {
+        final var log = new RunLog();
+        log.changes.put("f", Integer.MAX_VALUE);
+        log.changes.put("g", 1);
+        final var passManager = createPassManager(log);
+        passManager.setFunctionPipeline(true);
+        passManager.setMaxStableRounds(3);
+
+        // 每个函数各自计算轮数，f 在达到最大轮数后停止，不影响其他函数
+        assertTrue(passManager.runFunctionPipeline(fp -> fp.untilStable(CountDown.class).runPass(Mark.class)));
+        assertEquals(Map.of(
+                "f", List.of("CountDown", "CountDown", "CountDown", "Mark"),
+                "g", List.of("CountDown", "CountDown", "Mark"),
+                "h", List.of("CountDown", "Mark")
+        ), log.steps);
+    }
+}
@@ -0,0 +1,70 @@
+package top.voidc.optimizer.analysis;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.optimizer.AnalysisManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoopInfoTest {
+    private static IceBlock getBlock(IceFunction function, String name) {
+        return function.getBlocks().stream().filter(block -> block.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static Set<String> getNames(Loop loop) {
+        return loop.getBlocks().stream().map(IceBlock::getName).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testNestedLoops() {
+        final var function = IceFunction.fromTextIR("""
+                define i32 @nested(i32 %n) {
+                entry:
+                	br label %outer
+                outer:
+                	%i = phi i32 [ 0, %entry ], [ %inext, %outer.latch ]
+                	%0 = icmp slt i32 %i, %n
+                	br i1 %0, label %inner, label %exit
+                inner:
+                	%j = phi i32 [ 0, %outer ], [ %jnext, %inner ]
+                	%jnext = add i32 %j, 1
+                	%1 = icmp slt i32 %jnext, %n
+                	br i1 %1, label %inner, label %outer.latch
+                outer.latch:
+                	%inext = add i32 %i, 1
+                	br label %outer
+                exit:
+                	ret i32 %i
+                }
+                """);
+        final var loopInfo = new AnalysisManager().getResult(LoopInfoAnalysis.class, function);
+
+        assertEquals(2, loopInfo.getLoops().size());
+        final var inner = loopInfo.getLoops().getFirst();
+        final var outer = loopInfo.getLoops().getLast();
+        assertEquals(List.of(outer), loopInfo.getTopLevelLoops());
+        assertSame(outer, inner.getParent());
+        assertEquals(List.of(inner), outer.getSubLoops());
+        assertTrue(outer.contains(inner));
+
+        assertEquals(Set.of("inner"), getNames(inner));
+        assertEquals(Set.of("outer", "inner", "outer.latch"), getNames(outer));
+        assertEquals(2, loopInfo.getLoopDepth(getBlock(function, "inner")));
+        assertEquals(1, loopInfo.getLoopDepth(getBlock(function, "outer.latch")));
+        assertEquals(0, loopInfo.getLoopDepth(getBlock(function, "exit")));
+        assertTrue(loopInfo.isLoopHeader(getBlock(function, "outer")));
+
+        // 外层循环已经是规范形式，内层循环的入口 outer 还会跳到 exit，不是前置块
+        assertTrue(outer.isSimplifyForm());
+        assertSame(getBlock(function, "entry"), outer.getPreheader());
+        assertSame(getBlock(function, "inner"), inner.getLatch());
+        assertNull(inner.getPreheader());
+        assertTrue(inner.hasDedicatedExits());
+        assertEquals(List.of(getBlock(function, "outer.latch")), inner.getExitBlocks());
+    }
+}
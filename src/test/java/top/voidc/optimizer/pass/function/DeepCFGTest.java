@@ -0,0 +1,87 @@
+package top.voidc.optimizer.pass.function;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.ice.constant.IceConstantData;
+import top.voidc.ir.IceContext;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.instruction.IceRetInstruction;
+import top.voidc.optimizer.AnalysisManager;
+import top.voidc.optimizer.analysis.DominatorTreeAnalysis;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 很长的基本块链，遍历 CFG 和支配树时不能依赖线程栈的深度
+ */
+public class DeepCFGTest {
+    private static final int BLOCK_COUNT = 100_000;
+
+    /**
+     * 与 -Xss 无关，在栈很小的线程上运行
+     */
+    private static final long STACK_SIZE = 256 * 1024;
+
+    private static IceFunction createChainFunction() {
+        final var builder = new StringBuilder("""
+                define i32 @chain() {
+                entry:
+                	%x = alloca i32
+                	br label %b0
+                """);
+        for (int i = 0; i < BLOCK_COUNT; i++) {
+            builder.append("b").append(i).append(":\n")
+                    .append("\tstore i32 ").append(i).append(", i32* %x\n")
+                    .append("\tbr label %").append(i + 1 == BLOCK_COUNT ? "exit" : "b" + (i + 1)).append("\n");
+        }
+        builder.append("""
+                exit:
+                	%0 = load i32, i32* %x
+                	ret i32 %0
+                }
+                """);
+        return IceFunction.fromTextIR(builder.toString());
+    }
+
+    private static void runWithSmallStack(Runnable task) throws InterruptedException {
+        final var failure = new AtomicReference<Throwable>();
+        final var thread = new Thread(null, () -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "deep-cfg", STACK_SIZE);
+        thread.start();
+        thread.join();
+        if (failure.get() != null) throw new AssertionError("在小栈线程上运行失败", failure.get());
+    }
+
+    @Test
+    public void testLongBlockChain() throws InterruptedException {
+        final var function = createChainFunction();
+        final var analysisManager = new AnalysisManager();
+
+        runWithSmallStack(() -> {
+            final var blocks = function.getBlocks();
+            assertEquals(BLOCK_COUNT + 2, blocks.size());
+            assertSame(function.getEntryBlock(), blocks.getFirst());
+
+            final var domTree = analysisManager.getResult(DominatorTreeAnalysis.class, function);
+            assertSame(blocks.get(BLOCK_COUNT), domTree.getDominator(blocks.getLast()));
+            final var depth = new int[2];
+            domTree.traverse(function.getEntryBlock(),
+                    _ -> depth[1] = Math.max(depth[1], ++depth[0]), _ -> depth[0]--);
+            assertEquals(BLOCK_COUNT + 2, depth[1]);
+
+            assertTrue(new Mem2Reg(analysisManager).run(function));
+            assertFalse(new GlobalValueNumbering(analysisManager, new IceContext()).run(function));
+            assertTrue(new SmartChilletSimplifyCFG().run(function));
+        });
+
+        assertEquals(1, function.getBlocksSize());
+        final var ret = (IceRetInstruction) function.getEntryBlock().getLast();
+        assertEquals(IceConstantData.create(BLOCK_COUNT - 1), ret.getReturnValue().orElseThrow());
+    }
+}
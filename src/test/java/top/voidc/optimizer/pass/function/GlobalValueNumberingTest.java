@@ -1,9 +1,18 @@
 package top.voidc.optimizer.pass.function;
 
+import top.voidc.ir.IceContext;
 import top.voidc.ir.ice.constant.IceFunction;
 
 import org.junit.jupiter.api.Test;
+import top.voidc.ir.IceValue;
 import top.voidc.misc.Log;
+import top.voidc.optimizer.AnalysisManager;
+import top.voidc.optimizer.pass.unit.FunctionPureness;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class GlobalValueNumberingTest {
     @Test
@@ -26,7 +35,7 @@ public class GlobalValueNumberingTest {
                 }
                 """);
 
-        GlobalValueNumbering gvn = new GlobalValueNumbering();
+        GlobalValueNumbering gvn = new GlobalValueNumbering(new AnalysisManager(), new IceContext());
         gvn.run(function);
         Log.d(function.getTextIR());
     }
@@ -57,8 +66,58 @@ public class GlobalValueNumberingTest {
                 }
                 """);
 
-        GlobalValueNumbering gvn = new GlobalValueNumbering();
+        GlobalValueNumbering gvn = new GlobalValueNumbering(new AnalysisManager(), new IceContext());
         gvn.run(function);
         Log.d(function.getTextIR());
     }
+
+    @Test
+    public void testStructuralExpressions() {
+        final var environment = new HashMap<String, IceValue>();
+        final var square = IceFunction.fromTextIR("""
+                define i32 @square(i32 %x) {
+                entry:
+                	%0 = mul i32 %x, %x
+                	ret i32 %0
+                }
+                """, environment);
+        final var function = IceFunction.fromTextIR("""
+                define i32 @test(i32 %a, i32 %b, i32* %p) {
+                entry:
+                	%0 = icmp eq i32 %a, %b
+                	%1 = icmp eq i32 %b, %a
+                	%2 = icmp slt i32 %a, %b
+                	%3 = icmp sgt i32 %a, %b
+                	%4 = sitofp i32 %a to float
+                	%5 = sitofp i32 %a to float
+                	%6 = getelementptr inbounds i32, i32* %p, i32 %b
+                	%7 = getelementptr inbounds i32, i32* %p, i32 %b
+                	%8 = call i32 @square(i32 %a)
+                	%9 = call i32 @square(i32 %a)
+                	%10 = add i32 %a, 1
+                	%11 = add i32 %a, 2
+                	br i1 %0, label %then, label %else
+                then:
+                	%12 = call i32 @square(i32 %a)
+                	%13 = add i32 %a, 1
+                	ret i32 %12
+                else:
+                	ret i32 %10
+                }
+                """, environment);
+
+        final var context = new IceContext();
+        final var pureness = new HashMap<IceFunction, FunctionPureness.PurenessInfo>();
+        pureness.put(square, new FunctionPureness.PurenessInfo(FunctionPureness.Pureness.CONST));
+        context.addPassResult("functionPureness", pureness);
+
+        assertTrue(new GlobalValueNumbering(new AnalysisManager(), context).run(function));
+        final var remaining = function.getBlocks().stream()
+                .flatMap(block -> block.stream())
+                .filter(instruction -> !instruction.isTerminal())
+                .map(IceValue::getName)
+                .toList();
+        // 交换律只对 eq 和 ne 成立，不同的常量不能合并
+        assertEquals(List.of("0", "2", "3", "4", "6", "8", "10", "11"), remaining);
+    }
 }
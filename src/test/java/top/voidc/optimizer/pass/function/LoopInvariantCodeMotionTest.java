@@ -0,0 +1,129 @@
+package top.voidc.optimizer.pass.function;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.IceContext;
+import top.voidc.ir.IceValue;
+import top.voidc.ir.ice.constant.IceConstantData;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.constant.IceGlobalVariable;
+import top.voidc.ir.ice.instruction.IceAllocaInstruction;
+import top.voidc.ir.ice.instruction.IceInstruction;
+import top.voidc.ir.ice.instruction.IceLoadInstruction;
+import top.voidc.ir.ice.instruction.IceStoreInstruction;
+import top.voidc.ir.ice.type.IceType;
+import top.voidc.optimizer.AnalysisManager;
+import top.voidc.optimizer.analysis.LoopInfoAnalysis;
+import top.voidc.optimizer.pass.unit.FunctionPureness;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoopInvariantCodeMotionTest {
+    private static IceBlock getBlock(IceFunction function, String name) {
+        return function.getBlocks().stream().filter(block -> block.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static List<String> getNames(IceBlock block) {
+        return block.stream().filter(instruction -> !instruction.getType().isVoid()).map(IceValue::getName).toList();
+    }
+
+    @Test
+    public void testHoistInvariants() {
+        final var environment = new HashMap<String, IceValue>();
+        final var square = IceFunction.fromTextIR("""
+                define i32 @square(i32 %x) {
+                entry:
+                	%0 = mul i32 %x, %x
+                	ret i32 %0
+                }
+                """, environment);
+        final var function = IceFunction.fromTextIR("""
+                define i32 @f(i32* %p, i32 %n, i32 %m) {
+                entry:
+                	br label %loop
+                loop:
+                	%i = phi i32 [ 0, %entry ], [ %inext, %body ]
+                	%s = call i32 @square(i32 %m)
+                	%c = icmp slt i32 %i, %s
+                	br i1 %c, label %body, label %exit
+                body:
+                	%row = mul i32 %n, 4
+                	%q = getelementptr i32, i32* %p, i32 %row
+                	%d = sdiv i32 %m, %n
+                	%t = call i32 @square(i32 %n)
+                	%v = getelementptr i32, i32* %q, i32 %i
+                	%w = add i32 %d, %t
+                	store i32 %w, i32* %v
+                	%inext = add i32 %i, 1
+                	br label %loop
+                exit:
+                	ret i32 %i
+                }
+                """, environment);
+
+        final var context = new IceContext();
+        final var pureness = new HashMap<IceFunction, FunctionPureness.PurenessInfo>();
+        pureness.put(square, new FunctionPureness.PurenessInfo(FunctionPureness.Pureness.CONST));
+        context.addPassResult("functionPureness", pureness);
+
+        final var analysisManager = new AnalysisManager();
+        assertTrue(new LoopInvariantCodeMotion(analysisManager, context).run(function));
+        assertFalse(new LoopInvariantCodeMotion(analysisManager, context).run(function));
+
+        // 循环头中的调用每次进入循环都会执行，循环体中的除法和调用在零次迭代时不会执行，不能外提
+        assertEquals(List.of("s", "row", "q"), getNames(getBlock(function, "entry")));
+        assertEquals(List.of("d", "t", "v", "w", "inext"), getNames(getBlock(function, "body")));
+    }
+
+    @Test
+    public void testPromoteGlobal() {
+        final var environment = new HashMap<String, IceValue>();
+        final var global = new IceGlobalVariable("g", IceType.I32, IceConstantData.create(0));
+        environment.put("g", global);
+        final var function = IceFunction.fromTextIR("""
+                define void @count(i32 %n) {
+                entry:
+                	%keep = alloca i32
+                	store i32 %n, i32* %keep
+                	%0 = icmp sgt i32 %n, 0
+                	br i1 %0, label %loop, label %exit
+                loop:
+                	%i = phi i32 [ 0, %entry ], [ %inext, %loop ]
+                	%1 = load i32, i32* @g
+                	%2 = add i32 %1, %i
+                	store i32 %2, i32* @g
+                	%inext = add i32 %i, 1
+                	%3 = icmp slt i32 %inext, %n
+                	br i1 %3, label %loop, label %exit
+                exit:
+                	ret void
+                }
+                """, environment);
+
+        final var analysisManager = new AnalysisManager();
+        assertTrue(new LoopInvariantCodeMotion(analysisManager, new IceContext()).run(function));
+
+        final var loop = analysisManager.getResult(LoopInfoAnalysis.class, function).getLoops().getFirst();
+        assertTrue(loop.isSimplifyForm());
+        assertTrue(loop.getBlocks().stream().flatMap(IceBlock::stream)
+                .noneMatch(instruction -> instruction instanceof IceLoadInstruction
+                        || instruction instanceof IceStoreInstruction));
+
+        // 前置块读入一次，专用出口写回最后的值
+        assertTrue(loop.getPreheader().stream()
+                .anyMatch(instruction -> instruction instanceof IceLoadInstruction load && load.getSource() == global));
+        final var exit = loop.getExitBlocks().getFirst();
+        final var store = (IceStoreInstruction) exit.stream()
+                .filter(instruction -> instruction instanceof IceStoreInstruction).findFirst().orElseThrow();
+        assertSame(global, store.getTargetPtr());
+        assertTrue(loop.contains(((IceInstruction) store.getValue()).getParent()));
+
+        // 只为代替全局变量的临时变量构造 SSA，函数中其他的 alloca 不受影响
+        assertEquals(List.of("keep"), function.getEntryBlock().stream()
+                .filter(instruction -> instruction instanceof IceAllocaInstruction)
+                .map(IceValue::getName).toList());
+    }
+}
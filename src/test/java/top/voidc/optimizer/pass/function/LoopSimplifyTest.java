@@ -0,0 +1,115 @@
+package top.voidc.optimizer.pass.function;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.ir.IceBlock;
+import top.voidc.ir.IceValue;
+import top.voidc.ir.ice.constant.IceFunction;
+import top.voidc.ir.ice.constant.IceUndef;
+import top.voidc.ir.ice.instruction.IceAllocaInstruction;
+import top.voidc.ir.ice.instruction.IceBranchInstruction;
+import top.voidc.ir.ice.instruction.IcePHINode;
+import top.voidc.optimizer.AnalysisManager;
+import top.voidc.optimizer.analysis.LoopInfoAnalysis;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoopSimplifyTest {
+    private static IceBlock getBlock(IceFunction function, String name) {
+        return function.getBlocks().stream().filter(block -> block.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    @Test
+    public void testSimplifyForm() {
+        // 两个回边源点，入口块同时跳到出口，出口也从循环外进入
+        final var function = IceFunction.fromTextIR("""
+                define i32 @f(i32 %n) {
+                entry:
+                	%0 = icmp sgt i32 %n, 0
+                	br i1 %0, label %loop, label %exit
+                loop:
+                	%i = phi i32 [ 0, %entry ], [ %a, %left ], [ %b, %right ]
+                	%1 = icmp eq i32 %i, 3
+                	br i1 %1, label %left, label %right
+                left:
+                	%a = add i32 %i, 1
+                	br label %loop
+                right:
+                	%b = add i32 %i, 2
+                	%2 = icmp slt i32 %b, %n
+                	br i1 %2, label %loop, label %exit
+                exit:
+                	%r = phi i32 [ 0, %entry ], [ %b, %right ]
+                	ret i32 %r
+                }
+                """);
+        final var analysisManager = new AnalysisManager();
+        assertFalse(analysisManager.getResult(LoopInfoAnalysis.class, function).getLoops().getFirst().isSimplifyForm());
+
+        assertTrue(new LoopSimplify(analysisManager).run(function));
+        assertFalse(new LoopSimplify(analysisManager).run(function));
+
+        final var loopInfo = analysisManager.getResult(LoopInfoAnalysis.class, function);
+        final var loop = loopInfo.getLoops().getFirst();
+        assertTrue(loop.isSimplifyForm());
+        assertEquals(4, loop.getBlocks().size());
+
+        // 两个回边的值在新的回边源点合并
+        final var header = getBlock(function, "loop");
+        final var phi = (IcePHINode) header.getFirst();
+        assertEquals(2, phi.getBranchCount());
+        assertSame(getBlock(function, "entry"), loop.getPreheader().getPredecessors().getFirst());
+        final var latchPhi = (IcePHINode) loop.getLatch().getFirst();
+        assertEquals(2, latchPhi.getBranchCount());
+        assertSame(latchPhi, phi.getIncomingValue(loop.getLatch()));
+
+        final var exit = getBlock(function, "exit");
+        final var exitPhi = (IcePHINode) exit.getFirst();
+        assertEquals(2, exitPhi.getBranchCount());
+        assertEquals(2, exit.predecessorCount());
+        assertTrue(loop.hasDedicatedExits());
+    }
+
+    @Test
+    public void testEntryHeader() {
+        // 循环头就是入口块，没有从循环外进入的边
+        final var function = IceFunction.fromTextIR("""
+                define i32 @f(i32 %n) {
+                entry:
+                	%i = phi i32 [ %a, %entry ]
+                	%p = alloca i32
+                	%q = alloca [4 x i32]
+                	%a = add i32 %i, 1
+                	store i32 %a, i32* %p
+                	%0 = icmp slt i32 %a, %n
+                	br i1 %0, label %entry, label %exit
+                exit:
+                	ret i32 %a
+                }
+                """);
+        final var analysisManager = new AnalysisManager();
+        assertTrue(new LoopSimplify(analysisManager).run(function));
+
+        final var loop = analysisManager.getResult(LoopInfoAnalysis.class, function).getLoops().getFirst();
+        assertTrue(loop.isSimplifyForm());
+        final var preheader = loop.getPreheader();
+        assertSame(preheader, function.getEntryBlock());
+
+        // 新的前置块也是循环头的前驱，phi 节点从它进入时取 undef
+        final var header = getBlock(function, "entry");
+        final var phi = (IcePHINode) header.getFirst();
+        assertEquals(2, phi.getBranchCount());
+        assertEquals(header.predecessorCount(), phi.getBranchCount());
+        assertSame(IceUndef.I32, phi.getIncomingValue(preheader));
+        assertSame(header.get(1), phi.getIncomingValue(header));
+
+        // alloca 随入口块移动到前置块，循环头中不再有 alloca
+        assertEquals(List.of("p", "q"), preheader.stream()
+                .filter(instruction -> instruction instanceof IceAllocaInstruction)
+                .map(IceValue::getName).toList());
+        assertSame(preheader, preheader.getFirst().getParent());
+        assertInstanceOf(IceBranchInstruction.class, preheader.getLast());
+        assertTrue(header.stream().noneMatch(instruction -> instruction instanceof IceAllocaInstruction));
+    }
+}
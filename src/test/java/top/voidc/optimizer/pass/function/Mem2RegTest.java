@@ -1,6 +1,7 @@
 package top.voidc.optimizer.pass.function;
 
 import top.voidc.ir.IceBlock;
+import top.voidc.ir.ice.constant.IceConstantData;
 import top.voidc.ir.ice.constant.IceFunction;
 import top.voidc.ir.ice.instruction.*;
 
@@ -8,9 +9,12 @@ import top.voidc.ir.ice.type.IceType;
 import top.voidc.ir.ice.type.IceArrayType;
 
 import top.voidc.misc.Log;
+import top.voidc.optimizer.AnalysisManager;
 
 import org.junit.jupiter.api.Test;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class Mem2RegTest {
     public static IceFunction createOneBlockFunction() {
@@ -27,7 +31,7 @@ public class Mem2RegTest {
     @Test
     public void testBasicMem2Reg() {
         IceFunction function = createOneBlockFunction();
-        Mem2Reg pass = new Mem2Reg();
+        Mem2Reg pass = new Mem2Reg(new AnalysisManager());
 
 //        StringBuilder before = new StringBuilder();
 //        function.getTextIR(before);
@@ -70,7 +74,7 @@ public class Mem2RegTest {
     @Test
     public void testBasicMergeAlloca() {
         IceFunction function = createThreeBlocksFunction();
-        Mem2Reg pass = new Mem2Reg();
+        Mem2Reg pass = new Mem2Reg(new AnalysisManager());
 
         pass.run(function);
 
@@ -120,7 +124,7 @@ public class Mem2RegTest {
     @Test
     public void testFullMem2Reg() {
         IceFunction function = createComplexPhiFunction();
-        Mem2Reg pass = new Mem2Reg();
+        Mem2Reg pass = new Mem2Reg(new AnalysisManager());
 
 //        StringBuilder before = new StringBuilder();
 //        function.getTextIR(before);
@@ -177,7 +181,7 @@ public class Mem2RegTest {
     @Test
     public void testFunctionRetValueNeverInitialized() {
         IceFunction function = createFunctionRetValueNeverInitialized();
-        Mem2Reg pass = new Mem2Reg();
+        Mem2Reg pass = new Mem2Reg(new AnalysisManager());
 
         StringBuilder before = new StringBuilder();
         function.getTextIR(before);
@@ -198,4 +202,60 @@ public class Mem2RegTest {
                 }""";
         assertEquals(expected, actual.toString());
     }
+
+    private static IceBlock getBlock(IceFunction function, String name) {
+        return function.getBlocks().stream().filter(block -> block.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    public static IceFunction createSSAFunctionWithAllocas() {
+        return IceFunction.fromTextIR("""
+            define i32 @testFunction(i32 %n) {
+            entry:
+                %a = alloca i32
+                %b = alloca i32
+                store i32 0, i32* %a
+                store i32 1, i32* %b
+                br label %loop
+            loop:
+                %i = phi i32 [ 0, %entry ], [ %next, %loop ]
+                %x = load i32, i32* %a
+                %y = add i32 %x, %i
+                store i32 %y, i32* %a
+                %next = add i32 %i, 1
+                %c = icmp slt i32 %next, %n
+                br i1 %c, label %loop, label %exit
+            exit:
+                %r = load i32, i32* %a
+                ret i32 %r
+            }
+            """);
+    }
+
+    @Test
+    public void testPromoteInSSA() {
+        // 函数中已有不是 Mem2Reg 插入的 phi，完整运行时视为错误
+        assertThrows(IllegalStateException.class,
+                () -> new Mem2Reg(new AnalysisManager()).run(createSSAFunctionWithAllocas()));
+
+        final var function = createSSAFunctionWithAllocas();
+        final var entry = function.getEntryBlock();
+        final var a = (IceAllocaInstruction) entry.get(0);
+        final var b = (IceAllocaInstruction) entry.get(1);
+        assertTrue(new Mem2Reg(new AnalysisManager()).promote(function, List.of(a)));
+
+        // 只提升给定的 alloca，已有的 phi 保持不变
+        assertEquals(List.of(b), entry.stream().filter(instr -> instr instanceof IceAllocaInstruction).toList());
+        assertNull(a.getParent());
+        final var loop = getBlock(function, "loop");
+        final var phis = loop.stream().filter(instr -> instr instanceof IcePHINode).map(instr -> (IcePHINode) instr).toList();
+        assertEquals(2, phis.size());
+        phis.forEach(phi -> assertEquals(2, phi.getBranchCount()));
+
+        final var y = loop.stream().filter(instr -> instr.getName().equals("y")).findFirst().orElseThrow();
+        final var merged = (IcePHINode) y.getOperand(0);
+        assertTrue(phis.contains(merged));
+        assertEquals(IceConstantData.create(0), merged.getIncomingValue(entry));
+        assertSame(y, merged.getIncomingValue(loop));
+        assertSame(y, getBlock(function, "exit").getLast().getOperand(0));
+    }
 }
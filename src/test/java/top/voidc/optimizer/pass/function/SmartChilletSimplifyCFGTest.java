@@ -2,7 +2,7 @@ package top.voidc.optimizer.pass.function;
 
 import top.voidc.ir.IceBlock;
 import top.voidc.ir.ice.constant.IceConstantBoolean;
-import top.voidc.ir.ice.constant.IceConstantInt;
+import top.voidc.ir.ice.constant.IceConstantData;
 import top.voidc.ir.ice.constant.IceFunction;
 import top.voidc.ir.ice.instruction.*;
 import top.voidc.ir.ice.type.IceType;
@@ -33,11 +33,11 @@ public class SmartChilletSimplifyCFGTest {
         IceBlock exit = function.getExitBlock();
 
         entry.addInstruction(new IceBranchInstruction(entry, blockA));
-        IceConstantBoolean cond = new IceConstantBoolean(true);
+        IceConstantBoolean cond = IceConstantData.create(true);
         blockA.addInstruction(new IceBranchInstruction(blockA, cond, blockB, blockC));
         blockB.addInstruction(new IceBranchInstruction(blockB, exit));
         blockC.addInstruction(new IceBranchInstruction(blockC, exit));
-        exit.addInstruction(new IceRetInstruction(exit, new IceConstantInt(0)));
+        exit.addInstruction(new IceRetInstruction(exit, IceConstantData.create(0)));
 
         return function;
     }
@@ -72,9 +72,9 @@ public class SmartChilletSimplifyCFGTest {
         function.addParameter(a);
 
         IceBlock entry = function.getEntryBlock();
-        var add = new IceBinaryInstruction.Add(entry, "add", IceType.I32, a, new IceConstantInt(2));
-        var sub = new IceBinaryInstruction.Sub(entry, "sub", IceType.I32, add, new IceConstantInt(1));
-        var mul = new IceBinaryInstruction.Mul(entry, "mul", IceType.I32, add, new IceConstantInt(3));
+        var add = new IceBinaryInstruction.Add(entry, "add", IceType.I32, a, IceConstantData.create(2));
+        var sub = new IceBinaryInstruction.Sub(entry, "sub", IceType.I32, add, IceConstantData.create(1));
+        var mul = new IceBinaryInstruction.Mul(entry, "mul", IceType.I32, add, IceConstantData.create(3));
         entry.addInstruction(add);
         entry.addInstruction(sub);
         entry.addInstruction(mul);
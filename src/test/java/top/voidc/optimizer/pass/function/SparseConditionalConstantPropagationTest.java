@@ -1,7 +1,7 @@
 package top.voidc.optimizer.pass.function;
 
 import top.voidc.ir.IceBlock;
-import top.voidc.ir.ice.constant.IceConstantInt;
+import top.voidc.ir.ice.constant.IceConstantData;
 import top.voidc.ir.ice.constant.IceFunction;
 import top.voidc.ir.ice.instruction.*;
 import top.voidc.ir.ice.type.IceType;
@@ -18,11 +18,11 @@ public class SparseConditionalConstantPropagationTest {
         IceBlock entry = function.getEntryBlock();
         IceBlock exit = function.getExitBlock();
         IceInstruction add = new IceBinaryInstruction.Add(entry, "add", IceType.I32,
-                new IceConstantInt(1), new IceConstantInt(2));
+                IceConstantData.create(1), IceConstantData.create(2));
         IceInstruction icmp1 = new IceCmpInstruction.Icmp(entry, IceCmpInstruction.Icmp.Type.EQ,
-                new IceConstantInt(1), new IceConstantInt(2));
+                IceConstantData.create(1), IceConstantData.create(2));
         IceInstruction icmp2 = new IceCmpInstruction.Icmp(entry, IceCmpInstruction.Icmp.Type.EQ,
-                new IceConstantInt(3), new IceConstantInt(3));
+                IceConstantData.create(3), IceConstantData.create(3));
         IceInstruction outEntry = new IceBranchInstruction(entry, icmp1, exit, exit);
         entry.addInstruction(add);
         entry.addInstruction(icmp1);
@@ -74,7 +74,7 @@ public class SparseConditionalConstantPropagationTest {
         IceBlock exit = function.getExitBlock();
 
         IceInstruction icmp1 = new IceCmpInstruction.Icmp(entry, IceCmpInstruction.Icmp.Type.EQ,
-                new IceConstantInt(1), new IceConstantInt(2));
+                IceConstantData.create(1), IceConstantData.create(2));
         IceInstruction outEntry = new IceBranchInstruction(entry, icmp1, block1, block2);
         entry.addInstruction(icmp1);
         entry.addInstruction(outEntry);
@@ -86,7 +86,7 @@ public class SparseConditionalConstantPropagationTest {
         block1.addInstruction(outBlock1);
 
         IceInstruction add = new IceBinaryInstruction.Add(block2, "add", IceType.I32,
-                new IceConstantInt(1), new IceConstantInt(2));
+                IceConstantData.create(1), IceConstantData.create(2));
         IceInstruction outBlock2 = new IceBranchInstruction(block2, exit);
         block2.addInstruction(add);
         block2.addInstruction(outBlock2);
@@ -142,19 +142,19 @@ public class SparseConditionalConstantPropagationTest {
         IceBlock exit = function.getExitBlock();
 
         IceInstruction icmp1 = new IceCmpInstruction.Icmp(entry, IceCmpInstruction.Icmp.Type.EQ,
-                new IceConstantInt(1), new IceConstantInt(2));
+                IceConstantData.create(1), IceConstantData.create(2));
         IceInstruction outEntry = new IceBranchInstruction(entry, icmp1, block1, block2);
         entry.addInstruction(icmp1);
         entry.addInstruction(outEntry);
 
         IceInstruction sub = new IceBinaryInstruction.Sub(block2, "sub", IceType.I32,
-                a, new IceConstantInt(1));
+                a, IceConstantData.create(1));
         IceInstruction outBlock1 = new IceBranchInstruction(block1, exit);
         block1.addInstruction(sub);
         block1.addInstruction(outBlock1);
 
         IceInstruction add = new IceBinaryInstruction.Add(block1, "add", IceType.I32,
-                b, new IceConstantInt(2));
+                b, IceConstantData.create(2));
         IceInstruction outBlock2 = new IceBranchInstruction(block2, exit);
         block2.addInstruction(add);
         block2.addInstruction(outBlock2);
@@ -3,7 +3,7 @@ package top.voidc.optimizer.pass.unit;
 
 import top.voidc.ir.IceBlock;
 import top.voidc.ir.IceUnit;
-import top.voidc.ir.ice.constant.IceConstantInt;
+import top.voidc.ir.ice.constant.IceConstantData;
 import top.voidc.ir.ice.constant.IceFunction;
 import top.voidc.ir.ice.instruction.IceBinaryInstruction;
 import top.voidc.ir.ice.type.IceType;
@@ -22,8 +22,8 @@ public class RenameVariableTest {
         IceBlock entry = function.getEntryBlock();
         IceBlock exit = function.getExitBlock();
 
-        var add1 = new IceBinaryInstruction.Add(entry, "114514", IceType.I32, new IceConstantInt(1), new IceConstantInt(2));
-        var add2 = new IceBinaryInstruction.Add(entry, "1919810", IceType.I32, new IceConstantInt(1), add1);
+        var add1 = new IceBinaryInstruction.Add(entry, "114514", IceType.I32, IceConstantData.create(1), IceConstantData.create(2));
+        var add2 = new IceBinaryInstruction.Add(entry, "1919810", IceType.I32, IceConstantData.create(1), add1);
         entry.addInstruction(add1);
         entry.addInstruction(add2);
 
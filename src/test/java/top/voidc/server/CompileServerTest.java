@@ -0,0 +1,98 @@
+package top.voidc.server;
+
+import org.junit.jupiter.api.Test;
+import top.voidc.misc.Flag;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompileServerTest {
+    @Test
+    public void testRequestResult() throws Exception {
+        try (var server = new CompileServer(0, () -> {
+            if ("bad.sy".equals(Flag.get("source"))) throw new IllegalStateException("语法错误");
+        })) {
+            assertTrue(server.handleRequest(new String[]{"ok.sy", "-S"}).startsWith("OK "));
+            assertEquals("ERROR IllegalStateException: 语法错误", server.handleRequest(new String[]{"bad.sy"}));
+            assertEquals("ERROR 缺少源文件", server.handleRequest(new String[]{"-S"}));
+            assertEquals("ERROR NumberFormatException: For input string: \"abc\"",
+                    server.handleRequest(new String[]{"ok.sy", "-fmax-stable-rounds", "abc"}));
+        }
+        // 请求的选项不会影响全局选项
+        assertNull(Flag.get("source"));
+    }
+
+    @Test
+    public void testMalformedRequestKeepsConnection() throws Exception {
+        final var server = new CompileServer(0, () -> {});
+        final var serverThread = Thread.ofVirtual().start(server::serve);
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             var writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+             var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            // 格式错误的请求得到一行错误回复，之后的请求照常处理
+            writer.println("a.sy -fmax-stable-rounds abc");
+            writer.println("a.sy -fmax-stable-rounds 8");
+            assertTrue(reader.readLine().startsWith("ERROR NumberFormatException"));
+            assertTrue(reader.readLine().startsWith("OK "));
+        } finally {
+            server.close();
+            serverThread.join();
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsIsolateFlags() throws Exception {
+        final var requests = 4;
+        final var barrier = new CyclicBarrier(requests);
+        final var seen = new ConcurrentHashMap<String, Set<String>>();
+        final var server = new CompileServer(0, () -> {
+            final String source = Flag.get("source");
+            // 所有请求同时处于编译中
+            barrier.await(10, TimeUnit.SECONDS);
+            // 并行流在请求的 ForkJoinPool 上执行，工作线程读到的也应该是本请求的选项
+            final var outputs = IntStream.range(0, 64).parallel()
+                    .mapToObj(_ -> (String) Flag.get("-o"))
+                    .collect(Collectors.toSet());
+            seen.put(source, outputs);
+        });
+        final var serverThread = Thread.ofVirtual().start(server::serve);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                final var id = i;
+                responses.add(executor.submit(() -> {
+                    try (var socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                         var writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+                         var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                        writer.println("case" + id + ".sy -S -o case" + id + ".s");
+                        return reader.readLine();
+                    }
+                }));
+            }
+            for (var response : responses) {
+                assertTrue(response.get(30, TimeUnit.SECONDS).startsWith("OK "));
+            }
+        } finally {
+            server.close();
+            serverThread.join();
+        }
+
+        assertEquals(requests, seen.size());
+        for (int i = 0; i < requests; i++) {
+            assertEquals(Set.of("case" + i + ".s"), seen.get("case" + i + ".sy"));
+        }
+    }
+}